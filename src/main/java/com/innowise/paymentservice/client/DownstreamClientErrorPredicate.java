@@ -0,0 +1,28 @@
+package com.innowise.paymentservice.client;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.function.Predicate;
+
+/**
+ * Ответы внешнего сервиса, которые circuit breaker не учитывает вовсе
+ * (resilience4j.circuitbreaker.configs.default.ignore-exception-predicate).
+ *
+ * Ответы 4xx - ответ исправного сервиса на конкретный запрос (нет пользователя, нет заказа),
+ * кроме 408 и 429. Такие вызовы не считаются ни отказом, ни успехом, поэтому не размывают
+ * долю отказов. Отказ bulkhead исключается так же (ignore-exceptions). Остальное
+ * (5xx, таймауты, сетевые ошибки) учитывается как отказ и открывает circuit breaker.
+ */
+public class DownstreamClientErrorPredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable e) {
+        if (e instanceof WebClientResponseException responseException
+                && responseException.getStatusCode().is4xxClientError()) {
+            int status = responseException.getStatusCode().value();
+            return status != HttpStatus.REQUEST_TIMEOUT.value() && status != HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        return false;
+    }
+}
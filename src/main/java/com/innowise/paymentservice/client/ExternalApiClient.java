@@ -1,91 +1,360 @@
 package com.innowise.paymentservice.client;
 
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
+import java.net.URI;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Client for external API to generate random numbers using WebClient
+ *
+ * Числа для решения по платежу берутся из буфера заранее полученных чисел (RandomNumberRingBuffer):
+ * когда в буфере остается low-water-mark чисел или меньше, в фоне запрашивается до refill-size чисел
+ * одним вызовом API (параметр count). Если буфер пуст, число берется согласно fallback:
+ * remote - отдельный вызов API (как без буфера), local - ThreadLocalRandom в диапазоне min..max из URL,
+ * none - без числа (платеж получает FAILED, как при ошибке API).
+ *
+ * Метрики: payment.random-number.buffer.depth,
+ * payment.random-number.buffer.refill{result=success|empty|rejected|error|cancelled} (время каждого пополнения),
+ * payment.random-number.requests{source=buffer|remote|local|none}.
+ *
+ * Вызовы API проходят через bulkhead и circuit breaker random-number-api (resilience4j.*):
+ * при открытом circuit breaker или занятом bulkhead вызов сразу дает пустой результат, как ошибка API.
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class ExternalApiClient {
+
+    public enum Fallback { REMOTE, LOCAL, NONE }
+
+    static final String DEPENDENCY = "random-number-api";
     
-    private final WebClient webClient;
+    private final WebClient randomNumberApiWebClient;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
     
     @Value("${external.api.random-number.url:http://www.randomnumberapi.com/api/v1.0/random?min=1&max=100}")
     private String randomNumberApiUrl;
+
+    @Value("${external.api.random-number.buffer.enabled:true}")
+    private boolean bufferEnabled;
+
+    @Value("${external.api.random-number.buffer.capacity:1024}")
+    private int bufferCapacity;
+
+    @Value("${external.api.random-number.buffer.low-water-mark:256}")
+    private int lowWaterMark;
+
+    @Value("${external.api.random-number.buffer.refill-size:512}")
+    private int refillSize;
+
+    @Value("${external.api.random-number.buffer.fallback:remote}")
+    private Fallback fallback;
+
+    private RandomNumberRingBuffer buffer;
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private int localMin;
+    private int localMax;
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
+
+    @PostConstruct
+    void init() {
+        circuitBreaker = circuitBreakerRegistry.circuitBreaker(DEPENDENCY);
+        bulkhead = bulkheadRegistry.bulkhead(DEPENDENCY);
+
+        MultiValueMap<String, String> query = UriComponentsBuilder.fromUriString(randomNumberApiUrl)
+                .build()
+                .getQueryParams();
+        localMin = parseOrDefault(query.getFirst("min"), 1);
+        localMax = Math.max(localMin, parseOrDefault(query.getFirst("max"), 100));
+        if (!bufferEnabled) {
+            return;
+        }
+        if (lowWaterMark >= bufferCapacity || refillSize < 1) {
+            throw new IllegalArgumentException(
+                    "Random number buffer requires low-water-mark < capacity and refill-size >= 1");
+        }
+        buffer = new RandomNumberRingBuffer(bufferCapacity);
+        Gauge.builder("payment.random-number.buffer.depth", buffer, RandomNumberRingBuffer::size)
+                .description("Pre-fetched random numbers available for payment decisions")
+                .register(meterRegistry);
+        log.info("Random number buffer enabled: capacity={}, low-water-mark={}, refill-size={}, fallback={}",
+                buffer.capacity(), lowWaterMark, refillSize, fallback);
+    }
     
     /**
-     * Get random number from external API
-     * @return random number, or null if API call fails
+     * Get random number from buffer or, if it is empty, according to fallback
+     * @return random number, or null if API call fails (or fallback is none)
      */
     public Integer getRandomNumber() {
+        Integer buffered = takeBuffered();
+        if (buffered != null) {
+            return buffered;
+        }
+        try {
+            // Блокируем для синхронного результата (совместимость с текущим кодом)
+            return fallbackNumber().block();
+        } catch (Exception e) {
+            log.error("Error calling external API for random number", e);
+            return null;
+        }
+    }
+
+    /**
+     * Get random number without blocking
+     * @return random number, or empty Mono if API call fails (or fallback is none)
+     */
+    public Mono<Integer> getRandomNumberAsync() {
+        return Mono.defer(() -> {
+            Integer buffered = takeBuffered();
+            return buffered != null ? Mono.just(buffered) : fallbackNumber();
+        });
+    }
+
+    /**
+     * Get count random numbers from external API in one call (parameter count), bypassing the buffer
+     * @return numbers in API order (may be fewer than requested), or empty list if API call fails
+     */
+    public List<Integer> getRandomNumbers(int count) {
         try {
+            return getRandomNumbersAsync(count).block();
+        } catch (Exception e) {
+            log.error("Error calling external API for random numbers", e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Get count random numbers from external API in one call without blocking
+     * @return numbers in API order (may be fewer than requested), or empty list if API call fails
+     */
+    public Mono<List<Integer>> getRandomNumbersAsync(int count) {
+        return requestRandomNumbers(count)
+                .transform(this::handleErrors)
+                .map(Arrays::asList)
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.warn("External API returned empty or invalid response");
+                    return List.of();
+                }));
+    }
+
+    /**
+     * Вызов API за count числами без обработки ошибок
+     */
+    private Mono<Integer[]> requestRandomNumbers(int count) {
+        return Mono.defer(() -> {
+            URI uri = UriComponentsBuilder.fromUriString(randomNumberApiUrl)
+                    .replaceQueryParam("count", count)
+                    .build()
+                    .toUri();
+            log.info("Calling external API for {} random numbers: {}", count, uri);
+            return randomNumberApiWebClient.get()
+                    .uri(uri)
+                    .retrieve()
+                    .bodyToMono(Integer[].class)
+                    .timeout(Duration.ofSeconds(10));
+        })
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    /**
+     * Число из буфера; при снижении до low-water-mark запускает пополнение.
+     * @return число или null, если буфер выключен или пуст
+     */
+    private Integer takeBuffered() {
+        if (buffer == null) {
+            return null;
+        }
+        OptionalInt number = buffer.poll();
+        if (buffer.size() <= lowWaterMark) {
+            refill();
+        }
+        if (number.isEmpty()) {
+            return null;
+        }
+        countRequest("buffer");
+        return number.getAsInt();
+    }
+
+    /**
+     * Пополнение буфера одним вызовом API; одновременно выполняется не больше одного пополнения.
+     * Время пополнения записывается при любом исходе, включая ошибку и отказ circuit breaker.
+     */
+    private void refill() {
+        if (!refilling.compareAndSet(false, true)) {
+            return;
+        }
+        int count = Math.min(refillSize, buffer.capacity() - buffer.size());
+        if (count < 1) {
+            refilling.set(false);
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        AtomicReference<String> result = new AtomicReference<>("empty");
+        requestRandomNumbers(count)
+                .doOnNext(numbers -> {
+                    int added = buffer.offer(Arrays.asList(numbers));
+                    if (added > 0) {
+                        result.set("success");
+                    }
+                    log.debug("Random number buffer refilled with {} of {} requested numbers", added, count);
+                })
+                .doOnError(e -> result.set(isRejected(e) ? "rejected" : "error"))
+                .doFinally(signal -> {
+                    sample.stop(meterRegistry.timer("payment.random-number.buffer.refill",
+                            "result", signal == SignalType.CANCEL ? "cancelled" : result.get()));
+                    refilling.set(false);
+                })
+                .subscribe(
+                        numbers -> { },
+                        e -> {
+                            if (isRejected(e)) {
+                                log.warn("Random number buffer refill rejected: {}", e.getMessage());
+                            } else {
+                                log.error("Random number buffer refill failed", e);
+                            }
+                        });
+    }
+
+    private static boolean isRejected(Throwable e) {
+        return e instanceof CallNotPermittedException || e instanceof BulkheadFullException;
+    }
+
+    private Mono<Integer> fallbackNumber() {
+        if (buffer == null) {
+            return fetchRandomNumber();
+        }
+        return switch (fallback) {
+            case REMOTE -> {
+                countRequest("remote");
+                yield fetchRandomNumber();
+            }
+            case LOCAL -> {
+                countRequest("local");
+                yield Mono.just(ThreadLocalRandom.current().nextInt(localMin, localMax + 1));
+            }
+            case NONE -> {
+                countRequest("none");
+                log.warn("Random number buffer is empty, no fallback configured");
+                yield Mono.empty();
+            }
+        };
+    }
+
+    /**
+     * Get random number from external API (one call per number)
+     */
+    private Mono<Integer> fetchRandomNumber() {
+        return Mono.defer(() -> {
             log.info("Calling external API for random number: {}", randomNumberApiUrl);
-            
-            // Используем WebClient для асинхронного вызова, затем блокируем для синхронного результата
+
             // API возвращает массив чисел [34], а не массив объектов
-            Integer[] response = webClient.get()
+            return randomNumberApiWebClient.get()
                     .uri(randomNumberApiUrl)
                     .retrieve()
                     .bodyToMono(Integer[].class)
-                    .timeout(Duration.ofSeconds(10))
-                    // Обработка HTTP ошибок от внешнего API (4xx, 5xx)
-                    .onErrorResume(WebClientResponseException.class, ex -> {
-                        HttpStatusCode statusCode = ex.getStatusCode();
-                        int statusCodeValue = statusCode.value();
-                        String errorMessage = ex.getMessage();
-                        
-                        // Логируем разные типы ошибок с разным уровнем детализации
-                        if (statusCodeValue >= 400 && statusCodeValue < 500) {
-                            // Клиентские ошибки (400-499)
-                            log.error("Client error calling external API: HTTP {} - {}", 
-                                    statusCodeValue, errorMessage);
-                        } else if (statusCodeValue >= 500 && statusCodeValue < 600) {
-                            // Серверные ошибки (500-599)
-                            log.error("Server error calling external API: HTTP {} - {}", 
-                                    statusCodeValue, errorMessage);
-                        } else {
-                            // Другие HTTP ошибки
-                            log.error("HTTP error calling external API: HTTP {} - {}", statusCodeValue, errorMessage);
-                        }
-                        
-                        return Mono.empty(); // Возвращаем пустой Mono, чтобы продолжить обработку
-                    })
-                    // Обработка таймаутов
-                    .onErrorResume(java.util.concurrent.TimeoutException.class, ex -> {
-                        log.error("Timeout calling external API after 10 seconds: {}", ex.getMessage());
-                        return Mono.empty();
-                    })
-                    // Обработка сетевых ошибок и других исключений
-                    .onErrorResume(Exception.class, ex -> {
-                        log.error("Unexpected error calling external API: {} - {}", 
-                                ex.getClass().getSimpleName(), ex.getMessage(), ex);
-                        return Mono.empty();
-                    })
-                    .block(); // Блокируем для синхронного результата (совместимость с текущим кодом)
-            
-            if (response != null && response.length > 0 && response[0] != null) {
-                Integer randomNumber = response[0];
-                log.info("Received random number from external API: {}", randomNumber);
-                return randomNumber;
-            } else {
-                log.warn("External API returned empty or invalid response");
-                return null;
-            }
-        } catch (Exception e) {
-            log.error("Error calling external API for random number", e);
-            return null;
+                    .timeout(Duration.ofSeconds(10));
+        })
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transform(this::handleErrors)
+                .flatMap(response -> {
+                    if (response.length > 0 && response[0] != null) {
+                        Integer randomNumber = response[0];
+                        log.info("Received random number from external API: {}", randomNumber);
+                        return Mono.just(randomNumber);
+                    }
+                    return Mono.empty();
+                })
+                .switchIfEmpty(Mono.fromRunnable(() -> log.warn("External API returned empty or invalid response")));
+    }
+
+    private void countRequest(String source) {
+        meterRegistry.counter("payment.random-number.requests", "source", source).increment();
+    }
+
+    private static int parseOrDefault(String value, int defaultValue) {
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
         }
     }
-}
 
+    /**
+     * Ошибки внешнего API логируются и превращаются в пустой результат
+     */
+    private <T> Mono<T> handleErrors(Mono<T> call) {
+        return call
+                // Обработка HTTP ошибок от внешнего API (4xx, 5xx)
+                .onErrorResume(WebClientResponseException.class, ex -> {
+                    HttpStatusCode statusCode = ex.getStatusCode();
+                    int statusCodeValue = statusCode.value();
+                    String errorMessage = ex.getMessage();
+
+                    // Логируем разные типы ошибок с разным уровнем детализации
+                    if (statusCodeValue >= 400 && statusCodeValue < 500) {
+                        // Клиентские ошибки (400-499)
+                        log.error("Client error calling external API: HTTP {} - {}",
+                                statusCodeValue, errorMessage);
+                    } else if (statusCodeValue >= 500 && statusCodeValue < 600) {
+                        // Серверные ошибки (500-599)
+                        log.error("Server error calling external API: HTTP {} - {}",
+                                statusCodeValue, errorMessage);
+                    } else {
+                        // Другие HTTP ошибки
+                        log.error("HTTP error calling external API: HTTP {} - {}", statusCodeValue, errorMessage);
+                    }
+
+                    return Mono.empty(); // Возвращаем пустой Mono, чтобы продолжить обработку
+                })
+                // Circuit breaker открыт или bulkhead занят: API не вызывался
+                .onErrorResume(ExternalApiClient::isRejected, ex -> {
+                    log.warn("External API call rejected: {}", ex.getMessage());
+                    return Mono.empty();
+                })
+                // Обработка таймаутов
+                .onErrorResume(java.util.concurrent.TimeoutException.class, ex -> {
+                    log.error("Timeout calling external API after 10 seconds: {}", ex.getMessage());
+                    return Mono.empty();
+                })
+                // Обработка сетевых ошибок и других исключений
+                .onErrorResume(Exception.class, ex -> {
+                    log.error("Unexpected error calling external API: {} - {}",
+                            ex.getClass().getSimpleName(), ex.getMessage(), ex);
+                    return Mono.empty();
+                });
+    }
+}
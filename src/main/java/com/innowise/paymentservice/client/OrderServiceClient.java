@@ -1,26 +1,47 @@
 package com.innowise.paymentservice.client;
 
-import lombok.RequiredArgsConstructor;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
-
-import java.util.Objects;
+import reactor.core.publisher.Mono;
 
 /**
  * Клиент для взаимодействия с order-service
+ *
+ * Одинаковые обновления здесь не схлопываются: в servlet-стеке OrderStatusDispatcher уже держит
+ * не больше одного PUT на заказ и заменяет неотправленный статус новым, в реактивном стеке статусы
+ * одного платежа отправляются последовательно.
+ * Вызовы проходят через bulkhead и circuit breaker order-service (resilience4j.*): при открытом
+ * circuit breaker или занятом bulkhead вызов сразу завершается OrderServiceException.
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class OrderServiceClient {
 
-    private final WebClient.Builder webClientBuilder;
+    static final String DEPENDENCY = "order-service";
+
+    // Общий WebClient с baseUrl order-service и собственным пулом соединений (WebClientConfig)
+    private final WebClient orderServiceWebClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
 
-    @Value("${order.service.url:http://order-service:8080}")
-    private String orderServiceUrl;
+    public OrderServiceClient(
+            WebClient orderServiceWebClient,
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            BulkheadRegistry bulkheadRegistry) {
+        this.orderServiceWebClient = orderServiceWebClient;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(DEPENDENCY);
+        this.bulkhead = bulkheadRegistry.bulkhead(DEPENDENCY);
+    }
 
     /**
      * Обновляет статус заказа в order-service
@@ -31,13 +52,19 @@ public class OrderServiceClient {
      * @throws OrderServiceException если произошла ошибка при обновлении статуса
      */
     public void updateOrderStatus(Long orderId, String orderStatus, String authToken) {
-        try {
-            String baseUrl = Objects.requireNonNullElse(orderServiceUrl, "http://order-service:8080");
-            WebClient webClient = webClientBuilder.baseUrl(baseUrl).build();
+        updateOrderStatusAsync(orderId, orderStatus, authToken).block();
+    }
 
+    /**
+     * Неблокирующее обновление статуса заказа в order-service
+     *
+     * @return Mono, завершающийся после ответа order-service или ошибкой OrderServiceException
+     */
+    public Mono<Void> updateOrderStatusAsync(Long orderId, String orderStatus, String authToken) {
+        return Mono.defer(() -> {
             log.info("Calling order-service to update order {} status to {}", orderId, orderStatus);
 
-            webClient.put()
+            return orderServiceWebClient.put()
                     .uri(uriBuilder -> uriBuilder
                             .path("/api/v1/orders/{id}")
                             .build(orderId))
@@ -45,22 +72,30 @@ public class OrderServiceClient {
                     .header("Content-Type", "application/json")
                     .bodyValue("{\"status\":\"" + orderStatus + "\"}")
                     .retrieve()
-                    .bodyToMono(Void.class)
-                    .block();
-
-            log.info("Order {} status successfully updated to {}", orderId, orderStatus);
+                    .bodyToMono(Void.class);
+        })
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .doOnSuccess(ignored -> log.info("Order {} status successfully updated to {}", orderId, orderStatus))
+                .onErrorMap(e -> toOrderServiceException(orderId, e));
+    }
 
-        } catch (WebClientResponseException.NotFound e) {
+    private OrderServiceException toOrderServiceException(Long orderId, Throwable e) {
+        if (e instanceof CallNotPermittedException || e instanceof BulkheadFullException) {
+            log.warn("Order-service call to update order {} status rejected: {}", orderId, e.getMessage());
+            return new OrderServiceException("Order-service unavailable, order status not updated: " + orderId, e);
+        }
+        if (e instanceof WebClientResponseException.NotFound) {
             log.error("Order {} not found in order-service: {}", orderId, e.getMessage());
-            throw new OrderServiceException("Order not found: " + orderId, e);
-        } catch (WebClientResponseException e) {
+            return new OrderServiceException("Order not found: " + orderId, e);
+        }
+        if (e instanceof WebClientResponseException responseException) {
             log.error("Error calling order-service to update order {} status: HTTP {} - {}", 
-                    orderId, e.getStatusCode(), e.getMessage());
-            throw new OrderServiceException("Failed to update order status: " + orderId, e);
-        } catch (Exception e) {
-            log.error("Unexpected error calling order-service to update order {} status: {}", orderId, e.getMessage(), e);
-            throw new OrderServiceException("Unexpected error updating order status: " + orderId, e);
+                    orderId, responseException.getStatusCode(), e.getMessage());
+            return new OrderServiceException("Failed to update order status: " + orderId, e);
         }
+        log.error("Unexpected error calling order-service to update order {} status: {}", orderId, e.getMessage(), e);
+        return new OrderServiceException("Unexpected error updating order status: " + orderId, e);
     }
 
     /**
@@ -73,7 +108,6 @@ public class OrderServiceClient {
         return authToken.startsWith("Bearer") ? authToken : "Bearer " + authToken;
     }
 
-
     /**
      * Исключение для ошибок при вызове order-service
      */
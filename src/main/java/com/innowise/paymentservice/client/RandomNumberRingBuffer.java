@@ -0,0 +1,85 @@
+package com.innowise.paymentservice.client;
+
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кольцевой буфер заранее полученных случайных чисел без блокировок.
+ *
+ * Один писатель (пополнение, которое ExternalApiClient запускает не более одного одновременно)
+ * и любое число читателей: читатель забирает число CAS-ом позиции head, писатель публикует
+ * новые числа записью tail после заполнения ячеек. Писатель не перезаписывает ячейки,
+ * которые еще не прочитаны, поэтому лишние числа при заполненном буфере отбрасываются.
+ */
+public final class RandomNumberRingBuffer {
+
+    private final AtomicIntegerArray slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity емкость, округляется вверх до степени двойки
+     */
+    public RandomNumberRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30, got " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicIntegerArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Забирает следующее число; пустой результат, если буфер пуст.
+     */
+    public OptionalInt poll() {
+        while (true) {
+            long position = head.get();
+            if (position >= tail.get()) {
+                return OptionalInt.empty();
+            }
+            int value = slots.get((int) (position & mask));
+            if (head.compareAndSet(position, position + 1)) {
+                return OptionalInt.of(value);
+            }
+        }
+    }
+
+    /**
+     * Добавляет числа в свободные ячейки. Вызывается только одним потоком одновременно.
+     *
+     * @return сколько чисел добавлено
+     */
+    public int offer(List<Integer> values) {
+        long position = tail.get();
+        long free = capacity() - (position - head.get());
+        int added = 0;
+        for (Integer value : values) {
+            if (added >= free) {
+                break;
+            }
+            if (value != null) {
+                slots.set((int) ((position + added) & mask), value);
+                added++;
+            }
+        }
+        tail.set(position + added);
+        return added;
+    }
+
+    public int size() {
+        // head читается первым: tail может только вырасти, поэтому разность не бывает отрицательной
+        long position = head.get();
+        return (int) Math.max(0, tail.get() - position);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
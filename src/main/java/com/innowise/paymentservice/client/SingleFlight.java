@@ -0,0 +1,96 @@
+package com.innowise.paymentservice.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одновременных одинаковых вызовов внешнего сервиса (single-flight).
+ *
+ * Первый вызов с ключом выполняет запрос, вызовы с тем же ключом до его завершения получают
+ * тот же результат (значение, пустой ответ или ошибку) без собственного запроса. После завершения
+ * ключ освобождается, следующий вызов снова идет в сервис - результаты не кэшируются.
+ * Запрос выполняется до конца, даже если все ожидающие отменили подписку.
+ * Метрики: downstream.single-flight.calls{name, result=executed|collapsed}
+ * и downstream.single-flight.in-flight{name}.
+ *
+ * @param <K> ключ вызова: все, от чего зависит ответ (аргументы и, если важно, токен)
+ * @param <V> результат вызова
+ */
+public final class SingleFlight<K, V> {
+
+    private static final String METRIC_PREFIX = "downstream.single-flight";
+
+    private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter collapsed;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.executed = Counter.builder(METRIC_PREFIX + ".calls")
+                .description("Downstream calls actually sent")
+                .tag("name", name)
+                .tag("result", "executed")
+                .register(meterRegistry);
+        this.collapsed = Counter.builder(METRIC_PREFIX + ".calls")
+                .description("Downstream calls served by an identical call already in flight")
+                .tag("name", name)
+                .tag("result", "collapsed")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".in-flight", inFlight, ConcurrentMap::size)
+                .description("Distinct downstream calls currently in flight")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Результат вызова call для ключа; при уже выполняющемся вызове с этим ключом - его результат.
+     * call запускается при подписке на возвращенный Mono.
+     */
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            Sinks.One<V> sink = Sinks.one();
+            Mono<V> shared = sink.asMono();
+            Mono<V> existing = inFlight.putIfAbsent(key, shared);
+            if (existing != null) {
+                collapsed.increment();
+                return existing;
+            }
+            executed.increment();
+
+            Mono<V> source;
+            try {
+                source = call.get();
+            } catch (RuntimeException e) {
+                source = Mono.error(e);
+            }
+            // Ключ освобождается до публикации результата: вызов, пришедший после нее, не получит старый ответ
+            source.subscribe(
+                    value -> {
+                        inFlight.remove(key, shared);
+                        sink.tryEmitValue(value);
+                    },
+                    error -> {
+                        inFlight.remove(key, shared);
+                        sink.tryEmitError(error);
+                    },
+                    () -> {
+                        inFlight.remove(key, shared);
+                        sink.tryEmitEmpty();
+                    });
+            return shared;
+        });
+    }
+
+    /**
+     * Число разных вызовов, выполняющихся сейчас.
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -1,30 +1,97 @@
 package com.innowise.paymentservice.client;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.innowise.paymentservice.dto.UserDto;
-import lombok.RequiredArgsConstructor;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
-import java.util.Objects;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Клиент для взаимодействия с user-service
+ *
+ * Результаты поиска по email кэшируются локально (Caffeine): найденный пользователь живет ttl,
+ * ответ 404 - negative-ttl, ошибки user-service не кэшируются. После refresh-after запись
+ * обновляется в фоне при очередном обращении, а до обновления отдается текущее значение,
+ * поэтому частые запросы одного пользователя не ждут user-service. Для обновления используется
+ * токен последнего обращения к записи. Запрос в user-service (и при промахе, и при обновлении)
+ * выполняется вне блокировок кэша. Сброс записей - по событиям user-changed (UserChangedEventConsumer);
+ * сброс, пришедший во время загрузки, побеждает: загруженное значение в кэш не попадает.
+ * Метрики: cache.gets{result=hit|miss}, cache.evictions, cache.size с тегом cache=user.lookup,
+ * а также user.lookup.cache.invalidations.
+ * Одновременные запросы в user-service с одинаковыми email и токеном объединяются в один (SingleFlight).
+ * Запросы проходят через bulkhead и circuit breaker user-service (resilience4j.*): при открытом
+ * circuit breaker промах кэша сразу завершается UserServiceException, а фоновое обновление
+ * оставляет прежнее значение записи.
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class UserServiceClient {
 
-    private final WebClient.Builder webClientBuilder;
+    static final String CACHE_NAME = "user.lookup";
+    static final String DEPENDENCY = "user-service";
 
-    @Value("${user.service.url:http://user-service:8080}")
-    private String userServiceUrl;
+    // Общий WebClient с baseUrl user-service и собственным пулом соединений (WebClientConfig)
+    private final WebClient userServiceWebClient;
+    private final boolean cacheEnabled;
+    private final Cache<String, CachedUser> cache;
+    private final long refreshAfterNanos;
+    // Меняется при каждом сбросе; загрузка, начатая до сброса, не записывает результат в кэш
+    private final AtomicLong invalidationGeneration = new AtomicLong();
+    private final Counter invalidations;
+    private final SingleFlight<UserLookupKey, CachedUser> userLookups;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    public UserServiceClient(
+            WebClient userServiceWebClient,
+            MeterRegistry meterRegistry,
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            BulkheadRegistry bulkheadRegistry,
+            @Value("${user.service.cache.enabled:true}") boolean cacheEnabled,
+            @Value("${user.service.cache.max-size:10000}") long maxSize,
+            @Value("${user.service.cache.ttl:10m}") Duration ttl,
+            @Value("${user.service.cache.negative-ttl:30s}") Duration negativeTtl,
+            @Value("${user.service.cache.refresh-after:8m}") Duration refreshAfter) {
+        this.userServiceWebClient = userServiceWebClient;
+        this.cacheEnabled = cacheEnabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UserLookupExpiry(ttl, negativeTtl))
+                .recordStats()
+                .build();
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.invalidations = Counter.builder(CACHE_NAME + ".cache.invalidations")
+                .description("Cached user lookups dropped because of a user-changed event")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.userLookups = new SingleFlight<>("user-service.user-by-email", meterRegistry);
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(DEPENDENCY);
+        this.bulkhead = bulkheadRegistry.bulkhead(DEPENDENCY);
+    }
 
     /**
-     * Получает пользователя по email из user-service
+     * Получает пользователя по email из user-service (или из локального кэша)
      * 
      * @param email email пользователя
      * @param authToken JWT токен для авторизации
@@ -32,43 +99,133 @@ public class UserServiceClient {
      * @throws UserServiceException если пользователь не найден или произошла ошибка
      */
     public UserDto getUserByEmail(String email, String authToken) {
-        try {
-            String baseUrl = Objects.requireNonNullElse(userServiceUrl, "http://user-service:8080");
-            WebClient webClient = webClientBuilder.baseUrl(baseUrl).build();
-
-            log.info("Calling user-service to get user by email: {}", email);
-
-            UserDto userDto = webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/api/v1/users/email")
-                            .queryParam("email", email)
-                            .build())
-                    .header("Authorization", buildAuthorizationHeader(authToken))
-                    .retrieve()
-                    .bodyToMono(UserDto.class)
-                    .block();
-
-            if (userDto == null) {
-                log.error("User not found in user-service for email: {}", email);
-                throw new UserServiceException("User not found for email: " + email);
-            }
+        CachedUser cached = cacheEnabled ? cachedUser(email, authToken) : fetch(email, authToken).block();
+
+        if (cached == null || cached.user == null) {
+            throw new UserServiceException("User not found for email: " + email);
+        }
+        return cached.user;
+    }
+
+    private CachedUser cachedUser(String email, String authToken) {
+        String key = cacheKey(email);
+        CachedUser cached = cache.getIfPresent(key);
+        if (cached != null) {
+            cached.authToken = authToken;
+            refreshIfStale(key, cached);
+            return cached;
+        }
+
+        // Промах: запрос выполняется без блокировок кэша, одновременные промахи объединяет SingleFlight
+        long generation = invalidationGeneration.get();
+        CachedUser loaded = fetch(email, authToken).block();
+        if (loaded != null) {
+            cache.asMap().compute(key, (k, current) ->
+                    generation == invalidationGeneration.get() ? loaded : current);
+        }
+        return loaded;
+    }
+
+    /**
+     * После refresh-after запись обновляется в фоне по сохраненным email и токену, пока отдается
+     * прежнее значение. Если обновление не удалось, прежнее значение остается до истечения ttl,
+     * а следующее обращение запускает обновление снова; если запись за это время сброшена,
+     * результат обновления отбрасывается.
+     */
+    private void refreshIfStale(String key, CachedUser cached) {
+        if (System.nanoTime() - cached.loadedAt < refreshAfterNanos || !cached.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        fetch(cached.email, cached.authToken).subscribe(
+                refreshed -> cache.asMap().replace(key, cached, refreshed),
+                e -> {
+                    cached.refreshing.set(false);
+                    log.warn("Background refresh of cached user {} failed, keeping cached value: {}",
+                            cached.email, e.getMessage());
+                });
+    }
 
-            log.info("User found in user-service: id={}, email={}", userDto.getId(), userDto.getEmail());
-            return userDto;
-
-        } catch (WebClientResponseException.NotFound e) {
-            log.error("User not found in user-service for email {}: {}", email, e.getMessage());
-            throw new UserServiceException("User not found for email: " + email, e);
-        } catch (WebClientResponseException e) {
-            log.error("Error calling user-service for email {}: HTTP {} - {}", 
-                    email, e.getStatusCode(), e.getMessage());
-            throw new UserServiceException("Failed to get user by email: " + email, e);
-        } catch (Exception e) {
-            log.error("Unexpected error calling user-service for email {}: {}", email, e.getMessage(), e);
-            throw new UserServiceException("Unexpected error getting user by email: " + email, e);
+    /**
+     * Удаляет запись пользователя по email; null игнорируется.
+     */
+    public void invalidate(String email) {
+        if (email == null || email.isBlank()) {
+            return;
+        }
+        invalidationGeneration.incrementAndGet();
+        if (cache.asMap().remove(cacheKey(email)) != null) {
+            invalidations.increment();
+            log.debug("User lookup cache entry invalidated for email: {}", email);
         }
     }
 
+    /**
+     * Удаляет записи пользователя по id - для событий, где email не указан или уже изменился.
+     */
+    public void invalidateUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        invalidationGeneration.incrementAndGet();
+        cache.asMap().forEach((key, cached) -> {
+            if (cached.user != null && userId.equals(cached.user.getId())
+                    && cache.asMap().remove(key, cached)) {
+                invalidations.increment();
+                log.debug("User lookup cache entry invalidated for userId: {}", userId);
+            }
+        });
+    }
+
+    private Mono<CachedUser> fetch(String email, String authToken) {
+        return userLookups.execute(new UserLookupKey(cacheKey(email), authToken),
+                () -> requestUser(email, authToken));
+    }
+
+    private Mono<CachedUser> requestUser(String email, String authToken) {
+        return Mono.defer(() -> {
+                    log.info("Calling user-service to get user by email: {}", email);
+                    return userServiceWebClient.get()
+                            .uri(uriBuilder -> uriBuilder
+                                    .path("/api/v1/users/email")
+                                    .queryParam("email", email)
+                                    .build())
+                            .header("Authorization", buildAuthorizationHeader(authToken))
+                            .retrieve()
+                            .bodyToMono(UserDto.class);
+                })
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .map(userDto -> {
+                    log.info("User found in user-service: id={}, email={}", userDto.getId(), userDto.getEmail());
+                    return new CachedUser(email, userDto, authToken);
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.error("User not found in user-service for email: {}", email);
+                    return new CachedUser(email, null, authToken);
+                }))
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    log.error("User not found in user-service for email {}: {}", email, e.getMessage());
+                    return Mono.just(new CachedUser(email, null, authToken));
+                })
+                .onErrorMap(e -> !(e instanceof UserServiceException), e -> {
+                    if (e instanceof CallNotPermittedException || e instanceof BulkheadFullException) {
+                        log.warn("User-service call for email {} rejected: {}", email, e.getMessage());
+                        return new UserServiceException("User-service unavailable, cannot get user by email: " + email, e);
+                    }
+                    if (e instanceof WebClientResponseException responseException) {
+                        log.error("Error calling user-service for email {}: HTTP {} - {}",
+                                email, responseException.getStatusCode(), e.getMessage());
+                        return new UserServiceException("Failed to get user by email: " + email, e);
+                    }
+                    log.error("Unexpected error calling user-service for email {}: {}", email, e.getMessage(), e);
+                    return new UserServiceException("Unexpected error getting user by email: " + email, e);
+                });
+    }
+
+    private static String cacheKey(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Формирует корректный заголовок Authorization
      */
@@ -79,6 +236,57 @@ public class UserServiceClient {
         return authToken.startsWith("Bearer") ? authToken : "Bearer " + authToken;
     }
 
+    private record UserLookupKey(String email, String authToken) {
+    }
+
+    /**
+     * Результат поиска: user == null означает, что пользователь не найден (negative-запись).
+     * Токен обновляется при каждом обращении и используется для фонового обновления записи.
+     */
+    static final class CachedUser {
+        private final String email;
+        private final UserDto user;
+        private final long loadedAt = System.nanoTime();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile String authToken;
+
+        CachedUser(String email, UserDto user, String authToken) {
+            this.email = email;
+            this.user = user;
+            this.authToken = authToken;
+        }
+    }
+
+    /**
+     * Найденные пользователи живут ttl, negative-записи - negativeTtl; обновление записи
+     * (refresh) заново отсчитывает срок по ее новому значению.
+     */
+    private static final class UserLookupExpiry implements Expiry<String, CachedUser> {
+
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        UserLookupExpiry(Duration ttl, Duration negativeTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, CachedUser value, long currentTime) {
+            return value.user != null ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedUser value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedUser value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
     /**
      * Исключение для ошибок при вызове user-service
      */
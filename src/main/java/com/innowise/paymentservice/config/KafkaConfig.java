@@ -2,6 +2,7 @@ package com.innowise.paymentservice.config;
 
 import com.innowise.paymentservice.dto.CreateOrderEvent;
 import com.innowise.paymentservice.dto.CreatePaymentEvent;
+import com.innowise.paymentservice.dto.UserChangedEvent;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
@@ -20,6 +21,7 @@ import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Kafka configuration for Payment Service
@@ -97,5 +99,37 @@ public class KafkaConfig {
         factory.setCommonErrorHandler(new DefaultErrorHandler());
         return factory;
     }
-}
 
+    // Consumer Configuration for USER_CHANGED events (сброс кэша UserServiceClient)
+    @Bean
+    public ConsumerFactory<String, UserChangedEvent> userChangedEventConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        // Своя группа на каждый экземпляр: кэш локальный, событие должен получить каждый экземпляр
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "payment-service-user-cache-" + UUID.randomUUID());
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        // Старые события не нужны: после запуска кэш пуст
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.configure(com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        JsonDeserializer<UserChangedEvent> jsonDeserializer = new JsonDeserializer<>(UserChangedEvent.class, objectMapper, false);
+        jsonDeserializer.setRemoveTypeHeaders(true);
+        jsonDeserializer.addTrustedPackages("*");
+
+        return new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(jsonDeserializer));
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, UserChangedEvent> userChangedEventKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, UserChangedEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(userChangedEventConsumerFactory());
+        factory.setCommonErrorHandler(new DefaultErrorHandler());
+        return factory;
+    }
+}
@@ -28,6 +28,10 @@ public class LiquibaseConfig {
     @Value("${spring.liquibase.enabled:true}")
     private boolean liquibaseEnabled;
 
+    // Режим хранения payments (regular | timeseries) передается в Liquibase как context
+    @Value("${payment.storage.mode:regular}")
+    private String storageMode;
+
     public LiquibaseConfig(MongoTemplate mongoTemplate, MongoClient mongoClient) {
         this.mongoTemplate = mongoTemplate;
         this.mongoClient = mongoClient;
@@ -41,7 +45,8 @@ public class LiquibaseConfig {
         }
 
         try {
-            log.info("Starting Liquibase migration for MongoDB with changelog: {}", changeLogFile);
+            log.info("Starting Liquibase migration for MongoDB with changelog: {}, storage mode: {}",
+                    changeLogFile, storageMode);
             
             String databaseName = mongoTemplate.getDb().getName();
             MongoDatabase mongoDatabase = mongoClient.getDatabase(databaseName);
@@ -61,7 +66,9 @@ public class LiquibaseConfig {
                     new ClassLoaderResourceAccessor(),
                     liquibaseDatabase
             )) {
-                liquibase.update("");
+                // database нужен adminCommand-changeset'ам (renameCollection принимает полное имя коллекции)
+                liquibase.setChangeLogParameter("database", databaseName);
+                liquibase.update(storageMode);
                 log.info("Liquibase migration completed successfully for database: {}", databaseName);
             }
         } catch (LiquibaseException e) {
@@ -0,0 +1,41 @@
+package com.innowise.paymentservice.config;
+
+import com.innowise.paymentservice.client.ExternalApiClient;
+import com.innowise.paymentservice.service.MeteredPaymentDecisionEngine;
+import com.innowise.paymentservice.service.PaymentDecisionEngine;
+import com.innowise.paymentservice.service.RemoteApiDecisionEngine;
+import com.innowise.paymentservice.service.SecureRandomDecisionEngine;
+import com.innowise.paymentservice.service.SeededDecisionEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Выбор реализации решения по платежу (payment.decision.engine):
+ * remote (по умолчанию) - внешний API случайных чисел,
+ * secure-random - в процессе, без внешнего API,
+ * seeded - детерминированно по payment.decision.seed и orderId (нагрузочные тесты, профиль loadtest).
+ */
+@Configuration
+@Slf4j
+public class PaymentDecisionConfig {
+
+    @Bean
+    public PaymentDecisionEngine paymentDecisionEngine(
+            @Value("${payment.decision.engine:" + RemoteApiDecisionEngine.NAME + "}") String engine,
+            @Value("${payment.decision.seed:42}") long seed,
+            ExternalApiClient externalApiClient,
+            MeterRegistry meterRegistry) {
+        PaymentDecisionEngine delegate = switch (engine) {
+            case RemoteApiDecisionEngine.NAME -> new RemoteApiDecisionEngine(externalApiClient);
+            case SecureRandomDecisionEngine.NAME -> new SecureRandomDecisionEngine();
+            case SeededDecisionEngine.NAME -> new SeededDecisionEngine(seed);
+            default -> throw new IllegalArgumentException("Unknown payment.decision.engine: " + engine
+                    + " (expected remote, secure-random or seeded)");
+        };
+        log.info("Payment decision engine: {}", delegate.name());
+        return new MeteredPaymentDecisionEngine(delegate, meterRegistry);
+    }
+}
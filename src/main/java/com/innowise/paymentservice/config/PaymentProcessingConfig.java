@@ -0,0 +1,57 @@
+package com.innowise.paymentservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Пул обработки платежей в асинхронном режиме (payment.processing.async=true).
+ *
+ * Очередь ограничена: при переполнении задача выполняется в вызывающем (servlet) потоке,
+ * то есть под нагрузкой режим деградирует до синхронного, а не теряет платежи.
+ * Метрики пула: executor.* с тегом name=paymentProcessingExecutor.
+ *
+ * При spring.threads.virtual.enabled=true каждая задача получает свой виртуальный поток,
+ * а ограничением служит число одновременно обрабатываемых платежей (pool-size + queue-capacity);
+ * при его достижении вызывающий поток ждет освобождения места.
+ */
+@Configuration
+@Slf4j
+public class PaymentProcessingConfig {
+
+    private static final String THREAD_NAME_PREFIX = "payment-processing-";
+    private static final int AWAIT_TERMINATION_SECONDS = 30;
+
+    @Bean
+    public TaskExecutor paymentProcessingExecutor(
+            @Value("${payment.processing.pool-size:8}") int poolSize,
+            @Value("${payment.processing.queue-capacity:1000}") int queueCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(THREAD_NAME_PREFIX);
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(poolSize + queueCapacity);
+            executor.setTaskTerminationTimeout(AWAIT_TERMINATION_SECONDS * 1000L);
+            log.info("Payment processing executor: virtual threads, concurrencyLimit={}", poolSize + queueCapacity);
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // При остановке дорабатываем принятые платежи, иначе они останутся в PENDING
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(AWAIT_TERMINATION_SECONDS);
+        log.info("Payment processing executor: poolSize={}, queueCapacity={}", poolSize, queueCapacity);
+        return executor;
+    }
+}
@@ -0,0 +1,26 @@
+package com.innowise.paymentservice.config;
+
+import com.innowise.paymentservice.service.PaymentRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Пересборка payment_rollups по запросу, без перезапуска сервиса:
+ * POST /actuator/paymentrollups (требует JWT, как и остальные эндпоинты кроме health/info).
+ */
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "paymentrollups")
+public class PaymentRollupEndpoint {
+
+    private final PaymentRollupService paymentRollupService;
+
+    @WriteOperation
+    public Map<String, Long> rebuild() {
+        return Map.of("buckets", paymentRollupService.rebuild());
+    }
+}
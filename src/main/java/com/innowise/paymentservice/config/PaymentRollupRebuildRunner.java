@@ -0,0 +1,24 @@
+package com.innowise.paymentservice.config;
+
+import com.innowise.paymentservice.service.PaymentRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Пересборка payment_rollups при старте:
+ * java -jar payment-service.jar --payment.rollups.rebuild-on-startup=true
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "payment.rollups.rebuild-on-startup", havingValue = "true")
+public class PaymentRollupRebuildRunner implements CommandLineRunner {
+
+    private final PaymentRollupService paymentRollupService;
+
+    @Override
+    public void run(String... args) {
+        paymentRollupService.rebuild();
+    }
+}
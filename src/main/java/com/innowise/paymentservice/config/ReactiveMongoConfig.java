@@ -0,0 +1,53 @@
+package com.innowise.paymentservice.config;
+
+import com.innowise.paymentservice.repository.ReactivePaymentRepository;
+import com.mongodb.ConnectionString;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+
+/**
+ * Reactive-драйвер MongoDB профиля reactive.
+ *
+ * Reactive-автоконфигурация MongoDB исключена в PaymentServiceApplication, поэтому MVC-стек не открывает
+ * второй клиент с собственным пулом соединений; в профиле reactive клиент, шаблон и репозиторий
+ * создаются здесь. Конвертер общий с MongoTemplate, как в автоконфигурации Spring Boot.
+ */
+@Slf4j
+@Configuration
+@Profile("reactive")
+@EnableReactiveMongoRepositories(basePackageClasses = ReactivePaymentRepository.class)
+public class ReactiveMongoConfig {
+
+    private final ConnectionString connectionString;
+
+    public ReactiveMongoConfig(@Value("${spring.data.mongodb.uri}") String uri) {
+        this.connectionString = new ConnectionString(uri);
+    }
+
+    @Bean
+    public MongoClient reactiveMongoClient() {
+        log.info("Reactive profile: creating reactive MongoDB client");
+        return MongoClients.create(connectionString);
+    }
+
+    @Bean
+    public ReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory(MongoClient reactiveMongoClient) {
+        return new SimpleReactiveMongoDatabaseFactory(reactiveMongoClient, connectionString.getDatabase());
+    }
+
+    @Bean
+    public ReactiveMongoTemplate reactiveMongoTemplate(ReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory,
+                                                       MappingMongoConverter mappingMongoConverter) {
+        return new ReactiveMongoTemplate(reactiveMongoDatabaseFactory, mappingMongoConverter);
+    }
+}
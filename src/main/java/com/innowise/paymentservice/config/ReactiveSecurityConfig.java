@@ -0,0 +1,64 @@
+package com.innowise.paymentservice.config;
+
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Конфигурация безопасности для профиля reactive (WebFlux): те же правила, что и в SecurityConfig -
+ * JWT для всех эндпоинтов, кроме actuator health/info.
+ */
+@Slf4j
+@Configuration
+@EnableWebFluxSecurity
+@Profile("reactive & !test")
+public class ReactiveSecurityConfig {
+
+    @Value("${jwt.secret:mySecretKeyForJWTGenerationInAuthenticationService2025}")
+    private String jwtSecret;
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                // Stateless: контекст безопасности не сохраняется между запросами
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .authorizeExchange(exchange -> exchange
+                        .pathMatchers("/actuator/health", "/actuator/health/**", "/actuator/info").permitAll()
+                        .anyExchange().authenticated()
+                )
+                .oauth2ResourceServer(oauth2 -> oauth2
+                        .jwt(jwt -> jwt.jwtDecoder(reactiveJwtDecoder()))
+                        .authenticationEntryPoint((exchange, authException) -> {
+                            log.error("JWT authentication error for {}: {}",
+                                    exchange.getRequest().getPath(), authException.getMessage());
+                            exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+                            byte[] body = ("{\"error\":\"Unauthorized\",\"message\":\"" + authException.getMessage() + "\"}")
+                                    .getBytes(StandardCharsets.UTF_8);
+                            return exchange.getResponse()
+                                    .writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(body)));
+                        })
+                )
+                .build();
+    }
+
+    @Bean
+    public ReactiveJwtDecoder reactiveJwtDecoder() {
+        SecretKey secretKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        return NimbusReactiveJwtDecoder.withSecretKey(secretKey).build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.innowise.paymentservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Веб-сервер профиля reactive.
+ *
+ * Tomcat остается в classpath ради MVC-стека, и Spring Boot по умолчанию запустил бы WebFlux на нем;
+ * явная фабрика Netty дает event loop без пула потоков на соединение.
+ */
+@Slf4j
+@Configuration
+@Profile("reactive")
+public class ReactiveWebConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        log.info("Reactive profile: using Netty web server");
+        return new NettyReactiveWebServerFactory();
+    }
+}
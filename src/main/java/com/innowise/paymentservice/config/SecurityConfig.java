@@ -34,7 +34,7 @@ import io.jsonwebtoken.security.Keys;
  */
 @Configuration
 @EnableWebSecurity
-@Profile("!test")
+@Profile("!test & !reactive")
 public class SecurityConfig {
 
     private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
@@ -1,18 +1,61 @@
 package com.innowise.paymentservice.config;
 
+import io.netty.channel.ChannelOption;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Configuration for WebClient to call external APIs
+ *
+ * На каждый внешний сервис создается один долгоживущий WebClient со своим пулом соединений
+ * (ConnectionProvider): клиенты не собирают WebClient на каждый вызов, а медленный сервис
+ * не занимает соединения других. Параметры пулов - http.client.pool.*; метрики пулов
+ * публикуются Reactor Netty в Micrometer: reactor.netty.connection.provider.*{name=...}
+ * (/actuator/metrics).
  */
 @Configuration
 @Slf4j
-public class WebClientConfig {
+public class WebClientConfig implements DisposableBean {
+
+    @Value("${http.client.pool.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${http.client.pool.pending-acquire-max-count:1000}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${http.client.pool.pending-acquire-timeout:5s}")
+    private Duration pendingAcquireTimeout;
+
+    @Value("${http.client.pool.max-idle-time:30s}")
+    private Duration maxIdleTime;
+
+    @Value("${http.client.pool.max-life-time:5m}")
+    private Duration maxLifeTime;
+
+    @Value("${http.client.pool.evict-in-background:30s}")
+    private Duration evictInBackground;
+
+    @Value("${http.client.keep-alive:true}")
+    private boolean keepAlive;
+
+    // Раньше у order-service и user-service не было ограничения на ожидание ответа
+    @Value("${http.client.response-timeout:10s}")
+    private Duration responseTimeout;
+
+    private final List<ConnectionProvider> connectionProviders = new CopyOnWriteArrayList<>();
     
     /**
      * Builder with logging filters for all WebClient calls.
@@ -38,8 +81,59 @@ public class WebClientConfig {
                 }));
     }
     
+    /**
+     * WebClient для API случайных чисел (URL с параметрами задается целиком в ExternalApiClient).
+     */
+    @Bean
+    public WebClient randomNumberApiWebClient(WebClient.Builder builder) {
+        return builder.clone()
+                .clientConnector(pooledConnector("random-number-api"))
+                .build();
+    }
+
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
-        return builder.build();
+    public WebClient orderServiceWebClient(
+            WebClient.Builder builder,
+            @Value("${order.service.url:http://order-service:8080}") String orderServiceUrl) {
+        return builder.clone()
+                .baseUrl(orderServiceUrl)
+                .clientConnector(pooledConnector("order-service"))
+                .build();
+    }
+
+    @Bean
+    public WebClient userServiceWebClient(
+            WebClient.Builder builder,
+            @Value("${user.service.url:http://user-service:8080}") String userServiceUrl) {
+        return builder.clone()
+                .baseUrl(userServiceUrl)
+                .clientConnector(pooledConnector("user-service"))
+                .build();
+    }
+
+    private ReactorClientHttpConnector pooledConnector(String name) {
+        ConnectionProvider provider = ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                // Соединение закрывается раньше, чем его закроет сервер или балансировщик по простою
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInBackground)
+                .metrics(true)
+                .build();
+        connectionProviders.add(provider);
+        log.info("HTTP connection pool {}: maxConnections={}, pendingAcquireMaxCount={}, maxIdleTime={}",
+                name, maxConnections, pendingAcquireMaxCount, maxIdleTime);
+        HttpClient httpClient = HttpClient.create(provider)
+                .responseTimeout(responseTimeout)
+                .keepAlive(keepAlive)
+                .option(ChannelOption.SO_KEEPALIVE, keepAlive);
+        return new ReactorClientHttpConnector(httpClient);
+    }
+
+    @Override
+    public void destroy() {
+        connectionProviders.forEach(ConnectionProvider::dispose);
     }
 }
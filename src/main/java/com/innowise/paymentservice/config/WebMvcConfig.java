@@ -1,6 +1,7 @@
 package com.innowise.paymentservice.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.HandlerInterceptor;
@@ -16,8 +17,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Конфигурация для логирования всех зарегистрированных маппингов и входящих запросов.
+ * Только для MVC-стека: в профиле reactive RequestMappingHandlerMapping из Spring MVC отсутствует.
  */
 @Configuration
+@Profile("!reactive")
 public class WebMvcConfig implements WebMvcConfigurer {
     
     @Override
@@ -27,6 +30,7 @@ public class WebMvcConfig implements WebMvcConfigurer {
 }
 
 @Component
+@Profile("!reactive")
 class RequestLoggingInterceptor implements HandlerInterceptor {
     
     private static final Logger log = LoggerFactory.getLogger(RequestLoggingInterceptor.class);
@@ -46,6 +50,7 @@ class RequestLoggingInterceptor implements HandlerInterceptor {
 }
 
 @Component
+@Profile("!reactive")
 class RequestMappingLogger implements ApplicationListener<ContextRefreshedEvent> {
     
     private static final Logger log = LoggerFactory.getLogger(RequestMappingLogger.class);
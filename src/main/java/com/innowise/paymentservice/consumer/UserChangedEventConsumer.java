@@ -0,0 +1,47 @@
+package com.innowise.paymentservice.consumer;
+
+import com.innowise.paymentservice.client.UserServiceClient;
+import com.innowise.paymentservice.dto.UserChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+/**
+ * Kafka Consumer for USER_CHANGED events: сбрасывает записи кэша пользователей в UserServiceClient.
+ * Включается user.service.cache.invalidation.enabled=true; без него записи устаревают по TTL.
+ * Каждый экземпляр сервиса читает топик своей consumer group (KafkaConfig), чтобы сброс дошел до всех.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "user.service.cache.invalidation.enabled", havingValue = "true")
+public class UserChangedEventConsumer {
+
+    private final UserServiceClient userServiceClient;
+
+    @KafkaListener(topics = "${user.service.cache.invalidation.topic:user-changed-events}",
+            containerFactory = "userChangedEventKafkaListenerContainerFactory")
+    public void handleUserChangedEvent(
+            @Payload(required = false) UserChangedEvent event,
+            @Header(KafkaHeaders.OFFSET) long offset) {
+        if (event == null) {
+            log.warn("Received null USER_CHANGED event at offset {}, skipping", offset);
+            return;
+        }
+
+        log.info("USER_CHANGED event received for userId: {}, invalidating cached user lookups", event.getUserId());
+        try {
+            userServiceClient.invalidate(event.getEmail());
+            userServiceClient.invalidate(event.getPreviousEmail());
+            userServiceClient.invalidateUser(event.getUserId());
+        } catch (Exception e) {
+            // Сброс кэша не должен останавливать чтение топика: запись в худшем случае истечет по TTL
+            log.error("Failed to invalidate cached user lookups for userId: {}", event.getUserId(), e);
+        }
+    }
+}
@@ -1,44 +1,77 @@
 package com.innowise.paymentservice.controller;
 
 import com.innowise.paymentservice.client.UserServiceClient;
+import com.innowise.paymentservice.dto.CreatePaymentBatchRequest;
 import com.innowise.paymentservice.dto.CreatePaymentRequest;
+import com.innowise.paymentservice.dto.PaymentBatchResponse;
 import com.innowise.paymentservice.dto.PaymentDto;
+import com.innowise.paymentservice.dto.PaymentPageResponse;
 import com.innowise.paymentservice.dto.TotalSumResponse;
 import com.innowise.paymentservice.dto.UserDto;
+import com.innowise.paymentservice.model.ClosedPeriodTotal;
+import com.innowise.paymentservice.model.PaymentFilter;
 import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.service.IdempotencyService;
+import com.innowise.paymentservice.service.PaymentBatchService;
+import com.innowise.paymentservice.service.PaymentExportService;
 import com.innowise.paymentservice.service.PaymentService;
 import com.innowise.paymentservice.util.SecurityUtils;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import jakarta.annotation.PostConstruct;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/v1/payments")
 @Validated
+@Profile("!reactive")
 public class PaymentController {
 
+    private static final Duration CLOSED_TOTAL_MAX_AGE = Duration.ofDays(365);
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
     
     private final PaymentService paymentService;
     private final UserServiceClient userServiceClient;
+    private final PaymentExportService paymentExportService;
+    private final IdempotencyService idempotencyService;
+    private final PaymentBatchService paymentBatchService;
     
     @Autowired
-    public PaymentController(PaymentService paymentService, UserServiceClient userServiceClient) {
+    public PaymentController(PaymentService paymentService, UserServiceClient userServiceClient,
+                             PaymentExportService paymentExportService, IdempotencyService idempotencyService,
+                             PaymentBatchService paymentBatchService) {
         this.paymentService = paymentService;
         this.userServiceClient = userServiceClient;
+        this.paymentExportService = paymentExportService;
+        this.idempotencyService = idempotencyService;
+        this.paymentBatchService = paymentBatchService;
         log.info("========================================");
         log.debug("PaymentController CONSTRUCTOR CALLED!");
         log.info("Class: {}", this.getClass().getName());
@@ -135,42 +168,110 @@ public class PaymentController {
     
     
     /**
-     * Получение всех платежей.
+     * Получение всех платежей постранично (от новых к старым).
+     * Следующая страница: /api/v1/payments?cursor={nextCursor}&limit=50
      * 
-     * @return список всех платежей
+     * @param cursor курсор из nextCursor предыдущей страницы
+     * @param limit размер страницы (1..500)
+     * @return страница платежей
      */
     @GetMapping("")
-    public ResponseEntity<List<PaymentDto>> getAllPayments() {
+    public ResponseEntity<PaymentPageResponse> getAllPayments(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + PaymentService.DEFAULT_PAGE_SIZE)
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = PaymentService.MAX_PAGE_SIZE, message = "Limit must be at most " + PaymentService.MAX_PAGE_SIZE)
+            int limit) {
         log.error("=== PaymentController.getAllPayments() CALLED ===");
         log.error("Method: GET, Path: /api/v1/payments");
-        List<PaymentDto> payments = paymentService.getAllPayments();
-        log.error("Returning {} payments", payments.size());
-        return ResponseEntity.ok(payments);
+        PaymentPageResponse page = paymentService.getAllPayments(cursor, limit);
+        log.error("Returning {} payments", page.getItems().size());
+        return ResponseEntity.ok(page);
     }
     
     /**
      * Получение всех платежей (альтернативный эндпоинт для тестирования).
      * ВАЖНО: Этот метод должен быть ПЕРЕД методами с переменными пути, чтобы Spring правильно его разрешал.
      * 
-     * @return список всех платежей
+     * @param cursor курсор из nextCursor предыдущей страницы
+     * @param limit размер страницы (1..500)
+     * @return страница платежей
      */
     @GetMapping("/all")
-    public ResponseEntity<List<PaymentDto>> getAllPaymentsAlternative() {
+    public ResponseEntity<PaymentPageResponse> getAllPaymentsAlternative(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + PaymentService.DEFAULT_PAGE_SIZE)
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = PaymentService.MAX_PAGE_SIZE, message = "Limit must be at most " + PaymentService.MAX_PAGE_SIZE)
+            int limit) {
         log.error("=== PaymentController.getAllPaymentsAlternative() CALLED ===");
         log.error("Method: GET, Path: /api/v1/payments/all");
-        List<PaymentDto> payments = paymentService.getAllPayments();
-        log.error("Returning {} payments", payments.size());
-        return ResponseEntity.ok(payments);
+        PaymentPageResponse page = paymentService.getAllPayments(cursor, limit);
+        log.error("Returning {} payments", page.getItems().size());
+        return ResponseEntity.ok(page);
     }
     
+    /**
+     * Выгрузка платежей в формате NDJSON (application/x-ndjson), по одному PaymentDto на строку.
+     * Ответ пишется потоком из курсора MongoDB, объем памяти не зависит от размера выборки.
+     * Пример: /api/v1/payments/export?startDate=2025-01-01T00:00:00Z&endDate=2025-12-31T23:59:59Z&statuses=SUCCESS
+     * 
+     * @param startDate опциональная начальная дата периода
+     * @param endDate опциональная конечная дата периода
+     * @param statuses опциональный список статусов для фильтрации
+     * @param userId опциональный ID пользователя
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportPayments(
+            @RequestParam(value = "startDate", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) 
+            Instant startDate,
+            @RequestParam(value = "endDate", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) 
+            Instant endDate,
+            @RequestParam(value = "statuses", required = false) 
+            List<PaymentStatus> statuses,
+            @RequestParam(value = "userId", required = false)
+            @Size(min = 1, max = 50, message = "User ID must be between 1 and 50 characters")
+            String userId,
+            HttpServletResponse response
+    ) throws IOException {
+        log.info("PaymentController.exportPayments() called: startDate={}, endDate={}, statuses={}, userId={}",
+                startDate, endDate, statuses, userId);
+
+        if ((startDate == null) != (endDate == null)) {
+            throw new IllegalArgumentException("Both startDate and endDate must be provided, or neither");
+        }
+        PaymentFilter filter = PaymentFilter.builder()
+                .userId(userId)
+                .statuses(statuses)
+                .startDate(startDate)
+                .endDate(endDate)
+                .build();
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payments.ndjson\"");
+        paymentExportService.exportNdjson(filter, response.getOutputStream());
+    }
+
     /**
      * Создание нового платежа.
      * 
+     * При payment.processing.async=true возвращает 202 Accepted с платежом в статусе PENDING
+     * и заголовком Location (/api/v1/payments/{id}) для получения итогового статуса.
+     * 
+     * С заголовком Idempotency-Key повтор запроса возвращает сохраненный ответ первого запроса
+     * (с заголовком Idempotent-Replayed: true) без повторного создания платежа.
+     * 
      * @param request данные для создания платежа
+     * @param idempotencyKey необязательный ключ идемпотентности
      * @return созданный платеж
      */
     @PostMapping("")
-    public ResponseEntity<PaymentDto> createPayment(@Valid @RequestBody CreatePaymentRequest request) {
+    public ResponseEntity<PaymentDto> createPayment(
+            @Valid @RequestBody CreatePaymentRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         log.error("========================================");
         log.error("PaymentController.createPayment() CALLED!");
         log.error("Method: POST, Path: /api/v1/payments");
@@ -179,38 +280,27 @@ public class PaymentController {
         log.error("========================================");
         
         try {
-            // Получаем токен для передачи в order-service
-            // ВАЖНО: В продакшене все запросы требуют аутентификации (SecurityConfig.anyRequest().authenticated())
-            // Анонимные пользователи НЕ должны попадать в этот контроллер в продакшене.
-            // Обработка null токена нужна только для:
-            // 1. Интеграционных тестов (где используется TestSecurityConfig с permitAll())
-            // 2. Внутренних вызовов между микросервисами (если они настроены)
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String authToken = null;
-            try {
-                authToken = SecurityUtils.getTokenString(authentication);
-            } catch (IllegalStateException e) {
-                // ВАЖНО: В продакшене (SecurityConfig с @Profile("!test")) все запросы требуют аутентификации
-                // (.anyRequest().authenticated()). Spring Security блокирует анонимных пользователей ДО контроллера.
-                // Анонимные пользователи (AnonymousAuthenticationToken) НЕ авторизованы и не должны попадать сюда в продакшене.
-                // 
-                // Обработка null токена нужна только для:
-                // 1. Интеграционных тестов (TestSecurityConfig с permitAll() и профилем "test")
-                // 2. Внутренних вызовов между микросервисами (если они настроены без JWT)
-                //
-                // Если анонимный пользователь все же попал сюда в продакшене - это ошибка конфигурации SecurityConfig,
-                // но мы не блокируем здесь, так как Spring Security уже должен был это сделать.
-                log.warn("Could not extract JWT token from authentication (may be anonymous in test or internal call): {}", e.getMessage());
-                authToken = null;
-            }
-            
-            PaymentDto paymentDto = paymentService.createPayment(request, authToken);
+            String token = currentAuthToken();
+            IdempotencyService.Result result = idempotencyKey == null
+                    ? executeCreatePayment(request, token)
+                    : idempotencyService.execute(currentPrincipal(), idempotencyKey, request,
+                            () -> executeCreatePayment(request, token));
+
+            PaymentDto paymentDto = result.body();
             log.error("=== PAYMENT CREATED SUCCESSFULLY ===");
-            log.error("Payment ID: {}, Order ID: {}, User ID: {}, Amount: {}, Status: {}", 
+            log.error("Payment ID: {}, Order ID: {}, User ID: {}, Amount: {}, Status: {}, Replayed: {}", 
                     paymentDto.getId(), paymentDto.getOrderId(), paymentDto.getUserId(), 
-                    paymentDto.getPaymentAmount(), paymentDto.getStatus());
+                    paymentDto.getPaymentAmount(), paymentDto.getStatus(), result.replayed());
             log.error("========================================");
-            return ResponseEntity.ok(paymentDto);
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(result.status());
+            if (result.status() == HttpStatus.ACCEPTED.value()) {
+                // Асинхронный режим: платеж сохранен в PENDING, итоговый статус - по URL из Location
+                response.location(URI.create("/api/v1/payments/" + paymentDto.getId()));
+            }
+            if (result.replayed()) {
+                response.header(IDEMPOTENT_REPLAYED_HEADER, "true");
+            }
+            return response.body(paymentDto);
         } catch (Exception e) {
             log.error("=== ERROR CREATING PAYMENT ===");
             log.error("Error: {}", e.getMessage(), e);
@@ -219,68 +309,170 @@ public class PaymentController {
         }
     }
 
+    private IdempotencyService.Result executeCreatePayment(CreatePaymentRequest request, String authToken) {
+        if (paymentService.isAsyncProcessing()) {
+            PaymentDto accepted = paymentService.createPaymentAsync(request, authToken);
+            log.info("Payment accepted for processing, id: {}, orderId: {}", accepted.getId(), accepted.getOrderId());
+            return new IdempotencyService.Result(HttpStatus.ACCEPTED.value(), accepted, false);
+        }
+        return new IdempotencyService.Result(HttpStatus.OK.value(), paymentService.createPayment(request, authToken), false);
+    }
+
+    /**
+     * Пакетное создание платежей (до 1000 в запросе).
+     * 
+     * Элементы проверяются вместе: один невалидный элемент отклоняет весь запрос (400).
+     * Ошибка записи отдельного элемента не отменяет остальные: ответ содержит результат
+     * каждого элемента в порядке запроса (payment или error) и число созданных/неудачных.
+     * 
+     * @param request элементы пакета
+     * @return результаты по элементам
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<PaymentBatchResponse> createPayments(@Valid @RequestBody CreatePaymentBatchRequest request) {
+        log.info("PaymentController.createPayments() called, items: {}", request.getItems().size());
+        PaymentBatchResponse response = paymentBatchService.createPayments(request.getItems(), currentAuthToken());
+        log.info("Batch processed: total={}, created={}, failed={}",
+                response.getTotal(), response.getCreated(), response.getFailed());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Пользователь, в пределах которого действует Idempotency-Key (sub JWT; anonymous в тестах без аутентификации).
+     */
+    private String currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "anonymous";
+    }
+
+    private String currentAuthToken() {
+        // Получаем токен для передачи в order-service
+        // ВАЖНО: В продакшене все запросы требуют аутентификации (SecurityConfig.anyRequest().authenticated())
+        // Анонимные пользователи НЕ должны попадать в этот контроллер в продакшене.
+        // Обработка null токена нужна только для:
+        // 1. Интеграционных тестов (где используется TestSecurityConfig с permitAll())
+        // 2. Внутренних вызовов между микросервисами (если они настроены)
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String authToken = null;
+        try {
+            authToken = SecurityUtils.getTokenString(authentication);
+        } catch (IllegalStateException e) {
+            // ВАЖНО: В продакшене (SecurityConfig с @Profile("!test")) все запросы требуют аутентификации
+            // (.anyRequest().authenticated()). Spring Security блокирует анонимных пользователей ДО контроллера.
+            // Анонимные пользователи (AnonymousAuthenticationToken) НЕ авторизованы и не должны попадать сюда в продакшене.
+            // 
+            // Обработка null токена нужна только для:
+            // 1. Интеграционных тестов (TestSecurityConfig с permitAll() и профилем "test")
+            // 2. Внутренних вызовов между микросервисами (если они настроены без JWT)
+            //
+            // Если анонимный пользователь все же попал сюда в продакшене - это ошибка конфигурации SecurityConfig,
+            // но мы не блокируем здесь, так как Spring Security уже должен был это сделать.
+            log.warn("Could not extract JWT token from authentication (may be anonymous in test or internal call): {}", e.getMessage());
+            authToken = null;
+        }
+        
+        return authToken;
+    }
+
+    /**
+     * Получение платежа по ID (URL статуса для асинхронного создания).
+     * 
+     * @param id ID платежа
+     * @return платеж или 404
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<PaymentDto> getPaymentById(
+            @PathVariable
+            @NotBlank(message = "Payment ID cannot be blank")
+            @Size(max = 50, message = "Payment ID must be at most 50 characters")
+            String id) {
+        log.info("PaymentController.getPaymentById() called, id: {}", id);
+        return ResponseEntity.of(paymentService.getPaymentById(id));
+    }
+
     /**
      * Получение платежей по ID заказа.
      * 
      * @param orderId ID заказа
-     * @return список платежей для указанного заказа
+     * @param cursor курсор из nextCursor предыдущей страницы
+     * @param limit размер страницы (1..500)
+     * @return страница платежей для указанного заказа
      */
     @GetMapping("/order/{orderId}")
-    public ResponseEntity<List<PaymentDto>> getPaymentsByOrderId(
+    public ResponseEntity<PaymentPageResponse> getPaymentsByOrderId(
             @PathVariable 
             @NotBlank(message = "Order ID cannot be blank")
             @Size(min = 1, max = 50, message = "Order ID must be between 1 and 50 characters")
-            String orderId) {
+            String orderId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + PaymentService.DEFAULT_PAGE_SIZE)
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = PaymentService.MAX_PAGE_SIZE, message = "Limit must be at most " + PaymentService.MAX_PAGE_SIZE)
+            int limit) {
         log.error("========================================");
         log.error("PaymentController.getPaymentsByOrderId() CALLED!");
         log.error("Method: GET, Path: /api/v1/payments/order/{}", orderId);
         log.error("========================================");
-        List<PaymentDto> payments = paymentService.getPaymentsByOrderId(orderId);
-        log.error("Found {} payments for orderId: {}", payments.size(), orderId);
-        return ResponseEntity.ok(payments);
+        PaymentPageResponse page = paymentService.getPaymentsByOrderId(orderId, cursor, limit);
+        log.error("Found {} payments for orderId: {}", page.getItems().size(), orderId);
+        return ResponseEntity.ok(page);
     }
 
     /**
      * Получение платежей по ID пользователя.
      * 
      * @param userId ID пользователя
-     * @return список платежей для указанного пользователя
+     * @param cursor курсор из nextCursor предыдущей страницы
+     * @param limit размер страницы (1..500)
+     * @return страница платежей для указанного пользователя
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<PaymentDto>> getPaymentsByUserId(
+    public ResponseEntity<PaymentPageResponse> getPaymentsByUserId(
             @PathVariable 
             @NotBlank(message = "User ID cannot be blank")
             @Size(min = 1, max = 50, message = "User ID must be between 1 and 50 characters")
-            String userId) {
+            String userId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + PaymentService.DEFAULT_PAGE_SIZE)
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = PaymentService.MAX_PAGE_SIZE, message = "Limit must be at most " + PaymentService.MAX_PAGE_SIZE)
+            int limit) {
         log.error("========================================");
         log.error("PaymentController.getPaymentsByUserId() CALLED!");
         log.error("Method: GET, Path: /api/v1/payments/user/{}", userId);
         log.error("========================================");
-        List<PaymentDto> payments = paymentService.getPaymentsByUserId(userId);
-        log.error("Found {} payments for userId: {}", payments.size(), userId);
-        return ResponseEntity.ok(payments);
+        PaymentPageResponse page = paymentService.getPaymentsByUserId(userId, cursor, limit);
+        log.error("Found {} payments for userId: {}", page.getItems().size(), userId);
+        return ResponseEntity.ok(page);
     }
     
     /**
      * Получение общей суммы платежей.
      * 
      * @param statuses список статусов для фильтрации
-     * @return список платежей с указанными статусами
+     * @param cursor курсор из nextCursor предыдущей страницы
+     * @param limit размер страницы (1..500)
+     * @return страница платежей с указанными статусами
      */
     @GetMapping("/statuses")
-    public ResponseEntity<List<PaymentDto>> getPaymentsByStatuses(
+    public ResponseEntity<PaymentPageResponse> getPaymentsByStatuses(
             @RequestParam("statuses") 
             @NotNull(message = "Statuses list cannot be null")
-            List<PaymentStatus> statuses
+            List<PaymentStatus> statuses,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + PaymentService.DEFAULT_PAGE_SIZE)
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = PaymentService.MAX_PAGE_SIZE, message = "Limit must be at most " + PaymentService.MAX_PAGE_SIZE)
+            int limit
     ) {
         log.error("========================================");
         log.error("PaymentController.getPaymentsByStatuses() CALLED!");
         log.error("Method: GET, Path: /api/v1/payments/statuses");
         log.error("Statuses: {}", statuses);
         log.error("========================================");
-        List<PaymentDto> payments = paymentService.getPaymentsByStatuses(statuses);
-        log.error("Found {} payments with statuses: {}", payments.size(), statuses);
-        return ResponseEntity.ok(payments);
+        PaymentPageResponse page = paymentService.getPaymentsByStatuses(statuses, cursor, limit);
+        log.error("Found {} payments with statuses: {}", page.getItems().size(), statuses);
+        return ResponseEntity.ok(page);
     }
    
     /**
@@ -302,32 +494,54 @@ public class PaymentController {
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) 
             Instant endDate,
             @RequestParam(value = "statuses", required = false) 
-            List<PaymentStatus> statuses
+            List<PaymentStatus> statuses,
+            WebRequest webRequest
     ) {
         log.error("========================================");
         log.error("PaymentController.getTotalSumByDatePeriod() CALLED!");
         log.error("Method: GET, Path: /api/v1/payments/total");
         log.error("Parameters: startDate={}, endDate={}, statuses={}", startDate, endDate, statuses);
         log.error("========================================");
+        if ((startDate == null) != (endDate == null)) {
+            // Если указана только одна дата - ошибка
+            throw new IllegalArgumentException("Both startDate and endDate must be provided, or neither");
+        }
+
+        // Итог закрытого периода (закончился, нет PENDING-платежей) неизменен: клиент может кэшировать
+        // его бессрочно. Признак закрытия и ETag берутся из сохраненной записи итога, поэтому запрос
+        // с совпадающим If-None-Match получает 304 без агрегации и без проверки PENDING-платежей
+        if (startDate != null) {
+            Optional<ClosedPeriodTotal> closed = paymentService.findClosedPeriodTotal(startDate, endDate, statuses);
+            if (closed.isPresent()) {
+                String eTag = closed.get().eTag();
+                if (webRequest.checkNotModified(eTag)) {
+                    return null;
+                }
+                TotalSumResponse response = PaymentService.toTotalSumResponse(closed.get().toTotal(), startDate, endDate);
+                log.error("Closed-period total sum: {}, Payment count: {}", response.getTotalSum(), response.getPaymentCount());
+                return ResponseEntity.ok()
+                        .cacheControl(CacheControl.maxAge(CLOSED_TOTAL_MAX_AGE).cachePrivate().immutable())
+                        .eTag(eTag)
+                        .body(response);
+            }
+        }
+
         TotalSumResponse response;
         
         // Если даты не указаны, возвращаем общую сумму всех платежей
-        if (startDate == null && endDate == null) {
+        if (startDate == null) {
             if (statuses != null && !statuses.isEmpty()) {
                 response = paymentService.getTotalSumByStatuses(statuses);
             } else {
                 response = paymentService.getTotalSum();
             }
-        } else if (startDate != null && endDate != null) {
+        } else {
             // Если указаны обе даты, используем период
             if (statuses != null && !statuses.isEmpty()) {
                 response = paymentService.getTotalSumByDatePeriodAndStatuses(startDate, endDate, statuses);
             } else {
                 response = paymentService.getTotalSumByDatePeriod(startDate, endDate);
             }
-        } else {
-            // Если указана только одна дата - ошибка
-            throw new IllegalArgumentException("Both startDate and endDate must be provided, or neither");
         }
         
         log.error("Total sum: {}, Payment count: {}", response.getTotalSum(), response.getPaymentCount());
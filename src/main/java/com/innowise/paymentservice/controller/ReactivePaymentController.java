@@ -0,0 +1,168 @@
+package com.innowise.paymentservice.controller;
+
+import com.innowise.paymentservice.dto.CreatePaymentRequest;
+import com.innowise.paymentservice.dto.PaymentDto;
+import com.innowise.paymentservice.dto.PaymentPageResponse;
+import com.innowise.paymentservice.dto.TotalSumResponse;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.service.PaymentService;
+import com.innowise.paymentservice.service.ReactivePaymentService;
+import com.innowise.paymentservice.util.SecurityUtils;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Реактивный вариант PaymentController (профиль reactive, WebFlux).
+ * Те же пути и форматы ответов для создания, получения по ID, страниц и итогов;
+ * экспорт NDJSON и асинхронный режим 202 доступны только в MVC-стеке.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/payments")
+@Validated
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactivePaymentController {
+
+    private final ReactivePaymentService paymentService;
+
+    /**
+     * Создание нового платежа.
+     *
+     * @param request данные для создания платежа
+     * @return созданный платеж
+     */
+    @PostMapping("")
+    public Mono<ResponseEntity<PaymentDto>> createPayment(@Valid @RequestBody CreatePaymentRequest request) {
+        log.info("Reactive createPayment: orderId={}, userId={}", request.getOrderId(), request.getUserId());
+        return authToken()
+                .flatMap(authToken -> paymentService.createPayment(request, authToken))
+                .map(ResponseEntity::ok);
+    }
+
+    /**
+     * Получение платежа по ID.
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<PaymentDto>> getPaymentById(
+            @PathVariable
+            @NotBlank(message = "Payment ID cannot be blank")
+            @Size(max = 50, message = "Payment ID must be at most 50 characters")
+            String id) {
+        return paymentService.getPaymentById(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Получение всех платежей постранично (от новых к старым).
+     */
+    @GetMapping("")
+    public Mono<ResponseEntity<PaymentPageResponse>> getAllPayments(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + PaymentService.DEFAULT_PAGE_SIZE)
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = PaymentService.MAX_PAGE_SIZE, message = "Limit must be at most " + PaymentService.MAX_PAGE_SIZE)
+            int limit) {
+        return page(PaymentFilter.builder().build(), cursor, limit);
+    }
+
+    @GetMapping("/order/{orderId}")
+    public Mono<ResponseEntity<PaymentPageResponse>> getPaymentsByOrderId(
+            @PathVariable
+            @NotBlank(message = "Order ID cannot be blank")
+            @Size(min = 1, max = 50, message = "Order ID must be between 1 and 50 characters")
+            String orderId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + PaymentService.DEFAULT_PAGE_SIZE)
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = PaymentService.MAX_PAGE_SIZE, message = "Limit must be at most " + PaymentService.MAX_PAGE_SIZE)
+            int limit) {
+        return page(PaymentFilter.builder().orderId(orderId).build(), cursor, limit);
+    }
+
+    @GetMapping("/user/{userId}")
+    public Mono<ResponseEntity<PaymentPageResponse>> getPaymentsByUserId(
+            @PathVariable
+            @NotBlank(message = "User ID cannot be blank")
+            @Size(min = 1, max = 50, message = "User ID must be between 1 and 50 characters")
+            String userId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + PaymentService.DEFAULT_PAGE_SIZE)
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = PaymentService.MAX_PAGE_SIZE, message = "Limit must be at most " + PaymentService.MAX_PAGE_SIZE)
+            int limit) {
+        return page(PaymentFilter.builder().userId(userId).build(), cursor, limit);
+    }
+
+    @GetMapping("/statuses")
+    public Mono<ResponseEntity<PaymentPageResponse>> getPaymentsByStatuses(
+            @RequestParam("statuses")
+            @NotNull(message = "Statuses list cannot be null")
+            List<PaymentStatus> statuses,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + PaymentService.DEFAULT_PAGE_SIZE)
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = PaymentService.MAX_PAGE_SIZE, message = "Limit must be at most " + PaymentService.MAX_PAGE_SIZE)
+            int limit) {
+        return page(PaymentFilter.builder().statuses(statuses).build(), cursor, limit);
+    }
+
+    /**
+     * Общая сумма платежей (опционально за период и по статусам).
+     * Пример: /api/v1/payments/total?startDate=2025-01-01T00:00:00Z&endDate=2025-12-31T23:59:59Z&statuses=SUCCESS
+     */
+    @GetMapping("/total")
+    public Mono<ResponseEntity<TotalSumResponse>> getTotalSum(
+            @RequestParam(value = "startDate", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            Instant startDate,
+            @RequestParam(value = "endDate", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            Instant endDate,
+            @RequestParam(value = "statuses", required = false)
+            List<PaymentStatus> statuses) {
+        PaymentFilter filter = PaymentFilter.builder()
+                .statuses(statuses)
+                .startDate(startDate)
+                .endDate(endDate)
+                .build();
+        return paymentService.getTotalSum(filter).map(ResponseEntity::ok);
+    }
+
+    private Mono<ResponseEntity<PaymentPageResponse>> page(PaymentFilter filter, String cursor, int limit) {
+        return paymentService.getPayments(filter, cursor, limit).map(ResponseEntity::ok);
+    }
+
+    /**
+     * JWT текущего запроса для передачи в order-service; пустая строка, если его нет
+     * (тестовый профиль с permitAll или внутренний вызов).
+     */
+    private Mono<String> authToken() {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(context -> SecurityUtils.getTokenString(context.getAuthentication()))
+                .onErrorResume(IllegalStateException.class, e -> {
+                    log.warn("Could not extract JWT token from authentication (may be anonymous in test or internal call): {}",
+                            e.getMessage());
+                    return Mono.empty();
+                })
+                .defaultIfEmpty("");
+    }
+}
@@ -0,0 +1,29 @@
+package com.innowise.paymentservice.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request DTO for POST /api/v1/payments/batch.
+ * Все элементы проверяются вместе: один невалидный элемент отклоняет весь запрос (400).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreatePaymentBatchRequest {
+
+    public static final int MAX_ITEMS = 1000;
+
+    @NotEmpty(message = "Items list cannot be empty")
+    @Size(max = MAX_ITEMS, message = "Batch must contain at most " + MAX_ITEMS + " items")
+    private List<@Valid @NotNull(message = "Item cannot be null") CreatePaymentRequest> items;
+}
@@ -0,0 +1,23 @@
+package com.innowise.paymentservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Результат одного элемента пакетного создания: payment при успехе, error при ошибке записи.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentBatchItemResult {
+    /**
+     * Позиция элемента в запросе
+     */
+    private int index;
+    private String orderId;
+    private PaymentDto payment;
+    private String error;
+}
@@ -0,0 +1,22 @@
+package com.innowise.paymentservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Ответ POST /api/v1/payments/batch: результаты в порядке элементов запроса.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentBatchResponse {
+    private int total;
+    private int created;
+    private int failed;
+    private List<PaymentBatchItemResult> items;
+}
@@ -0,0 +1,22 @@
+package com.innowise.paymentservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Страница платежей keyset-пагинации.
+ * nextCursor == null означает, что страница последняя.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentPageResponse {
+    private List<PaymentDto> items;
+    private String nextCursor;
+    private int limit;
+}
@@ -0,0 +1,22 @@
+package com.innowise.paymentservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Event DTO for USER_CHANGED event received from Kafka
+ * Событие об изменении или удалении пользователя в user-service (топик user.service.cache.invalidation.topic).
+ * Используется в UserChangedEventConsumer для сброса записей кэша UserServiceClient;
+ * previousEmail заполняется, если email пользователя изменился.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UserChangedEvent {
+    private Long userId;
+    private String email;
+    private String previousEmail;
+}
@@ -67,6 +67,22 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(response);
     }
 
+    /**
+     * Handles Idempotency-Key reuse with a different body (422) or while the first request is in progress (409)
+     */
+    @ExceptionHandler(IdempotencyKeyException.class)
+    public ResponseEntity<Map<String, Object>> handleIdempotencyKeyException(IdempotencyKeyException ex) {
+        log.warn("Idempotency key rejected: {}", ex.getMessage());
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", Instant.now());
+        response.put("status", ex.getStatus().value());
+        response.put("error", ex.getStatus().getReasonPhrase());
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(ex.getStatus()).body(response);
+    }
+
     /**
      * Handles null pointer exceptions
      */
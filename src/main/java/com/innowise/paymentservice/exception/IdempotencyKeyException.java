@@ -0,0 +1,20 @@
+package com.innowise.paymentservice.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Повтор запроса с ключом Idempotency-Key, который нельзя обработать:
+ * 422 - ключ уже использован с другим телом запроса,
+ * 409 - первый запрос с этим ключом все еще выполняется.
+ */
+@Getter
+public class IdempotencyKeyException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    public IdempotencyKeyException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+}
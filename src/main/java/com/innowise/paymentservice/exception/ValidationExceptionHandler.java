@@ -1,6 +1,8 @@
 package com.innowise.paymentservice.exception;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -8,6 +10,8 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebInputException;
 
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
@@ -18,8 +22,11 @@ import java.util.stream.Collectors;
 
 /**
  * Global exception handler for validation errors
+ * Проверяется раньше GlobalExceptionHandler: иначе его обработчики RuntimeException/Exception
+ * перехватывают ошибки валидации и отвечают 500 вместо 400.
  */
 @Slf4j
+@Order(Ordered.HIGHEST_PRECEDENCE)
 @RestControllerAdvice
 public class ValidationExceptionHandler {
  /**    Что делает RestControllerAdvice:
@@ -53,6 +60,44 @@ public class ValidationExceptionHandler {
         return ResponseEntity.badRequest().body(response);
     }
 
+    /**
+     * Handles validation errors from @Valid annotated request bodies in the reactive (WebFlux) stack
+     */
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Map<String, Object>> handleWebExchangeBind(WebExchangeBindException ex) {
+
+        Map<String, String> errors = new HashMap<>();
+        ex.getFieldErrors().forEach(error -> errors.put(error.getField(), error.getDefaultMessage()));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", Instant.now());
+        response.put("status", HttpStatus.BAD_REQUEST.value());
+        response.put("error", "Validation Failed");
+        response.put("message", "Request validation failed");
+        response.put("errors", errors);
+
+        log.warn("Validation error: {}", errors);
+
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    /**
+     * Handles unreadable body and invalid parameter values in the reactive (WebFlux) stack
+     */
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<Map<String, Object>> handleServerWebInput(ServerWebInputException ex) {
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", Instant.now());
+        response.put("status", HttpStatus.BAD_REQUEST.value());
+        response.put("error", "Bad Request");
+        response.put("message", ex.getReason());
+
+        log.warn("Invalid request input: {}", ex.getReason());
+
+        return ResponseEntity.badRequest().body(response);
+    }
+
     /**
      * Handles validation errors from @PathVariable and @RequestParam annotations
      * (requires @Validated on controller class)
@@ -12,6 +12,7 @@ import java.util.List;
 public interface PaymentMapper {
     PaymentDto toDto(Payment payment);
 
+    @Mapping(target = "eventPending", ignore = true)
     Payment toEntity(PaymentDto dto);
     
     /**
@@ -20,6 +21,7 @@ public interface PaymentMapper {
      */
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "timestamp", ignore = true)
+    @Mapping(target = "eventPending", ignore = true)
     Payment toEntity(CreatePaymentRequest request);
     
     /**
@@ -0,0 +1,99 @@
+package com.innowise.paymentservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+import org.springframework.util.DigestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Итог по закрытому периоду (endDate старше окна settle-window): после закрытия он не меняется,
+ * поэтому хранится бессрочно. При ручном дозаполнении (backfill) платежей за прошлые периоды
+ * пересекающиеся документы нужно удалить из payment_closed_totals.
+ */
+@Document(collection = "payment_closed_totals")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ClosedPeriodTotal {
+
+    /**
+     * Ключ нормализованного фильтра (см. keyOf)
+     */
+    @Id
+    private String id;
+
+    private String orderId;
+
+    private String userId;
+
+    private List<PaymentStatus> statuses;
+
+    private Instant startDate;
+
+    private Instant endDate;
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal totalSum;
+
+    private long paymentCount;
+
+    private Instant computedAt;
+
+    /**
+     * Детерминированный ключ фильтра: JSON нормализованных полей (статусы отсортированы, пустые опущены).
+     */
+    public static String keyOf(PaymentFilter filter) {
+        PaymentFilter normalized = filter.normalized();
+        org.bson.Document key = new org.bson.Document();
+        if (normalized.getOrderId() != null) {
+            key.append("orderId", normalized.getOrderId());
+        }
+        if (normalized.getUserId() != null) {
+            key.append("userId", normalized.getUserId());
+        }
+        if (normalized.hasStatuses()) {
+            key.append("statuses", normalized.getStatuses().stream().map(Enum::name).toList());
+        }
+        key.append("startDate", normalized.getStartDate().toEpochMilli());
+        key.append("endDate", normalized.getEndDate().toEpochMilli());
+        return key.toJson();
+    }
+
+    public static ClosedPeriodTotal of(PaymentFilter filter, PaymentTotal total, Instant computedAt) {
+        PaymentFilter normalized = filter.normalized();
+        return ClosedPeriodTotal.builder()
+                .id(keyOf(normalized))
+                .orderId(normalized.getOrderId())
+                .userId(normalized.getUserId())
+                .statuses(normalized.getStatuses())
+                .startDate(normalized.getStartDate())
+                .endDate(normalized.getEndDate())
+                .totalSum(total.getTotalSum())
+                .paymentCount(total.getPaymentCount())
+                .computedAt(computedAt)
+                .build();
+    }
+
+    /**
+     * ETag ответа с этим итогом: ключ фильтра и сохраненные значения, которые после закрытия периода не меняются.
+     */
+    public String eTag() {
+        String content = id + "|" + (totalSum != null ? totalSum.toPlainString() : "0") + "|" + paymentCount;
+        return DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public PaymentTotal toTotal() {
+        return new PaymentTotal(totalSum != null ? totalSum : BigDecimal.ZERO, paymentCount);
+    }
+}
@@ -0,0 +1,56 @@
+package com.innowise.paymentservice.model;
+
+import com.innowise.paymentservice.dto.PaymentDto;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Ключ идемпотентности POST /api/v1/payments и сохраненный ответ на первый запрос с этим ключом.
+ * Документ удаляется TTL-индексом по expiresAt.
+ */
+@Document(collection = "payment_idempotency_keys")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class IdempotencyRecord {
+
+    /**
+     * Хэш пользователя и значение заголовка Idempotency-Key
+     */
+    @Id
+    private String id;
+
+    /**
+     * Отпечаток тела запроса: повтор ключа с другим телом отклоняется
+     */
+    private String requestHash;
+
+    private State state;
+
+    /**
+     * HTTP-статус сохраненного ответа (200 или 202 в асинхронном режиме)
+     */
+    private int responseStatus;
+
+    private PaymentDto response;
+
+    /**
+     * До этого момента запрос считается выполняющимся (продлевается, пока создание платежа идет);
+     * после - незавершенную запись (например, после падения экземпляра) может перехватить повтор
+     */
+    private Instant lockedUntil;
+
+    private Instant expiresAt;
+
+    public enum State {
+        IN_PROGRESS,
+        COMPLETED
+    }
+}
@@ -0,0 +1,37 @@
+package com.innowise.paymentservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Аренда публикации outbox: пока lockedUntil не истек, события публикует только экземпляр owner.
+ */
+@Document(collection = "payment_outbox_leases")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxLease {
+
+    /**
+     * Имя аренды (один документ на relay)
+     */
+    @Id
+    private String id;
+
+    /**
+     * Идентификатор экземпляра, владеющего арендой
+     */
+    private String owner;
+
+    /**
+     * До этого момента аренда принадлежит owner; после - ее может взять другой экземпляр
+     */
+    private Instant lockedUntil;
+}
@@ -0,0 +1,42 @@
+package com.innowise.paymentservice.model;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Позиция keyset-пагинации: последний отданный платеж по сортировке (timestamp desc, _id desc).
+ * Клиенту передается в виде непрозрачной base64url-строки.
+ * timestamp == null - платеж без времени (старые документы): при сортировке desc такие идут последними.
+ */
+@Value
+public class PageCursor {
+    Instant timestamp;
+    String id;
+
+    public static PageCursor of(Payment payment) {
+        return new PageCursor(payment.getTimestamp(), payment.getId());
+    }
+
+    public String encode() {
+        String raw = (timestamp != null ? String.valueOf(timestamp.toEpochMilli()) : "") + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException если курсор поврежден
+     */
+    public static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            String millis = raw.substring(0, separator);
+            return new PageCursor(millis.isEmpty() ? null : Instant.ofEpochMilli(Long.parseLong(millis)),
+                    raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
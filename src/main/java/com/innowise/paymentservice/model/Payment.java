@@ -5,12 +5,17 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 
+/**
+ * Индексы коллекции payments создаются только changeset'ами Liquibase (db/changelog/004, 005 и 009 -
+ * обычный режим, 007, 009 и 010 - time-series), набор индексов проверяет PaymentIndexPlanTest.
+ */
 @Document(collection = "payments")
 @Data
 @Builder
@@ -20,17 +25,21 @@ public class Payment {
     @Id
     private String id;
 
-    @Indexed
     private String orderId;
     
-    @Indexed
     private String userId;
 
-    @Indexed
     private PaymentStatus status;
 
-    @Indexed
     private Instant timestamp;
 
+    // Decimal128 вместо строки: точная десятичная сумма, которую $sum складывает без преобразований
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal paymentAmount;
+
+    /**
+     * Outbox: true, пока событие CREATE_PAYMENT не опубликовано в Kafka (PaymentOutboxRelay).
+     * Записывается той же операцией, что и платеж; после публикации поле удаляется.
+     */
+    private Boolean eventPending;
 }
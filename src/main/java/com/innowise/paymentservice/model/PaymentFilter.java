@@ -0,0 +1,64 @@
+package com.innowise.paymentservice.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Фильтр выборки платежей (списки, выгрузка, расчет общей суммы).
+ * Все поля опциональны: null означает отсутствие фильтра.
+ * Период задается полуинтервалом как в derived-запросах Spring Data (startDate &lt; timestamp &lt; endDate).
+ */
+@Value
+@Builder(toBuilder = true)
+public class PaymentFilter {
+    String orderId;
+    String userId;
+    List<PaymentStatus> statuses;
+    Instant startDate;
+    Instant endDate;
+
+    public boolean hasStatuses() {
+        return statuses != null && !statuses.isEmpty();
+    }
+
+    public boolean hasPeriod() {
+        return startDate != null && endDate != null;
+    }
+
+    /**
+     * Каноничная форма фильтра для использования в качестве ключа кэша:
+     * статусы без повторов в порядке объявления enum, пустой список равен отсутствию фильтра.
+     */
+    public PaymentFilter normalized() {
+        List<PaymentStatus> canonicalStatuses = hasStatuses()
+                ? statuses.stream().filter(Objects::nonNull).distinct().sorted().toList()
+                : null;
+        return toBuilder()
+                .statuses(canonicalStatuses == null || canonicalStatuses.isEmpty() ? null : canonicalStatuses)
+                .build();
+    }
+
+    /**
+     * Попадает ли платеж с указанным статусом в выборку фильтра.
+     */
+    public boolean matches(Payment payment, PaymentStatus status) {
+        if (orderId != null && !orderId.equals(payment.getOrderId())) {
+            return false;
+        }
+        if (userId != null && !userId.equals(payment.getUserId())) {
+            return false;
+        }
+        if (hasStatuses() && !statuses.contains(status)) {
+            return false;
+        }
+        if (!hasPeriod()) {
+            return true;
+        }
+        Instant timestamp = payment.getTimestamp();
+        return timestamp != null && timestamp.isAfter(startDate) && timestamp.isBefore(endDate);
+    }
+}
@@ -0,0 +1,53 @@
+package com.innowise.paymentservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Предрассчитанные суммы платежей по бакету (день UTC, статус, пользователь).
+ * Для каждого (день, статус) дополнительно ведется строка с userId = ALL_USERS,
+ * чтобы общие суммы не суммировали строки всех пользователей.
+ */
+@Document(collection = "payment_rollups")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaymentRollup {
+
+    public static final String ALL_USERS = "*";
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE.withZone(ZoneOffset.UTC);
+
+    /**
+     * Составной ключ "yyyy-MM-dd|STATUS|userId" (тот же формат строит пересборка в PaymentRollupOperationsImpl)
+     */
+    @Id
+    private String id;
+
+    private Instant day;
+
+    private PaymentStatus status;
+
+    private String userId;
+
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal totalAmount;
+
+    private long paymentCount;
+
+    public static String bucketId(Instant day, PaymentStatus status, String userId) {
+        return DAY_FORMAT.format(day) + "|" + (status != null ? status.name() : "") + "|" + (userId != null ? userId : "");
+    }
+}
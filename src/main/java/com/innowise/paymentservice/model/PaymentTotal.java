@@ -0,0 +1,31 @@
+package com.innowise.paymentservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Результат агрегации платежей: сумма и количество документов.
+ *
+ * Суммы считает MongoDB ($sum по Decimal128 в payments, $inc в payment_rollups); в памяти складываются
+ * только готовые частичные итоги (plus, не больше трех на запрос), поэтому накопление в long
+ * минимальных единицах здесь не используется. Масштаб paymentAmount не ограничен (@DecimalMin 0.01
+ * без @Digits), и перевод в копейки округлял бы допустимые суммы.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentTotal {
+    private BigDecimal totalSum;
+    private long paymentCount;
+
+    public static PaymentTotal empty() {
+        return new PaymentTotal(BigDecimal.ZERO, 0L);
+    }
+
+    public PaymentTotal plus(PaymentTotal other) {
+        return new PaymentTotal(totalSum.add(other.getTotalSum()), paymentCount + other.getPaymentCount());
+    }
+}
@@ -8,7 +8,11 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Kafka Producer for sending CREATE_PAYMENT events
@@ -23,28 +27,39 @@ public class PaymentEventProducer {
     private final KafkaTemplate<String, CreatePaymentEvent> kafkaTemplate;
 
     /**
-     * Send CREATE_PAYMENT event to Kafka
+     * Публикация событий CREATE_PAYMENT пачкой (PaymentOutboxRelay): все send() выполняются сразу,
+     * продюсер объединяет их в batch'и по партициям, затем ожидаются подтверждения брокера.
+     *
+     * @return платежи, события которых подтверждены брокером; остальные останутся в outbox
      */
-    public void sendCreatePaymentEvent(Payment payment) {
-        try {
-            CreatePaymentEvent event = buildCreatePaymentEvent(payment);
-            
-            log.info("Sending CREATE_PAYMENT event to Kafka for paymentId: {}", payment.getId());
-            
-            CompletableFuture<SendResult<String, CreatePaymentEvent>> future = 
-                    kafkaTemplate.send(CREATE_PAYMENT_TOPIC, payment.getId(), event);
-            
-            future.whenComplete((result, ex) -> {
-                if (ex == null) {
-                    log.info("CREATE_PAYMENT event sent successfully for paymentId: {}, offset: {}", 
-                            payment.getId(), result.getRecordMetadata().offset());
-                } else {
-                    log.error("Failed to send CREATE_PAYMENT event for paymentId: {}", payment.getId(), ex);
-                }
-            });
-        } catch (Exception e) {
-            log.error("Error sending CREATE_PAYMENT event for paymentId: {}", payment.getId(), e);
+    public List<Payment> publishCreatePaymentEvents(List<Payment> payments, Duration timeout) {
+        List<CompletableFuture<SendResult<String, CreatePaymentEvent>>> futures = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            try {
+                futures.add(kafkaTemplate.send(CREATE_PAYMENT_TOPIC, payment.getId(), buildCreatePaymentEvent(payment)));
+            } catch (Exception e) {
+                log.error("Error sending CREATE_PAYMENT event for paymentId: {}", payment.getId(), e);
+                futures.add(CompletableFuture.failedFuture(e));
+            }
         }
+        kafkaTemplate.flush();
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<Payment> published = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            Payment payment = payments.get(i);
+            try {
+                futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                published.add(payment);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Failed to send CREATE_PAYMENT event for paymentId: {}", payment.getId(), e);
+            }
+        }
+        log.info("CREATE_PAYMENT events sent: {} of {}", published.size(), payments.size());
+        return published;
     }
 
     private CreatePaymentEvent buildCreatePaymentEvent(Payment payment) {
@@ -0,0 +1,7 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.ClosedPeriodTotal;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface ClosedPeriodTotalRepository extends MongoRepository<ClosedPeriodTotal, String> {
+}
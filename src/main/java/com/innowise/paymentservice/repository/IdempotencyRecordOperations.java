@@ -0,0 +1,30 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.dto.PaymentDto;
+
+import java.time.Instant;
+
+/**
+ * Условные обновления коллекции payment_idempotency_keys.
+ */
+public interface IdempotencyRecordOperations {
+
+    /**
+     * Перехват незавершенной записи, у которой истек lockedUntil.
+     *
+     * @return true, если запись перехвачена этим вызовом
+     */
+    boolean takeOver(String key, Instant now, Instant lockedUntil);
+
+    /**
+     * Продление блокировки выполняющегося запроса.
+     *
+     * @return false, если запись уже не IN_PROGRESS
+     */
+    boolean renew(String key, Instant lockedUntil);
+
+    /**
+     * Сохранение ответа: запись переходит в COMPLETED и хранится до expiresAt.
+     */
+    void complete(String key, int responseStatus, PaymentDto response, Instant expiresAt);
+}
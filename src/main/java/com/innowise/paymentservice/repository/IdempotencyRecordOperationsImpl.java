@@ -0,0 +1,45 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.dto.PaymentDto;
+import com.innowise.paymentservice.model.IdempotencyRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+
+@RequiredArgsConstructor
+public class IdempotencyRecordOperationsImpl implements IdempotencyRecordOperations {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean takeOver(String key, Instant now, Instant lockedUntil) {
+        Query query = Query.query(Criteria.where("_id").is(key)
+                .and("state").is(IdempotencyRecord.State.IN_PROGRESS)
+                .and("lockedUntil").lt(now));
+        return mongoTemplate.updateFirst(query, Update.update("lockedUntil", lockedUntil), IdempotencyRecord.class)
+                .getModifiedCount() == 1;
+    }
+
+    @Override
+    public boolean renew(String key, Instant lockedUntil) {
+        Query query = Query.query(Criteria.where("_id").is(key)
+                .and("state").is(IdempotencyRecord.State.IN_PROGRESS));
+        return mongoTemplate.updateFirst(query, Update.update("lockedUntil", lockedUntil), IdempotencyRecord.class)
+                .getMatchedCount() == 1;
+    }
+
+    @Override
+    public void complete(String key, int responseStatus, PaymentDto response, Instant expiresAt) {
+        Update update = new Update()
+                .set("state", IdempotencyRecord.State.COMPLETED)
+                .set("responseStatus", responseStatus)
+                .set("response", response)
+                .set("expiresAt", expiresAt)
+                .unset("lockedUntil");
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(key)), update, IdempotencyRecord.class);
+    }
+}
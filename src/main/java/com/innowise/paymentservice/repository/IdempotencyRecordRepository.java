@@ -0,0 +1,7 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.IdempotencyRecord;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface IdempotencyRecordRepository extends MongoRepository<IdempotencyRecord, String>, IdempotencyRecordOperations {
+}
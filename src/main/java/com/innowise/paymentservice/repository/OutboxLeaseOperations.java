@@ -0,0 +1,21 @@
+package com.innowise.paymentservice.repository;
+
+import java.time.Instant;
+
+/**
+ * Условные обновления коллекции payment_outbox_leases.
+ */
+public interface OutboxLeaseOperations {
+
+    /**
+     * Берет или продлевает аренду: успешно, если аренды еще нет, она принадлежит owner или истекла.
+     *
+     * @return true, если аренда до lockedUntil принадлежит owner
+     */
+    boolean acquire(String name, String owner, Instant now, Instant lockedUntil);
+
+    /**
+     * Освобождает аренду, если она принадлежит owner.
+     */
+    void release(String name, String owner);
+}
@@ -0,0 +1,38 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.OutboxLease;
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+
+@RequiredArgsConstructor
+public class OutboxLeaseOperationsImpl implements OutboxLeaseOperations {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean acquire(String name, String owner, Instant now, Instant lockedUntil) {
+        Query query = Query.query(Criteria.where("_id").is(name)
+                .orOperator(Criteria.where("owner").is(owner), Criteria.where("lockedUntil").lt(now)));
+        Update update = new Update().set("owner", owner).set("lockedUntil", lockedUntil);
+        try {
+            // Чужая действующая аренда не подходит под фильтр, и upsert падает на _id
+            UpdateResult result = mongoTemplate.upsert(query, update, OutboxLease.class);
+            return result.getMatchedCount() > 0 || result.getUpsertedId() != null;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void release(String name, String owner) {
+        Query query = Query.query(Criteria.where("_id").is(name).and("owner").is(owner));
+        mongoTemplate.updateFirst(query, Update.update("lockedUntil", Instant.EPOCH), OutboxLease.class);
+    }
+}
@@ -0,0 +1,7 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.OutboxLease;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface OutboxLeaseRepository extends MongoRepository<OutboxLease, String>, OutboxLeaseOperations {
+}
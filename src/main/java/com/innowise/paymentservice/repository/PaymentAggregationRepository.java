@@ -0,0 +1,16 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentTotal;
+
+/**
+ * Агрегирующие запросы, выполняемые на стороне MongoDB.
+ */
+public interface PaymentAggregationRepository {
+
+    /**
+     * Считает сумму и количество платежей через $match + $group,
+     * не загружая документы в память приложения.
+     */
+    PaymentTotal aggregateTotal(PaymentFilter filter);
+}
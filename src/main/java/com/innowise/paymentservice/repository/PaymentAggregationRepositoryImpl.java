@@ -0,0 +1,34 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentTotal;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * Реализация фрагмента PaymentAggregationRepository (подключается к PaymentRepository по суффиксу Impl).
+ */
+public class PaymentAggregationRepositoryImpl implements PaymentAggregationRepository {
+
+    private final MongoTemplate mongoTemplate;
+    // Покрывающие индексы (db/changelog/005) есть только у обычной коллекции payments
+    private final boolean coveringIndexes;
+
+    public PaymentAggregationRepositoryImpl(MongoTemplate mongoTemplate,
+            @Value("${payment.storage.mode:regular}") String storageMode) {
+        this.mongoTemplate = mongoTemplate;
+        this.coveringIndexes = !"timeseries".equals(storageMode);
+    }
+
+    @Override
+    public PaymentTotal aggregateTotal(PaymentFilter filter) {
+        Document result = mongoTemplate
+                .aggregate(PaymentQueries.total(filter, coveringIndexes),
+                        mongoTemplate.getCollectionName(Payment.class), Document.class)
+                .getUniqueMappedResult();
+
+        return PaymentQueries.toTotal(result);
+    }
+}
@@ -0,0 +1,20 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.Payment;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пакетная запись платежей.
+ */
+public interface PaymentBulkRepository {
+
+    /**
+     * Вставляет платежи одним неупорядоченным bulkWrite: ошибка одного документа не останавливает остальные.
+     * id платежей должны быть назначены заранее.
+     *
+     * @return ошибки записи по индексу платежа в списке; пустая карта - записаны все
+     */
+    Map<Integer, String> insertUnordered(List<Payment> payments);
+}
@@ -0,0 +1,31 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.PaymentFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+/**
+ * Построение Criteria для запросов к коллекции payments.
+ * Повторяет семантику derived-методов PaymentRepository (Between = строгие границы).
+ */
+public final class PaymentCriteria {
+
+    private PaymentCriteria() {
+    }
+
+    public static Criteria of(PaymentFilter filter) {
+        Criteria criteria = new Criteria();
+        if (filter.getOrderId() != null) {
+            criteria.and("orderId").is(filter.getOrderId());
+        }
+        if (filter.getUserId() != null) {
+            criteria.and("userId").is(filter.getUserId());
+        }
+        if (filter.hasStatuses()) {
+            criteria.and("status").in(filter.getStatuses());
+        }
+        if (filter.getStartDate() != null && filter.getEndDate() != null) {
+            criteria.and("timestamp").gt(filter.getStartDate()).lt(filter.getEndDate());
+        }
+        return criteria;
+    }
+}
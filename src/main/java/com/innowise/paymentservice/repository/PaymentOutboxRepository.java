@@ -0,0 +1,23 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.Payment;
+
+import java.util.List;
+
+/**
+ * Outbox событий CREATE_PAYMENT: платежи с eventPending = true.
+ */
+public interface PaymentOutboxRepository {
+
+    /**
+     * Самые старые платежи с неопубликованным событием: в обычном режиме по частичному индексу
+     * timestamp / eventPending, в time-series - по индексу (eventPending, timestamp), см. db/changelog/009.
+     */
+    List<Payment> findPendingEvents(int limit);
+
+    /**
+     * Снимает eventPending у опубликованных платежей одной bulk-операцией.
+     * Фильтр кроме _id включает userId и timestamp, как и в updateStatus.
+     */
+    void markEventsPublished(List<Payment> payments);
+}
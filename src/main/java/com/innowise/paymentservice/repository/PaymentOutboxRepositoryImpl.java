@@ -0,0 +1,46 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.Payment;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class PaymentOutboxRepositoryImpl implements PaymentOutboxRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Payment> findPendingEvents(int limit) {
+        Query query = Query.query(where("eventPending").is(true))
+                .with(Sort.by(Sort.Direction.ASC, "timestamp"))
+                .limit(limit);
+        return mongoTemplate.find(query, Payment.class);
+    }
+
+    @Override
+    public void markEventsPublished(List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Payment.class);
+        for (Payment payment : payments) {
+            Query query = Query.query(where("_id").is(payment.getId()));
+            if (payment.getUserId() != null) {
+                query.addCriteria(where("userId").is(payment.getUserId()));
+            }
+            if (payment.getTimestamp() != null) {
+                query.addCriteria(where("timestamp").is(payment.getTimestamp()));
+            }
+            bulk.updateOne(query, new Update().unset("eventPending"));
+        }
+        bulk.execute();
+    }
+}
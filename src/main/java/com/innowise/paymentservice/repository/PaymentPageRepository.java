@@ -0,0 +1,18 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.PageCursor;
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+
+import java.util.List;
+
+/**
+ * Keyset-пагинация по (timestamp desc, _id desc) без skip/offset.
+ */
+public interface PaymentPageRepository {
+
+    /**
+     * Возвращает до limit платежей, идущих строго после курсора (after == null - первая страница).
+     */
+    List<Payment> findPage(PaymentFilter filter, PageCursor after, int limit);
+}
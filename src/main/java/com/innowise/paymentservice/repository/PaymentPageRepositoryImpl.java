@@ -0,0 +1,20 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.PageCursor;
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class PaymentPageRepositoryImpl implements PaymentPageRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Payment> findPage(PaymentFilter filter, PageCursor after, int limit) {
+        return mongoTemplate.find(PaymentQueries.page(filter, after, limit), Payment.class);
+    }
+}
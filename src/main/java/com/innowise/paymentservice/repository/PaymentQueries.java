@@ -0,0 +1,102 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.PageCursor;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentTotal;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+
+/**
+ * Запросы к payments, общие для MongoTemplate и ReactiveMongoTemplate.
+ */
+public final class PaymentQueries {
+
+    private static final Sort PAGE_SORT = Sort.by(Sort.Order.desc("timestamp"), Sort.Order.desc("_id"));
+
+
+    private PaymentQueries() {
+    }
+
+    /**
+     * Страница keyset-пагинации: до limit платежей строго после курсора (after == null - первая страница).
+     */
+    public static Query page(PaymentFilter filter, PageCursor after, int limit) {
+        Criteria criteria = PaymentCriteria.of(filter);
+        if (after != null && after.getTimestamp() == null) {
+            // Платежи без timestamp сортируются последними: после такого курсора остаются только они
+            criteria.andOperator(Criteria.where("timestamp").is(null).and("_id").lt(after.getId()));
+        } else if (after != null) {
+            // (timestamp, _id) < (cursor.timestamp, cursor.id) - диапазон по индексу вместо skip;
+            // $lt не сравнивает с null, поэтому платежи без timestamp добавляются отдельно
+            criteria.orOperator(
+                    Criteria.where("timestamp").lt(after.getTimestamp()),
+                    Criteria.where("timestamp").is(after.getTimestamp()).and("_id").lt(after.getId()),
+                    Criteria.where("timestamp").is(null)
+            );
+        }
+        return Query.query(criteria)
+                .with(PAGE_SORT)
+                .limit(limit);
+    }
+
+    /**
+     * Сумма и количество платежей по фильтру ($match + $group на стороне MongoDB).
+     *
+     * @param coveringIndexes в коллекции есть покрывающие индексы из 005 (обычный режим хранения)
+     */
+    public static Aggregation total(PaymentFilter filter, boolean coveringIndexes) {
+        // paymentAmount пишется как Decimal128, но документы старых версий (строка/double) могут встречаться
+        // до миграции 006 или при rolling-деплое, поэтому приводим к Decimal128 перед суммированием
+        // ($toDecimal для Decimal128 ничего не делает). null/отсутствующие суммы $sum пропускает.
+        // Проекция только paymentAmount (без _id): запрос покрывается индексом, оканчивающимся на paymentAmount
+        Criteria criteria = PaymentCriteria.of(filter);
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(match(criteria));
+        // Без условий планировщик не выбирает индекс и читает документы (COLLSCAN). Сортировка по префиксу
+        // индекса (timestamp, _id, paymentAmount) из 005 переводит сумму всех платежей на полный проход
+        // по этому индексу без FETCH и без блокирующей SORT; на $group порядок не влияет
+        if (coveringIndexes && criteria.getCriteriaObject().isEmpty()) {
+            stages.add(sort(PAGE_SORT));
+        }
+        stages.add(project("paymentAmount").andExclude("_id"));
+        stages.add(group()
+                .sum(ConvertOperators.ToDecimal.toDecimal("$paymentAmount")).as("totalSum")
+                .count().as("paymentCount"));
+        return Aggregation.newAggregation(stages);
+    }
+
+    /**
+     * Результат агрегации total; null (нет подходящих платежей) - нулевой итог.
+     */
+    public static PaymentTotal toTotal(Document result) {
+        if (result == null) {
+            return PaymentTotal.empty();
+        }
+        return new PaymentTotal(toBigDecimal(result.get("totalSum")), ((Number) result.get("paymentCount")).longValue());
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof Decimal128 decimal) {
+            return decimal.bigDecimalValue();
+        }
+        if (value instanceof Number number) {
+            return new BigDecimal(number.toString());
+        }
+        return BigDecimal.ZERO;
+    }
+}
@@ -2,12 +2,15 @@ package com.innowise.paymentservice.repository;
 
 import com.innowise.paymentservice.model.Payment;
 import com.innowise.paymentservice.model.PaymentStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.time.Instant;
 import java.util.List;
 
-public interface PaymentRepository extends MongoRepository<Payment, String> {    
+public interface PaymentRepository extends MongoRepository<Payment, String>, PaymentAggregationRepository,
+        PaymentPageRepository, PaymentStreamRepository, PaymentStatusRepository, PaymentOutboxRepository,
+        PaymentBulkRepository {    
     List<Payment> findByUserId(String userId);
     
     List<Payment> findByOrderId(String orderId);
@@ -15,6 +18,12 @@ public interface PaymentRepository extends MongoRepository<Payment, String> {
     List<Payment> findByStatus(PaymentStatus status);
     
     List<Payment> findByStatusIn(List<PaymentStatus> statuses);
+
+    // Старые платежи в статусе от самых старых (PendingPaymentSweeper), индекс (status, timestamp)
+    List<Payment> findByStatusAndTimestampBeforeOrderByTimestampAsc(PaymentStatus status, Instant before, Limit limit);
+
+    // Есть ли платежи в статусе за период (ClosedPeriodTotalService), индекс (status, timestamp)
+    boolean existsByStatusAndTimestampBetween(PaymentStatus status, Instant startDate, Instant endDate);
     
     List<Payment> findByTimestampBetween(Instant startDate, Instant endDate);
     //Get total sum of payments for date period
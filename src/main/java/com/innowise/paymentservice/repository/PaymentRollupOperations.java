@@ -0,0 +1,32 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.PaymentRollup;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.model.PaymentTotal;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Операции над коллекцией payment_rollups, не выражаемые derived-методами.
+ */
+public interface PaymentRollupOperations {
+
+    /**
+     * Применяет приращения к бакетам одной bulk-операцией ($inc с upsert).
+     * totalAmount и paymentCount каждого элемента трактуются как дельты и могут быть отрицательными.
+     */
+    void applyDeltas(List<PaymentRollup> deltas);
+
+    /**
+     * Суммирует бакеты пользователя (или ALL_USERS) по статусам за дни [fromDay, toDay).
+     * Если fromDay и toDay не заданы - за все время.
+     */
+    PaymentTotal sumBuckets(String userId, List<PaymentStatus> statuses, Instant fromDay, Instant toDay);
+
+    /**
+     * Полностью пересобирает payment_rollups из коллекции payments ($group + $unionWith + $out).
+     * Читает payments дважды: по пользователям и, через $unionWith, для строк ALL_USERS.
+     */
+    void rebuildFromPayments();
+}
@@ -0,0 +1,118 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentRollup;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.model.PaymentTotal;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+
+@RequiredArgsConstructor
+public class PaymentRollupOperationsImpl implements PaymentRollupOperations {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void applyDeltas(List<PaymentRollup> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PaymentRollup.class);
+        for (PaymentRollup delta : deltas) {
+            BigDecimal amount = delta.getTotalAmount() != null ? delta.getTotalAmount() : BigDecimal.ZERO;
+            Update update = new Update()
+                    .inc("totalAmount", new Decimal128(amount))
+                    .inc("paymentCount", delta.getPaymentCount())
+                    .setOnInsert("day", delta.getDay())
+                    .setOnInsert("status", delta.getStatus())
+                    .setOnInsert("userId", delta.getUserId());
+            bulk.upsert(Query.query(Criteria.where("_id").is(delta.getId())), update);
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public PaymentTotal sumBuckets(String userId, List<PaymentStatus> statuses, Instant fromDay, Instant toDay) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (statuses != null && !statuses.isEmpty()) {
+            criteria.and("status").in(statuses);
+        }
+        if (fromDay != null && toDay != null) {
+            criteria.and("day").gte(fromDay).lt(toDay);
+        }
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                match(criteria),
+                group().sum("totalAmount").as("totalSum").sum("paymentCount").as("paymentCount")
+        );
+        Document result = mongoTemplate
+                .aggregate(aggregation, mongoTemplate.getCollectionName(PaymentRollup.class), Document.class)
+                .getUniqueMappedResult();
+
+        if (result == null) {
+            return PaymentTotal.empty();
+        }
+        Object totalSum = result.get("totalSum");
+        BigDecimal sum = totalSum instanceof Decimal128 decimal
+                ? decimal.bigDecimalValue()
+                : new BigDecimal(String.valueOf(totalSum));
+        return new PaymentTotal(sum, ((Number) result.get("paymentCount")).longValue());
+    }
+
+    @Override
+    public void rebuildFromPayments() {
+        String payments = mongoTemplate.getCollectionName(Payment.class);
+        String rollups = mongoTemplate.getCollectionName(PaymentRollup.class);
+
+        List<Document> pipeline = new ArrayList<>(bucketStages("$userId"));
+        // Строки ALL_USERS добавляет $unionWith: он выполняет свой pipeline вторым полным проходом по payments,
+        // зато обе части попадают в один $out
+        pipeline.add(new Document("$unionWith", new Document("coll", payments)
+                .append("pipeline", bucketStages(PaymentRollup.ALL_USERS))));
+        // $out заменяет коллекцию атомарно и сохраняет ее индексы
+        pipeline.add(new Document("$out", rollups));
+
+        mongoTemplate.getCollection(payments)
+                .aggregate(pipeline)
+                .allowDiskUse(true)
+                .toCollection();
+    }
+
+    private static List<Document> bucketStages(Object userIdExpression) {
+        Document day = new Document("$dateTrunc", new Document("date", "$timestamp").append("unit", "day"));
+        return List.of(
+                new Document("$match", new Document("timestamp", new Document("$type", "date"))),
+                new Document("$group", new Document("_id", new Document("day", day)
+                        .append("status", "$status")
+                        .append("userId", userIdExpression))
+                        .append("totalAmount", new Document("$sum", new Document("$toDecimal", "$paymentAmount")))
+                        .append("paymentCount", new Document("$sum", 1L))),
+                new Document("$project", new Document("_id", new Document("$concat", List.of(
+                        new Document("$dateToString", new Document("format", "%Y-%m-%d").append("date", "$_id.day")),
+                        "|",
+                        new Document("$ifNull", List.of("$_id.status", "")),
+                        "|",
+                        new Document("$ifNull", List.of("$_id.userId", "")))))
+                        .append("day", "$_id.day")
+                        .append("status", "$_id.status")
+                        .append("userId", "$_id.userId")
+                        .append("totalAmount", new Document("$toDecimal", "$totalAmount"))
+                        .append("paymentCount", 1))
+        );
+    }
+}
@@ -0,0 +1,7 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.PaymentRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface PaymentRollupRepository extends MongoRepository<PaymentRollup, String>, PaymentRollupOperations {
+}
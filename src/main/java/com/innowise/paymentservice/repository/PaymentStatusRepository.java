@@ -0,0 +1,21 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentStatus;
+
+/**
+ * Точечное обновление статуса платежа.
+ */
+public interface PaymentStatusRepository {
+
+    /**
+     * Записывает только поле status (без замены документа и без upsert);
+     * при eventPending = true той же операцией ставит событие CREATE_PAYMENT в outbox.
+     * Фильтр кроме _id включает userId и timestamp: в time-series режиме это ключ индекса (metaField, timeField).
+     * Статус меняется, только если текущий равен expectedStatus: из двух обработчиков одного
+     * платежа (пул и PendingPaymentSweeper) статус записывает только первый.
+     *
+     * @return true, если платеж найден и был в статусе expectedStatus
+     */
+    boolean updateStatus(Payment payment, PaymentStatus expectedStatus);
+}
@@ -0,0 +1,36 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class PaymentStatusRepositoryImpl implements PaymentStatusRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean updateStatus(Payment payment, PaymentStatus expectedStatus) {
+        Query query = Query.query(where("_id").is(payment.getId()));
+        if (payment.getUserId() != null) {
+            query.addCriteria(where("userId").is(payment.getUserId()));
+        }
+        if (payment.getTimestamp() != null) {
+            query.addCriteria(where("timestamp").is(payment.getTimestamp()));
+        }
+        query.addCriteria(where("status").is(expectedStatus));
+
+        Update update = Update.update("status", payment.getStatus());
+        if (Boolean.TRUE.equals(payment.getEventPending())) {
+            update.set("eventPending", true);
+        }
+        UpdateResult result = mongoTemplate.updateFirst(query, update, Payment.class);
+        return result.getMatchedCount() > 0;
+    }
+}
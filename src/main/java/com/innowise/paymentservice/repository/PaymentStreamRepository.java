@@ -0,0 +1,18 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+
+import java.util.stream.Stream;
+
+/**
+ * Потоковое чтение платежей через курсор MongoDB.
+ */
+public interface PaymentStreamRepository {
+
+    /**
+     * Открывает курсор по фильтру; документы подгружаются пачками по batchSize.
+     * Stream необходимо закрыть (try-with-resources), чтобы освободить курсор на сервере.
+     */
+    Stream<Payment> stream(PaymentFilter filter, int batchSize);
+}
@@ -0,0 +1,21 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class PaymentStreamRepositoryImpl implements PaymentStreamRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Stream<Payment> stream(PaymentFilter filter, int batchSize) {
+        Query query = Query.query(PaymentCriteria.of(filter)).cursorBatchSize(batchSize);
+        return mongoTemplate.stream(query, Payment.class);
+    }
+}
@@ -0,0 +1,24 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.PageCursor;
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentTotal;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Неблокирующие варианты PaymentPageRepository и PaymentAggregationRepository (профиль reactive).
+ */
+public interface ReactivePaymentQueryRepository {
+
+    /**
+     * Возвращает до limit платежей, идущих строго после курсора (after == null - первая страница).
+     */
+    Flux<Payment> findPage(PaymentFilter filter, PageCursor after, int limit);
+
+    /**
+     * Сумма и количество платежей через $match + $group на стороне MongoDB.
+     */
+    Mono<PaymentTotal> aggregateTotal(PaymentFilter filter);
+}
@@ -0,0 +1,39 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.PageCursor;
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentTotal;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ReactivePaymentQueryRepositoryImpl implements ReactivePaymentQueryRepository {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    // Покрывающие индексы (db/changelog/005) есть только у обычной коллекции payments
+    private final boolean coveringIndexes;
+
+    public ReactivePaymentQueryRepositoryImpl(ReactiveMongoTemplate reactiveMongoTemplate,
+            @Value("${payment.storage.mode:regular}") String storageMode) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.coveringIndexes = !"timeseries".equals(storageMode);
+    }
+
+    @Override
+    public Flux<Payment> findPage(PaymentFilter filter, PageCursor after, int limit) {
+        return reactiveMongoTemplate.find(PaymentQueries.page(filter, after, limit), Payment.class);
+    }
+
+    @Override
+    public Mono<PaymentTotal> aggregateTotal(PaymentFilter filter) {
+        return reactiveMongoTemplate
+                .aggregate(PaymentQueries.total(filter, coveringIndexes),
+                        reactiveMongoTemplate.getCollectionName(Payment.class), Document.class)
+                .next()
+                .map(PaymentQueries::toTotal)
+                .defaultIfEmpty(PaymentTotal.empty());
+    }
+}
@@ -0,0 +1,12 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.Payment;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+/**
+ * Репозиторий payments на reactive-драйвере MongoDB (профиль reactive).
+ * Подключается через ReactiveMongoConfig; в остальных профилях бин не создается.
+ */
+public interface ReactivePaymentRepository extends ReactiveMongoRepository<Payment, String>,
+        ReactivePaymentQueryRepository {
+}
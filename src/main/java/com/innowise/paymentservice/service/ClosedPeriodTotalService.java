@@ -0,0 +1,109 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.model.ClosedPeriodTotal;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.model.PaymentTotal;
+import com.innowise.paymentservice.repository.ClosedPeriodTotalRepository;
+import com.innowise.paymentservice.repository.PaymentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Постоянный кэш итогов по закрытым периодам (коллекция payment_closed_totals).
+ *
+ * Признак закрытого периода - сама запись в payment_closed_totals: чтение по _id без обращения к payments.
+ * Запись появляется, когда итог периода, закончившегося раньше окна payment.totals.closed.settle-window,
+ * впервые вычисляется и в периоде нет PENDING-платежей: платежи получают timestamp в момент создания,
+ * поэтому новых платежей в таком периоде не появится, а PENDING-платеж (асинхронный режим) еще сменит
+ * статус - до этого итог не сохраняется и в ответе не объявляется неизменным.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClosedPeriodTotalService {
+
+    private final ClosedPeriodTotalRepository closedPeriodTotalRepository;
+    private final PaymentRepository paymentRepository;
+
+    @Value("${payment.totals.closed.enabled:true}")
+    private boolean enabled;
+
+    @Value("${payment.totals.closed.settle-window:1h}")
+    private Duration settleWindow;
+
+    /**
+     * Может ли период [startDate, endDate] быть закрытым: он закончился раньше окна settle-window.
+     * Обращений к MongoDB нет; PENDING-платежи проверяются только перед сохранением итога.
+     */
+    public boolean isSettled(Instant startDate, Instant endDate) {
+        return enabled && startDate != null && endDate != null
+                && endDate.isBefore(Instant.now().minus(settleWindow));
+    }
+
+    /**
+     * Сохраненный итог закрытого периода; пусто, если период еще не закрыт или итог еще не вычислялся.
+     */
+    public Optional<ClosedPeriodTotal> find(PaymentFilter filter) {
+        if (!filter.hasPeriod() || !isSettled(filter.getStartDate(), filter.getEndDate())) {
+            return Optional.empty();
+        }
+        return find(ClosedPeriodTotal.keyOf(filter));
+    }
+
+    /**
+     * Итог закрытого периода из payment_closed_totals, при отсутствии - вычисляется loader'ом и сохраняется,
+     * если в периоде нет PENDING-платежей. Вызывается только для периодов, прошедших isSettled.
+     */
+    public PaymentTotal getTotal(PaymentFilter filter, Function<PaymentFilter, PaymentTotal> loader) {
+        String key = ClosedPeriodTotal.keyOf(filter);
+
+        Optional<ClosedPeriodTotal> stored = find(key);
+        if (stored.isPresent()) {
+            return stored.get().toTotal();
+        }
+
+        PaymentTotal total = loader.apply(filter);
+        // Единственная проверка PENDING - на промахе перед записью: итог с еще не решенными платежами не сохраняется
+        if (hasPendingPayments(filter.getStartDate(), filter.getEndDate())) {
+            log.info("Closed-period total not stored, period still has pending payments, key: {}", key);
+            return total;
+        }
+        try {
+            // save по _id - повторное вычисление тем же ключом просто перезапишет одинаковый итог
+            closedPeriodTotalRepository.save(ClosedPeriodTotal.of(filter, total, Instant.now()));
+            log.info("Stored closed-period total for key: {}", key);
+        } catch (Exception e) {
+            log.error("Failed to store closed-period total for key: {}", key, e);
+        }
+        return total;
+    }
+
+    /**
+     * Есть ли PENDING-платежи в периоде (индекс status, timestamp); при ошибке период считается открытым.
+     */
+    private boolean hasPendingPayments(Instant startDate, Instant endDate) {
+        try {
+            return paymentRepository.existsByStatusAndTimestampBetween(PaymentStatus.PENDING, startDate, endDate);
+        } catch (Exception e) {
+            log.error("Failed to check pending payments for period {} - {}", startDate, endDate, e);
+            return true;
+        }
+    }
+
+    private Optional<ClosedPeriodTotal> find(String key) {
+        try {
+            return closedPeriodTotalRepository.findById(key);
+        } catch (Exception e) {
+            log.error("Failed to read closed-period total for key: {}", key, e);
+            return Optional.empty();
+        }
+    }
+}
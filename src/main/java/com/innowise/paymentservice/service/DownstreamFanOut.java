@@ -0,0 +1,116 @@
+package com.innowise.paymentservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Параллельный запуск независимых вызовов внешних сервисов внутри обработки одного платежа.
+ *
+ * Работает как StructuredTaskScope (в Java 21 это preview API): подзадачи, запущенные через
+ * {@link Scope#fork}, выполняются в виртуальных потоках и не переживают scope. У scope общий дедлайн
+ * payment.fan-out.timeout: подзадача, не завершившаяся к дедлайну, прерывается в {@link Scope#await},
+ * а при выходе из scope (в том числе по исключению) прерываются все незавершенные подзадачи.
+ * Ошибки подзадач обрабатываются в самих подзадачах, await их только логирует.
+ *
+ * При payment.fan-out.enabled=false fork выполняет задачу сразу в вызывающем потоке.
+ */
+@Slf4j
+@Component
+public class DownstreamFanOut implements DisposableBean {
+
+    private final boolean enabled;
+    private final Duration timeout;
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("payment-fan-out-", 0).factory());
+
+    public DownstreamFanOut(
+            @Value("${payment.fan-out.enabled:true}") boolean enabled,
+            @Value("${payment.fan-out.timeout:15s}") Duration timeout) {
+        this.enabled = enabled;
+        this.timeout = timeout;
+    }
+
+    public Scope open() {
+        return new Scope(System.nanoTime() + timeout.toNanos());
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public class Scope implements AutoCloseable {
+
+        private final long deadlineNanos;
+        private final List<Future<?>> forks = new ArrayList<>();
+
+        private Scope(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Запуск подзадачи; name используется в логах при таймауте и ошибке.
+         */
+        public Future<?> fork(String name, Runnable task) {
+            if (!enabled) {
+                try {
+                    task.run();
+                    return CompletableFuture.completedFuture(null);
+                } catch (RuntimeException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+            Future<?> fork = executor.submit(task);
+            forks.add(fork);
+            log.debug("Forked downstream call: {}", name);
+            return fork;
+        }
+
+        /**
+         * Ожидание подзадачи не дольше дедлайна scope; по истечении подзадача прерывается.
+         *
+         * @return true, если подзадача завершилась без ошибки
+         */
+        public boolean await(String name, Future<?> fork) {
+            try {
+                fork.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+                return true;
+            } catch (TimeoutException e) {
+                fork.cancel(true);
+                log.warn("Downstream call {} did not finish within {}, cancelled", name, timeout);
+            } catch (ExecutionException e) {
+                log.error("Downstream call {} failed", name, e.getCause());
+            } catch (CancellationException e) {
+                log.warn("Downstream call {} was cancelled", name);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fork.cancel(true);
+                log.warn("Interrupted while waiting for downstream call {}", name);
+            }
+            return false;
+        }
+
+        @Override
+        public void close() {
+            for (Future<?> fork : forks) {
+                if (fork.cancel(true)) {
+                    log.warn("Downstream call cancelled on scope exit");
+                }
+            }
+        }
+    }
+}
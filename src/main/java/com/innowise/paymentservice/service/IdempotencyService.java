@@ -0,0 +1,272 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.dto.CreatePaymentRequest;
+import com.innowise.paymentservice.dto.PaymentDto;
+import com.innowise.paymentservice.exception.IdempotencyKeyException;
+import com.innowise.paymentservice.model.IdempotencyRecord;
+import com.innowise.paymentservice.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Идемпотентное создание платежа по заголовку Idempotency-Key.
+ *
+ * Ключи действуют в пределах пользователя: одинаковые ключи разных пользователей - разные записи,
+ * и чужой сохраненный ответ по ключу не выдается.
+ * Первый запрос с ключом создает запись IN_PROGRESS в payment_idempotency_keys, выполняет создание платежа
+ * и сохраняет ответ (COMPLETED). Пока создание выполняется, блокировка записи продлевается каждую треть
+ * lock-timeout, поэтому перехватить запрос можно только после падения экземпляра, а не из-за медленного
+ * внешнего сервиса. Повтор с тем же ключом возвращает сохраненный ответ одним чтением по _id.
+ * Одновременные дубликаты не выполняют создание повторно: в этом экземпляре они ждут future первого запроса,
+ * в других экземплярах - опрашивают запись до ее завершения (не дольше wait-timeout, затем 409).
+ * Если создание завершилось ошибкой, запись удаляется и запрос можно повторить с тем же ключом.
+ *
+ * Метрики: payment.idempotency.requests{result=executed|replayed|conflict}.
+ */
+@Slf4j
+@Service
+public class IdempotencyService implements DisposableBean {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+
+    private final IdempotencyRecordRepository repository;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+    private final Duration lockTimeout;
+    private final Duration waitTimeout;
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("idempotency-heartbeat").daemon().factory());
+
+    public IdempotencyService(
+            IdempotencyRecordRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${payment.idempotency.ttl:24h}") Duration ttl,
+            @Value("${payment.idempotency.lock-timeout:60s}") Duration lockTimeout,
+            @Value("${payment.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+        this.ttl = ttl;
+        this.lockTimeout = lockTimeout;
+        this.waitTimeout = waitTimeout;
+    }
+
+    /**
+     * Ответ на создание платежа: HTTP-статус, платеж и признак повтора сохраненного ответа.
+     */
+    public record Result(int status, PaymentDto body, boolean replayed) {
+
+        public Result replay() {
+            return new Result(status, body, true);
+        }
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<Result> result) {
+    }
+
+    /**
+     * Выполняет action не более одного раза для ключа key пользователя principal и тела request.
+     */
+    public Result execute(String principal, String key, CreatePaymentRequest request, Supplier<Result> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String recordKey = scopedKey(principal, key);
+        String requestHash = fingerprint(request);
+
+        InFlight own = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight existing = inFlight.putIfAbsent(recordKey, own);
+        if (existing != null) {
+            checkSameRequest(recordKey, existing.requestHash(), requestHash);
+            log.info("Waiting for in-flight request with idempotency key: {}", key);
+            return count(awaitInFlight(recordKey, existing.result()).replay());
+        }
+
+        try {
+            Result result = executeOnce(recordKey, requestHash, action);
+            own.result().complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            own.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(recordKey, own);
+        }
+    }
+
+    private Result executeOnce(String key, String requestHash, Supplier<Result> action) {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        Optional<IdempotencyRecord> stored = repository.findById(key);
+        while (true) {
+            if (stored.isEmpty()) {
+                if (claim(key, requestHash)) {
+                    return run(key, action);
+                }
+            } else {
+                IdempotencyRecord record = stored.get();
+                checkSameRequest(key, record.getRequestHash(), requestHash);
+                if (record.getState() == IdempotencyRecord.State.COMPLETED) {
+                    log.info("Replaying stored response for idempotency key: {}", key);
+                    return count(new Result(record.getResponseStatus(), record.getResponse(), true));
+                }
+                Instant now = Instant.now();
+                if (record.getLockedUntil() == null || record.getLockedUntil().isBefore(now)) {
+                    // Первый запрос не завершился за lock-timeout (например, экземпляр упал) - выполняем заново
+                    if (repository.takeOver(key, now, now.plus(lockTimeout))) {
+                        log.warn("Took over stale in-progress request with idempotency key: {}", key);
+                        return run(key, action);
+                    }
+                } else if (System.nanoTime() - deadline > 0) {
+                    throw conflict(HttpStatus.CONFLICT, "Request with this " + HEADER + " is still in progress");
+                } else {
+                    sleep(POLL_INTERVAL);
+                }
+            }
+            stored = repository.findById(key);
+        }
+    }
+
+    private boolean claim(String key, String requestHash) {
+        Instant now = Instant.now();
+        try {
+            repository.insert(IdempotencyRecord.builder()
+                    .id(key)
+                    .requestHash(requestHash)
+                    .state(IdempotencyRecord.State.IN_PROGRESS)
+                    .lockedUntil(now.plus(lockTimeout))
+                    .expiresAt(now.plus(ttl))
+                    .build());
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Ключ одновременно занят другим экземпляром
+            return false;
+        }
+    }
+
+    private Result run(String key, Supplier<Result> action) {
+        long period = Math.max(lockTimeout.toMillis() / 3, 1);
+        ScheduledFuture<?> renewal = heartbeat.scheduleAtFixedRate(() -> renew(key), period, period,
+                TimeUnit.MILLISECONDS);
+        Result result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            renewal.cancel(false);
+            try {
+                repository.deleteById(key);
+            } catch (Exception deleteError) {
+                log.error("Failed to release idempotency key: {}", key, deleteError);
+            }
+            throw e;
+        }
+        renewal.cancel(false);
+        try {
+            repository.complete(key, result.status(), result.body(), Instant.now().plus(ttl));
+        } catch (Exception e) {
+            // Платеж уже создан; повтор после lock-timeout выполнит создание заново
+            log.error("Failed to store response for idempotency key: {}", key, e);
+        }
+        return count(result);
+    }
+
+    private void renew(String key) {
+        try {
+            if (!repository.renew(key, Instant.now().plus(lockTimeout))) {
+                log.warn("Idempotency key {} is no longer in progress, lock not renewed", key);
+            }
+        } catch (Exception e) {
+            // Следующая попытка через треть lock-timeout
+            log.error("Failed to renew lock for idempotency key: {}", key, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        heartbeat.shutdownNow();
+    }
+
+    private Result awaitInFlight(String key, CompletableFuture<Result> result) {
+        try {
+            return result.get(waitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw conflict(HttpStatus.CONFLICT, "Request with this " + HEADER + " is still in progress");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("In-flight request failed for idempotency key: " + key, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for idempotency key: " + key, e);
+        }
+    }
+
+    private void checkSameRequest(String key, String storedHash, String requestHash) {
+        if (!requestHash.equals(storedHash)) {
+            log.warn("Idempotency key {} reused with a different request body", key);
+            throw conflict(HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used with a different request");
+        }
+    }
+
+    private IdempotencyKeyException conflict(HttpStatus status, String message) {
+        meterRegistry.counter("payment.idempotency.requests", "result", "conflict").increment();
+        return new IdempotencyKeyException(status, message);
+    }
+
+    private Result count(Result result) {
+        meterRegistry.counter("payment.idempotency.requests", "result", result.replayed() ? "replayed" : "executed")
+                .increment();
+        return result;
+    }
+
+    /**
+     * Ключ записи: хэш пользователя и значение заголовка (email в _id не хранится).
+     */
+    static String scopedKey(String principal, String key) {
+        return DigestUtils.md5DigestAsHex(principal.getBytes(StandardCharsets.UTF_8)) + ':' + key;
+    }
+
+    /**
+     * Отпечаток полей запроса; сумма нормализуется (100.5 и 100.50 - один запрос).
+     */
+    static String fingerprint(CreatePaymentRequest request) {
+        String amount = request.getPaymentAmount() != null
+                ? request.getPaymentAmount().stripTrailingZeros().toPlainString()
+                : "";
+        String value = request.getOrderId() + '\n' + request.getUserId() + '\n' + amount;
+        return DigestUtils.md5DigestAsHex(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for idempotent request", e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Метрики решений поверх выбранной реализации:
+ * payment.decision{engine} - время одного решения (count/время - пропускная способность),
+ * payment.decision.batch{engine} - время решения пакета,
+ * payment.decision.results{engine,status} - число решений по статусам, включая пакетные.
+ */
+public class MeteredPaymentDecisionEngine implements PaymentDecisionEngine {
+
+    private final PaymentDecisionEngine delegate;
+    private final MeterRegistry meterRegistry;
+    private final Timer decisionTimer;
+    private final Timer batchTimer;
+
+    public MeteredPaymentDecisionEngine(PaymentDecisionEngine delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.decisionTimer = Timer.builder("payment.decision")
+                .tag("engine", delegate.name())
+                .description("Payment SUCCESS/FAILED decision latency")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("payment.decision.batch")
+                .tag("engine", delegate.name())
+                .description("Batch payment decision latency")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+
+    @Override
+    public PaymentStatus decide(Payment payment) {
+        return count(decisionTimer.record(() -> delegate.decide(payment)));
+    }
+
+    @Override
+    public Mono<PaymentStatus> decideAsync(Payment payment) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return delegate.decideAsync(payment)
+                    .doOnNext(status -> {
+                        sample.stop(decisionTimer);
+                        count(status);
+                    });
+        });
+    }
+
+    @Override
+    public List<PaymentStatus> decideAll(List<Payment> payments) {
+        List<PaymentStatus> statuses = batchTimer.record(() -> delegate.decideAll(payments));
+        statuses.forEach(this::count);
+        return statuses;
+    }
+
+    private PaymentStatus count(PaymentStatus status) {
+        meterRegistry.counter("payment.decision.results", "engine", delegate.name(), "status", status.name())
+                .increment();
+        return status;
+    }
+}
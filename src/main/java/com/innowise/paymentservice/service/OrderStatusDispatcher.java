@@ -0,0 +1,402 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.client.OrderServiceClient;
+import com.innowise.paymentservice.util.SecurityUtils;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Асинхронная отправка статусов заказов в order-service.
+ *
+ * Платеж только ставит статус в очередь и не ждет order-service. Для каждого заказа хранится
+ * один ожидающий статус: новый статус заменяет еще не отправленный (PROCESSING, не успевший уйти
+ * до CANCELED, не отправляется вовсе). По одному заказу одновременно выполняется не больше одного PUT,
+ * поэтому порядок статусов заказа сохраняется. Всего одновременно выполняется не больше
+ * max-concurrency запросов; ошибки повторяются max-retries раз с экспоненциальной задержкой,
+ * кроме ответов 4xx и случаев, когда для заказа уже появился более новый статус.
+ * Пока circuit breaker order-service открыт, статус не теряется: заказ откладывается на circuit-open-backoff
+ * (не меньше wait-duration-in-open-state) с освобождением разрешения и затем снова ставится в очередь;
+ * более новый статус, пришедший за это время, заменяет отложенный. Если circuit breaker не закрылся
+ * за circuit-open-max-wait, статус отбрасывается с ошибкой в логе.
+ * Токен берется в момент отправки - последний, переданный для заказа; истекший токен (claim exp)
+ * не отправляется, и order-service узнает о платеже из события CREATE_PAYMENT.
+ * Очередь ограничена max-pending заказами, статусы сверх нее отбрасываются с ошибкой в логе.
+ *
+ * При остановке новые статусы больше не принимаются, а уже поставленные в очередь дорабатываются
+ * не дольше shutdown-timeout.
+ *
+ * Метрики: order.status.updates{result=sent|failed|coalesced|dropped|expired}, order.status.updates.retries,
+ * order.status.updates.pending. При payment.order-status.dispatcher.enabled=false статус отправляется
+ * сразу в вызывающем потоке, как раньше.
+ */
+@Slf4j
+@Component
+public class OrderStatusDispatcher implements DisposableBean {
+
+    private final OrderServiceClient orderServiceClient;
+    private final boolean enabled;
+    private final int maxPending;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+    private final Duration requestTimeout;
+    private final Duration shutdownTimeout;
+    private final Duration circuitOpenBackoff;
+    private final Duration circuitOpenMaxWait;
+    private final Semaphore permits;
+    private final Object idle = new Object();
+    private volatile boolean shuttingDown;
+
+    private final ConcurrentMap<Long, OrderSlot> slots = new ConcurrentHashMap<>();
+    private final Queue<OrderSlot> ready = new ConcurrentLinkedQueue<>();
+
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter coalesced;
+    private final Counter dropped;
+    private final Counter expired;
+    private final Counter retries;
+
+    public OrderStatusDispatcher(
+            OrderServiceClient orderServiceClient,
+            MeterRegistry meterRegistry,
+            @Value("${payment.order-status.dispatcher.enabled:true}") boolean enabled,
+            @Value("${payment.order-status.dispatcher.max-concurrency:32}") int maxConcurrency,
+            @Value("${payment.order-status.dispatcher.max-pending:10000}") int maxPending,
+            @Value("${payment.order-status.dispatcher.max-retries:3}") int maxRetries,
+            @Value("${payment.order-status.dispatcher.retry-backoff:200ms}") Duration retryBackoff,
+            @Value("${payment.order-status.dispatcher.request-timeout:10s}") Duration requestTimeout,
+            @Value("${payment.order-status.dispatcher.shutdown-timeout:30s}") Duration shutdownTimeout,
+            @Value("${payment.order-status.dispatcher.circuit-open-backoff:${resilience4j.circuitbreaker.configs.default.wait-duration-in-open-state:10s}}")
+            Duration circuitOpenBackoff,
+            @Value("${payment.order-status.dispatcher.circuit-open-max-wait:5m}") Duration circuitOpenMaxWait) {
+        this.orderServiceClient = orderServiceClient;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.requestTimeout = requestTimeout;
+        this.shutdownTimeout = shutdownTimeout;
+        this.circuitOpenBackoff = circuitOpenBackoff;
+        this.circuitOpenMaxWait = circuitOpenMaxWait;
+        this.permits = new Semaphore(maxConcurrency);
+        this.sent = updates(meterRegistry, "sent", "Order status updates accepted by order-service");
+        this.failed = updates(meterRegistry, "failed", "Order status updates given up after retries");
+        this.coalesced = updates(meterRegistry, "coalesced", "Queued order statuses replaced by a newer one");
+        this.dropped = updates(meterRegistry, "dropped", "Order statuses rejected because the queue was full");
+        this.expired = updates(meterRegistry, "expired", "Order statuses not sent because the caller token expired");
+        this.retries = Counter.builder("order.status.updates.retries")
+                .description("Repeated order status update attempts")
+                .register(meterRegistry);
+        Gauge.builder("order.status.updates.pending", slots, ConcurrentMap::size)
+                .description("Orders with a queued or in-flight status update")
+                .register(meterRegistry);
+    }
+
+    private static Counter updates(MeterRegistry meterRegistry, String result, String description) {
+        return Counter.builder("order.status.updates")
+                .description(description)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ставит статус заказа в очередь и сразу возвращается; ошибки отправки только логируются.
+     *
+     * @param orderIdValue ID заказа из платежа (не число - статус не отправляется)
+     */
+    public void dispatch(String orderIdValue, String orderStatus, String authToken) {
+        Long orderId;
+        try {
+            orderId = Long.parseLong(orderIdValue);
+        } catch (NumberFormatException e) {
+            log.error("Failed to update order status to {} for orderId: {}", orderStatus, orderIdValue, e);
+            return;
+        }
+
+        if (!enabled) {
+            sendNow(orderId, orderStatus, authToken);
+            return;
+        }
+
+        if (shuttingDown) {
+            dropped.increment();
+            log.error("Order status dispatcher is shutting down, dropping status {} for orderId: {}", orderStatus, orderId);
+            return;
+        }
+
+        StatusUpdate update = new StatusUpdate(orderStatus, 0L);
+        while (true) {
+            if (slots.size() >= maxPending && !slots.containsKey(orderId)) {
+                dropped.increment();
+                log.error("Order status queue is full ({} orders), dropping status {} for orderId: {}",
+                        maxPending, orderStatus, orderId);
+                return;
+            }
+            OrderSlot slot = slots.computeIfAbsent(orderId, OrderSlot::new);
+            synchronized (slot) {
+                // Слот мог быть удален после отправки последнего статуса - тогда берется новый
+                if (slot.removed) {
+                    continue;
+                }
+                if (slot.pending != null) {
+                    coalesced.increment();
+                    log.debug("Order {} status {} replaced by {} before sending", orderId, slot.pending.status(), orderStatus);
+                }
+                slot.pending = update;
+                if (authToken != null) {
+                    slot.authToken = authToken;
+                }
+                if (!slot.queued && !slot.sending && !slot.parked) {
+                    slot.queued = true;
+                    ready.add(slot);
+                }
+            }
+            break;
+        }
+        drain();
+    }
+
+    /**
+     * Запускает отправку для заказов из очереди, пока есть свободные разрешения.
+     */
+    private void drain() {
+        while (permits.tryAcquire()) {
+            OrderSlot slot = ready.poll();
+            if (slot == null) {
+                permits.release();
+                // Заказ мог встать в очередь между poll и release, пока разрешение было занято
+                if (ready.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            send(slot);
+        }
+    }
+
+    private void send(OrderSlot slot) {
+        StatusUpdate update;
+        String authToken;
+        synchronized (slot) {
+            update = slot.pending;
+            // Токен читается при отправке, а не при постановке в очередь: за время ожидания
+            // для заказа мог прийти более свежий
+            authToken = slot.authToken;
+            slot.pending = null;
+            slot.queued = false;
+            slot.sending = true;
+        }
+
+        // finish должен выполниться ровно один раз, иначе разрешение или слот заказа останутся занятыми
+        AtomicBoolean finished = new AtomicBoolean();
+        Runnable release = () -> {
+            if (finished.compareAndSet(false, true)) {
+                finish(slot);
+            }
+        };
+        if (SecurityUtils.isTokenExpired(authToken, Instant.now())) {
+            expired.increment();
+            log.warn("Token for order {} expired before status {} was sent, order-service will learn it "
+                    + "from the CREATE_PAYMENT event", slot.orderId, update.status());
+            release.run();
+            return;
+        }
+        try {
+            Mono.defer(() -> orderServiceClient.updateOrderStatusAsync(slot.orderId, update.status(), authToken))
+                    .timeout(requestTimeout)
+                    .retryWhen(Retry.backoff(maxRetries, retryBackoff)
+                            .filter(e -> isRetryable(e) && !slot.hasPending())
+                            .doBeforeRetry(signal -> {
+                                retries.increment();
+                                log.warn("Retrying order {} status {} update (attempt {}): {}", slot.orderId,
+                                        update.status(), signal.totalRetries() + 2, signal.failure().getMessage());
+                            })
+                            .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                    .subscribe(
+                            ignored -> { },
+                            e -> {
+                                // При открытом circuit breaker разрешение не удерживается: заказ откладывается
+                                if (!(isCircuitOpen(e) && park(slot, update))) {
+                                    failed.increment();
+                                    log.error("Failed to update order status to {} for orderId: {}",
+                                            update.status(), slot.orderId, e);
+                                }
+                                release.run();
+                            },
+                            () -> {
+                                sent.increment();
+                                log.debug("Order {} status updated to {}", slot.orderId, update.status());
+                                release.run();
+                            });
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.error("Failed to update order status to {} for orderId: {}", update.status(), slot.orderId, e);
+            release.run();
+        }
+    }
+
+    /**
+     * Откладывает заказ на circuit-open-backoff; статус возвращается в слот, если его еще не заменил новый.
+     *
+     * @return false, если circuit breaker открыт дольше circuit-open-max-wait - статус отбрасывается
+     */
+    private boolean park(OrderSlot slot, StatusUpdate update) {
+        long now = System.nanoTime();
+        long since = update.circuitOpenSince() != 0L ? update.circuitOpenSince() : now;
+        if (now - since >= circuitOpenMaxWait.toNanos()) {
+            log.error("Order-service circuit breaker stayed open for {}, giving up order {} status {}",
+                    circuitOpenMaxWait, slot.orderId, update.status());
+            return false;
+        }
+        synchronized (slot) {
+            if (slot.pending == null) {
+                slot.pending = new StatusUpdate(update.status(), since);
+            } else {
+                coalesced.increment();
+            }
+            slot.parked = true;
+        }
+        retries.increment();
+        log.warn("Order-service circuit breaker is open, order {} status will be resent in {}",
+                slot.orderId, circuitOpenBackoff);
+        Mono.delay(circuitOpenBackoff).subscribe(ignored -> unpark(slot));
+        return true;
+    }
+
+    private void unpark(OrderSlot slot) {
+        synchronized (slot) {
+            slot.parked = false;
+            if (slot.pending != null && !slot.queued && !slot.sending) {
+                slot.queued = true;
+                ready.add(slot);
+            }
+        }
+        drain();
+    }
+
+    private void finish(OrderSlot slot) {
+        synchronized (slot) {
+            slot.sending = false;
+            if (slot.parked) {
+                // Заказ вернется в очередь в unpark
+                log.debug("Order {} parked until the circuit breaker backoff ends", slot.orderId);
+            } else if (slot.pending != null) {
+                slot.queued = true;
+                ready.add(slot);
+            } else {
+                slot.removed = true;
+                slots.remove(slot.orderId, slot);
+            }
+        }
+        permits.release();
+        drain();
+        if (shuttingDown && slots.isEmpty()) {
+            synchronized (idle) {
+                idle.notifyAll();
+            }
+        }
+    }
+
+    private void sendNow(Long orderId, String orderStatus, String authToken) {
+        try {
+            orderServiceClient.updateOrderStatus(orderId, orderStatus, authToken);
+            sent.increment();
+            log.info("Order {} status updated to {}", orderId, orderStatus);
+        } catch (Exception e) {
+            failed.increment();
+            log.error("Failed to update order status to {} for orderId: {}", orderStatus, orderId, e);
+            // Continue execution even if order status update fails
+        }
+    }
+
+    /**
+     * 4xx (нет заказа, неверный статус, нет прав) повтор не исправит; при открытом circuit breaker
+     * быстрые повторы тоже будут отклонены - для него отдельная задержка (isCircuitOpen).
+     */
+    private static boolean isRetryable(Throwable e) {
+        Throwable cause = cause(e);
+        if (cause instanceof CallNotPermittedException) {
+            return false;
+        }
+        return !(cause instanceof WebClientResponseException responseException
+                && responseException.getStatusCode().is4xxClientError());
+    }
+
+    private static boolean isCircuitOpen(Throwable e) {
+        return cause(e) instanceof CallNotPermittedException;
+    }
+
+    private static Throwable cause(Throwable e) {
+        return e instanceof OrderServiceClient.OrderServiceException ? e.getCause() : e;
+    }
+
+    /**
+     * Число заказов, статус которых ждет отправки или отправляется.
+     */
+    public int pending() {
+        return slots.size();
+    }
+
+    /**
+     * Перестает принимать новые статусы и ждет отправки уже поставленных не дольше shutdown-timeout.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        shuttingDown = true;
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        synchronized (idle) {
+            long remaining;
+            while (!slots.isEmpty() && (remaining = deadline - System.nanoTime()) > 0) {
+                idle.wait(Math.max(1, remaining / 1_000_000));
+            }
+        }
+        if (!slots.isEmpty()) {
+            log.warn("Shutting down with {} order status updates not sent after {}", slots.size(), shutdownTimeout);
+        }
+    }
+
+    /**
+     * @param circuitOpenSince System.nanoTime() первого отказа открытого circuit breaker, 0 - отказов не было
+     */
+    private record StatusUpdate(String status, long circuitOpenSince) {
+    }
+
+    /**
+     * Состояние одного заказа; поля меняются под монитором слота.
+     */
+    private static final class OrderSlot {
+        private final Long orderId;
+        private StatusUpdate pending;
+        private String authToken;
+        private boolean queued;
+        private boolean sending;
+        private boolean parked;
+        private boolean removed;
+
+        private OrderSlot(Long orderId) {
+            this.orderId = orderId;
+        }
+
+        private synchronized boolean hasPending() {
+            return pending != null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.dto.CreatePaymentRequest;
+import com.innowise.paymentservice.dto.PaymentBatchItemResult;
+import com.innowise.paymentservice.dto.PaymentBatchResponse;
+import com.innowise.paymentservice.mapper.PaymentMapper;
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.repository.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пакетное создание платежей (POST /api/v1/payments/batch).
+ *
+ * Вместо N циклов "решение -> insert -> rollup" на весь пакет выполняется одно пакетное решение
+ * (у remote - один вызов внешнего API с count=N), одна unordered bulk-запись платежей и одна bulk-запись
+ * rollup-бакетов. События CREATE_PAYMENT пишутся в outbox вместе с платежами (eventPending)
+ * и публикуются PaymentOutboxRelay пачками.
+ * У order-service нет пакетного API, поэтому PROCESSING/CANCELED ставятся в OrderStatusDispatcher
+ * по каждому заказу; пакет их не ждет.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentBatchService {
+
+    private final PaymentRepository repository;
+    private final PaymentMapper paymentMapper;
+    private final PaymentDecisionEngine paymentDecisionEngine;
+    private final OrderStatusDispatcher orderStatusDispatcher;
+    private final PaymentRollupService paymentRollupService;
+    private final PaymentTotalCache paymentTotalCache;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Создает платежи пакета; ошибка записи одного элемента не отменяет остальные.
+     *
+     * @return результаты в порядке элементов запроса
+     */
+    public PaymentBatchResponse createPayments(List<CreatePaymentRequest> requests, String authToken) {
+        log.info("Creating batch of {} payments", requests.size());
+        Instant timestamp = Instant.now();
+
+        List<Payment> payments = new ArrayList<>(requests.size());
+        for (CreatePaymentRequest request : requests) {
+            Payment payment = paymentMapper.toEntity(request);
+            // id назначается заранее: bulk insert не возвращает сгенерированные ключи по элементам
+            payment.setId(new ObjectId().toHexString());
+            payment.setTimestamp(timestamp);
+            payment.setEventPending(true);
+            payments.add(payment);
+        }
+
+        for (Payment payment : payments) {
+            orderStatusDispatcher.dispatch(payment.getOrderId(), "PROCESSING", authToken);
+        }
+
+        resolvePaymentStatuses(payments);
+
+        Map<Integer, String> failures = repository.insertUnordered(payments);
+        List<PaymentBatchItemResult> results = new ArrayList<>(requests.size());
+        List<Payment> saved = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            Payment payment = payments.get(i);
+            String error = failures.get(i);
+            if (error != null) {
+                log.warn("Batch item {} (orderId: {}) was not saved: {}", i, payment.getOrderId(), error);
+                results.add(PaymentBatchItemResult.builder()
+                        .index(i).orderId(payment.getOrderId()).error(error).build());
+            } else {
+                saved.add(payment);
+                results.add(PaymentBatchItemResult.builder()
+                        .index(i).orderId(payment.getOrderId()).payment(paymentMapper.toDto(payment)).build());
+            }
+        }
+        int created = saved.size();
+        log.info("Batch saved: {} created, {} failed", created, failures.size());
+        meterRegistry.counter("payments.created").increment(created);
+        paymentRollupService.recordCreated(saved);
+        for (Payment payment : saved) {
+            paymentTotalCache.invalidate(payment, payment.getStatus());
+        }
+
+        // CANCELED только для созданных платежей; диспетчер отправит его после PROCESSING того же заказа
+        // или вместо еще не отправленного PROCESSING
+        for (Payment payment : saved) {
+            orderStatusDispatcher.dispatch(payment.getOrderId(), "CANCELED", authToken);
+        }
+
+        return PaymentBatchResponse.builder()
+                .total(requests.size())
+                .created(created)
+                .failed(requests.size() - created)
+                .items(results)
+                .build();
+    }
+
+    /**
+     * Решения для всего пакета одним вызовом движка (у remote - один вызов внешнего API).
+     */
+    private void resolvePaymentStatuses(List<Payment> payments) {
+        List<PaymentStatus> statuses = paymentDecisionEngine.decideAll(payments);
+        for (int i = 0; i < payments.size(); i++) {
+            payments.get(i).setStatus(statuses.get(i));
+        }
+    }
+}
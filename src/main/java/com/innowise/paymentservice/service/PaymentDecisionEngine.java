@@ -0,0 +1,39 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentStatus;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Решение по платежу: SUCCESS или FAILED.
+ *
+ * Реализация выбирается свойством payment.decision.engine (см. PaymentDecisionConfig):
+ * remote - внешний API случайных чисел, secure-random - SecureRandom в процессе,
+ * seeded - детерминированное решение по seed и orderId для нагрузочных тестов.
+ * Реализации не должны бросать исключения: при недоступности источника решение - FAILED.
+ */
+public interface PaymentDecisionEngine {
+
+    /**
+     * Имя реализации (тег engine в метриках).
+     */
+    String name();
+
+    PaymentStatus decide(Payment payment);
+
+    /**
+     * Решение без блокировки вызывающего потока; по умолчанию - decide, который не блокирует.
+     */
+    default Mono<PaymentStatus> decideAsync(Payment payment) {
+        return Mono.fromSupplier(() -> decide(payment));
+    }
+
+    /**
+     * Решения для пакета платежей в порядке списка.
+     */
+    default List<PaymentStatus> decideAll(List<Payment> payments) {
+        return payments.stream().map(this::decide).toList();
+    }
+}
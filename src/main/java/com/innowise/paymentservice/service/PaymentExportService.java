@@ -0,0 +1,83 @@
+package com.innowise.paymentservice.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.innowise.paymentservice.mapper.PaymentMapper;
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.repository.PaymentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Выгрузка платежей в формате NDJSON (один JSON-объект PaymentDto на строку).
+ *
+ * Документы читаются курсором MongoDB и сразу пишутся в выходной поток, поэтому память
+ * ограничена пачкой курсора и буфером генератора независимо от размера выборки.
+ * Блокирующая запись в поток ответа сервлета сама ограничивает скорость чтения курсора.
+ */
+@Slf4j
+@Service
+public class PaymentExportService {
+
+    private final PaymentRepository repository;
+    private final PaymentMapper paymentMapper;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter dtoWriter;
+
+    @Value("${payment.export.batch-size:500}")
+    private int batchSize;
+
+    @Value("${payment.export.flush-every:1000}")
+    private int flushEvery;
+
+    public PaymentExportService(PaymentRepository repository, PaymentMapper paymentMapper, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.paymentMapper = paymentMapper;
+        this.objectMapper = objectMapper;
+        // Без flush после каждой строки: сбрасываем буфер пачками (flushEvery)
+        this.dtoWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Пишет все платежи, подходящие под фильтр, в out.
+     *
+     * @return количество выгруженных платежей
+     */
+    public long exportNdjson(PaymentFilter filter, OutputStream out) throws IOException {
+        log.info("Exporting payments as NDJSON, filter: {}", filter);
+        long count = 0;
+
+        try (Stream<Payment> payments = repository.stream(filter, batchSize);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            // Поток ответа закрывает контейнер сервлетов
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Разделитель строк пишем сами, без пробела между корневыми значениями
+            generator.setRootValueSeparator(null);
+
+            Iterator<Payment> iterator = payments.iterator();
+            while (iterator.hasNext()) {
+                dtoWriter.writeValue(generator, paymentMapper.toDto(iterator.next()));
+                generator.writeRaw('\n');
+                if (++count % flushEvery == 0) {
+                    generator.flush();
+                }
+            }
+            generator.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        log.info("Exported {} payments", count);
+        return count;
+    }
+}
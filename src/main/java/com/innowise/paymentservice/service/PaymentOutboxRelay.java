@@ -0,0 +1,138 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.producer.PaymentEventProducer;
+import com.innowise.paymentservice.repository.OutboxLeaseRepository;
+import com.innowise.paymentservice.repository.PaymentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фоновая публикация outbox: платежи с eventPending = true читаются пачками по batch-size,
+ * события отправляются в Kafka пачкой, подтвержденные снимаются с outbox одной bulk-операцией.
+ *
+ * При нескольких экземплярах публикует только владелец аренды (payment_outbox_leases): аренда
+ * берется или продлевается на lease-duration перед каждой пачкой, остальные экземпляры пропускают
+ * запуск и перехватывают аренду, когда она истекает. lease-duration должен превышать время одной пачки
+ * (send-timeout), иначе второй экземпляр может начать публикацию, пока первый еще ждет подтверждений.
+ * При остановке аренда освобождается.
+ *
+ * Доставка at-least-once: при падении между отправкой и отметкой событие может уйти повторно
+ * (ключ сообщения - paymentId).
+ * Метрики: payment.outbox.published, payment.outbox.failed, payment.outbox.last-batch-size.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "payment.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class PaymentOutboxRelay implements DisposableBean {
+
+    static final String LEASE_NAME = "payment-outbox-relay";
+
+    private final PaymentRepository repository;
+    private final OutboxLeaseRepository leaseRepository;
+    private final PaymentEventProducer paymentEventProducer;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    private final Duration leaseDuration;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Counter published;
+    private final Counter failed;
+    private final AtomicInteger lastBatchSize = new AtomicInteger();
+
+    public PaymentOutboxRelay(
+            PaymentRepository repository,
+            OutboxLeaseRepository leaseRepository,
+            PaymentEventProducer paymentEventProducer,
+            MeterRegistry meterRegistry,
+            @Value("${payment.outbox.relay.batch-size:500}") int batchSize,
+            @Value("${payment.outbox.relay.send-timeout:30s}") Duration sendTimeout,
+            @Value("${payment.outbox.relay.lease-duration:60s}") Duration leaseDuration) {
+        this.repository = repository;
+        this.leaseRepository = leaseRepository;
+        this.paymentEventProducer = paymentEventProducer;
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout;
+        this.leaseDuration = leaseDuration;
+        this.published = meterRegistry.counter("payment.outbox.published");
+        this.failed = meterRegistry.counter("payment.outbox.failed");
+        Gauge.builder("payment.outbox.last-batch-size", lastBatchSize, AtomicInteger::get)
+                .description("Pending CREATE_PAYMENT events read by the last relay batch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Публикует все накопившиеся события; полная пачка означает, что outbox не пуст, и читается следующая.
+     * Без аренды запуск пропускается.
+     */
+    @Scheduled(fixedDelayString = "${payment.outbox.relay.interval:500ms}")
+    public void relay() {
+        try {
+            int batch;
+            do {
+                if (!acquireLease()) {
+                    return;
+                }
+                batch = relayBatch();
+            } while (batch == batchSize);
+        } catch (Exception e) {
+            // Событие остается в outbox и будет отправлено следующим запуском
+            log.error("Outbox relay failed", e);
+        }
+    }
+
+    private boolean acquireLease() {
+        Instant now = Instant.now();
+        boolean acquired = leaseRepository.acquire(LEASE_NAME, instanceId, now, now.plus(leaseDuration));
+        if (!acquired) {
+            log.debug("Outbox relay lease is held by another instance, skipping run");
+        }
+        return acquired;
+    }
+
+    @Override
+    public void destroy() {
+        try {
+            leaseRepository.release(LEASE_NAME, instanceId);
+        } catch (Exception e) {
+            // Аренда истечет сама через lease-duration
+            log.warn("Failed to release outbox relay lease", e);
+        }
+    }
+
+    /**
+     * Одна пачка outbox.
+     *
+     * @return число прочитанных событий; пачка, в которой ничего не подтверждено, прерывает цикл relay
+     */
+    int relayBatch() {
+        List<Payment> pending = repository.findPendingEvents(batchSize);
+        lastBatchSize.set(pending.size());
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<Payment> sent = paymentEventProducer.publishCreatePaymentEvents(pending, sendTimeout);
+        repository.markEventsPublished(sent);
+        published.increment(sent.size());
+        failed.increment(pending.size() - sent.size());
+        if (sent.size() < pending.size()) {
+            log.warn("Outbox relay: {} of {} CREATE_PAYMENT events not confirmed, will retry",
+                    pending.size() - sent.size(), pending.size());
+            return 0;
+        }
+        return pending.size();
+    }
+}
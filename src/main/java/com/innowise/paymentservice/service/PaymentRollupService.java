@@ -0,0 +1,181 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentRollup;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.model.PaymentTotal;
+import com.innowise.paymentservice.repository.PaymentRepository;
+import com.innowise.paymentservice.repository.PaymentRollupRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ведение и чтение read-модели payment_rollups (суммы по дню, статусу и пользователю).
+ *
+ * Запись выполняется всегда, чтение включается свойством payment.rollups.read-enabled
+ * после первичной пересборки (payment.rollups.rebuild-on-startup=true).
+ *
+ * Приращения пишутся после сохранения платежа отдельной операцией: транзакции на одиночном mongod
+ * недоступны. Неудачная запись считается в payment.rollups.update.failures, расхождение
+ * устраняется пересборкой - при старте или через actuator-эндпоинт paymentrollups.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentRollupService {
+
+    static final String UPDATE_FAILURES = "payment.rollups.update.failures";
+
+    private final PaymentRollupRepository rollupRepository;
+    private final PaymentRepository paymentRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payment.rollups.read-enabled:false}")
+    private boolean readEnabled;
+
+    public boolean isReadEnabled() {
+        return readEnabled;
+    }
+
+    /**
+     * Учитывает новый платеж в бакете его текущего статуса.
+     */
+    public void recordCreated(Payment payment) {
+        if (payment.getTimestamp() == null) {
+            return;
+        }
+        List<PaymentRollup> deltas = new ArrayList<>();
+        addDeltas(deltas, payment, payment.getStatus(), amountOf(payment), 1);
+        apply(payment, deltas);
+    }
+
+    /**
+     * Учитывает пакет новых платежей одной bulk-операцией. Приращения одного бакета не складываются
+     * в памяти: каждое уходит отдельным $inc, и суммирует их MongoDB.
+     */
+    public void recordCreated(List<Payment> payments) {
+        List<PaymentRollup> deltas = new ArrayList<>();
+        for (Payment payment : payments) {
+            if (payment.getTimestamp() != null) {
+                addDeltas(deltas, payment, payment.getStatus(), amountOf(payment), 1);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            rollupRepository.applyDeltas(deltas);
+        } catch (Exception e) {
+            meterRegistry.counter(UPDATE_FAILURES).increment(payments.size());
+            log.error("Failed to update payment rollups for batch of {} payments", payments.size(), e);
+        }
+    }
+
+    /**
+     * Переносит сумму платежа из бакета предыдущего статуса в бакет текущего.
+     */
+    public void recordStatusChange(Payment payment, PaymentStatus previousStatus) {
+        if (payment.getTimestamp() == null || payment.getStatus() == previousStatus) {
+            return;
+        }
+        BigDecimal amount = amountOf(payment);
+        List<PaymentRollup> deltas = new ArrayList<>();
+        addDeltas(deltas, payment, previousStatus, amount.negate(), -1);
+        addDeltas(deltas, payment, payment.getStatus(), amount, 1);
+        apply(payment, deltas);
+    }
+
+    /**
+     * Считает сумму по бакетам. Неполные дни на границах периода досчитываются
+     * агрегацией по payments (не более суток документов с каждой стороны).
+     */
+    public PaymentTotal getTotal(PaymentFilter filter) {
+        if (filter.getOrderId() != null) {
+            // Бакеты не разрезаны по заказам
+            return paymentRepository.aggregateTotal(filter);
+        }
+        String userKey = filter.getUserId() != null ? filter.getUserId() : PaymentRollup.ALL_USERS;
+
+        if (!filter.hasPeriod()) {
+            return rollupRepository.sumBuckets(userKey, filter.getStatuses(), null, null);
+        }
+
+        // Between исключает startDate, поэтому день startDate всегда считается как неполный
+        Instant firstFullDay = startOfDay(filter.getStartDate()).plus(1, ChronoUnit.DAYS);
+        Instant lastDayStart = startOfDay(filter.getEndDate());
+        if (!firstFullDay.isBefore(lastDayStart)) {
+            return paymentRepository.aggregateTotal(filter);
+        }
+
+        PaymentTotal head = paymentRepository.aggregateTotal(filter.toBuilder()
+                .endDate(firstFullDay)
+                .build());
+        PaymentTotal middle = rollupRepository.sumBuckets(userKey, filter.getStatuses(), firstFullDay, lastDayStart);
+        // BSON Date хранит миллисекунды: timestamp > lastDayStart - 1ms эквивалентно timestamp >= lastDayStart
+        PaymentTotal tail = paymentRepository.aggregateTotal(filter.toBuilder()
+                .startDate(lastDayStart.minusMillis(1))
+                .build());
+
+        return head.plus(middle).plus(tail);
+    }
+
+    /**
+     * Пересобирает payment_rollups из коллекции payments.
+     * Записи, выполненные во время пересборки, могут не попасть в результат - запускать в окно без нагрузки.
+     */
+    public long rebuild() {
+        log.info("Rebuilding payment rollups from payments collection");
+        long started = System.currentTimeMillis();
+        rollupRepository.rebuildFromPayments();
+        long buckets = rollupRepository.count();
+        meterRegistry.counter("payment.rollups.rebuilds").increment();
+        log.info("Payment rollups rebuilt in {} ms, {} buckets", System.currentTimeMillis() - started, buckets);
+        return buckets;
+    }
+
+    private void apply(Payment payment, List<PaymentRollup> deltas) {
+        try {
+            rollupRepository.applyDeltas(deltas);
+        } catch (Exception e) {
+            // Read-модель не должна ломать создание платежа; расхождение устраняется пересборкой
+            meterRegistry.counter(UPDATE_FAILURES).increment();
+            log.error("Failed to update payment rollups for paymentId: {}", payment.getId(), e);
+        }
+    }
+
+    private static void addDeltas(List<PaymentRollup> deltas, Payment payment, PaymentStatus status,
+                                  BigDecimal amount, long count) {
+        Instant day = startOfDay(payment.getTimestamp());
+        deltas.add(delta(day, status, payment.getUserId(), amount, count));
+        deltas.add(delta(day, status, PaymentRollup.ALL_USERS, amount, count));
+    }
+
+    private static PaymentRollup delta(Instant day, PaymentStatus status, String userId, BigDecimal amount, long count) {
+        return PaymentRollup.builder()
+                .id(PaymentRollup.bucketId(day, status, userId))
+                .day(day)
+                .status(status)
+                .userId(userId)
+                .totalAmount(amount)
+                .paymentCount(count)
+                .build();
+    }
+
+    private static BigDecimal amountOf(Payment payment) {
+        return payment.getPaymentAmount() != null ? payment.getPaymentAmount() : BigDecimal.ZERO;
+    }
+
+    private static Instant startOfDay(Instant instant) {
+        return instant.truncatedTo(ChronoUnit.DAYS);
+    }
+}
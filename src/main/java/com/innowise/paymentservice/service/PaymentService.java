@@ -1,33 +1,58 @@
 package com.innowise.paymentservice.service;
 
-import com.innowise.paymentservice.client.ExternalApiClient;
-import com.innowise.paymentservice.client.OrderServiceClient;
 import com.innowise.paymentservice.dto.CreatePaymentRequest;
 import com.innowise.paymentservice.dto.PaymentDto;
+import com.innowise.paymentservice.dto.PaymentPageResponse;
 import com.innowise.paymentservice.dto.TotalSumResponse;
 import com.innowise.paymentservice.mapper.PaymentMapper;
+import com.innowise.paymentservice.model.ClosedPeriodTotal;
+import com.innowise.paymentservice.model.PageCursor;
 import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
 import com.innowise.paymentservice.model.PaymentStatus;
-import com.innowise.paymentservice.producer.PaymentEventProducer;
+import com.innowise.paymentservice.model.PaymentTotal;
 import com.innowise.paymentservice.repository.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class PaymentService {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
     private final PaymentRepository repository;
     private final PaymentMapper paymentMapper;
-    private final ExternalApiClient externalApiClient;
-    private final PaymentEventProducer paymentEventProducer;
-    private final OrderServiceClient orderServiceClient;
+    private final PaymentDecisionEngine paymentDecisionEngine;
+    private final OrderStatusDispatcher orderStatusDispatcher;
+    private final DownstreamFanOut downstreamFanOut;
+    private final PaymentRollupService paymentRollupService;
+    private final PaymentTotalCache paymentTotalCache;
+    private final ClosedPeriodTotalService closedPeriodTotalService;
+    private final MeterRegistry meterRegistry;
+    private final Executor paymentProcessingExecutor;
+
+    @Value("${payment.processing.async:false}")
+    private boolean asyncProcessing;
+
+    /**
+     * Асинхронный режим: POST /api/v1/payments сохраняет PENDING-платеж и отвечает 202,
+     * обработка выполняется в paymentProcessingExecutor.
+     */
+    public boolean isAsyncProcessing() {
+        return asyncProcessing;
+    }
 
     @Transactional
     public PaymentDto createPayment(CreatePaymentRequest request, String authToken) {
@@ -35,167 +60,225 @@ public class PaymentService {
         
         // Convert DTO to Entity using MapStruct
         Payment payment = paymentMapper.toEntity(request);
+        payment.setTimestamp(Instant.now());
+        
+        // Статусы заказа отправляются OrderStatusDispatcher в фоне: запрос не ждет order-service,
+        // а PROCESSING, не успевший уйти до CANCELED, заменяется им.
+        // Постановка PROCESSING запускается через DownstreamFanOut параллельно с решением по статусу:
+        // при выключенном диспетчере (отправка в вызывающем потоке) PUT в order-service перекрывается
+        // с вызовом внешнего API и записью платежа, а CANCELED по-прежнему уходит только после PROCESSING.
+        // Событие CREATE_PAYMENT пишется в outbox вместе с платежом и публикуется PaymentOutboxRelay
+        try (DownstreamFanOut.Scope scope = downstreamFanOut.open()) {
+            // Согласно требованиям: при создании платежа статус заказа становится PROCESSING
+            // (используется если есть задержка в получении ответа)
+            Future<?> processing = scope.fork("order " + request.getOrderId() + " PROCESSING",
+                    () -> orderStatusDispatcher.dispatch(request.getOrderId(), "PROCESSING", authToken));
+
+            // Статус определяется до записи: платеж сохраняется один раз уже с итоговым статусом,
+            // без повторного save и перечитывания (findById) после обновления
+            payment.setStatus(paymentDecisionEngine.decide(payment));
+            payment.setEventPending(true);
+
+            // Save entity to database (DAO layer operates with entities)
+            Payment saved = repository.save(payment);
+            log.info("Payment created with id: {}, status: {}", saved.getId(), saved.getStatus());
+            // Вместе с mongodb.driver.commands{collection=payments} показывает число обращений к Mongo на платеж:
+            // insert / payments.created == 1, find и update при создании не выполняются
+            meterRegistry.counter("payments.created").increment();
+            paymentRollupService.recordCreated(saved);
+            paymentTotalCache.invalidate(saved, saved.getStatus());
 
-        if (payment.getStatus() == null) {
-            payment.setStatus(PaymentStatus.CREATED);
+            // Согласно требованиям: когда платеж создан (SUCCESS или FAILED), статус заказа становится CANCELED
+            scope.await("order " + request.getOrderId() + " PROCESSING", processing);
+            orderStatusDispatcher.dispatch(request.getOrderId(), "CANCELED", authToken);
+
+            // Convert Entity back to DTO for response
+            return paymentMapper.toDto(saved);
         }
+    }
+    
+    /**
+     * Асинхронное создание платежа: одна запись PENDING-платежа в запросе,
+     * решение по статусу и обновления заказа - в paymentProcessingExecutor.
+     *
+     * @return платеж в статусе PENDING; итоговый статус доступен через getPaymentById
+     */
+    public PaymentDto createPaymentAsync(CreatePaymentRequest request, String authToken) {
+        log.info("Accepting payment for async processing, orderId: {}, userId: {}",
+                request.getOrderId(), request.getUserId());
+
+        Payment payment = paymentMapper.toEntity(request);
         payment.setTimestamp(Instant.now());
-        
-        // Save entity to database (DAO layer operates with entities)
+        payment.setStatus(PaymentStatus.PENDING);
+
         Payment saved = repository.save(payment);
-        log.info("Payment created with id: {}", saved.getId());
-        
-        // Согласно требованиям: при создании платежа статус заказа становится PROCESSING
-        // (используется если есть задержка в получении ответа)
-        try {
-            Long orderId = Long.parseLong(request.getOrderId());
-            orderServiceClient.updateOrderStatus(orderId, "PROCESSING", authToken);
-            log.info("Order {} status updated to PROCESSING after payment creation", orderId);
+        log.info("Payment accepted with id: {}, status: {}", saved.getId(), saved.getStatus());
+        meterRegistry.counter("payments.created").increment();
+        paymentRollupService.recordCreated(saved);
+        paymentTotalCache.invalidate(saved, saved.getStatus());
+
+        PaymentDto accepted = paymentMapper.toDto(saved);
+        // При заполненной очереди задача выполнится в текущем потоке (CallerRunsPolicy)
+        paymentProcessingExecutor.execute(() -> processPendingPayment(saved, authToken));
+        return accepted;
+    }
+
+    /**
+     * Обработка PENDING-платежа: PROCESSING у заказа, решение по статусу, запись статуса,
+     * CANCELED у заказа; событие CREATE_PAYMENT ставится в outbox той же записью статуса.
+     * Выполняется вне servlet-потока. Если обработка не дошла до записи статуса, платеж
+     * остается PENDING и его позже завершает PendingPaymentSweeper.
+     */
+    void processPendingPayment(Payment payment, String authToken) {
+        try (DownstreamFanOut.Scope scope = downstreamFanOut.open()) {
+            Future<?> processing = scope.fork("order " + payment.getOrderId() + " PROCESSING",
+                    () -> orderStatusDispatcher.dispatch(payment.getOrderId(), "PROCESSING", authToken));
+
+            if (!resolvePendingStatus(payment, paymentDecisionEngine.decide(payment))) {
+                return;
+            }
+
+            scope.await("order " + payment.getOrderId() + " PROCESSING", processing);
+            orderStatusDispatcher.dispatch(payment.getOrderId(), "CANCELED", authToken);
         } catch (Exception e) {
-            log.error("Failed to update order status to PROCESSING for orderId: {}", request.getOrderId(), e);
-            // Continue execution even if order status update fails
+            // Платеж остается в PENDING; ошибка не должна останавливать поток пула
+            log.error("Failed to process pending payment id: {}", payment.getId(), e);
         }
-        
-        // Call external API to generate random number and update payment status
-        updatePaymentStatusFromExternalApi(saved);
-        
-        // Reload payment to get updated status
-        Payment updatedPayment = repository.findById(saved.getId())
-                .orElseThrow(() -> new RuntimeException("Payment not found after update: " + saved.getId()));
-        
-        // Update order status based on payment status
-        // Согласно требованиям: когда платеж создан (SUCCESS или FAILED), статус заказа становится CANCELED
+    }
+
+    /**
+     * Завершает платеж, оставшийся в PENDING (экземпляр упал или обработка в пуле не удалась):
+     * статус решается заново, а если решение не удалось - платеж становится FAILED.
+     * Токена вызывающего уже нет, поэтому статус заказа по HTTP не отправляется -
+     * order-service узнает о платеже из события CREATE_PAYMENT, которое ставится в outbox.
+     *
+     * @return true, если статус записан; false, если платеж уже не в PENDING
+     */
+    public boolean resolveStalePendingPayment(Payment payment) {
+        PaymentStatus status;
         try {
-            Long orderId = Long.parseLong(request.getOrderId());
-            // После создания платежа (независимо от результата SUCCESS/FAILED) статус заказа = CANCELED
-            String orderStatus = "CANCELED";
-            orderServiceClient.updateOrderStatus(orderId, orderStatus, authToken);
-            log.info("Order {} status updated to CANCELED after payment processing (payment status: {})", 
-                    orderId, updatedPayment.getStatus());
+            status = paymentDecisionEngine.decide(payment);
         } catch (Exception e) {
-            log.error("Failed to update order status to CANCELED for orderId: {}", request.getOrderId(), e);
-            // Continue execution even if order status update fails
+            log.error("Failed to decide stale pending payment id: {}, marking it FAILED", payment.getId(), e);
+            status = PaymentStatus.FAILED;
         }
-        
-        // Send CREATE_PAYMENT event to Kafka
-        try {
-            paymentEventProducer.sendCreatePaymentEvent(updatedPayment);
-        } catch (Exception e) {
-            log.error("Failed to send CREATE_PAYMENT event to Kafka for paymentId: {}", updatedPayment.getId(), e);
-            // Continue execution even if Kafka event fails
+        return resolvePendingStatus(payment, status);
+    }
+
+    private boolean resolvePendingStatus(Payment payment, PaymentStatus status) {
+        PaymentStatus previousStatus = payment.getStatus();
+        payment.setStatus(status);
+        payment.setEventPending(true);
+        if (!repository.updateStatus(payment, PaymentStatus.PENDING)) {
+            log.warn("Payment is no longer pending, status not updated, paymentId: {}", payment.getId());
+            return false;
         }
-        
-        // Convert Entity back to DTO for response
-        return paymentMapper.toDto(updatedPayment);
+        log.info("Payment {} processed, status: {} -> {}", payment.getId(), previousStatus, payment.getStatus());
+        paymentRollupService.recordStatusChange(payment, previousStatus);
+        paymentTotalCache.invalidate(payment, previousStatus, payment.getStatus());
+        return true;
     }
-    
+
     /**
-     * Call external API to generate random number and update payment status
-     * If number is even -> SUCCESS, otherwise -> FAILED
+     * Получение платежа по ID (в асинхронном режиме - URL статуса из ответа 202).
+     */
+    public Optional<PaymentDto> getPaymentById(String id) {
+        log.info("Getting payment by id: {}", id);
+
+        return repository.findById(id).map(paymentMapper::toDto);
+    }
+
+    /**
+     * Получение всех платежей постранично.
      * 
-     * Согласно требованиям: при создании платежа может быть задержка в получении ответа,
-     * в этом случае статус заказа должен быть PROCESSING
+     * @param cursor курсор из nextCursor предыдущей страницы (null - первая страница)
+     * @param limit размер страницы
+     * @return страница платежей, отсортированных от новых к старым
      */
-    private void updatePaymentStatusFromExternalApi(Payment payment) {
-        log.info("Calling external API to determine payment status for payment id: {}", payment.getId());
-        
-        // TODO: Если есть задержка в получении ответа, можно установить статус заказа в PROCESSING
-        // через orderServiceClient.updateOrderStatus(orderId, "PROCESSING", authToken)
-        // Но для этого нужен доступ к orderId и authToken, которые сейчас недоступны в этом методе
-        
-        Integer randomNumber = externalApiClient.getRandomNumber();
-        
-        log.info("========================================");
-        log.info("=== EXTERNAL API RESULT ===");
-        log.info("Payment ID: {}", payment.getId());
-        log.info("Random number received: {}", randomNumber);
-        log.info("Random number is null: {}", randomNumber == null);
-        
-        if (randomNumber != null) {
-            log.info("Received random number from external API: {} (for payment id: {})", randomNumber, payment.getId());
-            
-            // If number is even -> SUCCESS, otherwise -> FAILED
-            boolean isEven = (randomNumber % 2 == 0);
-            int remainder = randomNumber % 2;
-            log.info("Random number: {}, Remainder (mod 2): {}, Is even: {}", randomNumber, remainder, isEven);
-            
-            PaymentStatus newStatus = isEven ? PaymentStatus.SUCCESS : PaymentStatus.FAILED;
-            payment.setStatus(newStatus);
-            repository.save(payment);
-            log.info("Payment status updated to {} based on random number: {} (number is {})", 
-                    newStatus, randomNumber, isEven ? "even" : "odd");
-            log.info("=== RESULT: Payment status = {} ===", newStatus);
-        } else {
-            // If API call failed, set status to FAILED
-            payment.setStatus(PaymentStatus.FAILED);
-            repository.save(payment);
-            log.warn("External API call failed or returned null, payment status set to FAILED for payment id: {}", payment.getId());
-            log.info("=== RESULT: Payment status = FAILED (API returned null) ===");
-        }
-        log.info("========================================");
+    public PaymentPageResponse getAllPayments(String cursor, int limit) {
+        log.info("Getting all payments, cursor: {}, limit: {}", cursor, limit);
+
+        return findPage(PaymentFilter.builder().build(), cursor, limit);
+    }
+
+    public PaymentPageResponse getPaymentsByOrderId(String orderId, String cursor, int limit) {
+        log.info("Getting payments for orderId: {}, cursor: {}, limit: {}", orderId, cursor, limit);
+
+        return findPage(PaymentFilter.builder().orderId(orderId).build(), cursor, limit);
+    }
+
+
+    public PaymentPageResponse getPaymentsByUserId(String userId, String cursor, int limit) {
+        log.info("Getting payments for userId: {}, cursor: {}, limit: {}", userId, cursor, limit);
+
+        return findPage(PaymentFilter.builder().userId(userId).build(), cursor, limit);
     }
 
 
     /**
-     * Получение всех платежей.
-     * 
-     * @return список всех платежей
+     * Платежи с одним из статусов; пустой список статусов не совпадает ни с одним платежом
+     * (в отличие от итогов, где пустой список означает отсутствие фильтра).
      */
-    public List<PaymentDto> getAllPayments() {
-        log.info("Getting all payments");
-        
-        List<Payment> payments = repository.findAll();
-        log.info("Found {} payments in database", payments.size());
-        
-        return paymentMapper.toDtoList(payments);
+    public PaymentPageResponse getPaymentsByStatuses(List<PaymentStatus> statuses, String cursor, int limit) {
+        log.info("Getting payments for statuses: {}, cursor: {}, limit: {}", statuses, cursor, limit);
+
+        return findPage(PaymentFilter.builder().statuses(statuses).build(), cursor, limit);
     }
 
-    public List<PaymentDto> getPaymentsByOrderId(String orderId) {
-        log.info("Getting payments for orderId: {}", orderId);
-        
-        List<Payment> payments = repository.findByOrderId(orderId);
-        
-        return paymentMapper.toDtoList(payments);
+    /**
+     * Keyset-пагинация: запрашиваем limit + 1 документ, лишний означает наличие следующей страницы.
+     */
+    private PaymentPageResponse findPage(PaymentFilter filter, String cursor, int limit) {
+        int pageSize = pageSize(limit);
+        PageCursor after = parseCursor(cursor);
+        List<Payment> payments = matchesNothing(filter) ? List.of() : repository.findPage(filter, after, pageSize + 1);
+        return toPage(payments, pageSize, paymentMapper);
     }
 
+    /**
+     * В списках пустой (не null) список статусов означает "ни один статус", как у прежнего findByStatusIn.
+     */
+    static boolean matchesNothing(PaymentFilter filter) {
+        return filter.getStatuses() != null && filter.getStatuses().isEmpty();
+    }
 
-    public List<PaymentDto> getPaymentsByUserId(String userId) {
-        log.info("Getting payments for userId: {}", userId);
-        
-        List<Payment> payments = repository.findByUserId(userId);
-       
-        return paymentMapper.toDtoList(payments);
+    static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    static PageCursor parseCursor(String cursor) {
+        return cursor != null && !cursor.isBlank() ? PageCursor.decode(cursor) : null;
     }
 
+    /**
+     * Страница из pageSize + 1 запрошенных платежей: лишний платеж означает наличие следующей страницы.
+     */
+    static PaymentPageResponse toPage(List<Payment> payments, int pageSize, PaymentMapper paymentMapper) {
+        String nextCursor = null;
+        if (payments.size() > pageSize) {
+            payments = payments.subList(0, pageSize);
+            nextCursor = PageCursor.of(payments.get(pageSize - 1)).encode();
+        }
 
-    public List<PaymentDto> getPaymentsByStatuses(List<PaymentStatus> statuses) {
-        log.info("Getting payments for statuses: {}", statuses);
-       
-        List<Payment> payments = repository.findByStatusIn(statuses);
-       
-        return paymentMapper.toDtoList(payments);
+        return PaymentPageResponse.builder()
+                .items(paymentMapper.toDtoList(payments))
+                .nextCursor(nextCursor)
+                .limit(pageSize)
+                .build();
     }
 
 
     public TotalSumResponse getTotalSumByDatePeriod(Instant startDate, Instant endDate) {
         log.info("Calculating total sum for period: {} to {}", startDate, endDate);
-        
-        
-        List<Payment> payments = repository.findByTimestampBetween(startDate, endDate);
-        
-        BigDecimal totalSum = payments.stream()
-                .map(Payment::getPaymentAmount)
-                .filter(amount -> amount != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add); 
-        
-        log.info("Total sum calculated: {} for {} payments", totalSum, payments.size());
-        
-        return TotalSumResponse.builder()
-                .totalSum(totalSum)
+
+        PaymentTotal total = calculateTotal(PaymentFilter.builder()
                 .startDate(startDate)
                 .endDate(endDate)
-                .paymentCount((long) payments.size())
-                .build();
+                .build());
+
+        log.info("Total sum calculated: {} for {} payments", total.getTotalSum(), total.getPaymentCount());
+
+        return toTotalSumResponse(total, startDate, endDate);
     }
 
     
@@ -205,22 +288,16 @@ public class PaymentService {
             List<PaymentStatus> statuses
     ) {
         log.info("Calculating total sum for period: {} to {} with statuses: {}", startDate, endDate, statuses);
-               
-        List<Payment> payments = repository.findByStatusInAndTimestampBetween(statuses, startDate, endDate);
-        
-        BigDecimal totalSum = payments.stream()
-                .map(Payment::getPaymentAmount)
-                .filter(amount -> amount != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        log.info("Total sum calculated: {} for {} payments", totalSum, payments.size());
-        
-        return TotalSumResponse.builder()
-                .totalSum(totalSum)
+
+        PaymentTotal total = calculateTotal(PaymentFilter.builder()
+                .statuses(statuses)
                 .startDate(startDate)
                 .endDate(endDate)
-                .paymentCount((long) payments.size())
-                .build();
+                .build());
+
+        log.info("Total sum calculated: {} for {} payments", total.getTotalSum(), total.getPaymentCount());
+
+        return toTotalSumResponse(total, startDate, endDate);
     }
 
     /**
@@ -230,20 +307,12 @@ public class PaymentService {
      */
     public TotalSumResponse getTotalSum() {
         log.info("Calculating total sum for all payments");
-        
-        List<Payment> payments = repository.findAll();
-        
-        BigDecimal totalSum = payments.stream()
-                .map(Payment::getPaymentAmount)
-                .filter(amount -> amount != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        log.info("Total sum calculated: {} for {} payments", totalSum, payments.size());
-        
-        return TotalSumResponse.builder()
-                .totalSum(totalSum)
-                .paymentCount((long) payments.size())
-                .build();
+
+        PaymentTotal total = calculateTotal(PaymentFilter.builder().build());
+
+        log.info("Total sum calculated: {} for {} payments", total.getTotalSum(), total.getPaymentCount());
+
+        return toTotalSumResponse(total, null, null);
     }
 
     /**
@@ -254,20 +323,14 @@ public class PaymentService {
      */
     public TotalSumResponse getTotalSumByStatuses(List<PaymentStatus> statuses) {
         log.info("Calculating total sum for statuses: {}", statuses);
-        
-        List<Payment> payments = repository.findByStatusIn(statuses);
-        
-        BigDecimal totalSum = payments.stream()
-                .map(Payment::getPaymentAmount)
-                .filter(amount -> amount != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        log.info("Total sum calculated: {} for {} payments", totalSum, payments.size());
-        
-        return TotalSumResponse.builder()
-                .totalSum(totalSum)
-                .paymentCount((long) payments.size())
-                .build();
+
+        PaymentTotal total = calculateTotal(PaymentFilter.builder()
+                .statuses(statuses)
+                .build());
+
+        log.info("Total sum calculated: {} for {} payments", total.getTotalSum(), total.getPaymentCount());
+
+        return toTotalSumResponse(total, null, null);
     }
 
     /**
@@ -285,81 +348,70 @@ public class PaymentService {
             Instant endDate,
             List<PaymentStatus> statuses
     ) {
-        System.err.println("========================================");
-        System.err.println("PaymentService.getTotalSumByUserId() CALLED");
-        System.err.println("========================================");
-        System.err.println("=== SEARCHING FOR PAYMENTS ===");
-        System.err.println("UserId: " + userId);
-        System.err.println("StartDate: " + startDate);
-        System.err.println("EndDate: " + endDate);
-        System.err.println("Statuses: " + statuses);
-        log.error("========================================");
-        log.error("PaymentService.getTotalSumByUserId() CALLED");
-        log.error("=== SEARCHING FOR PAYMENTS ===");
-        log.error("UserId: {}", userId);
-        log.error("StartDate: {}, EndDate: {}, Statuses: {}", startDate, endDate, statuses);
-        
-        List<Payment> payments;
-        
-        // Если даты не указаны
-        if (startDate == null && endDate == null) {
-            System.err.println(">>> No date range specified, searching all payments for userId: " + userId);
-            log.error(">>> No date range specified, searching all payments for userId: {}", userId);
-            
-            if (statuses != null && !statuses.isEmpty()) {
-                // Только по статусам
-                System.err.println(">>> Filtering by statuses: " + statuses);
-                log.error(">>> Filtering by statuses: {}", statuses);
-                payments = repository.findByUserIdAndStatusIn(userId, statuses);
-            } else {
-                // Все платежи пользователя
-                System.err.println(">>> No status filter, getting all payments for userId: " + userId);
-                log.error(">>> No status filter, getting all payments for userId: {}", userId);
-                payments = repository.findByUserId(userId);
-            }
-        } else if (startDate != null && endDate != null) {
-            // Если указаны обе даты
-            System.err.println(">>> Date range specified: " + startDate + " to " + endDate);
-            log.error(">>> Date range specified: {} to {}", startDate, endDate);
-            
-            if (statuses != null && !statuses.isEmpty()) {
-                // По датам и статусам
-                System.err.println(">>> Filtering by date range and statuses: " + statuses);
-                log.error(">>> Filtering by date range and statuses: {}", statuses);
-                payments = repository.findByUserIdAndStatusInAndTimestampBetween(userId, statuses, startDate, endDate);
-            } else {
-                // Только по датам
-                System.err.println(">>> Filtering by date range only");
-                log.error(">>> Filtering by date range only");
-                payments = repository.findByUserIdAndTimestampBetween(userId, startDate, endDate);
-            }
-        } else {
+        log.info("Calculating total sum for userId: {}, period: {} to {}, statuses: {}",
+                userId, startDate, endDate, statuses);
+
+        if ((startDate == null) != (endDate == null)) {
             throw new IllegalArgumentException("Both startDate and endDate must be provided, or neither");
         }
-        
-        System.err.println("=== PAYMENTS FOUND ===");
-        System.err.println("Found " + payments.size() + " payments for userId: " + userId);
-        log.error("=== PAYMENTS FOUND ===");
-        log.error("Found {} payments for userId: {}", payments.size(), userId);
-        
-        BigDecimal totalSum = payments.stream()
-                .map(Payment::getPaymentAmount)
-                .filter(amount -> amount != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        System.err.println("=== CALCULATED TOTAL ===");
-        System.err.println("TotalSum: " + totalSum);
-        System.err.println("PaymentCount: " + payments.size());
-        System.err.println("========================================");
-        log.error("=== CALCULATED TOTAL ===");
-        log.error("TotalSum: {}, PaymentCount: {}", totalSum, payments.size());
-        log.error("========================================");
-        
+
+        PaymentTotal total = calculateTotal(PaymentFilter.builder()
+                .userId(userId)
+                .statuses(statuses)
+                .startDate(startDate)
+                .endDate(endDate)
+                .build());
+
+        log.info("Total sum calculated: {} for {} payments of userId: {}",
+                total.getTotalSum(), total.getPaymentCount(), userId);
+
+        return toTotalSumResponse(total, startDate, endDate);
+    }
+
+    /**
+     * Сохраненный итог закрытого периода (закончился, нет PENDING-платежей): он больше не меняется
+     * и может кэшироваться клиентами бессрочно. Одно чтение по _id, без агрегации по payments.
+     */
+    public Optional<ClosedPeriodTotal> findClosedPeriodTotal(
+            Instant startDate,
+            Instant endDate,
+            List<PaymentStatus> statuses
+    ) {
+        return closedPeriodTotalService.find(PaymentFilter.builder()
+                .statuses(statuses)
+                .startDate(startDate)
+                .endDate(endDate)
+                .build());
+    }
+
+    /**
+     * Сумма из локального кэша, при промахе - из постоянного кэша закрытых периодов,
+     * иначе из read-модели payment_rollups (если чтение из нее включено) или агрегацией по payments.
+     */
+    private PaymentTotal calculateTotal(PaymentFilter filter) {
+        return paymentTotalCache.get(filter, this::loadTotal);
+    }
+
+    private PaymentTotal loadTotal(PaymentFilter filter) {
+        if (filter.hasPeriod() && closedPeriodTotalService.isSettled(filter.getStartDate(), filter.getEndDate())) {
+            return closedPeriodTotalService.getTotal(filter, this::computeTotal);
+        }
+        return computeTotal(filter);
+    }
+
+    private PaymentTotal computeTotal(PaymentFilter filter) {
+        if (paymentRollupService.isReadEnabled()) {
+            return paymentRollupService.getTotal(filter);
+        }
+        return repository.aggregateTotal(filter);
+    }
+
+    public static TotalSumResponse toTotalSumResponse(PaymentTotal total, Instant startDate, Instant endDate) {
         return TotalSumResponse.builder()
-                .totalSum(totalSum)
+                .totalSum(total.getTotalSum())
                 .startDate(startDate)
                 .endDate(endDate)
-                .paymentCount((long) payments.size())
+                .paymentCount(total.getPaymentCount())
                 .build();
     }
 }
@@ -0,0 +1,121 @@
+package com.innowise.paymentservice.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.model.PaymentTotal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Локальный кэш итогов (сумма и количество) по фильтру платежей.
+ *
+ * Ограничен по размеру и времени жизни записи. При записи платежа удаляются только те записи,
+ * в выборку которых платеж попадает (по пользователю, заказу, статусу и периоду).
+ * Итог, который еще считается, уже лежит в кэше как незавершенная запись и удаляется так же:
+ * инвалидация во время загрузки побеждает, и устаревший итог в кэш не попадает.
+ * Метрики: cache.gets{result=hit|miss}, cache.evictions, cache.size с тегом cache=payment.totals,
+ * а также payment.totals.cache.invalidations.
+ */
+@Slf4j
+@Component
+public class PaymentTotalCache {
+
+    static final String CACHE_NAME = "payment.totals";
+
+    private final boolean enabled;
+    private final AsyncCache<PaymentFilter, PaymentTotal> cache;
+    private final Counter invalidations;
+
+    public PaymentTotalCache(
+            @Value("${payment.totals.cache.enabled:true}") boolean enabled,
+            @Value("${payment.totals.cache.max-size:1000}") long maxSize,
+            @Value("${payment.totals.cache.ttl:30s}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        this.invalidations = Counter.builder(CACHE_NAME + ".cache.invalidations")
+                .description("Cached payment totals dropped because a matching payment was written")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Итог по фильтру из кэша, при промахе считается loader'ом в вызывающем потоке
+     * (вне блокировок кэша). Одновременные промахи по одному ключу выполняют loader один раз.
+     */
+    public PaymentTotal get(PaymentFilter filter, Function<PaymentFilter, PaymentTotal> loader) {
+        if (!enabled) {
+            return loader.apply(filter);
+        }
+        PaymentFilter key = filter.normalized();
+        CompletableFuture<PaymentTotal> created = new CompletableFuture<>();
+        CompletableFuture<PaymentTotal> future = cache.get(key, (k, executor) -> created);
+        if (future == created) {
+            try {
+                created.complete(loader.apply(key));
+            } catch (RuntimeException e) {
+                // Ошибочная запись удаляется из кэша автоматически
+                created.completeExceptionally(e);
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Удаляет итоги, в которые попадает платеж с одним из указанных статусов
+     * (для смены статуса - предыдущий и текущий).
+     */
+    public void invalidate(Payment payment, PaymentStatus... statuses) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int removed = 0;
+            // Ключи включают итоги, которые еще считаются
+            for (PaymentFilter filter : cache.asMap().keySet()) {
+                if (matchesAny(filter, payment, statuses) && cache.asMap().remove(filter) != null) {
+                    removed++;
+                }
+            }
+            if (removed > 0) {
+                invalidations.increment(removed);
+                log.debug("Invalidated {} cached totals for payment id: {}", removed, payment.getId());
+            }
+        } catch (Exception e) {
+            // Кэш не должен ломать запись платежа; в худшем случае итог устареет до истечения TTL
+            log.error("Failed to invalidate cached totals for payment id: {}", payment.getId(), e);
+        }
+    }
+
+    private static boolean matchesAny(PaymentFilter filter, Payment payment, PaymentStatus... statuses) {
+        for (PaymentStatus status : statuses) {
+            if (filter.matches(payment, status)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
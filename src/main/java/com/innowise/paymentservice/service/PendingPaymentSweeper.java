@@ -0,0 +1,101 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.repository.PaymentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Фоновое завершение платежей, застрявших в PENDING.
+ *
+ * В асинхронном режиме платеж сохраняется PENDING, а статус решается в пуле; если экземпляр упал
+ * до записи статуса или обработка завершилась ошибкой, платеж остался бы PENDING навсегда.
+ * Раз в interval платежи в PENDING старше older-than читаются пачками по batch-size и завершаются
+ * через PaymentService.resolveStalePendingPayment. Статус записывается только из PENDING, поэтому
+ * одновременная обработка в пуле или на другом экземпляре не приводит к двойной записи.
+ * В синхронном режиме статус решается в потоке запроса, и компонент не создается.
+ * Метрики: payment.pending.swept{result=resolved|skipped}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "payment.processing.async", havingValue = "true")
+@ConditionalOnProperty(name = "payment.processing.pending-sweep.enabled", havingValue = "true", matchIfMissing = true)
+public class PendingPaymentSweeper {
+
+    private final PaymentRepository repository;
+    private final PaymentService paymentService;
+    private final Duration olderThan;
+    private final int batchSize;
+    private final Counter resolved;
+    private final Counter skipped;
+
+    public PendingPaymentSweeper(
+            PaymentRepository repository,
+            PaymentService paymentService,
+            MeterRegistry meterRegistry,
+            @Value("${payment.processing.pending-sweep.older-than:5m}") Duration olderThan,
+            @Value("${payment.processing.pending-sweep.batch-size:100}") int batchSize) {
+        this.repository = repository;
+        this.paymentService = paymentService;
+        this.olderThan = olderThan;
+        this.batchSize = batchSize;
+        this.resolved = swept(meterRegistry, "resolved", "Stale pending payments given a final status");
+        this.skipped = swept(meterRegistry, "skipped", "Stale pending payments already resolved by another worker");
+    }
+
+    private static Counter swept(MeterRegistry meterRegistry, String result, String description) {
+        return Counter.builder("payment.pending.swept")
+                .description(description)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Завершает все платежи в PENDING старше older-than; полная пачка означает, что читается следующая.
+     */
+    @Scheduled(fixedDelayString = "${payment.processing.pending-sweep.interval:1m}")
+    public void sweep() {
+        try {
+            Instant cutoff = Instant.now().minus(olderThan);
+            int batch;
+            do {
+                batch = sweepBatch(cutoff);
+            } while (batch == batchSize);
+        } catch (Exception e) {
+            // Платежи остаются PENDING и будут завершены следующим запуском
+            log.error("Pending payment sweep failed", e);
+        }
+    }
+
+    /**
+     * @return число прочитанных платежей; пачка, в которой ничего не завершено, прерывает цикл sweep
+     */
+    int sweepBatch(Instant cutoff) {
+        List<Payment> stale = repository.findByStatusAndTimestampBeforeOrderByTimestampAsc(
+                PaymentStatus.PENDING, cutoff, Limit.of(batchSize));
+        int resolvedInBatch = 0;
+        for (Payment payment : stale) {
+            if (paymentService.resolveStalePendingPayment(payment)) {
+                resolved.increment();
+                resolvedInBatch++;
+            } else {
+                skipped.increment();
+            }
+        }
+        if (!stale.isEmpty()) {
+            log.warn("Resolved {} of {} payments pending since before {}", resolvedInBatch, stale.size(), cutoff);
+        }
+        return resolvedInBatch == 0 ? 0 : stale.size();
+    }
+}
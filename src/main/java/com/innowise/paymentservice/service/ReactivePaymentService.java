@@ -0,0 +1,121 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.client.OrderServiceClient;
+import com.innowise.paymentservice.dto.CreatePaymentRequest;
+import com.innowise.paymentservice.dto.PaymentDto;
+import com.innowise.paymentservice.dto.PaymentPageResponse;
+import com.innowise.paymentservice.dto.TotalSumResponse;
+import com.innowise.paymentservice.mapper.PaymentMapper;
+import com.innowise.paymentservice.model.PageCursor;
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.repository.ReactivePaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Неблокирующий вариант PaymentService для профиля reactive (WebFlux + reactive MongoDB).
+ *
+ * Создание платежа, страницы и итоги выполняются без блокировки event loop:
+ * reactive-драйвер MongoDB и WebClient без block(); событие Kafka публикует PaymentOutboxRelay.
+ * Read-модель payment_rollups обновляется синхронным MongoTemplate на boundedElastic;
+ * итоги считаются агрегацией по payments (rollups и payment_closed_totals здесь не читаются).
+ */
+@Slf4j
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactivePaymentService {
+
+    private final ReactivePaymentRepository repository;
+    private final PaymentMapper paymentMapper;
+    private final PaymentDecisionEngine paymentDecisionEngine;
+    private final OrderServiceClient orderServiceClient;
+    private final PaymentRollupService paymentRollupService;
+    private final MeterRegistry meterRegistry;
+
+    public Mono<PaymentDto> createPayment(CreatePaymentRequest request, String authToken) {
+        return Mono.defer(() -> {
+            log.info("Creating payment for orderId: {}, userId: {}", request.getOrderId(), request.getUserId());
+
+            Payment payment = paymentMapper.toEntity(request);
+            payment.setTimestamp(Instant.now());
+
+            // Как и в PaymentService: PROCESSING у заказа идет параллельно с решением и записью,
+            // CANCELED - после PROCESSING; событие CREATE_PAYMENT пишется в outbox вместе с платежом
+            Mono<Payment> savedPayment = paymentDecisionEngine.decideAsync(payment)
+                    .flatMap(status -> {
+                        payment.setStatus(status);
+                        payment.setEventPending(true);
+                        return repository.save(payment);
+                    });
+            return Mono.zip(updateOrderStatus(request.getOrderId(), "PROCESSING", authToken).thenReturn(true), savedPayment)
+                    .map(Tuple2::getT2)
+                    .flatMap(saved -> {
+                        log.info("Payment created with id: {}, status: {}", saved.getId(), saved.getStatus());
+                        meterRegistry.counter("payments.created").increment();
+
+                        return Mono.fromRunnable(() -> paymentRollupService.recordCreated(saved))
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .then(updateOrderStatus(request.getOrderId(), "CANCELED", authToken))
+                                .then(Mono.fromSupplier(() -> paymentMapper.toDto(saved)));
+                    });
+        });
+    }
+
+    private Mono<Void> updateOrderStatus(String orderIdValue, String orderStatus, String authToken) {
+        return Mono.defer(() -> orderServiceClient.updateOrderStatusAsync(Long.parseLong(orderIdValue), orderStatus, authToken))
+                .onErrorResume(e -> {
+                    log.error("Failed to update order status to {} for orderId: {}", orderStatus, orderIdValue, e);
+                    // Continue execution even if order status update fails
+                    return Mono.empty();
+                });
+    }
+
+    public Mono<PaymentDto> getPaymentById(String id) {
+        return repository.findById(id).map(paymentMapper::toDto);
+    }
+
+    /**
+     * Страница платежей по фильтру (keyset-пагинация, от новых к старым).
+     */
+    public Mono<PaymentPageResponse> getPayments(PaymentFilter filter, String cursor, int limit) {
+        return Mono.defer(() -> {
+            log.info("Getting payments for filter: {}, cursor: {}, limit: {}", filter, cursor, limit);
+
+            int pageSize = PaymentService.pageSize(limit);
+            PageCursor after = PaymentService.parseCursor(cursor);
+            if (PaymentService.matchesNothing(filter)) {
+                return Mono.just(PaymentService.toPage(List.of(), pageSize, paymentMapper));
+            }
+            return repository.findPage(filter, after, pageSize + 1)
+                    .collectList()
+                    .map(payments -> PaymentService.toPage(payments, pageSize, paymentMapper));
+        });
+    }
+
+    /**
+     * Сумма и количество платежей по фильтру; период задается обеими датами или не задается.
+     */
+    public Mono<TotalSumResponse> getTotalSum(PaymentFilter filter) {
+        return Mono.defer(() -> {
+            log.info("Calculating total sum for filter: {}", filter);
+
+            if ((filter.getStartDate() == null) != (filter.getEndDate() == null)) {
+                return Mono.error(new IllegalArgumentException("Both startDate and endDate must be provided, or neither"));
+            }
+            return repository.aggregateTotal(filter)
+                    .map(total -> PaymentService.toTotalSumResponse(total, filter.getStartDate(), filter.getEndDate()));
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.client.ExternalApiClient;
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Решение по числу из внешнего API: четное -> SUCCESS, нечетное или нет ответа -> FAILED.
+ *
+ * Согласно требованиям: при создании платежа может быть задержка в получении ответа,
+ * в этом случае статус заказа должен быть PROCESSING (выставляется до вызова)
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class RemoteApiDecisionEngine implements PaymentDecisionEngine {
+
+    public static final String NAME = "remote";
+
+    private final ExternalApiClient externalApiClient;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public PaymentStatus decide(Payment payment) {
+        log.info("Calling external API to determine payment status for orderId: {}", payment.getOrderId());
+
+        Integer randomNumber = externalApiClient.getRandomNumber();
+        if (randomNumber == null) {
+            // If API call failed, set status to FAILED
+            log.warn("External API call failed or returned null, payment status set to FAILED for orderId: {}",
+                    payment.getOrderId());
+            return PaymentStatus.FAILED;
+        }
+        PaymentStatus status = statusFor(randomNumber);
+        log.info("Random number: {}, payment status: {} for orderId: {}", randomNumber, status, payment.getOrderId());
+        return status;
+    }
+
+    @Override
+    public Mono<PaymentStatus> decideAsync(Payment payment) {
+        return externalApiClient.getRandomNumberAsync()
+                .map(RemoteApiDecisionEngine::statusFor)
+                .defaultIfEmpty(PaymentStatus.FAILED)
+                .doOnNext(status -> log.info("Payment status resolved for orderId: {}: {}", payment.getOrderId(), status));
+    }
+
+    /**
+     * Один вызов внешнего API на пакет (параметр count); платежи без числа получают FAILED.
+     */
+    @Override
+    public List<PaymentStatus> decideAll(List<Payment> payments) {
+        List<Integer> numbers = externalApiClient.getRandomNumbers(payments.size());
+        if (numbers.size() < payments.size()) {
+            log.warn("External API returned {} of {} random numbers, missing ones resolve to FAILED",
+                    numbers.size(), payments.size());
+        }
+        List<PaymentStatus> statuses = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            statuses.add(statusFor(i < numbers.size() ? numbers.get(i) : null));
+        }
+        return statuses;
+    }
+
+    /**
+     * If number is even -> SUCCESS, otherwise (or no number) -> FAILED
+     */
+    static PaymentStatus statusFor(Integer randomNumber) {
+        return randomNumber != null && randomNumber % 2 == 0 ? PaymentStatus.SUCCESS : PaymentStatus.FAILED;
+    }
+}
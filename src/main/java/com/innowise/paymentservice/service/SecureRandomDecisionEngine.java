@@ -0,0 +1,27 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentStatus;
+
+import java.security.SecureRandom;
+
+/**
+ * Решение в процессе без сетевого вызова: SUCCESS и FAILED равновероятны, как у четного/нечетного
+ * числа внешнего API. Один экземпляр SecureRandom безопасен для одновременного использования.
+ */
+public class SecureRandomDecisionEngine implements PaymentDecisionEngine {
+
+    public static final String NAME = "secure-random";
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public PaymentStatus decide(Payment payment) {
+        return random.nextBoolean() ? PaymentStatus.SUCCESS : PaymentStatus.FAILED;
+    }
+}
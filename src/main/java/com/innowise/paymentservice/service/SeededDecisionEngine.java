@@ -0,0 +1,34 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentStatus;
+
+import java.util.SplittableRandom;
+
+/**
+ * Детерминированное решение для нагрузочных тестов: статус зависит только от seed и orderId,
+ * поэтому повторный прогон с тем же seed дает те же статусы независимо от порядка и числа потоков.
+ */
+public class SeededDecisionEngine implements PaymentDecisionEngine {
+
+    public static final String NAME = "seeded";
+
+    private final long seed;
+
+    public SeededDecisionEngine(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public PaymentStatus decide(Payment payment) {
+        String orderId = payment.getOrderId() != null ? payment.getOrderId() : "";
+        // SplittableRandom перемешивает seed, поэтому соседние orderId дают независимые решения
+        boolean success = new SplittableRandom(seed ^ orderId.hashCode()).nextBoolean();
+        return success ? PaymentStatus.SUCCESS : PaymentStatus.FAILED;
+    }
+}
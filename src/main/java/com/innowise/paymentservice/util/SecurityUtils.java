@@ -1,10 +1,15 @@
 package com.innowise.paymentservice.util;
 
+import com.nimbusds.jwt.JWTParser;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.Date;
+
 /**
  * Утилитный класс для работы с Spring Security и извлечения данных из JWT токена.
  */
@@ -114,6 +119,27 @@ public class SecurityUtils {
         return "Bearer " + jwt.getTokenValue();
     }
 
+    /**
+     * Истек ли токен (claim exp) к моменту now - проверяется перед отложенной отправкой токена в другие сервисы.
+     * Подпись не проверяется: токен уже проверен при входе запроса. Токен без exp или нечитаемый
+     * считается действующим - решение остается за принимающим сервисом.
+     *
+     * @param token токен с префиксом "Bearer " или без него; null - не истек
+     */
+    public static boolean isTokenExpired(String token, Instant now) {
+        if (token == null || token.isBlank()) {
+            return false;
+        }
+        String value = token.startsWith("Bearer ") ? token.substring("Bearer ".length()) : token;
+        try {
+            Date expiresAt = JWTParser.parse(value).getJWTClaimsSet().getExpirationTime();
+            return expiresAt != null && !expiresAt.toInstant().isAfter(now);
+        } catch (ParseException e) {
+            log.debug("Could not read token expiration: {}", e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Извлекает JWT из Authentication объекта.
      * Возвращает JWT токен или null, если не удалось извлечь.
@@ -0,0 +1,132 @@
+package com.innowise.paymentservice.client;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ExternalApiClient Unit Tests")
+class ExternalApiClientTest {
+
+    private final List<URI> requests = new CopyOnWriteArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private HttpStatus status;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        status = HttpStatus.OK;
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    }
+
+    @Test
+    @DisplayName("getRandomNumber_BufferEmpty_ShouldFallBackToRemoteAndRefillInBulk")
+    void getRandomNumber_BufferEmpty_ShouldFallBackToRemoteAndRefillInBulk() {
+        // Given
+        ExternalApiClient client = client(ExternalApiClient.Fallback.REMOTE);
+
+        // When
+        Integer first = client.getRandomNumber();
+        Integer second = client.getRandomNumber();
+        Integer third = client.getRandomNumberAsync().block();
+
+        // Then - первое число из отдельного вызова, следующие - из пакета count=8 без вызовов API
+        assertEquals(7, first);
+        assertEquals(2, second);
+        assertEquals(4, third);
+        assertEquals(2, requests.size());
+        assertTrue(requests.stream().anyMatch(uri -> uri.getQuery().equals("min=1&max=100&count=8")));
+        assertEquals(1.0, meterRegistry.counter("payment.random-number.requests", "source", "remote").count());
+        assertEquals(2.0, meterRegistry.counter("payment.random-number.requests", "source", "buffer").count());
+        assertEquals(1L, meterRegistry.timer("payment.random-number.buffer.refill", "result", "success").count());
+        assertEquals(6.0, meterRegistry.get("payment.random-number.buffer.depth").gauge().value());
+    }
+
+    @Test
+    @DisplayName("getRandomNumber_BufferEmptyAndApiDown_ShouldUseLocalFallback")
+    void getRandomNumber_BufferEmptyAndApiDown_ShouldUseLocalFallback() {
+        // Given
+        status = HttpStatus.SERVICE_UNAVAILABLE;
+        ExternalApiClient client = client(ExternalApiClient.Fallback.LOCAL);
+
+        // When
+        Integer number = client.getRandomNumber();
+
+        // Then - в фоне была попытка пополнения, но число выдано без ожидания API
+        assertNotNull(number);
+        assertTrue(number >= 1 && number <= 100);
+        assertEquals(1, requests.size());
+        assertEquals(1.0, meterRegistry.counter("payment.random-number.requests", "source", "local").count());
+        assertEquals(1L, meterRegistry.timer("payment.random-number.buffer.refill", "result", "error").count());
+        assertEquals(0L, meterRegistry.timer("payment.random-number.buffer.refill", "result", "empty").count());
+    }
+
+    @Test
+    @DisplayName("getRandomNumber_BufferEmptyWithoutFallback_ShouldReturnNull")
+    void getRandomNumber_BufferEmptyWithoutFallback_ShouldReturnNull() {
+        // Given
+        status = HttpStatus.SERVICE_UNAVAILABLE;
+        ExternalApiClient client = client(ExternalApiClient.Fallback.NONE);
+
+        // When & Then
+        assertNull(client.getRandomNumber());
+        assertNull(client.getRandomNumberAsync().block());
+    }
+
+    @Test
+    @DisplayName("getRandomNumber_CircuitOpen_ShouldFailFastIntoFallbackWithoutCallingApi")
+    void getRandomNumber_CircuitOpen_ShouldFailFastIntoFallbackWithoutCallingApi() {
+        // Given
+        ExternalApiClient client = client(ExternalApiClient.Fallback.LOCAL);
+        requests.clear();
+        circuitBreakerRegistry.circuitBreaker(ExternalApiClient.DEPENDENCY).transitionToOpenState();
+
+        // When
+        List<Integer> numbers = client.getRandomNumbers(3);
+        Integer number = client.getRandomNumber();
+
+        // Then - пакетный вызов пуст (платежи получат FAILED), одиночный число взят из local fallback
+        assertEquals(List.of(), numbers);
+        assertNotNull(number);
+        assertEquals(0, requests.size());
+        assertEquals(1L, meterRegistry.timer("payment.random-number.buffer.refill", "result", "rejected").count());
+    }
+
+    private ExternalApiClient client(ExternalApiClient.Fallback fallback) {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    requests.add(request.url());
+                    String body = request.url().getQuery().contains("count") ? "[2,4,6,8,10,12,14,16]" : "[7]";
+                    return Mono.just(ClientResponse.create(status)
+                            .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                            .body(body)
+                            .build());
+                })
+                .build();
+        ExternalApiClient client = new ExternalApiClient(webClient, meterRegistry,
+                circuitBreakerRegistry, BulkheadRegistry.ofDefaults());
+        ReflectionTestUtils.setField(client, "randomNumberApiUrl", "http://localhost/api/v1.0/random?min=1&max=100");
+        ReflectionTestUtils.setField(client, "bufferEnabled", true);
+        ReflectionTestUtils.setField(client, "bufferCapacity", 8);
+        ReflectionTestUtils.setField(client, "lowWaterMark", 2);
+        ReflectionTestUtils.setField(client, "refillSize", 8);
+        ReflectionTestUtils.setField(client, "fallback", fallback);
+        client.init();
+        return client;
+    }
+}
@@ -0,0 +1,93 @@
+package com.innowise.paymentservice.client;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("OrderServiceClient Unit Tests")
+class OrderServiceClientTest {
+
+    private final List<URI> requests = new CopyOnWriteArrayList<>();
+    private final Sinks.Empty<Void> slowResponse = Sinks.empty();
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private volatile boolean slow;
+
+    @BeforeEach
+    void setUp() {
+        // Как в resilience4j.circuitbreaker.configs.default из application.properties
+        circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .ignoreExceptions(BulkheadFullException.class)
+                .ignoreException(new DownstreamClientErrorPredicate())
+                .build());
+    }
+
+    @Test
+    @DisplayName("updateOrderStatus_CircuitOpen_ShouldFailFastWithoutCallingOrderService")
+    void updateOrderStatus_CircuitOpen_ShouldFailFastWithoutCallingOrderService() {
+        // Given
+        OrderServiceClient client = client(BulkheadRegistry.ofDefaults());
+        circuitBreakerRegistry.circuitBreaker(OrderServiceClient.DEPENDENCY).transitionToOpenState();
+
+        // When
+        OrderServiceClient.OrderServiceException e = assertThrows(OrderServiceClient.OrderServiceException.class,
+                () -> client.updateOrderStatus(1L, "CANCELED", "token"));
+
+        // Then
+        assertInstanceOf(CallNotPermittedException.class, e.getCause());
+        assertEquals(0, requests.size());
+    }
+
+    @Test
+    @DisplayName("updateOrderStatus_BulkheadFull_ShouldRejectExtraCallWithoutRecordingFailure")
+    void updateOrderStatus_BulkheadFull_ShouldRejectExtraCallWithoutRecordingFailure() {
+        // Given - единственное место в bulkhead занято медленным вызовом
+        OrderServiceClient client = client(BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(1)
+                .build()));
+        slow = true;
+        client.updateOrderStatusAsync(1L, "PROCESSING", "token").subscribe(ignored -> { }, error -> { });
+
+        // When
+        OrderServiceClient.OrderServiceException e = assertThrows(OrderServiceClient.OrderServiceException.class,
+                () -> client.updateOrderStatus(2L, "PROCESSING", "token"));
+
+        // Then
+        assertInstanceOf(BulkheadFullException.class, e.getCause());
+        assertEquals(1, requests.size());
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(OrderServiceClient.DEPENDENCY);
+        // Отказ bulkhead не считается ни отказом, ни успехом и не размывает долю отказов
+        assertEquals(0, circuitBreaker.getMetrics().getNumberOfFailedCalls());
+        assertEquals(0, circuitBreaker.getMetrics().getNumberOfSuccessfulCalls());
+        slowResponse.tryEmitEmpty();
+    }
+
+    private OrderServiceClient client(BulkheadRegistry bulkheadRegistry) {
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost")
+                .exchangeFunction(request -> {
+                    requests.add(request.url());
+                    Mono<ClientResponse> response = Mono.just(ClientResponse.create(HttpStatus.OK).build());
+                    return slow ? slowResponse.asMono().then(response) : response;
+                })
+                .build();
+        return new OrderServiceClient(webClient, circuitBreakerRegistry, bulkheadRegistry);
+    }
+}
@@ -0,0 +1,77 @@
+package com.innowise.paymentservice.client;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RandomNumberRingBuffer Unit Tests")
+class RandomNumberRingBufferTest {
+
+    @Test
+    @DisplayName("offer_ShouldKeepOrderAndDropNumbersBeyondCapacity")
+    void offer_ShouldKeepOrderAndDropNumbersBeyondCapacity() {
+        // Given - емкость округляется до 4
+        RandomNumberRingBuffer buffer = new RandomNumberRingBuffer(3);
+
+        // When
+        int added = buffer.offer(List.of(1, 2, 3, 4, 5));
+
+        // Then
+        assertEquals(4, buffer.capacity());
+        assertEquals(4, added);
+        assertEquals(OptionalInt.of(1), buffer.poll());
+        assertEquals(OptionalInt.of(2), buffer.poll());
+        assertEquals(2, buffer.offer(List.of(6, 7, 8)));
+        assertEquals(List.of(3, 4, 6, 7), IntStream.range(0, 4).map(i -> buffer.poll().orElseThrow()).boxed().toList());
+        assertTrue(buffer.poll().isEmpty());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    @DisplayName("poll_ConcurrentReaders_ShouldTakeEachNumberExactlyOnce")
+    void poll_ConcurrentReaders_ShouldTakeEachNumberExactlyOnce() throws Exception {
+        // Given
+        int total = 100_000;
+        RandomNumberRingBuffer buffer = new RandomNumberRingBuffer(1024);
+        Set<Integer> taken = ConcurrentHashMap.newKeySet();
+        AtomicBoolean duplicate = new AtomicBoolean();
+        AtomicBoolean writerDone = new AtomicBoolean();
+
+        // When - один писатель, восемь читателей
+        try (ExecutorService executor = Executors.newFixedThreadPool(9)) {
+            executor.submit(() -> {
+                int next = 0;
+                while (next < total) {
+                    int end = Math.min(total, next + 100);
+                    next += buffer.offer(IntStream.range(next, end).boxed().toList());
+                }
+                writerDone.set(true);
+            });
+            for (int reader = 0; reader < 8; reader++) {
+                executor.submit(() -> {
+                    while (!writerDone.get() || buffer.size() > 0) {
+                        buffer.poll().ifPresent(value -> {
+                            if (!taken.add(value)) {
+                                duplicate.set(true);
+                            }
+                        });
+                    }
+                });
+            }
+        }
+
+        // Then
+        assertFalse(duplicate.get());
+        assertEquals(total, taken.size());
+    }
+}
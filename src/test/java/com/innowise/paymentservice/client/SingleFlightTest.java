@@ -0,0 +1,89 @@
+package com.innowise.paymentservice.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SingleFlight Unit Tests")
+class SingleFlightTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SingleFlight<String, String> singleFlight;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight<>("test", meterRegistry);
+    }
+
+    @Test
+    @DisplayName("execute_ConcurrentSameKey_ShouldShareOneCall")
+    void execute_ConcurrentSameKey_ShouldShareOneCall() {
+        // Given
+        Sinks.One<String> response = Sinks.one();
+        List<String> results = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            singleFlight.execute("john", () -> call(response.asMono())).subscribe(results::add);
+        }
+        singleFlight.execute("jane", () -> call(Mono.just("other"))).subscribe(results::add);
+        assertEquals(1, singleFlight.inFlight());
+        response.tryEmitValue("user");
+
+        // Then
+        assertEquals(2, calls.get());
+        assertEquals(List.of("other", "user", "user", "user", "user", "user"), results);
+        assertEquals(0, singleFlight.inFlight());
+        assertEquals(2.0, meterRegistry.counter("downstream.single-flight.calls",
+                "name", "test", "result", "executed").count());
+        assertEquals(4.0, meterRegistry.counter("downstream.single-flight.calls",
+                "name", "test", "result", "collapsed").count());
+    }
+
+    @Test
+    @DisplayName("execute_CallFails_ShouldShareErrorAndReleaseKey")
+    void execute_CallFails_ShouldShareErrorAndReleaseKey() {
+        // Given
+        Sinks.One<String> response = Sinks.one();
+        Mono<String> first = singleFlight.execute("john", () -> call(response.asMono())).cache();
+        Mono<String> second = singleFlight.execute("john", () -> call(response.asMono())).cache();
+        first.subscribe(value -> { }, error -> { });
+        second.subscribe(value -> { }, error -> { });
+
+        // When
+        response.tryEmitError(new IllegalStateException("down"));
+
+        // Then - ошибка получена обоими, следующий вызов снова идет в сервис
+        assertThrows(IllegalStateException.class, first::block);
+        assertThrows(IllegalStateException.class, second::block);
+        assertEquals("ok", singleFlight.execute("john", () -> call(Mono.just("ok"))).block());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("execute_EmptyResult_ShouldCompleteAllSubscribersEmpty")
+    void execute_EmptyResult_ShouldCompleteAllSubscribersEmpty() {
+        // When
+        String result = singleFlight.execute("john", () -> call(Mono.empty())).block();
+
+        // Then
+        assertNull(result);
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    private Mono<String> call(Mono<String> response) {
+        calls.incrementAndGet();
+        return response;
+    }
+}
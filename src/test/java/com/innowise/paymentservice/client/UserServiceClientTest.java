@@ -0,0 +1,251 @@
+package com.innowise.paymentservice.client;
+
+import com.innowise.paymentservice.dto.UserDto;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("UserServiceClient Unit Tests")
+class UserServiceClientTest {
+
+    private static final String EMAIL = "john@example.com";
+
+    private final List<URI> requests = new CopyOnWriteArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private volatile HttpStatus status;
+    private volatile String firstName;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .ignoreExceptions(BulkheadFullException.class)
+                .ignoreException(new DownstreamClientErrorPredicate())
+                .build());
+        status = HttpStatus.OK;
+        firstName = "John";
+    }
+
+    @Test
+    @DisplayName("getUserByEmail_RepeatedLookup_ShouldBeServedFromCache")
+    void getUserByEmail_RepeatedLookup_ShouldBeServedFromCache() {
+        // Given
+        UserServiceClient client = client(Duration.ofMinutes(10), Duration.ofSeconds(30), Duration.ofMinutes(8));
+
+        // When
+        UserDto first = client.getUserByEmail(EMAIL, "token");
+        UserDto second = client.getUserByEmail("John@Example.com", "token");
+
+        // Then
+        assertEquals(1L, first.getId());
+        assertSame(first, second);
+        assertEquals(1, requests.size());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "user.lookup").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("getUserByEmail_NotFound_ShouldCacheNegativeResultForNegativeTtl")
+    void getUserByEmail_NotFound_ShouldCacheNegativeResultForNegativeTtl() throws InterruptedException {
+        // Given
+        status = HttpStatus.NOT_FOUND;
+        UserServiceClient client = client(Duration.ofMinutes(10), Duration.ofMillis(100), Duration.ofMinutes(8));
+
+        // When & Then
+        assertThrows(UserServiceClient.UserServiceException.class, () -> client.getUserByEmail(EMAIL, "token"));
+        assertThrows(UserServiceClient.UserServiceException.class, () -> client.getUserByEmail(EMAIL, "token"));
+        assertEquals(1, requests.size());
+
+        // negative-запись истекает, и пользователь, созданный за это время, находится
+        Thread.sleep(200);
+        status = HttpStatus.OK;
+        assertEquals(1L, client.getUserByEmail(EMAIL, "token").getId());
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    @DisplayName("getUserByEmail_ServerError_ShouldNotBeCached")
+    void getUserByEmail_ServerError_ShouldNotBeCached() {
+        // Given
+        status = HttpStatus.SERVICE_UNAVAILABLE;
+        UserServiceClient client = client(Duration.ofMinutes(10), Duration.ofSeconds(30), Duration.ofMinutes(8));
+
+        // When & Then
+        assertThrows(UserServiceClient.UserServiceException.class, () -> client.getUserByEmail(EMAIL, "token"));
+        assertThrows(UserServiceClient.UserServiceException.class, () -> client.getUserByEmail(EMAIL, "token"));
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    @DisplayName("getUserByEmail_AfterRefreshAfter_ShouldServeCachedAndRefreshInBackground")
+    void getUserByEmail_AfterRefreshAfter_ShouldServeCachedAndRefreshInBackground() throws InterruptedException {
+        // Given
+        UserServiceClient client = client(Duration.ofMinutes(10), Duration.ofSeconds(30), Duration.ofMillis(100));
+        client.getUserByEmail(EMAIL, "token");
+        Thread.sleep(200);
+        firstName = "Johnny";
+
+        // When - обращение после refresh-after отдает прежнее значение и запускает обновление
+        UserDto stale = client.getUserByEmail(EMAIL, "token");
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (requests.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+
+        // Then
+        assertEquals("John", stale.getFirstName());
+        assertEquals(2, requests.size());
+        assertEquals("Johnny", client.getUserByEmail(EMAIL, "token").getFirstName());
+    }
+
+    @Test
+    @DisplayName("invalidate_ShouldDropEntriesByEmailAndUserId")
+    void invalidate_ShouldDropEntriesByEmailAndUserId() {
+        // Given
+        UserServiceClient client = client(Duration.ofMinutes(10), Duration.ofSeconds(30), Duration.ofMinutes(8));
+        client.getUserByEmail(EMAIL, "token");
+
+        // When & Then
+        client.invalidate("JOHN@example.com");
+        client.getUserByEmail(EMAIL, "token");
+        assertEquals(2, requests.size());
+
+        client.invalidateUser(1L);
+        client.getUserByEmail(EMAIL, "token");
+        assertEquals(3, requests.size());
+        assertEquals(2.0, meterRegistry.counter("user.lookup.cache.invalidations").count());
+    }
+
+    @Test
+    @DisplayName("invalidate_DuringInFlightLookup_ShouldNotCacheLoadedValue")
+    void invalidate_DuringInFlightLookup_ShouldNotCacheLoadedValue() throws Exception {
+        // Given - промах кэша ждет ответа user-service
+        UserServiceClient client = client(Duration.ofMinutes(10), Duration.ofSeconds(30), Duration.ofMinutes(8));
+        CompletableFuture<UserDto> lookup = CompletableFuture.supplyAsync(() -> client.getUserByEmail(EMAIL, "token"));
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (requests.isEmpty() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+
+        // When - событие об изменении пользователя приходит до ответа
+        client.invalidate(EMAIL);
+        assertEquals(1L, lookup.get(5, TimeUnit.SECONDS).getId());
+
+        // Then - ответ, загруженный до сброса, не закэширован
+        client.getUserByEmail(EMAIL, "token");
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    @DisplayName("getUserByEmail_ConcurrentLookupsWithoutCache_ShouldBeCollapsedIntoOneRequest")
+    void getUserByEmail_ConcurrentLookupsWithoutCache_ShouldBeCollapsedIntoOneRequest() throws Exception {
+        // Given
+        UserServiceClient client = client(false, Duration.ofMinutes(10), Duration.ofSeconds(30), Duration.ofMinutes(8));
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        List<Future<UserDto>> lookups = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(5)) {
+            for (int i = 0; i < 5; i++) {
+                lookups.add(executor.submit(() -> {
+                    start.await();
+                    return client.getUserByEmail(EMAIL, "token");
+                }));
+            }
+            start.countDown();
+            for (Future<UserDto> lookup : lookups) {
+                assertEquals(1L, lookup.get().getId());
+            }
+        }
+
+        // Then
+        double executed = meterRegistry.counter("downstream.single-flight.calls",
+                "name", "user-service.user-by-email", "result", "executed").count();
+        double collapsed = meterRegistry.counter("downstream.single-flight.calls",
+                "name", "user-service.user-by-email", "result", "collapsed").count();
+        assertEquals(requests.size(), (int) executed);
+        assertEquals(5.0, executed + collapsed);
+        assertTrue(requests.size() < 5);
+    }
+
+    @Test
+    @DisplayName("getUserByEmail_NotFoundResponses_ShouldNotOpenCircuitButServerErrorsShould")
+    void getUserByEmail_NotFoundResponses_ShouldNotOpenCircuitButServerErrorsShould() {
+        // Given
+        UserServiceClient client = client(false, Duration.ofMinutes(10), Duration.ofSeconds(30), Duration.ofMinutes(8));
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(UserServiceClient.DEPENDENCY);
+
+        // When & Then
+        status = HttpStatus.NOT_FOUND;
+        for (int i = 0; i < 4; i++) {
+            assertThrows(UserServiceClient.UserServiceException.class, () -> client.getUserByEmail(EMAIL, "token"));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getMetrics().getNumberOfBufferedCalls());
+
+        status = HttpStatus.SERVICE_UNAVAILABLE;
+        for (int i = 0; i < 4; i++) {
+            assertThrows(UserServiceClient.UserServiceException.class, () -> client.getUserByEmail(EMAIL, "token"));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        // Открытый circuit breaker отклоняет вызов без запроса в user-service
+        int sent = requests.size();
+        UserServiceClient.UserServiceException rejected = assertThrows(UserServiceClient.UserServiceException.class,
+                () -> client.getUserByEmail(EMAIL, "token"));
+        assertInstanceOf(CallNotPermittedException.class, rejected.getCause());
+        assertEquals(sent, requests.size());
+    }
+
+    private UserServiceClient client(Duration ttl, Duration negativeTtl, Duration refreshAfter) {
+        return client(true, ttl, negativeTtl, refreshAfter);
+    }
+
+    private UserServiceClient client(boolean cacheEnabled, Duration ttl, Duration negativeTtl, Duration refreshAfter) {
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost")
+                .exchangeFunction(request -> {
+                    requests.add(request.url());
+                    return Mono.just(ClientResponse.create(status)
+                            .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                            .body(status.is2xxSuccessful()
+                                    ? "{\"id\":1,\"firstName\":\"" + firstName + "\",\"email\":\"" + EMAIL + "\"}"
+                                    : "")
+                            // как у настоящего WebClient, ответ приходит асинхронно
+                            .build()).delayElement(Duration.ofMillis(20));
+                })
+                .build();
+        return new UserServiceClient(webClient, meterRegistry, circuitBreakerRegistry, BulkheadRegistry.ofDefaults(),
+                cacheEnabled, 100, ttl, negativeTtl, refreshAfter);
+    }
+}
@@ -0,0 +1,139 @@
+package com.innowise.paymentservice.client;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.innowise.paymentservice.config.WebClientConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.put;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+
+/**
+ * Накладные расходы WebClient на вызов: сборка клиента на каждый вызов
+ * (webClientBuilder.clone().baseUrl(...).build(), как было в OrderServiceClient/UserServiceClient)
+ * против общего клиента с пулом из WebClientConfig. Order-service эмулируется WireMock без задержки,
+ * поэтому разница - это стоимость сборки клиента и установки соединений.
+ * Печатает время сборки, p50/p99 вызова и пропускную способность при CONCURRENCY потоках.
+ *
+ *   mvn test -Dtest=WebClientPerCallOverheadBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("WebClient per-call overhead: rebuilt vs shared pooled client")
+class WebClientPerCallOverheadBenchmarkTest {
+
+    private static final int WARMUP_CALLS = 2_000;
+    private static final int CALLS = 20_000;
+    private static final int CONCURRENCY = 32;
+    private static final int BUILDS = 100_000;
+
+    private static final WireMockServer wireMockServer =
+            new WireMockServer(WireMockConfiguration.options().dynamicPort().containerThreads(100));
+
+    private static WebClientConfig config;
+    private static WebClient.Builder builder;
+    private static String baseUrl;
+
+    @BeforeAll
+    static void setUp() {
+        wireMockServer.start();
+        wireMockServer.stubFor(put(urlPathMatching("/api/v1/orders/.*")).willReturn(aResponse().withStatus(200)));
+        baseUrl = "http://localhost:" + wireMockServer.port();
+        config = new WebClientConfig();
+        ReflectionTestUtils.setField(config, "maxConnections", 200);
+        ReflectionTestUtils.setField(config, "pendingAcquireMaxCount", 1000);
+        ReflectionTestUtils.setField(config, "pendingAcquireTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(config, "maxIdleTime", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(config, "maxLifeTime", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(config, "evictInBackground", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(config, "keepAlive", true);
+        // Тот же builder, что в приложении (с фильтрами логирования)
+        builder = config.webClientBuilder();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        config.destroy();
+        wireMockServer.stop();
+    }
+
+    @Test
+    void rebuiltVersusSharedClient() throws Exception {
+        WebClient shared = config.orderServiceWebClient(builder, baseUrl);
+        Supplier<WebClient> rebuilt = () -> builder.clone().baseUrl(baseUrl).build();
+
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < BUILDS; i++) {
+            rebuilt.get();
+        }
+        double buildMicros = (System.nanoTime() - buildStart) / 1_000.0 / BUILDS;
+
+        run(rebuilt, WARMUP_CALLS);
+        run(() -> shared, WARMUP_CALLS);
+        Result rebuiltResult = run(rebuilt, CALLS);
+        Result sharedResult = run(() -> shared, CALLS);
+
+        System.out.printf("%nWebClient build per call: %.1f us%n", buildMicros);
+        System.out.printf("%-10s %10s %10s %10s%n", "client", "calls/s", "p50 us", "p99 us");
+        rebuiltResult.print("rebuilt");
+        sharedResult.print("shared");
+    }
+
+    private Result run(Supplier<WebClient> clients, int calls) throws Exception {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>(calls));
+        long start = System.nanoTime();
+        try (ExecutorService workers = Executors.newFixedThreadPool(CONCURRENCY)) {
+            List<Future<?>> futures = new ArrayList<>(CONCURRENCY);
+            for (int worker = 0; worker < CONCURRENCY; worker++) {
+                futures.add(workers.submit(() -> {
+                    for (int i = 0; i < calls / CONCURRENCY; i++) {
+                        long callStart = System.nanoTime();
+                        clients.get().put()
+                                .uri("/api/v1/orders/{id}", i)
+                                .bodyValue("{\"status\":\"CANCELED\"}")
+                                .retrieve()
+                                .toBodilessEntity()
+                                .block();
+                        latencies.add(System.nanoTime() - callStart);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return new Result(sorted, sorted.size() / seconds);
+    }
+
+    private record Result(List<Long> sortedLatencies, double callsPerSecond) {
+
+        void print(String name) {
+            System.out.printf("%-10s %10.0f %10.1f %10.1f%n", name, callsPerSecond, percentileMicros(0.50),
+                    percentileMicros(0.99));
+        }
+
+        double percentileMicros(double percentile) {
+            int index = (int) Math.ceil(percentile * sortedLatencies.size()) - 1;
+            return sortedLatencies.get(Math.max(0, index)) / 1_000.0;
+        }
+    }
+}
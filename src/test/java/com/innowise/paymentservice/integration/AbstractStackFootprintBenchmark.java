@@ -0,0 +1,169 @@
+package com.innowise.paymentservice.integration;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.innowise.paymentservice.producer.PaymentEventProducer;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.put;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+
+/**
+ * Общая часть сравнения MVC- и reactive-стека при CONNECTIONS одновременных соединениях.
+ *
+ * Все клиенты одновременно отправляют POST /api/v1/payments; внешний API отвечает с задержкой,
+ * поэтому запросы удерживаются на сервере. Во время плато печатаются потоки веб-сервера,
+ * heap после GC и число соединений MongoDB, в конце - время обработки всех запросов.
+ * Потоки и heap измеряются в JVM теста (вместе с клиентом и WireMock), поэтому сравнивать
+ * имеет смысл разницу между стеками. Нужен ulimit -n больше 2 * CONNECTIONS.
+ */
+abstract class AbstractStackFootprintBenchmark {
+
+    static final int CONNECTIONS = 5_000;
+    private static final int EXTERNAL_API_DELAY_MS = 3_000;
+    private static final Duration PLATEAU = Duration.ofMillis(EXTERNAL_API_DELAY_MS / 2);
+
+    @Container
+    static final MongoDBContainer mongoContainer = new MongoDBContainer("mongo:7.0");
+
+    private static final WireMockServer wireMockServer = new WireMockServer(WireMockConfiguration.options()
+            .dynamicPort()
+            // Задержка WireMock не должна занимать поток Jetty на каждый из 5k ответов
+            .asynchronousResponseEnabled(true)
+            .asynchronousResponseThreads(50));
+
+    // Outbox relay публикует события через этот мок: Kafka в замере не участвует
+    @MockitoBean
+    private PaymentEventProducer paymentEventProducer;
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void overrideProperties(DynamicPropertyRegistry registry) {
+        if (!wireMockServer.isRunning()) {
+            wireMockServer.start();
+            wireMockServer.stubFor(get(urlPathEqualTo("/api/v1.0/random"))
+                    .willReturn(aResponse()
+                            .withHeader("Content-Type", "application/json")
+                            .withBody("[42]")
+                            .withFixedDelay(EXTERNAL_API_DELAY_MS)));
+            wireMockServer.stubFor(put(urlPathMatching("/api/v1/orders/.*"))
+                    .willReturn(aResponse().withStatus(200)));
+        }
+        registry.add("spring.data.mongodb.uri", () -> mongoContainer.getConnectionString() + "/footprint");
+        registry.add("external.api.random-number.url",
+                () -> "http://localhost:" + wireMockServer.port() + "/api/v1.0/random?min=1&max=100");
+        registry.add("order.service.url", () -> "http://localhost:" + wireMockServer.port());
+    }
+
+    @AfterAll
+    static void stopWireMock() {
+        wireMockServer.stop();
+    }
+
+    /**
+     * Имя стека для вывода.
+     */
+    abstract String stackName();
+
+    /**
+     * Префиксы имен потоков, обслуживающих HTTP-запросы в этом стеке.
+     */
+    abstract List<String> serverThreadPrefixes();
+
+    @Test
+    void footprintAtConcurrentConnections() throws Exception {
+        Snapshot idle = snapshot();
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        URI uri = URI.create("http://localhost:" + port + "/api/v1/payments");
+
+        long start = System.nanoTime();
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(CONNECTIONS);
+        for (int i = 0; i < CONNECTIONS; i++) {
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofMinutes(5))
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"orderId\":\"" + i + "\",\"userId\":\"" + (i % 100) + "\",\"paymentAmount\":10.50}"))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+
+        Thread.sleep(PLATEAU.toMillis());
+        Snapshot loaded = snapshot();
+
+        long ok = 0;
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            try {
+                if (response.join().statusCode() / 100 == 2) {
+                    ok++;
+                }
+            } catch (Exception e) {
+                // учитывается как ошибка
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        System.out.printf("%n[%s] %d concurrent connections, external API delay %d ms%n",
+                stackName(), CONNECTIONS, EXTERNAL_API_DELAY_MS);
+        System.out.printf("%10s %14s %12s %14s %12s%n", "", "server threads", "jvm threads", "heap used MB", "mongo conns");
+        System.out.printf("%10s %14d %12d %14.1f %12d%n", "idle",
+                idle.serverThreads(), idle.jvmThreads(), idle.heapUsedMb(), idle.mongoConnections());
+        System.out.printf("%10s %14d %12d %14.1f %12d%n", "loaded",
+                loaded.serverThreads(), loaded.jvmThreads(), loaded.heapUsedMb(), loaded.mongoConnections());
+        System.out.printf("[%s] completed %d/%d in %.1f s%n", stackName(), ok, CONNECTIONS, seconds);
+    }
+
+    private Snapshot snapshot() {
+        System.gc();
+        ThreadInfo[] threads = ManagementFactory.getThreadMXBean().dumpAllThreads(false, false);
+        long serverThreads = Arrays.stream(threads)
+                .filter(thread -> serverThreadPrefixes().stream().anyMatch(thread.getThreadName()::startsWith))
+                .count();
+        double heapUsedMb = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024.0 * 1024.0);
+        return new Snapshot(serverThreads, threads.length, heapUsedMb, mongoConnections());
+    }
+
+    private static int mongoConnections() {
+        try (MongoClient mongoClient = MongoClients.create(mongoContainer.getConnectionString())) {
+            Document status = mongoClient.getDatabase("admin").runCommand(new Document("serverStatus", 1));
+            // минус собственное соединение замера
+            return status.get("connections", Document.class).getInteger("current") - 1;
+        }
+    }
+
+    private record Snapshot(long serverThreads, int jvmThreads, double heapUsedMb, int mongoConnections) {
+    }
+}
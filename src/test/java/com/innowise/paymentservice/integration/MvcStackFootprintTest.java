@@ -0,0 +1,39 @@
+package com.innowise.paymentservice.integration;
+
+import com.innowise.paymentservice.security.TestSecurityConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+/**
+ * Потребление ресурсов MVC-стека (Tomcat) при 5k соединений.
+ * mvn test -Dtest='*StackFootprintTest' -Dbenchmark=true
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.liquibase.enabled=false",
+                "server.tomcat.max-connections=10000",
+                "logging.level.com.innowise=WARN"
+        })
+@Import(TestSecurityConfig.class)
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("MVC stack footprint at 5k concurrent connections")
+class MvcStackFootprintTest extends AbstractStackFootprintBenchmark {
+
+    @Override
+    String stackName() {
+        return "mvc";
+    }
+
+    @Override
+    List<String> serverThreadPrefixes() {
+        return List.of("http-nio-");
+    }
+}
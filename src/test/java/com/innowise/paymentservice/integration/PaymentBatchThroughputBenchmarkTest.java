@@ -0,0 +1,188 @@
+package com.innowise.paymentservice.integration;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.innowise.paymentservice.dto.CreatePaymentBatchRequest;
+import com.innowise.paymentservice.producer.PaymentEventProducer;
+import com.innowise.paymentservice.security.TestSecurityConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
+import static com.github.tomakehurst.wiremock.client.WireMock.put;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Пропускная способность создания PAYMENTS платежей: по одному (POST /api/v1/payments, CLIENTS параллельных
+ * клиентов) против пакетов по BATCH_SIZE (POST /api/v1/payments/batch, последовательно).
+ * Задержки внешнего API и order-service эмулируются WireMock, Kafka-продюсер замокан.
+ * Печатает платежи в секунду для обоих вариантов и их отношение.
+ *
+ *   mvn test -Dtest=PaymentBatchThroughputBenchmarkTest -Dbenchmark=true
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.liquibase.enabled=false",
+                "payment.totals.cache.enabled=false",
+                "logging.level.com.innowise=WARN"
+        })
+@Import(TestSecurityConfig.class)
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Payment creation throughput: single vs batch")
+class PaymentBatchThroughputBenchmarkTest {
+
+    private static final int PAYMENTS = 10_000;
+    private static final int BATCH_SIZE = CreatePaymentBatchRequest.MAX_ITEMS;
+    private static final int CLIENTS = 20;
+    private static final int EXTERNAL_API_DELAY_MS = 20;
+    private static final int ORDER_SERVICE_DELAY_MS = 5;
+
+    @Container
+    private static final MongoDBContainer mongoContainer = new MongoDBContainer("mongo:7.0");
+
+    private static final WireMockServer wireMockServer =
+            new WireMockServer(WireMockConfiguration.options().dynamicPort().containerThreads(500));
+
+    @MockitoBean
+    private PaymentEventProducer paymentEventProducer;
+
+    @LocalServerPort
+    private int port;
+
+    private final AtomicLong orderIds = new AtomicLong();
+
+    @DynamicPropertySource
+    static void overrideProperties(DynamicPropertyRegistry registry) {
+        if (!wireMockServer.isRunning()) {
+            wireMockServer.start();
+            String numbers = IntStream.range(0, BATCH_SIZE).mapToObj(i -> String.valueOf(i * 2))
+                    .collect(Collectors.joining(",", "[", "]"));
+            wireMockServer.stubFor(get(urlPathEqualTo("/api/v1.0/random"))
+                    .withQueryParam("count", absent())
+                    .willReturn(aResponse()
+                            .withHeader("Content-Type", "application/json")
+                            .withBody("[42]")
+                            .withFixedDelay(EXTERNAL_API_DELAY_MS)));
+            wireMockServer.stubFor(get(urlPathEqualTo("/api/v1.0/random"))
+                    .withQueryParam("count", matching("\\d+"))
+                    .willReturn(aResponse()
+                            .withHeader("Content-Type", "application/json")
+                            .withBody(numbers)
+                            .withFixedDelay(EXTERNAL_API_DELAY_MS)));
+            wireMockServer.stubFor(put(urlPathMatching("/api/v1/orders/.*"))
+                    .willReturn(aResponse().withStatus(200).withFixedDelay(ORDER_SERVICE_DELAY_MS)));
+        }
+        registry.add("spring.data.mongodb.uri", () -> mongoContainer.getConnectionString() + "/batchbench");
+        registry.add("external.api.random-number.url",
+                () -> "http://localhost:" + wireMockServer.port() + "/api/v1.0/random?min=1&max=100");
+        registry.add("order.service.url", () -> "http://localhost:" + wireMockServer.port());
+    }
+
+    @AfterAll
+    static void stopWireMock() {
+        wireMockServer.stop();
+    }
+
+    @Test
+    void singleVersusBatchThroughput() throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        // Прогрев обоих путей
+        createSingly(client, 200);
+        createInBatches(client, BATCH_SIZE);
+
+        double singleRate = createSingly(client, PAYMENTS);
+        double batchRate = createInBatches(client, PAYMENTS);
+
+        System.out.printf("%n%d payments, external API %d ms, order-service %d ms%n",
+                PAYMENTS, EXTERNAL_API_DELAY_MS, ORDER_SERVICE_DELAY_MS);
+        System.out.printf("%-32s %12.1f payments/s%n", "single POST x " + CLIENTS + " clients", singleRate);
+        System.out.printf("%-32s %12.1f payments/s%n", "batch POST of " + BATCH_SIZE, batchRate);
+        System.out.printf("speedup: %.1fx%n", batchRate / singleRate);
+    }
+
+    private double createSingly(HttpClient client, int payments) throws Exception {
+        URI uri = URI.create("http://localhost:" + port + "/api/v1/payments");
+        long start = System.nanoTime();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> clients = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                int share = payments / CLIENTS;
+                clients.add(workers.submit(() -> {
+                    for (int i = 0; i < share; i++) {
+                        HttpResponse<Void> response = client.send(post(uri, item()),
+                                HttpResponse.BodyHandlers.discarding());
+                        assertEquals(200, response.statusCode());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : clients) {
+                future.get();
+            }
+        }
+        return payments / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    private double createInBatches(HttpClient client, int payments) throws Exception {
+        URI uri = URI.create("http://localhost:" + port + "/api/v1/payments/batch");
+        long start = System.nanoTime();
+        for (int created = 0; created < payments; created += BATCH_SIZE) {
+            String items = IntStream.range(0, Math.min(BATCH_SIZE, payments - created))
+                    .mapToObj(i -> item())
+                    .collect(Collectors.joining(",", "{\"items\":[", "]}"));
+            HttpResponse<Void> response = client.send(post(uri, items), HttpResponse.BodyHandlers.discarding());
+            assertEquals(200, response.statusCode());
+        }
+        return payments / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    private String item() {
+        long orderId = orderIds.incrementAndGet();
+        return "{\"orderId\":\"" + orderId + "\",\"userId\":\"" + (orderId % 1000) + "\",\"paymentAmount\":10.50}";
+    }
+
+    private static HttpRequest post(URI uri, String body) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofMinutes(1))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
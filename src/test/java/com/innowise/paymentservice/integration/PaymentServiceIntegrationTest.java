@@ -26,6 +26,7 @@ import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
+import reactor.core.publisher.Mono;
 import org.testcontainers.containers.KafkaContainer;
 import org.testcontainers.utility.DockerImageName;
 import org.testcontainers.containers.MongoDBContainer;
@@ -129,6 +130,7 @@ class PaymentServiceIntegrationTest {
         
         // Настраиваем мок для OrderServiceClient, чтобы не делать реальные HTTP-запросы
         doNothing().when(orderServiceClient).updateOrderStatus(anyLong(), anyString(), anyString());
+        when(orderServiceClient.updateOrderStatusAsync(anyLong(), anyString(), anyString())).thenReturn(Mono.empty());
     }
 
     @BeforeAll
@@ -0,0 +1,210 @@
+package com.innowise.paymentservice.integration;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.innowise.paymentservice.producer.PaymentEventProducer;
+import com.innowise.paymentservice.security.TestSecurityConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.put;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+
+/**
+ * Нагрузочный тест POST /api/v1/payments: платформенные потоки Tomcat против виртуальных.
+ *
+ * Внешний API и order-service эмулируются WireMock с фиксированной задержкой, MongoDB - Testcontainers,
+ * Kafka-продюсер замокан. Для каждого уровня параллелизма (закрытая модель, клиенты без пауз)
+ * печатаются RPS, p50/p99 и ошибки; максимальная устойчивая нагрузка - наибольший RPS с p99 <= P99_SLO
+ * и без ошибок. Не входит в обычный прогон, режим выбирается свойством:
+ *
+ *   mvn test -Dtest=PaymentThreadingLoadTest -Dbenchmark=true -Dspring.threads.virtual.enabled=false
+ *   mvn test -Dtest=PaymentThreadingLoadTest -Dbenchmark=true -Dspring.threads.virtual.enabled=true
+ *
+ * Таблица каждого прогона сохраняется в target/benchmarks/payment-threading-{platform|virtual}.md
+ * для сравнения до/после.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.liquibase.enabled=false",
+                "payment.totals.cache.enabled=false",
+                "logging.level.com.innowise=WARN"
+        })
+@Import(TestSecurityConfig.class)
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Payment creation load test: platform vs virtual threads")
+class PaymentThreadingLoadTest {
+
+    private static final int EXTERNAL_API_DELAY_MS = 100;
+    private static final int ORDER_SERVICE_DELAY_MS = 50;
+    private static final int[] CONCURRENCY_LEVELS = {50, 100, 200, 400, 800, 1600};
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(20);
+    private static final Duration P99_SLO = Duration.ofSeconds(1);
+
+    @Container
+    private static final MongoDBContainer mongoContainer = new MongoDBContainer("mongo:7.0");
+
+    private static final WireMockServer wireMockServer =
+            new WireMockServer(WireMockConfiguration.options().dynamicPort().containerThreads(2000));
+
+    @MockitoBean
+    private PaymentEventProducer paymentEventProducer;
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void overrideProperties(DynamicPropertyRegistry registry) {
+        if (!wireMockServer.isRunning()) {
+            wireMockServer.start();
+            wireMockServer.stubFor(get(urlPathEqualTo("/api/v1.0/random"))
+                    .willReturn(aResponse()
+                            .withHeader("Content-Type", "application/json")
+                            .withBody("[42]")
+                            .withFixedDelay(EXTERNAL_API_DELAY_MS)));
+            wireMockServer.stubFor(put(urlPathMatching("/api/v1/orders/.*"))
+                    .willReturn(aResponse().withStatus(200).withFixedDelay(ORDER_SERVICE_DELAY_MS)));
+        }
+        registry.add("spring.data.mongodb.uri", () -> mongoContainer.getConnectionString() + "/loadtest");
+        registry.add("external.api.random-number.url",
+                () -> "http://localhost:" + wireMockServer.port() + "/api/v1.0/random?min=1&max=100");
+        registry.add("order.service.url", () -> "http://localhost:" + wireMockServer.port());
+    }
+
+    @AfterAll
+    static void stopWireMock() {
+        wireMockServer.stop();
+    }
+
+    @Test
+    @DisplayName("Max sustainable RPS and p99 for POST /api/v1/payments")
+    void createPaymentUnderLoad() throws Exception {
+        String mode = Boolean.getBoolean("spring.threads.virtual.enabled") ? "virtual" : "platform";
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        run(client, CONCURRENCY_LEVELS[0], WARMUP);
+
+        double maxSustainableRps = 0;
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                "# %s threads%n%nDownstream delay: external %d ms, order-service 2 x %d ms%n%n"
+                        + "| concurrency | rps | p50 ms | p99 ms | errors |%n|---|---|---|---|---|%n",
+                mode, EXTERNAL_API_DELAY_MS, ORDER_SERVICE_DELAY_MS));
+        System.out.printf("%n[%s threads] downstream delay: external %d ms, order-service 2 x %d ms%n",
+                mode, EXTERNAL_API_DELAY_MS, ORDER_SERVICE_DELAY_MS);
+        System.out.printf("%12s %10s %10s %10s %8s%n", "concurrency", "rps", "p50 ms", "p99 ms", "errors");
+        for (int concurrency : CONCURRENCY_LEVELS) {
+            Result result = run(client, concurrency, MEASUREMENT);
+            System.out.printf("%12d %10.1f %10.1f %10.1f %8d%n",
+                    concurrency, result.rps(), result.percentileMillis(0.50), result.percentileMillis(0.99), result.errors());
+            report.append(String.format(Locale.ROOT, "| %d | %.1f | %.1f | %.1f | %d |%n",
+                    concurrency, result.rps(), result.percentileMillis(0.50), result.percentileMillis(0.99), result.errors()));
+            if (result.errors() == 0 && result.percentileMillis(0.99) <= P99_SLO.toMillis()) {
+                maxSustainableRps = Math.max(maxSustainableRps, result.rps());
+            }
+        }
+        System.out.printf("[%s threads] max sustainable RPS (p99 <= %d ms, no errors): %.1f%n",
+                mode, P99_SLO.toMillis(), maxSustainableRps);
+        report.append(String.format(Locale.ROOT, "%nMax sustainable RPS (p99 <= %d ms, no errors): %.1f%n",
+                P99_SLO.toMillis(), maxSustainableRps));
+        Path file = Path.of("target", "benchmarks", "payment-threading-" + mode + ".md");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, report);
+    }
+
+    /**
+     * Закрытая модель нагрузки: concurrency клиентов отправляют запросы подряд в течение duration.
+     */
+    private Result run(HttpClient client, int concurrency, Duration duration) throws InterruptedException {
+        URI uri = URI.create("http://localhost:" + port + "/api/v1/payments");
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger errors = new AtomicInteger();
+        AtomicLong orderIds = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long orderId = orderIds.incrementAndGet();
+                        HttpRequest request = HttpRequest.newBuilder(uri)
+                                .header("Content-Type", "application/json")
+                                .timeout(Duration.ofSeconds(30))
+                                .POST(HttpRequest.BodyPublishers.ofString(
+                                        "{\"orderId\":\"" + orderId + "\",\"userId\":\"" + (orderId % 1000)
+                                                + "\",\"paymentAmount\":10.50}"))
+                                .build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() / 100 == 2) {
+                                latencies.add(System.nanoTime() - start);
+                            } else {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return new Result(sorted, errors.get(), duration);
+    }
+
+    private record Result(List<Long> sortedLatencies, int errors, Duration duration) {
+
+        double rps() {
+            return sortedLatencies.size() / (duration.toMillis() / 1000.0);
+        }
+
+        double percentileMillis(double percentile) {
+            if (sortedLatencies.isEmpty()) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percentile * sortedLatencies.size()) - 1;
+            return sortedLatencies.get(Math.max(0, index)) / 1_000_000.0;
+        }
+    }
+}
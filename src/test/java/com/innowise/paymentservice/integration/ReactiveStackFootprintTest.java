@@ -0,0 +1,36 @@
+package com.innowise.paymentservice.integration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+/**
+ * Потребление ресурсов reactive-стека (WebFlux на Netty, reactive MongoDB) при 5k соединений.
+ * mvn test -Dtest='*StackFootprintTest' -Dbenchmark=true
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.main.web-application-type=reactive",
+                "spring.liquibase.enabled=false",
+                "logging.level.com.innowise=WARN"
+        })
+@ActiveProfiles({"test", "reactive"})
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Reactive stack footprint at 5k concurrent connections")
+class ReactiveStackFootprintTest extends AbstractStackFootprintBenchmark {
+
+    @Override
+    String stackName() {
+        return "reactive";
+    }
+
+    @Override
+    List<String> serverThreadPrefixes() {
+        return List.of("reactor-http-", "boundedElastic-");
+    }
+}
@@ -0,0 +1,165 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.model.PaymentTotal;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверка эквивалентности серверной агрегации и прежнего расчета суммы в памяти.
+ */
+@DataMongoTest
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("PaymentAggregationRepository equivalence tests")
+class PaymentAggregationRepositoryTest {
+
+    private static final Instant BASE = Instant.parse("2025-01-01T00:00:00Z");
+    private static final List<String> USERS = List.of("1", "2", "3");
+
+    @Container
+    private static final MongoDBContainer mongoContainer = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void overrideProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongoContainer.getConnectionString() + "/testdb");
+    }
+
+    @Autowired
+    private PaymentRepository repository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+
+        Random random = new Random(42);
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            payments.add(Payment.builder()
+                    .orderId(String.valueOf(i))
+                    .userId(USERS.get(random.nextInt(USERS.size())))
+                    .status(PaymentStatus.values()[random.nextInt(PaymentStatus.values().length)])
+                    .timestamp(BASE.plus(random.nextInt(365 * 24), ChronoUnit.HOURS))
+                    .paymentAmount(random.nextInt(10) == 0
+                            ? null
+                            : BigDecimal.valueOf(random.nextInt(1_000_000), 2))
+                    .build());
+        }
+        repository.saveAll(payments);
+
+        // Документы, записанные в обход маппинга (как Liquibase/старые версии сервиса): double и Decimal128
+        String collection = mongoTemplate.getCollectionName(Payment.class);
+        mongoTemplate.getCollection(collection).insertOne(new Document("orderId", "raw-1")
+                .append("userId", "1")
+                .append("status", PaymentStatus.SUCCESS.name())
+                .append("timestamp", java.util.Date.from(BASE.plus(10, ChronoUnit.DAYS)))
+                .append("paymentAmount", 100.5));
+        mongoTemplate.getCollection(collection).insertOne(new Document("orderId", "raw-2")
+                .append("userId", "2")
+                .append("status", PaymentStatus.FAILED.name())
+                .append("timestamp", java.util.Date.from(BASE.plus(20, ChronoUnit.DAYS)))
+                .append("paymentAmount", new Decimal128(new BigDecimal("42.42"))));
+    }
+
+    @Test
+    @DisplayName("aggregateTotal_NoFilters_ShouldMatchInMemorySum")
+    void aggregateTotal_NoFilters_ShouldMatchInMemorySum() {
+        assertEquivalent(repository.findAll(), PaymentFilter.builder().build());
+    }
+
+    @Test
+    @DisplayName("aggregateTotal_ByStatuses_ShouldMatchInMemorySum")
+    void aggregateTotal_ByStatuses_ShouldMatchInMemorySum() {
+        List<PaymentStatus> statuses = List.of(PaymentStatus.SUCCESS, PaymentStatus.FAILED);
+
+        assertEquivalent(repository.findByStatusIn(statuses),
+                PaymentFilter.builder().statuses(statuses).build());
+    }
+
+    @Test
+    @DisplayName("aggregateTotal_ByPeriod_ShouldMatchInMemorySum")
+    void aggregateTotal_ByPeriod_ShouldMatchInMemorySum() {
+        Instant start = BASE.plus(30, ChronoUnit.DAYS);
+        Instant end = BASE.plus(200, ChronoUnit.DAYS);
+
+        assertEquivalent(repository.findByTimestampBetween(start, end),
+                PaymentFilter.builder().startDate(start).endDate(end).build());
+    }
+
+    @Test
+    @DisplayName("aggregateTotal_ByPeriodAndStatuses_ShouldMatchInMemorySum")
+    void aggregateTotal_ByPeriodAndStatuses_ShouldMatchInMemorySum() {
+        Instant start = BASE;
+        Instant end = BASE.plus(100, ChronoUnit.DAYS);
+        List<PaymentStatus> statuses = List.of(PaymentStatus.SUCCESS);
+
+        assertEquivalent(repository.findByStatusInAndTimestampBetween(statuses, start, end),
+                PaymentFilter.builder().statuses(statuses).startDate(start).endDate(end).build());
+    }
+
+    @Test
+    @DisplayName("aggregateTotal_ByUser_ShouldMatchInMemorySum")
+    void aggregateTotal_ByUser_ShouldMatchInMemorySum() {
+        Instant start = BASE.plus(10, ChronoUnit.DAYS);
+        Instant end = BASE.plus(300, ChronoUnit.DAYS);
+        List<PaymentStatus> statuses = List.of(PaymentStatus.SUCCESS, PaymentStatus.CREATED);
+
+        assertEquivalent(repository.findByUserId("1"),
+                PaymentFilter.builder().userId("1").build());
+        assertEquivalent(repository.findByUserIdAndStatusIn("2", statuses),
+                PaymentFilter.builder().userId("2").statuses(statuses).build());
+        assertEquivalent(repository.findByUserIdAndTimestampBetween("3", start, end),
+                PaymentFilter.builder().userId("3").startDate(start).endDate(end).build());
+        assertEquivalent(repository.findByUserIdAndStatusInAndTimestampBetween("1", statuses, start, end),
+                PaymentFilter.builder().userId("1").statuses(statuses).startDate(start).endDate(end).build());
+    }
+
+    @Test
+    @DisplayName("aggregateTotal_NothingMatches_ShouldReturnZero")
+    void aggregateTotal_NothingMatches_ShouldReturnZero() {
+        PaymentTotal total = repository.aggregateTotal(PaymentFilter.builder().userId("unknown").build());
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(total.getTotalSum()));
+        assertEquals(0L, total.getPaymentCount());
+    }
+
+    private void assertEquivalent(List<Payment> payments, PaymentFilter query) {
+        // Прежняя реализация PaymentService: загрузка всех документов и reduce в памяти
+        BigDecimal expectedSum = payments.stream()
+                .map(Payment::getPaymentAmount)
+                .filter(amount -> amount != null)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        PaymentTotal actual = repository.aggregateTotal(query);
+
+        assertEquals(0, expectedSum.compareTo(actual.getTotalSum()),
+                () -> "Sum mismatch: expected " + expectedSum + " but was " + actual.getTotalSum());
+        assertEquals(payments.size(), actual.getPaymentCount());
+    }
+}
@@ -0,0 +1,364 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.config.LiquibaseConfig;
+import com.innowise.paymentservice.model.PageCursor;
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Named;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Проверка плана индексов: каждый метод PaymentRepository (включая обновления статуса и outbox)
+ * выполняется с включенным профайлером, перехваченная команда прогоняется через explain, и выигравший
+ * план не должен содержать COLLSCAN, блокирующую SORT-стадию или FETCH с фильтром по полям, которых
+ * нет в индексе. Агрегации сумм дополнительно должны быть покрыты индексом целиком (без FETCH).
+ * Исключение - унаследованный findAll: он читает все документы и допускает только COLLSCAN.
+ *
+ * Индексы создаются только настоящими changeset'ами Liquibase (db/changelog/004, 005 и 009).
+ */
+@DataMongoTest
+@ActiveProfiles("test")
+@Import(LiquibaseConfig.class)
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("Payment index plan tests")
+class PaymentIndexPlanTest {
+
+    private static final Instant BASE = Instant.parse("2025-01-01T00:00:00Z");
+    private static final Instant FROM = BASE.plus(30, ChronoUnit.DAYS);
+    private static final Instant TO = BASE.plus(90, ChronoUnit.DAYS);
+    private static final List<PaymentStatus> STATUSES = List.of(PaymentStatus.SUCCESS, PaymentStatus.FAILED);
+
+    // Команды, которые планирует оптимизатор (getMore и служебные команды пропускаем)
+    private static final List<String> PLANNED_COMMANDS = List.of("find", "aggregate", "count");
+    private static final List<String> EXPLAINABLE_FIELDS = List.of(
+            "find", "aggregate", "count", "update", "updates", "filter", "query", "sort", "projection", "limit", "skip",
+            "pipeline");
+
+    @Container
+    private static final MongoDBContainer mongoContainer = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void overrideProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongoContainer.getConnectionString() + "/testdb");
+        registry.add("spring.liquibase.enabled", () -> "true");
+    }
+
+    @Autowired
+    private PaymentRepository repository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+
+        Random random = new Random(7);
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            payments.add(Payment.builder()
+                    .orderId(String.valueOf(random.nextInt(300)))
+                    .userId(String.valueOf(random.nextInt(50)))
+                    .status(PaymentStatus.values()[random.nextInt(PaymentStatus.values().length)])
+                    .timestamp(BASE.plus(random.nextInt(365 * 24), ChronoUnit.HOURS))
+                    .paymentAmount(BigDecimal.valueOf(random.nextInt(100_000), 2))
+                    .eventPending(i % 100 == 0 ? Boolean.TRUE : null)
+                    .build());
+        }
+        repository.saveAll(payments);
+    }
+
+    static Stream<Named<Consumer<PaymentRepository>>> repositoryCalls() {
+        PaymentFilter byUserAndPeriod = PaymentFilter.builder()
+                .userId("7").statuses(STATUSES).startDate(FROM).endDate(TO).build();
+        PageCursor cursor = new PageCursor(TO, "ffffffffffffffffffffffff");
+
+        return Stream.of(
+                Named.of("findByUserId", r -> r.findByUserId("7")),
+                Named.of("findByOrderId", r -> r.findByOrderId("42")),
+                Named.of("findByStatus", r -> r.findByStatus(PaymentStatus.PENDING)),
+                Named.of("findByStatusIn", r -> r.findByStatusIn(STATUSES)),
+                Named.of("findByTimestampBetween", r -> r.findByTimestampBetween(FROM, TO)),
+                Named.of("findByStatusInAndTimestampBetween", r -> r.findByStatusInAndTimestampBetween(STATUSES, FROM, TO)),
+                Named.of("findByUserIdAndStatusIn", r -> r.findByUserIdAndStatusIn("7", STATUSES)),
+                Named.of("findByUserIdAndTimestampBetween", r -> r.findByUserIdAndTimestampBetween("7", FROM, TO)),
+                Named.of("findByUserIdAndStatusInAndTimestampBetween",
+                        r -> r.findByUserIdAndStatusInAndTimestampBetween("7", STATUSES, FROM, TO)),
+                Named.of("findById", r -> r.findById("000000000000000000000000")),
+                Named.of("findByStatusAndTimestampBeforeOrderByTimestampAsc",
+                        r -> r.findByStatusAndTimestampBeforeOrderByTimestampAsc(PaymentStatus.PENDING, TO, Limit.of(100))),
+                Named.of("existsByStatusAndTimestampBetween",
+                        r -> r.existsByStatusAndTimestampBetween(PaymentStatus.PENDING, FROM, TO)),
+                Named.of("findPendingEvents", r -> r.findPendingEvents(100)),
+                Named.of("markEventsPublished", r -> r.markEventsPublished(r.findPendingEvents(5))),
+                Named.of("updateStatus", r -> {
+                    Payment pending = r.findByStatus(PaymentStatus.PENDING).get(0);
+                    r.updateStatus(pending, PaymentStatus.PENDING);
+                }),
+                Named.of("aggregateTotal(all)", r -> r.aggregateTotal(PaymentFilter.builder().build())),
+                Named.of("aggregateTotal(statuses)", r -> r.aggregateTotal(PaymentFilter.builder()
+                        .statuses(STATUSES).build())),
+                Named.of("aggregateTotal(period)", r -> r.aggregateTotal(PaymentFilter.builder()
+                        .statuses(STATUSES).startDate(FROM).endDate(TO).build())),
+                Named.of("aggregateTotal(user, period)", r -> r.aggregateTotal(byUserAndPeriod)),
+                Named.of("aggregateTotal(order)", r -> r.aggregateTotal(PaymentFilter.builder().orderId("42").build())),
+                Named.of("findPage(all)", r -> r.findPage(PaymentFilter.builder().build(), null, 51)),
+                Named.of("findPage(all, cursor)", r -> r.findPage(PaymentFilter.builder().build(), cursor, 51)),
+                Named.of("findPage(order)", r -> r.findPage(PaymentFilter.builder().orderId("42").build(), null, 51)),
+                Named.of("findPage(user, cursor)", r -> r.findPage(PaymentFilter.builder().userId("7").build(), cursor, 51)),
+                Named.of("findPage(statuses, cursor)",
+                        r -> r.findPage(PaymentFilter.builder().statuses(STATUSES).build(), cursor, 51)),
+                Named.of("stream(user, period)", r -> {
+                    try (Stream<Payment> payments = r.stream(byUserAndPeriod, 100)) {
+                        payments.forEach(payment -> { });
+                    }
+                })
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryCalls")
+    @DisplayName("Repository query should be served by an index")
+    void repositoryQueryUsesIndex(Consumer<PaymentRepository> call) {
+        List<Document> commands = captureCommands(() -> call.accept(repository));
+        assertFalse(commands.isEmpty(), "No planned command captured by the profiler");
+
+        for (Document command : commands) {
+            Document explain = explain(command);
+            List<Document> winningPlans = new ArrayList<>();
+            collectWinningPlans(explain, winningPlans);
+            assertFalse(winningPlans.isEmpty(), "No winning plan in explain: " + explain.toJson());
+            for (Document plan : winningPlans) {
+                assertIndexed(plan, command);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("findAll should be the only full collection scan")
+    void findAllIsFullScan() {
+        // Унаследованный из MongoRepository findAll сервисами не вызывается и читает все документы
+        List<Document> commands = captureCommands(repository::findAll);
+        assertFalse(commands.isEmpty(), "No find captured by the profiler");
+
+        for (Document command : commands) {
+            List<Document> winningPlans = new ArrayList<>();
+            collectWinningPlans(explain(command), winningPlans);
+            assertFalse(winningPlans.isEmpty());
+            for (Document plan : winningPlans) {
+                Set<String> stages = new HashSet<>();
+                collectStages(plan, stages);
+                assertEquals(Set.of("COLLSCAN"), stages, "Unexpected plan for findAll: " + plan.toJson());
+            }
+        }
+    }
+
+    static Stream<Named<PaymentFilter>> totalFilters() {
+        return Stream.of(
+                Named.of("all", PaymentFilter.builder().build()),
+                Named.of("statuses", PaymentFilter.builder().statuses(STATUSES).build()),
+                Named.of("period", PaymentFilter.builder().statuses(STATUSES).startDate(FROM).endDate(TO).build()),
+                Named.of("user", PaymentFilter.builder().userId("7").build()),
+                Named.of("user, statuses, period", PaymentFilter.builder()
+                        .userId("7").statuses(STATUSES).startDate(FROM).endDate(TO).build()),
+                Named.of("order", PaymentFilter.builder().orderId("42").build())
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("totalFilters")
+    @DisplayName("aggregateTotal should be covered by an index (no FETCH)")
+    void aggregateTotalIsCovered(PaymentFilter filter) {
+        List<Document> commands = captureCommands(() -> repository.aggregateTotal(filter));
+        assertFalse(commands.isEmpty(), "No aggregate captured by the profiler");
+
+        for (Document command : commands) {
+            List<Document> winningPlans = new ArrayList<>();
+            collectWinningPlans(explain(command), winningPlans);
+            assertFalse(winningPlans.isEmpty());
+            for (Document plan : winningPlans) {
+                Set<String> stages = new HashSet<>();
+                collectStages(plan, stages);
+                assertTrue(stages.contains("IXSCAN"), "Expected IXSCAN in " + plan.toJson());
+                assertFalse(stages.contains("FETCH"), "Aggregate is not covered: " + plan.toJson());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Single-field indexes should be replaced by compound ones")
+    void singleFieldIndexesAreDropped() {
+        Set<Document> keys = new HashSet<>();
+        mongoTemplate.getCollection("payments").listIndexes()
+                .forEach(index -> keys.add(index.get("key", Document.class)));
+
+        assertTrue(keys.contains(new Document("userId", 1).append("status", 1)
+                .append("timestamp", -1).append("_id", -1).append("paymentAmount", 1)));
+        assertTrue(keys.contains(new Document("status", 1)
+                .append("timestamp", -1).append("_id", -1).append("paymentAmount", 1)));
+        assertTrue(keys.contains(new Document("orderId", 1)
+                .append("timestamp", -1).append("_id", -1).append("paymentAmount", 1)));
+        assertFalse(keys.contains(new Document("status", 1).append("timestamp", -1).append("_id", -1)));
+        assertFalse(keys.contains(new Document("userId", 1)));
+        assertFalse(keys.contains(new Document("status", 1)));
+        assertFalse(keys.contains(new Document("orderId", 1)));
+    }
+
+    private List<Document> captureCommands(Runnable call) {
+        MongoDatabase db = mongoTemplate.getDb();
+        db.runCommand(new Document("profile", 0));
+        db.getCollection("system.profile").drop();
+        db.runCommand(new Document("profile", 2));
+        try {
+            call.run();
+        } finally {
+            db.runCommand(new Document("profile", 0));
+        }
+
+        List<Document> commands = new ArrayList<>();
+        db.getCollection("system.profile")
+                .find(new Document("ns", db.getName() + ".payments"))
+                .forEach(entry -> {
+                    Document command = entry.get("command", Document.class);
+                    if (command == null) {
+                        return;
+                    }
+                    if ("update".equals(entry.getString("op"))) {
+                        // Профайлер пишет каждое обновление (в том числе из bulkWrite) отдельно: {q, u, multi, upsert}
+                        commands.add(new Document("update", "payments").append("updates", List.of(command)));
+                    } else if (PLANNED_COMMANDS.stream().anyMatch(command::containsKey)) {
+                        commands.add(command);
+                    }
+                });
+        return commands;
+    }
+
+    private Document explain(Document command) {
+        Document explainable = new Document();
+        EXPLAINABLE_FIELDS.stream()
+                .filter(command::containsKey)
+                .forEach(field -> explainable.put(field, command.get(field)));
+        if (explainable.containsKey("aggregate")) {
+            explainable.put("cursor", new Document());
+        }
+        return mongoTemplate.getDb().runCommand(
+                new Document("explain", explainable).append("verbosity", "queryPlanner"));
+    }
+
+    // winningPlan может лежать как на верхнем уровне, так и внутри стадии $cursor агрегации
+    private void collectWinningPlans(Object node, List<Document> plans) {
+        if (node instanceof Document document) {
+            document.forEach((key, value) -> {
+                if ("winningPlan".equals(key) && value instanceof Document plan) {
+                    // SBE-планы хранят дерево стадий в queryPlan
+                    plans.add(plan.containsKey("queryPlan") ? plan.get("queryPlan", Document.class) : plan);
+                } else if (!"rejectedPlans".equals(key)) {
+                    collectWinningPlans(value, plans);
+                }
+            });
+        } else if (node instanceof List<?> list) {
+            list.forEach(item -> collectWinningPlans(item, plans));
+        }
+    }
+
+    private void assertIndexed(Document stage, Document command) {
+        String name = stage.getString("stage");
+        if ("COLLSCAN".equals(name)) {
+            fail("COLLSCAN for " + command.toJson());
+        }
+        if ("SORT".equals(name)) {
+            fail("Blocking SORT for " + command.toJson());
+        }
+        if ("FETCH".equals(name) && stage.containsKey("filter")) {
+            Set<String> filterFields = new HashSet<>();
+            collectFields(stage.get("filter"), filterFields);
+            Set<String> indexFields = new HashSet<>();
+            collectIndexFields(stage, indexFields);
+            // Точечный поиск по уникальному _id возвращает не больше одного документа - остаточный фильтр
+            // (userId, timestamp, status в updateStatus и markEventsPublished) проверяет только его
+            if (!indexFields.containsAll(filterFields) && !indexFields.equals(Set.of("_id"))) {
+                fail("FETCH filters on " + filterFields + " outside index " + indexFields + " for " + command.toJson());
+            }
+        }
+
+        for (String child : List.of("inputStage", "innerStage", "outerStage")) {
+            if (stage.get(child) instanceof Document input) {
+                assertIndexed(input, command);
+            }
+        }
+        if (stage.get("inputStages") instanceof List<?> inputs) {
+            inputs.forEach(input -> assertIndexed((Document) input, command));
+        }
+    }
+
+    private void collectStages(Document stage, Set<String> stages) {
+        stages.add(stage.getString("stage"));
+        for (String child : List.of("inputStage", "innerStage", "outerStage")) {
+            if (stage.get(child) instanceof Document input) {
+                collectStages(input, stages);
+            }
+        }
+        if (stage.get("inputStages") instanceof List<?> inputs) {
+            inputs.forEach(input -> collectStages((Document) input, stages));
+        }
+    }
+
+    private void collectFields(Object filter, Set<String> fields) {
+        if (filter instanceof Document document) {
+            document.forEach((key, value) -> {
+                if (!key.startsWith("$")) {
+                    fields.add(key);
+                }
+                collectFields(value, fields);
+            });
+        } else if (filter instanceof List<?> list) {
+            list.forEach(item -> collectFields(item, fields));
+        }
+    }
+
+    private void collectIndexFields(Document stage, Set<String> fields) {
+        if (stage.get("keyPattern") instanceof Document keyPattern) {
+            fields.addAll(keyPattern.keySet());
+        }
+        if (stage.get("inputStage") instanceof Document input) {
+            collectIndexFields(input, fields);
+        }
+        if (stage.get("inputStages") instanceof List<?> inputs) {
+            inputs.forEach(input -> collectIndexFields((Document) input, fields));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentStatus;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Payment mapping tests")
+class PaymentMappingTest {
+
+    private MappingMongoConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+    }
+
+    @Test
+    @DisplayName("Should store paymentAmount as Decimal128 and read it back without loss")
+    void paymentAmount_RoundTripsAsDecimal128() {
+        Payment payment = Payment.builder()
+                .orderId("1")
+                .userId("2")
+                .status(PaymentStatus.SUCCESS)
+                .timestamp(Instant.parse("2025-01-01T00:00:00Z"))
+                .paymentAmount(new BigDecimal("100.50"))
+                .build();
+
+        Document document = new Document();
+        converter.write(payment, document);
+
+        assertEquals(new Decimal128(new BigDecimal("100.50")), document.get("paymentAmount"));
+        assertEquals(new BigDecimal("100.50"), converter.read(Payment.class, document).getPaymentAmount());
+    }
+}
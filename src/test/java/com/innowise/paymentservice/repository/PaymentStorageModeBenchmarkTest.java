@@ -0,0 +1,157 @@
+package com.innowise.paymentservice.repository;
+
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Сравнение режимов хранения payments (regular / timeseries): время range-запросов, поиска по _id,
+ * страницы keyset-пагинации и размер хранения.
+ * Не входит в обычный прогон: mvn test -Dtest=PaymentStorageModeBenchmarkTest -Dbenchmark=true
+ * Результаты печатаются в stdout.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DisplayName("Payment storage mode benchmark")
+class PaymentStorageModeBenchmarkTest {
+
+    private static final int PAYMENTS = 1_000_000;
+    private static final int USERS = 10_000;
+    private static final int ITERATIONS = 50;
+    private static final Instant BASE = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Container
+    private static final MongoDBContainer mongoContainer = new MongoDBContainer("mongo:8.0");
+
+    private static MongoClient client;
+    private static MongoCollection<Document> regular;
+    private static MongoCollection<Document> timeSeries;
+
+    @BeforeAll
+    static void load() {
+        client = MongoClients.create(mongoContainer.getConnectionString());
+        MongoDatabase db = client.getDatabase("benchmark");
+        db.drop();
+
+        db.createCollection("payments_regular");
+        db.createCollection("payments_ts", new CreateCollectionOptions().timeSeriesOptions(
+                new TimeSeriesOptions("timestamp").metaField("userId").granularity(TimeSeriesGranularity.SECONDS)));
+        regular = db.getCollection("payments_regular");
+        timeSeries = db.getCollection("payments_ts");
+
+        // Индексы как в changelog 004/005 (regular) и 007/010 (timeseries)
+        Bson amount = Indexes.ascending("paymentAmount");
+        regular.createIndex(Indexes.compoundIndex(Indexes.descending("timestamp", "_id"), amount));
+        regular.createIndex(Indexes.compoundIndex(Indexes.ascending("userId"), Indexes.descending("timestamp", "_id"), amount));
+        regular.createIndex(Indexes.compoundIndex(Indexes.ascending("status"), Indexes.descending("timestamp", "_id"), amount));
+        timeSeries.createIndex(Indexes.descending("timestamp"));
+        timeSeries.createIndex(Indexes.compoundIndex(Indexes.ascending("status"), Indexes.descending("timestamp")));
+        timeSeries.createIndex(Indexes.ascending("_id"));
+        timeSeries.createIndex(Indexes.descending("timestamp", "_id"));
+        timeSeries.createIndex(Indexes.compoundIndex(Indexes.ascending("status"), Indexes.descending("timestamp", "_id")));
+
+        Random random = new Random(42);
+        List<Document> batch = new ArrayList<>();
+        for (int i = 0; i < PAYMENTS; i++) {
+            // Платежи приходят по времени, как при записи через createPayment
+            batch.add(new Document("orderId", String.valueOf(i))
+                    .append("userId", String.valueOf(random.nextInt(USERS)))
+                    .append("status", PaymentStatus.values()[random.nextInt(PaymentStatus.values().length)].name())
+                    .append("timestamp", Date.from(BASE.plusSeconds(i * 30L)))
+                    .append("paymentAmount", new Decimal128(BigDecimal.valueOf(random.nextInt(100_000), 2))));
+            if (batch.size() == 10_000) {
+                regular.insertMany(batch);
+                timeSeries.insertMany(batch.stream().map(Document::new).toList());
+                batch.clear();
+            }
+        }
+    }
+
+    @AfterAll
+    static void close() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Range queries and storage size: regular vs timeseries")
+    void compareModes() {
+        Instant from = BASE.plus(60, ChronoUnit.DAYS);
+        Instant to = from.plus(7, ChronoUnit.DAYS);
+        Bson period = Filters.and(Filters.gt("timestamp", Date.from(from)), Filters.lt("timestamp", Date.from(to)));
+        Bson userPeriod = Filters.and(Filters.eq("userId", "42"), period);
+        Bson statusPeriod = Filters.and(Filters.in("status", "SUCCESS", "FAILED"), period);
+
+        for (Bson filter : List.of(period, userPeriod, statusPeriod)) {
+            long regularCount = regular.countDocuments(filter);
+            assertEquals(regularCount, timeSeries.countDocuments(filter));
+
+            System.out.printf("%s -> %d docs: regular %.2f ms, timeseries %.2f ms%n",
+                    filter.toBsonDocument().toJson(), regularCount, averageMillis(regular, filter), averageMillis(timeSeries, filter));
+        }
+
+        // Точечный поиск по _id и следующая страница keyset-пагинации (сортировка timestamp desc, _id desc)
+        for (MongoCollection<Document> collection : List.of(regular, timeSeries)) {
+            Document anchor = collection.find(period).sort(Sorts.descending("timestamp", "_id")).skip(20).first();
+            Bson byId = Filters.eq("_id", anchor.get("_id"));
+            Bson afterAnchor = Filters.or(Filters.lt("timestamp", anchor.getDate("timestamp")),
+                    Filters.and(Filters.eq("timestamp", anchor.getDate("timestamp")), Filters.lt("_id", anchor.get("_id"))));
+            System.out.printf("%s: findById %.2f ms, keyset page %.2f ms%n", collection.getNamespace().getCollectionName(),
+                    averageMillis(collection.find(byId)), averageMillis(collection.find(afterAnchor)
+                            .sort(Sorts.descending("timestamp", "_id")).limit(20)));
+        }
+
+        System.out.printf("storage size: regular %s, timeseries %s%n", storage(regular), storage(timeSeries));
+    }
+
+    private double averageMillis(MongoCollection<Document> collection, Bson filter) {
+        return averageMillis(collection.find(filter));
+    }
+
+    private double averageMillis(FindIterable<Document> find) {
+        find.into(new ArrayList<>()); // прогрев кэша WiredTiger
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            find.into(new ArrayList<>());
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+    }
+
+    private String storage(MongoCollection<Document> collection) {
+        Document stats = collection.aggregate(List.of(
+                new Document("$collStats", new Document("storageStats", new Document())))).first();
+        Document storageStats = stats.get("storageStats", Document.class);
+        return "data " + storageStats.get("storageSize") + " B, indexes " + storageStats.get("totalIndexSize") + " B";
+    }
+}
@@ -0,0 +1,24 @@
+package com.innowise.paymentservice.security;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+
+/**
+ * Тестовая конфигурация безопасности для профиля reactive: аналог TestSecurityConfig для WebFlux,
+ * все запросы разрешены без JWT.
+ */
+@Configuration
+@EnableWebFluxSecurity
+@Profile("reactive")
+public class TestReactiveSecurityConfig {
+    @Bean
+    public SecurityWebFilterChain testSecurityWebFilterChain(ServerHttpSecurity http) {
+        return http.csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .authorizeExchange(exchange -> exchange.anyExchange().permitAll())
+                .build();
+    }
+}
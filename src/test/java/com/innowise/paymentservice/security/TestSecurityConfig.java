@@ -4,6 +4,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
 import org.springframework.core.annotation.Order;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -18,9 +19,11 @@ import org.springframework.security.web.SecurityFilterChain;
  * 
  * Используем @Primary и @Order(1) для обеспечения приоритета над SecurityConfig.
  * @ConditionalOnMissingBean гарантирует, что этот bean создается только если нет другого SecurityFilterChain.
+ * Для профиля reactive (WebFlux) используется TestReactiveSecurityConfig.
  */
 @Configuration
 @EnableWebSecurity
+@Profile("!reactive")
 public class TestSecurityConfig {
     @Bean
     @Primary
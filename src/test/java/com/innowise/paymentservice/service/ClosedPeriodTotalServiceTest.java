@@ -0,0 +1,143 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.model.ClosedPeriodTotal;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.model.PaymentTotal;
+import com.innowise.paymentservice.repository.ClosedPeriodTotalRepository;
+import com.innowise.paymentservice.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ClosedPeriodTotalService Unit Tests")
+class ClosedPeriodTotalServiceTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant END = Instant.parse("2024-02-01T00:00:00Z");
+
+    @Mock
+    private ClosedPeriodTotalRepository closedPeriodTotalRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @InjectMocks
+    private ClosedPeriodTotalService closedPeriodTotalService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(closedPeriodTotalService, "enabled", true);
+        ReflectionTestUtils.setField(closedPeriodTotalService, "settleWindow", Duration.ofHours(1));
+    }
+
+    @Test
+    @DisplayName("Should treat only periods ending before the settle window as settled")
+    void isSettled() {
+        assertTrue(closedPeriodTotalService.isSettled(START, END));
+        assertTrue(closedPeriodTotalService.isSettled(START, Instant.now().minus(2, ChronoUnit.HOURS)));
+        assertFalse(closedPeriodTotalService.isSettled(START, Instant.now().minus(10, ChronoUnit.MINUTES)));
+        assertFalse(closedPeriodTotalService.isSettled(START, null));
+        assertFalse(closedPeriodTotalService.isSettled(null, END));
+        verifyNoInteractions(paymentRepository);
+    }
+
+    @Test
+    @DisplayName("Should use the stored record as the closed signal without querying payments")
+    void find_Stored() {
+        PaymentFilter filter = PaymentFilter.builder().startDate(START).endDate(END).build();
+        ClosedPeriodTotal stored = ClosedPeriodTotal.of(filter, new PaymentTotal(new BigDecimal("5.00"), 1L), Instant.now());
+        when(closedPeriodTotalRepository.findById(ClosedPeriodTotal.keyOf(filter))).thenReturn(Optional.of(stored));
+
+        assertEquals(Optional.of(stored), closedPeriodTotalService.find(filter));
+        verifyNoInteractions(paymentRepository);
+    }
+
+    @Test
+    @DisplayName("Should not look up records for periods inside the settle window")
+    void find_NotSettled() {
+        PaymentFilter filter = PaymentFilter.builder()
+                .startDate(START).endDate(Instant.now().minus(10, ChronoUnit.MINUTES)).build();
+
+        assertTrue(closedPeriodTotalService.find(filter).isEmpty());
+        verifyNoInteractions(closedPeriodTotalRepository, paymentRepository);
+    }
+
+    @Test
+    @DisplayName("Should derive the ETag from the stored key and values")
+    void eTag() {
+        PaymentFilter filter = PaymentFilter.builder().startDate(START).endDate(END).build();
+        ClosedPeriodTotal first = ClosedPeriodTotal.of(filter, new PaymentTotal(new BigDecimal("5.00"), 1L), Instant.now());
+        ClosedPeriodTotal recomputed = ClosedPeriodTotal.of(filter, new PaymentTotal(new BigDecimal("5.00"), 1L), Instant.now().plusSeconds(60));
+        ClosedPeriodTotal other = ClosedPeriodTotal.of(filter.toBuilder().statuses(List.of(PaymentStatus.SUCCESS)).build(),
+                new PaymentTotal(new BigDecimal("5.00"), 1L), Instant.now());
+
+        assertEquals(first.eTag(), recomputed.eTag());
+        assertNotEquals(first.eTag(), other.eTag());
+    }
+
+    @Test
+    @DisplayName("Should not store a total while the period has pending payments")
+    void getTotal_PendingPayments() {
+        PaymentFilter filter = PaymentFilter.builder().startDate(START).endDate(END).build();
+        when(closedPeriodTotalRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(paymentRepository.existsByStatusAndTimestampBetween(PaymentStatus.PENDING, START, END)).thenReturn(true);
+
+        PaymentTotal total = closedPeriodTotalService.getTotal(filter, f -> new PaymentTotal(new BigDecimal("7.50"), 3L));
+
+        assertEquals(new BigDecimal("7.50"), total.getTotalSum());
+        verify(closedPeriodTotalRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should return the stored total without calling the loader")
+    void getTotal_Stored() {
+        PaymentFilter filter = PaymentFilter.builder().startDate(START).endDate(END).build();
+        when(closedPeriodTotalRepository.findById(ClosedPeriodTotal.keyOf(filter))).thenReturn(Optional.of(
+                ClosedPeriodTotal.of(filter, new PaymentTotal(new BigDecimal("5.00"), 1L), Instant.now())));
+
+        PaymentTotal total = closedPeriodTotalService.getTotal(filter, f -> fail("loader must not be called"));
+
+        assertEquals(new BigDecimal("5.00"), total.getTotalSum());
+        assertEquals(1L, total.getPaymentCount());
+        verify(closedPeriodTotalRepository, never()).save(any());
+        verifyNoInteractions(paymentRepository);
+    }
+
+    @Test
+    @DisplayName("Should compute and store a missing total under the normalized key")
+    void getTotal_Missing() {
+        PaymentFilter filter = PaymentFilter.builder()
+                .statuses(List.of(PaymentStatus.SUCCESS, PaymentStatus.FAILED, PaymentStatus.SUCCESS))
+                .startDate(START).endDate(END).build();
+        when(closedPeriodTotalRepository.findById(anyString())).thenReturn(Optional.empty());
+
+        PaymentTotal total = closedPeriodTotalService.getTotal(filter,
+                f -> new PaymentTotal(new BigDecimal("7.50"), 3L));
+
+        ArgumentCaptor<ClosedPeriodTotal> saved = ArgumentCaptor.forClass(ClosedPeriodTotal.class);
+        verify(closedPeriodTotalRepository).save(saved.capture());
+        assertEquals(new BigDecimal("7.50"), total.getTotalSum());
+        assertEquals(List.of(PaymentStatus.SUCCESS, PaymentStatus.FAILED), saved.getValue().getStatuses());
+        assertEquals(ClosedPeriodTotal.keyOf(filter.toBuilder()
+                .statuses(List.of(PaymentStatus.FAILED, PaymentStatus.SUCCESS)).build()), saved.getValue().getId());
+    }
+}
@@ -0,0 +1,119 @@
+package com.innowise.paymentservice.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("DownstreamFanOut Unit Tests")
+class DownstreamFanOutTest {
+
+    private DownstreamFanOut fanOut;
+
+    @AfterEach
+    void tearDown() {
+        fanOut.destroy();
+    }
+
+    @Test
+    @DisplayName("fork_ShouldRunConcurrentlyWithCaller")
+    void fork_ShouldRunConcurrentlyWithCaller() throws Exception {
+        // Given
+        fanOut = new DownstreamFanOut(true, Duration.ofSeconds(5));
+        CountDownLatch forkStarted = new CountDownLatch(1);
+        CountDownLatch callerDone = new CountDownLatch(1);
+
+        // When
+        boolean completed;
+        try (DownstreamFanOut.Scope scope = fanOut.open()) {
+            Future<?> fork = scope.fork("fork", () -> {
+                forkStarted.countDown();
+                awaitQuietly(callerDone);
+            });
+            assertTrue(forkStarted.await(2, TimeUnit.SECONDS));
+            callerDone.countDown();
+            completed = scope.await("fork", fork);
+        }
+
+        // Then
+        assertTrue(completed);
+    }
+
+    @Test
+    @DisplayName("await_AfterDeadline_ShouldCancelFork")
+    void await_AfterDeadline_ShouldCancelFork() {
+        // Given
+        fanOut = new DownstreamFanOut(true, Duration.ofMillis(100));
+        CountDownLatch never = new CountDownLatch(1);
+
+        // When
+        Future<?> fork;
+        boolean completed;
+        try (DownstreamFanOut.Scope scope = fanOut.open()) {
+            fork = scope.fork("slow", () -> awaitQuietly(never));
+            completed = scope.await("slow", fork);
+        }
+
+        // Then
+        assertFalse(completed);
+        assertTrue(fork.isCancelled());
+    }
+
+    @Test
+    @DisplayName("close_ShouldCancelUnfinishedForks")
+    void close_ShouldCancelUnfinishedForks() {
+        // Given
+        fanOut = new DownstreamFanOut(true, Duration.ofSeconds(5));
+        CountDownLatch never = new CountDownLatch(1);
+
+        // When - выход из scope по исключению, не дожидаясь подзадачи
+        Future<?>[] fork = new Future<?>[1];
+        assertThrows(IllegalStateException.class, () -> {
+            try (DownstreamFanOut.Scope scope = fanOut.open()) {
+                fork[0] = scope.fork("slow", () -> awaitQuietly(never));
+                throw new IllegalStateException("save failed");
+            }
+        });
+
+        // Then
+        assertTrue(fork[0].isCancelled());
+    }
+
+    @Test
+    @DisplayName("fork_Disabled_ShouldRunInCallerThreadAndReportFailure")
+    void fork_Disabled_ShouldRunInCallerThreadAndReportFailure() {
+        // Given
+        fanOut = new DownstreamFanOut(false, Duration.ofSeconds(5));
+        Thread caller = Thread.currentThread();
+        Thread[] runner = new Thread[1];
+
+        // When
+        boolean completed;
+        boolean failedCompleted;
+        try (DownstreamFanOut.Scope scope = fanOut.open()) {
+            completed = scope.await("inline", scope.fork("inline", () -> runner[0] = Thread.currentThread()));
+            failedCompleted = scope.await("failing", scope.fork("failing", () -> {
+                throw new IllegalStateException("boom");
+            }));
+        }
+
+        // Then
+        assertTrue(completed);
+        assertSame(caller, runner[0]);
+        assertFalse(failedCompleted);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
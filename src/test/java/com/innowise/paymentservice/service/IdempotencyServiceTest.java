@@ -0,0 +1,258 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.dto.CreatePaymentRequest;
+import com.innowise.paymentservice.dto.PaymentDto;
+import com.innowise.paymentservice.exception.IdempotencyKeyException;
+import com.innowise.paymentservice.model.IdempotencyRecord;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("IdempotencyService Unit Tests")
+class IdempotencyServiceTest {
+
+    private static final String PRINCIPAL = "john@example.com";
+    private static final String KEY = IdempotencyService.scopedKey(PRINCIPAL, "key-1");
+
+    @Mock
+    private IdempotencyRecordRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyService idempotencyService;
+
+    private final CreatePaymentRequest request = CreatePaymentRequest.builder()
+            .orderId("1")
+            .userId("2")
+            .paymentAmount(new BigDecimal("100.50"))
+            .build();
+    private final PaymentDto created = PaymentDto.builder().id("payment-1").status(PaymentStatus.SUCCESS).build();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyService = new IdempotencyService(repository, meterRegistry,
+                Duration.ofHours(24), Duration.ofSeconds(60), Duration.ofSeconds(2));
+    }
+
+    @Test
+    @DisplayName("execute_NewKey_ShouldRunOnceAndStoreResponse")
+    void execute_NewKey_ShouldRunOnceAndStoreResponse() {
+        // Given
+        when(repository.findById(KEY)).thenReturn(Optional.empty());
+
+        // When
+        IdempotencyService.Result result = idempotencyService.execute(PRINCIPAL, "key-1", request,
+                () -> new IdempotencyService.Result(200, created, false));
+
+        // Then
+        assertSame(created, result.body());
+        assertFalse(result.replayed());
+        verify(repository).insert(argThat((IdempotencyRecord record) ->
+                record.getState() == IdempotencyRecord.State.IN_PROGRESS && KEY.equals(record.getId())));
+        verify(repository).complete(eq(KEY), eq(200), eq(created), any(Instant.class));
+        assertEquals(1.0, meterRegistry.counter("payment.idempotency.requests", "result", "executed").count());
+    }
+
+    @Test
+    @DisplayName("execute_CompletedKey_ShouldReplayStoredResponseWithOneLookup")
+    void execute_CompletedKey_ShouldReplayStoredResponseWithOneLookup() {
+        // Given - та же сумма в другой записи (100.5) дает тот же отпечаток
+        CreatePaymentRequest sameRequest = CreatePaymentRequest.builder()
+                .orderId("1").userId("2").paymentAmount(new BigDecimal("100.5")).build();
+        when(repository.findById(KEY)).thenReturn(Optional.of(IdempotencyRecord.builder()
+                .id(KEY)
+                .requestHash(IdempotencyService.fingerprint(request))
+                .state(IdempotencyRecord.State.COMPLETED)
+                .responseStatus(202)
+                .response(created)
+                .build()));
+
+        // When
+        IdempotencyService.Result result = idempotencyService.execute(PRINCIPAL, "key-1", sameRequest, () -> fail("must not run"));
+
+        // Then
+        assertEquals(202, result.status());
+        assertEquals(created, result.body());
+        assertTrue(result.replayed());
+        verify(repository, times(1)).findById(KEY);
+        verify(repository, never()).insert(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    @DisplayName("execute_KeyReusedWithDifferentBody_ShouldReturn422")
+    void execute_KeyReusedWithDifferentBody_ShouldReturn422() {
+        // Given
+        when(repository.findById(KEY)).thenReturn(Optional.of(IdempotencyRecord.builder()
+                .id(KEY)
+                .requestHash("other")
+                .state(IdempotencyRecord.State.COMPLETED)
+                .build()));
+
+        // When & Then
+        IdempotencyKeyException ex = assertThrows(IdempotencyKeyException.class,
+                () -> idempotencyService.execute(PRINCIPAL, "key-1", request, () -> fail("must not run")));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, ex.getStatus());
+    }
+
+    @Test
+    @DisplayName("execute_ConcurrentDuplicates_ShouldWaitForInFlightRequest")
+    void execute_ConcurrentDuplicates_ShouldWaitForInFlightRequest() throws Exception {
+        // Given - дубликат ждет первый запрос в этом экземпляре или читает уже сохраненный ответ
+        AtomicReference<IdempotencyRecord> stored = new AtomicReference<>();
+        when(repository.findById(KEY)).thenAnswer(invocation -> Optional.ofNullable(stored.get()));
+        doAnswer(invocation -> {
+            stored.set(IdempotencyRecord.builder().id(KEY)
+                    .requestHash(IdempotencyService.fingerprint(request))
+                    .state(IdempotencyRecord.State.COMPLETED)
+                    .responseStatus(200).response(created).build());
+            return null;
+        }).when(repository).complete(eq(KEY), eq(200), eq(created), any(Instant.class));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+
+        // When
+        CompletableFuture<IdempotencyService.Result> first = CompletableFuture.supplyAsync(() ->
+                idempotencyService.execute(PRINCIPAL, "key-1", request, () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    try {
+                        assertTrue(release.await(2, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new IdempotencyService.Result(200, created, false);
+                }));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        CompletableFuture<IdempotencyService.Result> duplicate = CompletableFuture.supplyAsync(() ->
+                idempotencyService.execute(PRINCIPAL, "key-1", request, () -> {
+                    executions.incrementAndGet();
+                    return new IdempotencyService.Result(200, created, false);
+                }));
+        release.countDown();
+
+        // Then
+        assertFalse(first.get(2, TimeUnit.SECONDS).replayed());
+        IdempotencyService.Result replayed = duplicate.get(2, TimeUnit.SECONDS);
+        assertTrue(replayed.replayed());
+        assertEquals(created, replayed.body());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    @DisplayName("execute_ClaimedByOtherInstance_ShouldPollUntilCompleted")
+    void execute_ClaimedByOtherInstance_ShouldPollUntilCompleted() {
+        // Given - ключ занят между чтением и вставкой, затем другой экземпляр сохраняет ответ
+        String hash = IdempotencyService.fingerprint(request);
+        when(repository.findById(KEY)).thenReturn(
+                Optional.empty(),
+                Optional.of(IdempotencyRecord.builder().id(KEY).requestHash(hash)
+                        .state(IdempotencyRecord.State.IN_PROGRESS)
+                        .lockedUntil(Instant.now().plusSeconds(60)).build()),
+                Optional.of(IdempotencyRecord.builder().id(KEY).requestHash(hash)
+                        .state(IdempotencyRecord.State.COMPLETED)
+                        .responseStatus(200).response(created).build()));
+        when(repository.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("E11000"));
+
+        // When
+        IdempotencyService.Result result = idempotencyService.execute(PRINCIPAL, "key-1", request, () -> fail("must not run"));
+
+        // Then
+        assertTrue(result.replayed());
+        assertEquals(created, result.body());
+    }
+
+    @Test
+    @DisplayName("execute_SameKeyOfAnotherUser_ShouldNotReplayForeignResponse")
+    void execute_SameKeyOfAnotherUser_ShouldNotReplayForeignResponse() {
+        // Given - ответ сохранен для ключа key-1 пользователя PRINCIPAL
+        String otherKey = IdempotencyService.scopedKey("jane@example.com", "key-1");
+        lenient().when(repository.findById(KEY)).thenReturn(Optional.of(IdempotencyRecord.builder()
+                .id(KEY)
+                .requestHash(IdempotencyService.fingerprint(request))
+                .state(IdempotencyRecord.State.COMPLETED)
+                .responseStatus(200)
+                .response(created)
+                .build()));
+        when(repository.findById(otherKey)).thenReturn(Optional.empty());
+        PaymentDto own = PaymentDto.builder().id("payment-2").status(PaymentStatus.SUCCESS).build();
+
+        // When
+        IdempotencyService.Result result = idempotencyService.execute("jane@example.com", "key-1", request,
+                () -> new IdempotencyService.Result(200, own, false));
+
+        // Then
+        assertNotEquals(KEY, otherKey);
+        assertSame(own, result.body());
+        assertFalse(result.replayed());
+        verify(repository).insert(argThat((IdempotencyRecord record) -> otherKey.equals(record.getId())));
+    }
+
+    @Test
+    @DisplayName("execute_SlowAction_ShouldRenewLockUntilCompleted")
+    void execute_SlowAction_ShouldRenewLockUntilCompleted() {
+        // Given - создание платежа идет дольше lock-timeout
+        idempotencyService = new IdempotencyService(repository, meterRegistry,
+                Duration.ofHours(24), Duration.ofMillis(150), Duration.ofSeconds(2));
+        when(repository.findById(KEY)).thenReturn(Optional.empty());
+        when(repository.renew(eq(KEY), any(Instant.class))).thenReturn(true);
+
+        // When
+        idempotencyService.execute(PRINCIPAL, "key-1", request, () -> {
+            sleep(400);
+            return new IdempotencyService.Result(200, created, false);
+        });
+
+        // Then - блокировка продлевалась, пока запрос выполнялся, и не продлевается после завершения
+        verify(repository, atLeast(3)).renew(eq(KEY), any(Instant.class));
+        clearInvocations(repository);
+        sleep(200);
+        verify(repository, never()).renew(anyString(), any(Instant.class));
+        idempotencyService.destroy();
+    }
+
+    @Test
+    @DisplayName("execute_ActionFails_ShouldReleaseKey")
+    void execute_ActionFails_ShouldReleaseKey() {
+        // Given
+        when(repository.findById(KEY)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute(PRINCIPAL, "key-1", request, () -> {
+            throw new IllegalStateException("db down");
+        }));
+        verify(repository).deleteById(KEY);
+        verify(repository, never()).complete(anyString(), anyInt(), any(), any());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
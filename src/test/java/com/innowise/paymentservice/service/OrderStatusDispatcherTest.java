@@ -0,0 +1,343 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.client.OrderServiceClient;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OrderStatusDispatcher Unit Tests")
+class OrderStatusDispatcherTest {
+
+    @Mock
+    private OrderServiceClient orderServiceClient;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("dispatch_StatusesQueuedBehindBusyConnection_ShouldSendOnlyLatestPerOrder")
+    void dispatch_StatusesQueuedBehindBusyConnection_ShouldSendOnlyLatestPerOrder() {
+        // Given - единственное разрешение занято заказом 2
+        OrderStatusDispatcher dispatcher = dispatcher(true, 1, 100);
+        Sinks.Empty<Void> order2Response = Sinks.empty();
+        when(orderServiceClient.updateOrderStatusAsync(eq(2L), anyString(), any())).thenReturn(order2Response.asMono());
+        when(orderServiceClient.updateOrderStatusAsync(eq(1L), anyString(), any())).thenReturn(Mono.empty());
+        dispatcher.dispatch("2", "PROCESSING", "token");
+
+        // When
+        dispatcher.dispatch("1", "PROCESSING", "token");
+        dispatcher.dispatch("1", "CANCELED", "token");
+        assertEquals(2, dispatcher.pending());
+        order2Response.tryEmitEmpty();
+
+        // Then - PROCESSING заказа 1 заменен CANCELED и не отправлялся
+        verify(orderServiceClient).updateOrderStatusAsync(1L, "CANCELED", "token");
+        verify(orderServiceClient, never()).updateOrderStatusAsync(1L, "PROCESSING", "token");
+        assertEquals(0, dispatcher.pending());
+        assertEquals(2.0, meterRegistry.counter("order.status.updates", "result", "sent").count());
+        assertEquals(1.0, meterRegistry.counter("order.status.updates", "result", "coalesced").count());
+    }
+
+    @Test
+    @DisplayName("dispatch_StatusArrivesWhileOrderInFlight_ShouldSendAfterPreviousInOrder")
+    void dispatch_StatusArrivesWhileOrderInFlight_ShouldSendAfterPreviousInOrder() {
+        // Given
+        OrderStatusDispatcher dispatcher = dispatcher(true, 4, 100);
+        Sinks.Empty<Void> processingResponse = Sinks.empty();
+        when(orderServiceClient.updateOrderStatusAsync(1L, "PROCESSING", "token")).thenReturn(processingResponse.asMono());
+        when(orderServiceClient.updateOrderStatusAsync(1L, "CANCELED", "token")).thenReturn(Mono.empty());
+
+        // When
+        dispatcher.dispatch("1", "PROCESSING", "token");
+        dispatcher.dispatch("1", "CANCELED", "token");
+
+        // Then - CANCELED не уходит, пока не завершился PROCESSING того же заказа
+        verify(orderServiceClient, never()).updateOrderStatusAsync(1L, "CANCELED", "token");
+        processingResponse.tryEmitEmpty();
+        InOrder inOrder = inOrder(orderServiceClient);
+        inOrder.verify(orderServiceClient).updateOrderStatusAsync(1L, "PROCESSING", "token");
+        inOrder.verify(orderServiceClient).updateOrderStatusAsync(1L, "CANCELED", "token");
+        assertEquals(0, dispatcher.pending());
+    }
+
+    @Test
+    @DisplayName("dispatch_TransientFailure_ShouldRetryAndClientErrorShouldNot")
+    void dispatch_TransientFailure_ShouldRetryAndClientErrorShouldNot() {
+        // Given
+        OrderStatusDispatcher dispatcher = dispatcher(true, 4, 100);
+        int[] attempts = new int[2];
+        when(orderServiceClient.updateOrderStatusAsync(eq(1L), anyString(), any())).thenReturn(Mono.defer(() ->
+                ++attempts[0] < 3 ? Mono.error(orderServiceError(HttpStatus.SERVICE_UNAVAILABLE)) : Mono.empty()));
+        when(orderServiceClient.updateOrderStatusAsync(eq(2L), anyString(), any())).thenReturn(Mono.defer(() -> {
+            attempts[1]++;
+            return Mono.error(orderServiceError(HttpStatus.NOT_FOUND));
+        }));
+
+        // When
+        dispatcher.dispatch("1", "CANCELED", "token");
+        dispatcher.dispatch("2", "CANCELED", "token");
+
+        // Then
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (dispatcher.pending() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(3, attempts[0]);
+        assertEquals(1, attempts[1]);
+        assertEquals(2.0, meterRegistry.counter("order.status.updates.retries").count());
+        assertEquals(1.0, meterRegistry.counter("order.status.updates", "result", "sent").count());
+        assertEquals(1.0, meterRegistry.counter("order.status.updates", "result", "failed").count());
+    }
+
+    @Test
+    @DisplayName("dispatch_QueueFull_ShouldDropStatusForNewOrder")
+    void dispatch_QueueFull_ShouldDropStatusForNewOrder() {
+        // Given
+        OrderStatusDispatcher dispatcher = dispatcher(true, 1, 1);
+        when(orderServiceClient.updateOrderStatusAsync(eq(1L), anyString(), any())).thenReturn(Mono.never());
+
+        // When
+        dispatcher.dispatch("1", "PROCESSING", "token");
+        dispatcher.dispatch("2", "PROCESSING", "token");
+
+        // Then
+        verify(orderServiceClient, never()).updateOrderStatusAsync(eq(2L), anyString(), any());
+        assertEquals(1.0, meterRegistry.counter("order.status.updates", "result", "dropped").count());
+    }
+
+    @Test
+    @DisplayName("dispatch_Disabled_ShouldSendInCallerThreadAndSwallowErrors")
+    void dispatch_Disabled_ShouldSendInCallerThreadAndSwallowErrors() {
+        // Given
+        OrderStatusDispatcher dispatcher = dispatcher(false, 1, 100);
+        doAnswer(invocation -> {
+            if ("CANCELED".equals(invocation.getArgument(1))) {
+                throw new OrderServiceClient.OrderServiceException("order-service down");
+            }
+            return null;
+        }).when(orderServiceClient).updateOrderStatus(anyLong(), anyString(), any());
+
+        // When
+        dispatcher.dispatch("1", "PROCESSING", "token");
+        dispatcher.dispatch("1", "CANCELED", "token");
+        dispatcher.dispatch("not-a-number", "CANCELED", "token");
+
+        // Then
+        verify(orderServiceClient).updateOrderStatus(1L, "PROCESSING", "token");
+        verify(orderServiceClient).updateOrderStatus(1L, "CANCELED", "token");
+        verifyNoMoreInteractions(orderServiceClient);
+        assertEquals(1.0, meterRegistry.counter("order.status.updates", "result", "failed").count());
+    }
+
+    @Test
+    @DisplayName("dispatch_ClientThrowsOrReturnsNull_ShouldReleasePermitAndKeepOrderUsable")
+    void dispatch_ClientThrowsOrReturnsNull_ShouldReleasePermitAndKeepOrderUsable() {
+        // Given - одно разрешение; клиент падает синхронно для заказа 1 и один раз возвращает null для заказа 2
+        OrderStatusDispatcher dispatcher = dispatcher(true, 1, 100);
+        when(orderServiceClient.updateOrderStatusAsync(1L, "PROCESSING", "token"))
+                .thenThrow(orderServiceError(HttpStatus.NOT_FOUND));
+        when(orderServiceClient.updateOrderStatusAsync(2L, "PROCESSING", "token"))
+                .thenReturn(null)
+                .thenReturn(Mono.empty());
+        when(orderServiceClient.updateOrderStatusAsync(1L, "CANCELED", "token")).thenReturn(Mono.empty());
+
+        // When
+        assertDoesNotThrow(() -> dispatcher.dispatch("1", "PROCESSING", "token"));
+        assertDoesNotThrow(() -> dispatcher.dispatch("2", "PROCESSING", "token"));
+        dispatcher.dispatch("1", "CANCELED", "token");
+
+        // Then - ни разрешение, ни слот заказа 1 не остались занятыми
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (dispatcher.pending() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        verify(orderServiceClient).updateOrderStatusAsync(1L, "CANCELED", "token");
+        verify(orderServiceClient, times(2)).updateOrderStatusAsync(2L, "PROCESSING", "token");
+        assertEquals(0, dispatcher.pending());
+        assertEquals(1.0, meterRegistry.counter("order.status.updates", "result", "failed").count());
+        assertEquals(2.0, meterRegistry.counter("order.status.updates", "result", "sent").count());
+    }
+
+    @Test
+    @DisplayName("destroy_ShouldRejectNewStatusesAndWaitForQueuedOnes")
+    void destroy_ShouldRejectNewStatusesAndWaitForQueuedOnes() throws Exception {
+        // Given - статус заказа 1 отправляется, статус заказа 2 ждет в очереди
+        OrderStatusDispatcher dispatcher = dispatcher(true, 1, 100);
+        Sinks.Empty<Void> order1Response = Sinks.empty();
+        when(orderServiceClient.updateOrderStatusAsync(eq(1L), anyString(), any())).thenReturn(order1Response.asMono());
+        when(orderServiceClient.updateOrderStatusAsync(eq(2L), anyString(), any())).thenReturn(Mono.empty());
+        dispatcher.dispatch("1", "CANCELED", "token");
+        dispatcher.dispatch("2", "CANCELED", "token");
+
+        // When
+        Thread shutdown = Thread.ofPlatform().start(() -> assertDoesNotThrow(dispatcher::destroy));
+        while (shutdown.getState() != Thread.State.TIMED_WAITING && shutdown.isAlive()) {
+            Thread.onSpinWait();
+        }
+        dispatcher.dispatch("3", "CANCELED", "token");
+        assertTrue(shutdown.isAlive());
+        order1Response.tryEmitEmpty();
+        shutdown.join(Duration.ofSeconds(5).toMillis());
+
+        // Then
+        assertFalse(shutdown.isAlive());
+        verify(orderServiceClient).updateOrderStatusAsync(2L, "CANCELED", "token");
+        verify(orderServiceClient, never()).updateOrderStatusAsync(eq(3L), anyString(), any());
+        assertEquals(0, dispatcher.pending());
+        assertEquals(1.0, meterRegistry.counter("order.status.updates", "result", "dropped").count());
+    }
+
+    @Test
+    @DisplayName("dispatch_CircuitOpen_ShouldResendAfterCircuitOpenBackoffInsteadOfDropping")
+    void dispatch_CircuitOpen_ShouldResendAfterCircuitOpenBackoffInsteadOfDropping() {
+        // Given - первые две попытки отклоняет открытый circuit breaker
+        OrderStatusDispatcher dispatcher = dispatcher(true, 4, 100);
+        CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("order-service");
+        int[] attempts = new int[1];
+        long[] attemptTimes = new long[3];
+        when(orderServiceClient.updateOrderStatusAsync(eq(1L), anyString(), any())).thenReturn(Mono.defer(() -> {
+            attemptTimes[attempts[0]] = System.nanoTime();
+            return ++attempts[0] < 3
+                    ? Mono.error(new OrderServiceClient.OrderServiceException("order-service unavailable",
+                            CallNotPermittedException.createCallNotPermittedException(circuitBreaker)))
+                    : Mono.empty();
+        }));
+
+        // When
+        dispatcher.dispatch("1", "CANCELED", "token");
+
+        // Then - без быстрых повторов: каждая следующая попытка не раньше circuit-open-backoff
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (dispatcher.pending() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(3, attempts[0]);
+        assertTrue(attemptTimes[1] - attemptTimes[0] >= Duration.ofMillis(100).toNanos());
+        assertTrue(attemptTimes[2] - attemptTimes[1] >= Duration.ofMillis(100).toNanos());
+        assertEquals(1.0, meterRegistry.counter("order.status.updates", "result", "sent").count());
+        assertEquals(0.0, meterRegistry.counter("order.status.updates", "result", "failed").count());
+    }
+
+    @Test
+    @DisplayName("dispatch_CircuitOpen_ShouldReleasePermitWhileOrderIsParked")
+    void dispatch_CircuitOpen_ShouldReleasePermitWhileOrderIsParked() {
+        // Given - единственное разрешение; заказ 1 отклоняет открытый circuit breaker
+        OrderStatusDispatcher dispatcher = dispatcher(true, 1, 100);
+        int[] order1Attempts = new int[1];
+        when(orderServiceClient.updateOrderStatusAsync(eq(1L), anyString(), any())).thenReturn(Mono.defer(() ->
+                ++order1Attempts[0] < 2 ? Mono.error(circuitOpen()) : Mono.empty()));
+        when(orderServiceClient.updateOrderStatusAsync(eq(2L), anyString(), any())).thenReturn(Mono.empty());
+
+        // When
+        dispatcher.dispatch("1", "CANCELED", "token");
+        dispatcher.dispatch("2", "CANCELED", "token");
+
+        // Then - заказ 2 уходит сразу, пока заказ 1 ждет circuit-open-backoff
+        verify(orderServiceClient).updateOrderStatusAsync(2L, "CANCELED", "token");
+        assertEquals(1, order1Attempts[0]);
+        awaitIdle(dispatcher);
+        assertEquals(2, order1Attempts[0]);
+        assertEquals(2.0, meterRegistry.counter("order.status.updates", "result", "sent").count());
+    }
+
+    @Test
+    @DisplayName("dispatch_CircuitOpenLongerThanMaxWait_ShouldGiveUp")
+    void dispatch_CircuitOpenLongerThanMaxWait_ShouldGiveUp() {
+        // Given
+        OrderStatusDispatcher dispatcher = new OrderStatusDispatcher(orderServiceClient, meterRegistry, true, 4, 100,
+                3, Duration.ofMillis(10), Duration.ofSeconds(5), Duration.ofSeconds(5), Duration.ofMillis(50),
+                Duration.ofMillis(120));
+        when(orderServiceClient.updateOrderStatusAsync(eq(1L), anyString(), any()))
+                .thenReturn(Mono.defer(() -> Mono.error(circuitOpen())));
+
+        // When
+        dispatcher.dispatch("1", "CANCELED", "token");
+        awaitIdle(dispatcher);
+
+        // Then
+        assertEquals(0, dispatcher.pending());
+        assertEquals(1.0, meterRegistry.counter("order.status.updates", "result", "failed").count());
+        assertEquals(0.0, meterRegistry.counter("order.status.updates", "result", "sent").count());
+    }
+
+    @Test
+    @DisplayName("dispatch_ShouldUseLatestTokenAtSendTimeAndSkipExpiredOnes")
+    void dispatch_ShouldUseLatestTokenAtSendTimeAndSkipExpiredOnes() {
+        // Given - PROCESSING заказа 1 в полете, CANCELED приходит с более свежим токеном
+        OrderStatusDispatcher dispatcher = dispatcher(true, 4, 100);
+        String staleToken = token(Instant.now().plusSeconds(60));
+        String freshToken = token(Instant.now().plusSeconds(3600));
+        Sinks.Empty<Void> processingResponse = Sinks.empty();
+        when(orderServiceClient.updateOrderStatusAsync(1L, "PROCESSING", staleToken)).thenReturn(processingResponse.asMono());
+        when(orderServiceClient.updateOrderStatusAsync(1L, "CANCELED", freshToken)).thenReturn(Mono.empty());
+
+        // When
+        dispatcher.dispatch("1", "PROCESSING", staleToken);
+        dispatcher.dispatch("1", "CANCELED", freshToken);
+        processingResponse.tryEmitEmpty();
+        dispatcher.dispatch("2", "CANCELED", token(Instant.now().minusSeconds(1)));
+
+        // Then - истекший токен заказа 2 не отправляется
+        verify(orderServiceClient).updateOrderStatusAsync(1L, "CANCELED", freshToken);
+        verify(orderServiceClient, never()).updateOrderStatusAsync(eq(2L), anyString(), any());
+        assertEquals(0, dispatcher.pending());
+        assertEquals(1.0, meterRegistry.counter("order.status.updates", "result", "expired").count());
+    }
+
+    private OrderStatusDispatcher dispatcher(boolean enabled, int maxConcurrency, int maxPending) {
+        return new OrderStatusDispatcher(orderServiceClient, meterRegistry, enabled, maxConcurrency, maxPending,
+                3, Duration.ofMillis(10), Duration.ofSeconds(5), Duration.ofSeconds(5), Duration.ofMillis(100),
+                Duration.ofSeconds(5));
+    }
+
+    private static String token(Instant expiresAt) {
+        return "Bearer " + new PlainJWT(new JWTClaimsSet.Builder()
+                .subject("user@example.com")
+                .expirationTime(Date.from(expiresAt))
+                .build()).serialize();
+    }
+
+    private static OrderServiceClient.OrderServiceException circuitOpen() {
+        return new OrderServiceClient.OrderServiceException("order-service unavailable",
+                CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("order-service")));
+    }
+
+    private void awaitIdle(OrderStatusDispatcher dispatcher) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (dispatcher.pending() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static OrderServiceClient.OrderServiceException orderServiceError(HttpStatus status) {
+        return new OrderServiceClient.OrderServiceException("order-service error",
+                WebClientResponseException.create(status.value(), status.getReasonPhrase(), HttpHeaders.EMPTY, null, null));
+    }
+}
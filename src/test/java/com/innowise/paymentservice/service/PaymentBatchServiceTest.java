@@ -0,0 +1,156 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.client.ExternalApiClient;
+import com.innowise.paymentservice.dto.CreatePaymentRequest;
+import com.innowise.paymentservice.dto.PaymentBatchResponse;
+import com.innowise.paymentservice.dto.PaymentDto;
+import com.innowise.paymentservice.mapper.PaymentMapper;
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.repository.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PaymentBatchService Unit Tests")
+class PaymentBatchServiceTest {
+
+    @Mock
+    private PaymentRepository repository;
+
+    @Mock
+    private PaymentMapper paymentMapper;
+
+    @Mock
+    private ExternalApiClient externalApiClient;
+
+    @Mock
+    private OrderStatusDispatcher orderStatusDispatcher;
+
+    @Mock
+    private PaymentRollupService paymentRollupService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentBatchService paymentBatchService;
+
+    private final List<CreatePaymentRequest> requests = List.of(
+            CreatePaymentRequest.builder().orderId("1").userId("7").paymentAmount(new BigDecimal("10.00")).build(),
+            CreatePaymentRequest.builder().orderId("2").userId("7").paymentAmount(new BigDecimal("20.00")).build(),
+            CreatePaymentRequest.builder().orderId("3").userId("8").paymentAmount(new BigDecimal("30.00")).build());
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        paymentBatchService = new PaymentBatchService(repository, paymentMapper,
+                new RemoteApiDecisionEngine(externalApiClient),
+                orderStatusDispatcher, paymentRollupService,
+                new PaymentTotalCache(false, 100, Duration.ofSeconds(30), new SimpleMeterRegistry()),
+                meterRegistry);
+        when(paymentMapper.toEntity(any(CreatePaymentRequest.class))).thenAnswer(invocation -> {
+            CreatePaymentRequest request = invocation.getArgument(0);
+            return Payment.builder()
+                    .orderId(request.getOrderId())
+                    .userId(request.getUserId())
+                    .paymentAmount(request.getPaymentAmount())
+                    .build();
+        });
+    }
+
+    @Test
+    @DisplayName("createPayments_ShouldDecideAndInsertWholeBatchAtOnce")
+    void createPayments_ShouldDecideAndInsertWholeBatchAtOnce() {
+        // Given
+        when(externalApiClient.getRandomNumbers(3)).thenReturn(List.of(2, 5, 8));
+        when(repository.insertUnordered(anyList())).thenReturn(Map.of());
+        when(paymentMapper.toDto(any(Payment.class))).thenAnswer(invocation -> {
+            Payment payment = invocation.getArgument(0);
+            return PaymentDto.builder().id(payment.getId()).status(payment.getStatus()).build();
+        });
+
+        // When
+        PaymentBatchResponse response = paymentBatchService.createPayments(requests, "token");
+
+        // Then
+        assertEquals(3, response.getTotal());
+        assertEquals(3, response.getCreated());
+        assertEquals(0, response.getFailed());
+        assertEquals(List.of(PaymentStatus.SUCCESS, PaymentStatus.FAILED, PaymentStatus.SUCCESS),
+                response.getItems().stream().map(item -> item.getPayment().getStatus()).toList());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Payment>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(repository, times(1)).insertUnordered(inserted.capture());
+        assertEquals(3, inserted.getValue().size());
+        assertTrue(inserted.getValue().stream().allMatch(payment ->
+                payment.getId() != null && Boolean.TRUE.equals(payment.getEventPending())
+                        && payment.getTimestamp() != null));
+        verify(externalApiClient, times(1)).getRandomNumbers(3);
+        verify(externalApiClient, never()).getRandomNumber();
+        verify(paymentRollupService).recordCreated(inserted.getValue());
+        verify(repository, never()).save(any(Payment.class));
+        assertEquals(3.0, meterRegistry.counter("payments.created").count());
+        for (String orderId : List.of("1", "2", "3")) {
+            InOrder inOrder = inOrder(orderStatusDispatcher, repository);
+            inOrder.verify(orderStatusDispatcher).dispatch(orderId, "PROCESSING", "token");
+            inOrder.verify(repository).insertUnordered(anyList());
+            inOrder.verify(orderStatusDispatcher).dispatch(orderId, "CANCELED", "token");
+        }
+    }
+
+    @Test
+    @DisplayName("createPayments_ItemNotSaved_ShouldReportErrorAndSkipCanceled")
+    void createPayments_ItemNotSaved_ShouldReportErrorAndSkipCanceled() {
+        // Given
+        when(externalApiClient.getRandomNumbers(3)).thenReturn(List.of(2, 4, 6));
+        when(repository.insertUnordered(anyList())).thenReturn(Map.of(1, "E11000 duplicate key"));
+        when(paymentMapper.toDto(any(Payment.class))).thenReturn(PaymentDto.builder().build());
+
+        // When
+        PaymentBatchResponse response = paymentBatchService.createPayments(requests, "token");
+
+        // Then
+        assertEquals(2, response.getCreated());
+        assertEquals(1, response.getFailed());
+        assertEquals("E11000 duplicate key", response.getItems().get(1).getError());
+        assertNull(response.getItems().get(1).getPayment());
+        assertEquals("2", response.getItems().get(1).getOrderId());
+        assertNotNull(response.getItems().get(2).getPayment());
+        verify(orderStatusDispatcher, never()).dispatch("2", "CANCELED", "token");
+        verify(orderStatusDispatcher).dispatch("3", "CANCELED", "token");
+        verify(paymentRollupService).recordCreated(argThat((List<Payment> saved) -> saved.size() == 2));
+        assertEquals(2.0, meterRegistry.counter("payments.created").count());
+    }
+
+    @Test
+    @DisplayName("createPayments_ExternalApiReturnsTooFewNumbers_ShouldFailRemainingItems")
+    void createPayments_ExternalApiReturnsTooFewNumbers_ShouldFailRemainingItems() {
+        // Given
+        when(externalApiClient.getRandomNumbers(3)).thenReturn(List.of(4));
+        when(repository.insertUnordered(anyList())).thenReturn(Map.of());
+        when(paymentMapper.toDto(any(Payment.class))).thenAnswer(invocation -> PaymentDto.builder()
+                .status(invocation.<Payment>getArgument(0).getStatus()).build());
+
+        // When
+        PaymentBatchResponse response = paymentBatchService.createPayments(requests, null);
+
+        // Then
+        assertEquals(List.of(PaymentStatus.SUCCESS, PaymentStatus.FAILED, PaymentStatus.FAILED),
+                response.getItems().stream().map(item -> item.getPayment().getStatus()).toList());
+    }
+}
@@ -0,0 +1,103 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.client.ExternalApiClient;
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PaymentDecisionEngine Unit Tests")
+class PaymentDecisionEngineTest {
+
+    @Mock
+    private ExternalApiClient externalApiClient;
+
+    private final List<Payment> payments = IntStream.range(0, 1000)
+            .mapToObj(i -> Payment.builder().orderId(String.valueOf(i)).build())
+            .toList();
+
+    @Test
+    @DisplayName("remote_ShouldMapEvenToSuccessAndMissingToFailed")
+    void remote_ShouldMapEvenToSuccessAndMissingToFailed() {
+        // Given
+        RemoteApiDecisionEngine engine = new RemoteApiDecisionEngine(externalApiClient);
+        when(externalApiClient.getRandomNumber()).thenReturn(48, 47, null);
+        when(externalApiClient.getRandomNumberAsync()).thenReturn(Mono.empty());
+        when(externalApiClient.getRandomNumbers(3)).thenReturn(List.of(2, 3));
+
+        // When & Then
+        Payment payment = payments.get(0);
+        assertEquals(PaymentStatus.SUCCESS, engine.decide(payment));
+        assertEquals(PaymentStatus.FAILED, engine.decide(payment));
+        assertEquals(PaymentStatus.FAILED, engine.decide(payment));
+        assertEquals(PaymentStatus.FAILED, engine.decideAsync(payment).block());
+        assertEquals(List.of(PaymentStatus.SUCCESS, PaymentStatus.FAILED, PaymentStatus.FAILED),
+                engine.decideAll(payments.subList(0, 3)));
+        verify(externalApiClient, times(1)).getRandomNumbers(3);
+    }
+
+    @Test
+    @DisplayName("seeded_ShouldBeDeterministicPerOrderAndBalanced")
+    void seeded_ShouldBeDeterministicPerOrderAndBalanced() {
+        // Given
+        SeededDecisionEngine engine = new SeededDecisionEngine(42);
+
+        // When
+        List<PaymentStatus> first = engine.decideAll(payments);
+        List<PaymentStatus> reversed = payments.reversed().stream().map(engine::decide).toList().reversed();
+        List<PaymentStatus> otherSeed = new SeededDecisionEngine(7).decideAll(payments);
+
+        // Then
+        assertEquals(first, reversed);
+        assertNotEquals(first, otherSeed);
+        long successes = first.stream().filter(PaymentStatus.SUCCESS::equals).count();
+        assertTrue(successes > 400 && successes < 600, "successes: " + successes);
+    }
+
+    @Test
+    @DisplayName("secureRandom_ShouldProduceBothStatusesWithoutExternalApi")
+    void secureRandom_ShouldProduceBothStatusesWithoutExternalApi() {
+        // When
+        List<PaymentStatus> statuses = new SecureRandomDecisionEngine().decideAll(payments);
+
+        // Then
+        assertTrue(statuses.contains(PaymentStatus.SUCCESS));
+        assertTrue(statuses.contains(PaymentStatus.FAILED));
+        verifyNoInteractions(externalApiClient);
+    }
+
+    @Test
+    @DisplayName("metered_ShouldRecordLatencyAndResultsPerEngine")
+    void metered_ShouldRecordLatencyAndResultsPerEngine() {
+        // Given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SeededDecisionEngine seeded = new SeededDecisionEngine(42);
+        PaymentDecisionEngine engine = new MeteredPaymentDecisionEngine(seeded, meterRegistry);
+
+        // When
+        PaymentStatus single = engine.decide(payments.get(0));
+        PaymentStatus async = engine.decideAsync(payments.get(1)).block();
+        engine.decideAll(payments.subList(0, 10));
+
+        // Then
+        assertEquals(seeded.decide(payments.get(0)), single);
+        assertEquals(seeded.decide(payments.get(1)), async);
+        assertEquals(2L, meterRegistry.timer("payment.decision", "engine", "seeded").count());
+        assertEquals(1L, meterRegistry.timer("payment.decision.batch", "engine", "seeded").count());
+        double results = meterRegistry.counter("payment.decision.results", "engine", "seeded", "status", "SUCCESS").count()
+                + meterRegistry.counter("payment.decision.results", "engine", "seeded", "status", "FAILED").count();
+        assertEquals(12.0, results);
+    }
+}
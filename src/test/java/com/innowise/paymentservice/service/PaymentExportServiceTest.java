@@ -0,0 +1,90 @@
+package com.innowise.paymentservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.innowise.paymentservice.dto.PaymentDto;
+import com.innowise.paymentservice.mapper.PaymentMapper;
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PaymentExportService Unit Tests")
+class PaymentExportServiceTest {
+
+    @Mock
+    private PaymentRepository repository;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    private PaymentExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new PaymentExportService(repository, Mappers.getMapper(PaymentMapper.class), objectMapper);
+        ReflectionTestUtils.setField(exportService, "batchSize", 100);
+        ReflectionTestUtils.setField(exportService, "flushEvery", 2);
+    }
+
+    @Test
+    @DisplayName("Should write one JSON document per line and close the cursor")
+    void exportNdjson_WritesOneLinePerPayment() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<Payment> payments = Stream.of(payment("p1"), payment("p2"), payment("p3"))
+                .onClose(() -> closed.set(true));
+        when(repository.stream(any(PaymentFilter.class), eq(100))).thenReturn(payments);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportNdjson(PaymentFilter.builder().build(), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, count);
+        assertEquals(3, lines.length);
+        assertEquals("p1", objectMapper.readValue(lines[0], PaymentDto.class).getId());
+        assertEquals("p3", objectMapper.readValue(lines[2], PaymentDto.class).getId());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    @DisplayName("Should write nothing for an empty result")
+    void exportNdjson_Empty() throws Exception {
+        when(repository.stream(any(PaymentFilter.class), anyInt())).thenReturn(Stream.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportNdjson(PaymentFilter.builder().build(), out);
+
+        assertEquals(0, count);
+        assertEquals(0, out.size());
+    }
+
+    private Payment payment(String id) {
+        return Payment.builder()
+                .id(id)
+                .orderId("1")
+                .userId("2")
+                .status(PaymentStatus.SUCCESS)
+                .timestamp(Instant.parse("2024-01-01T10:00:00Z"))
+                .paymentAmount(new BigDecimal("100.50"))
+                .build();
+    }
+}
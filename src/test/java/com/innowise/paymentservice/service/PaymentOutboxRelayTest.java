@@ -0,0 +1,170 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.producer.PaymentEventProducer;
+import com.innowise.paymentservice.repository.OutboxLeaseRepository;
+import com.innowise.paymentservice.repository.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PaymentOutboxRelay Unit Tests")
+class PaymentOutboxRelayTest {
+
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration LEASE_DURATION = Duration.ofSeconds(10);
+
+    @Mock
+    private PaymentRepository repository;
+
+    @Mock
+    private OutboxLeaseRepository leaseRepository;
+
+    @Mock
+    private PaymentEventProducer paymentEventProducer;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentOutboxRelay relay;
+
+    private final Payment first = Payment.builder().id("p1").orderId("1").eventPending(true).build();
+    private final Payment second = Payment.builder().id("p2").orderId("2").eventPending(true).build();
+    private final Payment third = Payment.builder().id("p3").orderId("3").eventPending(true).build();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        relay = new PaymentOutboxRelay(repository, leaseRepository, paymentEventProducer, meterRegistry,
+                2, SEND_TIMEOUT, LEASE_DURATION);
+        lenient().when(leaseRepository.acquire(eq(PaymentOutboxRelay.LEASE_NAME), anyString(), any(), any()))
+                .thenReturn(true);
+    }
+
+    @Test
+    @DisplayName("relay_FullBatch_ShouldPublishMarkAndReadNextBatch")
+    void relay_FullBatch_ShouldPublishMarkAndReadNextBatch() {
+        // Given
+        when(repository.findPendingEvents(2)).thenReturn(List.of(first, second), List.of(third));
+        when(paymentEventProducer.publishCreatePaymentEvents(anyList(), eq(SEND_TIMEOUT)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        relay.relay();
+
+        // Then
+        verify(paymentEventProducer).publishCreatePaymentEvents(List.of(first, second), SEND_TIMEOUT);
+        verify(repository).markEventsPublished(List.of(first, second));
+        verify(repository).markEventsPublished(List.of(third));
+        verify(repository, times(2)).findPendingEvents(2);
+        assertEquals(3.0, meterRegistry.counter("payment.outbox.published").count());
+        // Аренда продлевается перед каждой пачкой на lease-duration
+        ArgumentCaptor<Instant> now = ArgumentCaptor.forClass(Instant.class);
+        ArgumentCaptor<Instant> lockedUntil = ArgumentCaptor.forClass(Instant.class);
+        verify(leaseRepository, times(2)).acquire(eq(PaymentOutboxRelay.LEASE_NAME), anyString(),
+                now.capture(), lockedUntil.capture());
+        assertEquals(LEASE_DURATION, Duration.between(now.getValue(), lockedUntil.getValue()));
+    }
+
+    @Test
+    @DisplayName("relay_LeaseHeldByAnotherInstance_ShouldSkipRun")
+    void relay_LeaseHeldByAnotherInstance_ShouldSkipRun() {
+        // Given
+        when(leaseRepository.acquire(eq(PaymentOutboxRelay.LEASE_NAME), anyString(), any(), any())).thenReturn(false);
+
+        // When
+        relay.relay();
+
+        // Then
+        verify(repository, never()).findPendingEvents(anyInt());
+        verifyNoInteractions(paymentEventProducer);
+    }
+
+    @Test
+    @DisplayName("relay_LeaseLostBetweenBatches_ShouldStopPublishing")
+    void relay_LeaseLostBetweenBatches_ShouldStopPublishing() {
+        // Given
+        when(leaseRepository.acquire(eq(PaymentOutboxRelay.LEASE_NAME), anyString(), any(), any()))
+                .thenReturn(true, false);
+        when(repository.findPendingEvents(2)).thenReturn(List.of(first, second));
+        when(paymentEventProducer.publishCreatePaymentEvents(anyList(), eq(SEND_TIMEOUT)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        relay.relay();
+
+        // Then
+        verify(repository, times(1)).findPendingEvents(2);
+        verify(repository).markEventsPublished(List.of(first, second));
+    }
+
+    @Test
+    @DisplayName("destroy_ShouldReleaseLeaseOfThisInstance")
+    void destroy_ShouldReleaseLeaseOfThisInstance() {
+        // Given
+        relay.relay();
+        ArgumentCaptor<String> owner = ArgumentCaptor.forClass(String.class);
+        verify(leaseRepository).acquire(eq(PaymentOutboxRelay.LEASE_NAME), owner.capture(), any(), any());
+
+        // When
+        relay.destroy();
+
+        // Then
+        verify(leaseRepository).release(PaymentOutboxRelay.LEASE_NAME, owner.getValue());
+    }
+
+    @Test
+    @DisplayName("relay_PartiallyConfirmed_ShouldMarkOnlySentAndStop")
+    void relay_PartiallyConfirmed_ShouldMarkOnlySentAndStop() {
+        // Given
+        when(repository.findPendingEvents(2)).thenReturn(List.of(first, second));
+        when(paymentEventProducer.publishCreatePaymentEvents(List.of(first, second), SEND_TIMEOUT))
+                .thenReturn(List.of(first));
+
+        // When
+        relay.relay();
+
+        // Then - неподтвержденное событие остается в outbox до следующего запуска
+        verify(repository).markEventsPublished(List.of(first));
+        verify(repository, times(1)).findPendingEvents(2);
+        assertEquals(1.0, meterRegistry.counter("payment.outbox.published").count());
+        assertEquals(1.0, meterRegistry.counter("payment.outbox.failed").count());
+    }
+
+    @Test
+    @DisplayName("relay_EmptyOutbox_ShouldNotCallKafka")
+    void relay_EmptyOutbox_ShouldNotCallKafka() {
+        // Given
+        when(repository.findPendingEvents(2)).thenReturn(List.of());
+
+        // When
+        relay.relay();
+
+        // Then
+        verifyNoInteractions(paymentEventProducer);
+        verify(repository, never()).markEventsPublished(any());
+    }
+
+    @Test
+    @DisplayName("relay_RepositoryFails_ShouldKeepEventsForNextRun")
+    void relay_RepositoryFails_ShouldKeepEventsForNextRun() {
+        // Given
+        when(repository.findPendingEvents(2)).thenThrow(new IllegalStateException("mongo down"));
+
+        // When & Then - ошибка не выходит из планировщика
+        assertDoesNotThrow(() -> relay.relay());
+        verifyNoInteractions(paymentEventProducer);
+    }
+}
@@ -0,0 +1,206 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentRollup;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.model.PaymentTotal;
+import com.innowise.paymentservice.repository.PaymentRepository;
+import com.innowise.paymentservice.repository.PaymentRollupRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PaymentRollupService Unit Tests")
+class PaymentRollupServiceTest {
+
+    @Mock
+    private PaymentRollupRepository rollupRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private PaymentRollupService paymentRollupService;
+
+    @Test
+    @DisplayName("recordStatusChange_ShouldMoveAmountBetweenStatusBuckets")
+    @SuppressWarnings("unchecked")
+    void recordStatusChange_ShouldMoveAmountBetweenStatusBuckets() {
+        // Given
+        Payment payment = Payment.builder()
+                .id("payment-1")
+                .userId("2")
+                .status(PaymentStatus.SUCCESS)
+                .timestamp(Instant.parse("2025-03-10T15:30:00Z"))
+                .paymentAmount(new BigDecimal("100.50"))
+                .build();
+
+        // When
+        paymentRollupService.recordStatusChange(payment, PaymentStatus.CREATED);
+
+        // Then
+        ArgumentCaptor<List<PaymentRollup>> captor = ArgumentCaptor.forClass(List.class);
+        verify(rollupRepository).applyDeltas(captor.capture());
+        List<PaymentRollup> deltas = captor.getValue();
+
+        assertEquals(4, deltas.size());
+        assertEquals("2025-03-10|CREATED|2", deltas.get(0).getId());
+        assertEquals(new BigDecimal("-100.50"), deltas.get(0).getTotalAmount());
+        assertEquals(-1L, deltas.get(0).getPaymentCount());
+        assertEquals("2025-03-10|CREATED|*", deltas.get(1).getId());
+        assertEquals("2025-03-10|SUCCESS|2", deltas.get(2).getId());
+        assertEquals(new BigDecimal("100.50"), deltas.get(2).getTotalAmount());
+        assertEquals(1L, deltas.get(2).getPaymentCount());
+        assertEquals(Instant.parse("2025-03-10T00:00:00Z"), deltas.get(3).getDay());
+    }
+
+    @Test
+    @DisplayName("recordCreated_Batch_ShouldSendEveryDeltaInOneBulkWithoutSummingInMemory")
+    @SuppressWarnings("unchecked")
+    void recordCreated_Batch_ShouldSendEveryDeltaInOneBulkWithoutSummingInMemory() {
+        // Given - два платежа одного пользователя за один день попадают в одни бакеты
+        Instant timestamp = Instant.parse("2025-03-10T15:30:00Z");
+        List<Payment> payments = List.of(
+                Payment.builder().id("payment-1").userId("2").status(PaymentStatus.SUCCESS)
+                        .timestamp(timestamp).paymentAmount(new BigDecimal("100.50")).build(),
+                Payment.builder().id("payment-2").userId("2").status(PaymentStatus.SUCCESS)
+                        .timestamp(timestamp.plusSeconds(60)).paymentAmount(new BigDecimal("20.25")).build(),
+                Payment.builder().id("payment-3").userId("2").status(PaymentStatus.SUCCESS).build());
+
+        // When
+        paymentRollupService.recordCreated(payments);
+
+        // Then - суммирование выполняет $inc, а не сервис
+        ArgumentCaptor<List<PaymentRollup>> captor = ArgumentCaptor.forClass(List.class);
+        verify(rollupRepository).applyDeltas(captor.capture());
+        List<PaymentRollup> deltas = captor.getValue();
+
+        assertEquals(4, deltas.size());
+        assertEquals("2025-03-10|SUCCESS|2", deltas.get(0).getId());
+        assertEquals(new BigDecimal("100.50"), deltas.get(0).getTotalAmount());
+        assertEquals("2025-03-10|SUCCESS|2", deltas.get(2).getId());
+        assertEquals(new BigDecimal("20.25"), deltas.get(2).getTotalAmount());
+        assertEquals(1L, deltas.get(2).getPaymentCount());
+    }
+
+    @Test
+    @DisplayName("recordStatusChange_RepositoryFails_ShouldCountFailureWithoutThrowing")
+    void recordStatusChange_RepositoryFails_ShouldCountFailureWithoutThrowing() {
+        // Given
+        Payment payment = Payment.builder()
+                .id("payment-1")
+                .userId("2")
+                .status(PaymentStatus.SUCCESS)
+                .timestamp(Instant.parse("2025-03-10T15:30:00Z"))
+                .paymentAmount(new BigDecimal("100.50"))
+                .build();
+        doThrow(new RuntimeException("mongo down")).when(rollupRepository).applyDeltas(any());
+
+        // When
+        paymentRollupService.recordStatusChange(payment, PaymentStatus.CREATED);
+
+        // Then - расхождение видно в метрике, платеж не падает
+        assertEquals(1.0, meterRegistry.counter(PaymentRollupService.UPDATE_FAILURES).count());
+    }
+
+    @Test
+    @DisplayName("rebuild_ShouldReturnBucketCount")
+    void rebuild_ShouldReturnBucketCount() {
+        // Given
+        when(rollupRepository.count()).thenReturn(42L);
+
+        // When
+        long buckets = paymentRollupService.rebuild();
+
+        // Then
+        verify(rollupRepository).rebuildFromPayments();
+        assertEquals(42L, buckets);
+        assertEquals(1.0, meterRegistry.counter("payment.rollups.rebuilds").count());
+    }
+
+    @Test
+    @DisplayName("getTotal_PeriodSpanningDays_ShouldCombineRollupsWithPartialDays")
+    void getTotal_PeriodSpanningDays_ShouldCombineRollupsWithPartialDays() {
+        // Given
+        Instant start = Instant.parse("2025-01-01T10:00:00Z");
+        Instant end = Instant.parse("2025-01-31T12:00:00Z");
+        List<PaymentStatus> statuses = List.of(PaymentStatus.SUCCESS);
+        PaymentFilter query = PaymentFilter.builder().statuses(statuses).startDate(start).endDate(end).build();
+
+        Instant firstFullDay = Instant.parse("2025-01-02T00:00:00Z");
+        Instant lastDayStart = Instant.parse("2025-01-31T00:00:00Z");
+
+        when(paymentRepository.aggregateTotal(query.toBuilder().endDate(firstFullDay).build()))
+                .thenReturn(new PaymentTotal(new BigDecimal("1.00"), 1L));
+        when(rollupRepository.sumBuckets(PaymentRollup.ALL_USERS, statuses, firstFullDay, lastDayStart))
+                .thenReturn(new PaymentTotal(new BigDecimal("20.00"), 20L));
+        when(paymentRepository.aggregateTotal(query.toBuilder().startDate(lastDayStart.minusMillis(1)).build()))
+                .thenReturn(new PaymentTotal(new BigDecimal("3.00"), 3L));
+
+        // When
+        PaymentTotal total = paymentRollupService.getTotal(query);
+
+        // Then
+        assertEquals(new BigDecimal("24.00"), total.getTotalSum());
+        assertEquals(24L, total.getPaymentCount());
+    }
+
+    @Test
+    @DisplayName("getTotal_PeriodWithinOneDay_ShouldAggregatePaymentsDirectly")
+    void getTotal_PeriodWithinOneDay_ShouldAggregatePaymentsDirectly() {
+        // Given
+        PaymentFilter query = PaymentFilter.builder()
+                .userId("2")
+                .startDate(Instant.parse("2025-01-01T10:00:00Z"))
+                .endDate(Instant.parse("2025-01-02T12:00:00Z"))
+                .build();
+        when(paymentRepository.aggregateTotal(query)).thenReturn(PaymentTotal.empty());
+
+        // When
+        paymentRollupService.getTotal(query);
+
+        // Then
+        verify(paymentRepository).aggregateTotal(query);
+        verify(rollupRepository, never()).sumBuckets(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("getTotal_NoPeriod_ShouldSumAllUserBuckets")
+    void getTotal_NoPeriod_ShouldSumAllUserBuckets() {
+        // Given
+        when(rollupRepository.sumBuckets(eq("2"), isNull(), isNull(), isNull()))
+                .thenReturn(new PaymentTotal(new BigDecimal("5.00"), 2L));
+
+        // When
+        PaymentTotal total = paymentRollupService.getTotal(PaymentFilter.builder().userId("2").build());
+
+        // Then
+        assertEquals(2L, total.getPaymentCount());
+        verify(paymentRepository, never()).aggregateTotal(any());
+    }
+}
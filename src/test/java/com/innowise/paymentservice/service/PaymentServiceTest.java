@@ -1,29 +1,40 @@
 package com.innowise.paymentservice.service;
 
 import com.innowise.paymentservice.client.ExternalApiClient;
-import com.innowise.paymentservice.client.OrderServiceClient;
 import com.innowise.paymentservice.dto.CreatePaymentRequest;
 import com.innowise.paymentservice.dto.PaymentDto;
+import com.innowise.paymentservice.dto.PaymentPageResponse;
 import com.innowise.paymentservice.dto.TotalSumResponse;
 import com.innowise.paymentservice.mapper.PaymentMapper;
+import com.innowise.paymentservice.model.PageCursor;
 import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
 import com.innowise.paymentservice.model.PaymentStatus;
-import com.innowise.paymentservice.producer.PaymentEventProducer;
+import com.innowise.paymentservice.model.PaymentTotal;
 import com.innowise.paymentservice.repository.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -43,20 +54,44 @@ class PaymentServiceTest {
     private ExternalApiClient externalApiClient;
 
     @Mock
-    private OrderServiceClient orderServiceClient;
+    private PaymentDecisionEngine paymentDecisionEngine;
 
-    @Mock // @Mock - это аннотация, которая используется для создания пустой заглушки
-    private PaymentEventProducer paymentEventProducer;
+    @Mock
+    private OrderStatusDispatcher orderStatusDispatcher;
+
+    @Mock
+    private PaymentRollupService paymentRollupService;
+
+    @Mock
+    private ClosedPeriodTotalService closedPeriodTotalService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private Executor paymentProcessingExecutor;
+
+    @Spy
+    private DownstreamFanOut downstreamFanOut = new DownstreamFanOut(true, Duration.ofSeconds(5));
+
+    // Выключенный кэш сразу вызывает loader, поэтому тесты сумм проверяют репозиторий напрямую
+    @Spy
+    private PaymentTotalCache paymentTotalCache =
+            new PaymentTotalCache(false, 100, Duration.ofSeconds(30), new SimpleMeterRegistry());
 
     @InjectMocks // @InjectMocks - это аннотация, которая используется для инъекции зависимостей в тестируемый объект
     private PaymentService paymentService; // Создаем РЕАЛЬНЫЙ сервис с внедренными заглушками
 
     private CreatePaymentRequest createPaymentRequest;
     private Payment payment;
-    private Payment savedPayment;
 
     @BeforeEach
     void setUp() {
+        // Решение принимает реальный remote-движок поверх замоканного внешнего API
+        RemoteApiDecisionEngine remoteEngine = new RemoteApiDecisionEngine(externalApiClient);
+        lenient().when(paymentDecisionEngine.decide(any(Payment.class)))
+                .thenAnswer(invocation -> remoteEngine.decide(invocation.getArgument(0)));
+
         createPaymentRequest = CreatePaymentRequest.builder()
                 .orderId("1")
                 .userId("2")
@@ -72,15 +107,6 @@ class PaymentServiceTest {
                 .timestamp(null)
                 .build();
 
-        savedPayment = Payment.builder()
-                .id("payment-id-123")
-                .orderId("1")
-                .userId("2")
-                .paymentAmount(new BigDecimal("100.50"))
-                .status(PaymentStatus.CREATED)
-                .timestamp(Instant.now())
-                .build();
-
         // Теперь:
         // - dependency = mock(Dependency.class) - пустая заглушка
         // - service = new ServiceUnderTest(dependency) - реальный объект
@@ -109,12 +135,9 @@ class PaymentServiceTest {
                 .build();
 
         when(paymentMapper.toEntity(createPaymentRequest)).thenReturn(payment);
-        when(repository.save(any(Payment.class))).thenReturn(savedPayment);
+        when(repository.save(any(Payment.class))).thenReturn(updatedPayment);
         when(externalApiClient.getRandomNumber()).thenReturn(48); // Even number
-        when(repository.findById("payment-id-123")).thenReturn(Optional.of(updatedPayment));
         when(paymentMapper.toDto(updatedPayment)).thenReturn(expectedDto);
-        doNothing().when(paymentEventProducer).sendCreatePaymentEvent(any(Payment.class));
-        doNothing().when(orderServiceClient).updateOrderStatus(anyLong(), anyString(), anyString());
 
         // When
         PaymentDto result = paymentService.createPayment(createPaymentRequest, null);
@@ -128,11 +151,17 @@ class PaymentServiceTest {
         assertEquals(new BigDecimal("100.50"), result.getPaymentAmount());
 
         verify(paymentMapper).toEntity(createPaymentRequest);
-        verify(repository, times(2)).save(any(Payment.class)); // Once for initial save, once for status update
+        verify(repository).save(any(Payment.class));
+        verify(repository, never()).updateStatus(any(Payment.class), any());
         verify(externalApiClient).getRandomNumber();
-        verify(repository).findById("payment-id-123");
+        verify(repository, never()).findById(any());
         verify(paymentMapper).toDto(updatedPayment);
-        verify(paymentEventProducer).sendCreatePaymentEvent(updatedPayment);
+        assertEquals(PaymentStatus.SUCCESS, payment.getStatus()); // статус определен до записи
+        assertEquals(Boolean.TRUE, payment.getEventPending()); // событие в outbox той же записью
+        verify(paymentRollupService).recordCreated(updatedPayment);
+        verify(paymentRollupService, never()).recordStatusChange(any(), any());
+        verify(paymentTotalCache).invalidate(updatedPayment, PaymentStatus.SUCCESS);
+        assertEquals(1.0, meterRegistry.counter("payments.created").count());
     }
 
     @Test
@@ -158,12 +187,9 @@ class PaymentServiceTest {
                 .build();
 
         when(paymentMapper.toEntity(createPaymentRequest)).thenReturn(payment);
-        when(repository.save(any(Payment.class))).thenReturn(savedPayment);
+        when(repository.save(any(Payment.class))).thenReturn(updatedPayment);
         when(externalApiClient.getRandomNumber()).thenReturn(47); // Odd number
-        when(repository.findById("payment-id-123")).thenReturn(Optional.of(updatedPayment));
         when(paymentMapper.toDto(updatedPayment)).thenReturn(expectedDto);
-        doNothing().when(paymentEventProducer).sendCreatePaymentEvent(any(Payment.class));
-        doNothing().when(orderServiceClient).updateOrderStatus(anyLong(), anyString(), anyString());
 
         // When
         PaymentDto result = paymentService.createPayment(createPaymentRequest, null);
@@ -172,7 +198,8 @@ class PaymentServiceTest {
         assertNotNull(result);
         assertEquals(PaymentStatus.FAILED, result.getStatus());
         verify(externalApiClient).getRandomNumber();
-        verify(repository, times(2)).save(any(Payment.class));
+        verify(repository).save(any(Payment.class));
+        verify(repository, never()).updateStatus(any(Payment.class), any());
     }
 
     @Test
@@ -198,12 +225,9 @@ class PaymentServiceTest {
                 .build();
 
         when(paymentMapper.toEntity(createPaymentRequest)).thenReturn(payment);
-        when(repository.save(any(Payment.class))).thenReturn(savedPayment);
+        when(repository.save(any(Payment.class))).thenReturn(updatedPayment);
         when(externalApiClient.getRandomNumber()).thenReturn(null); // API returns null
-        when(repository.findById("payment-id-123")).thenReturn(Optional.of(updatedPayment));
         when(paymentMapper.toDto(updatedPayment)).thenReturn(expectedDto);
-        doNothing().when(paymentEventProducer).sendCreatePaymentEvent(any(Payment.class));
-        doNothing().when(orderServiceClient).updateOrderStatus(anyLong(), anyString(), anyString());
 
         // When
         PaymentDto result = paymentService.createPayment(createPaymentRequest, null);
@@ -212,7 +236,8 @@ class PaymentServiceTest {
         assertNotNull(result);
         assertEquals(PaymentStatus.FAILED, result.getStatus());
         verify(externalApiClient).getRandomNumber();
-        verify(repository, times(2)).save(any(Payment.class)); // Once for initial save, once for FAILED status
+        verify(repository).save(any(Payment.class));
+        verify(repository, never()).updateStatus(any(Payment.class), any());
     }
 
     @Test
@@ -221,7 +246,6 @@ class PaymentServiceTest {
         // Given
         createPaymentRequest.setStatus(PaymentStatus.PENDING);
         payment.setStatus(PaymentStatus.PENDING);
-        savedPayment.setStatus(PaymentStatus.PENDING);
 
         Payment updatedPayment = Payment.builder()
                 .id("payment-id-123")
@@ -242,12 +266,9 @@ class PaymentServiceTest {
                 .build();
 
         when(paymentMapper.toEntity(createPaymentRequest)).thenReturn(payment);
-        when(repository.save(any(Payment.class))).thenReturn(savedPayment);
+        when(repository.save(any(Payment.class))).thenReturn(updatedPayment);
         when(externalApiClient.getRandomNumber()).thenReturn(50); // Even number
-        when(repository.findById("payment-id-123")).thenReturn(Optional.of(updatedPayment));
         when(paymentMapper.toDto(updatedPayment)).thenReturn(expectedDto);
-        doNothing().when(paymentEventProducer).sendCreatePaymentEvent(any(Payment.class));
-        doNothing().when(orderServiceClient).updateOrderStatus(anyLong(), anyString(), anyString());
 
         // When
         PaymentDto result = paymentService.createPayment(createPaymentRequest, null);
@@ -259,42 +280,217 @@ class PaymentServiceTest {
     }
 
     @Test
-    @DisplayName("createPayment_KafkaProducerThrowsException_ShouldContinueExecution")
-    void createPayment_KafkaProducerThrowsException_ShouldContinueExecution() {
+    @DisplayName("createPayment_ShouldWriteEventToOutboxWithPayment")
+    void createPayment_ShouldWriteEventToOutboxWithPayment() {
         // Given
-        Payment updatedPayment = Payment.builder()
+        when(paymentMapper.toEntity(createPaymentRequest)).thenReturn(payment);
+        when(repository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(externalApiClient.getRandomNumber()).thenReturn(48);
+
+        // When
+        paymentService.createPayment(createPaymentRequest, null);
+
+        // Then - событие ставится в outbox той же записью, публикация в Kafka - вне запроса
+        ArgumentCaptor<Payment> saved = ArgumentCaptor.forClass(Payment.class);
+        verify(repository, times(1)).save(saved.capture());
+        assertEquals(Boolean.TRUE, saved.getValue().getEventPending());
+        assertEquals(PaymentStatus.SUCCESS, saved.getValue().getStatus());
+    }
+
+    @Test
+    @DisplayName("createPayment_ShouldForkProcessingAlongsideDecisionAndKeepItBeforeCanceled")
+    void createPayment_ShouldForkProcessingAlongsideDecisionAndKeepItBeforeCanceled() throws Exception {
+        // Given - PROCESSING не завершится, пока не начат вызов внешнего API, и наоборот
+        CountDownLatch processingStarted = new CountDownLatch(1);
+        CountDownLatch externalApiStarted = new CountDownLatch(1);
+        List<String> orderStatuses = Collections.synchronizedList(new ArrayList<>());
+        when(paymentMapper.toEntity(createPaymentRequest)).thenReturn(payment);
+        when(repository.save(any(Payment.class))).thenReturn(payment);
+        doAnswer(invocation -> {
+            String status = invocation.getArgument(1);
+            if (status.equals("PROCESSING")) {
+                processingStarted.countDown();
+                assertTrue(externalApiStarted.await(2, TimeUnit.SECONDS));
+            }
+            orderStatuses.add(status);
+            return null;
+        }).when(orderStatusDispatcher).dispatch(anyString(), anyString(), any());
+        when(externalApiClient.getRandomNumber()).thenAnswer(invocation -> {
+            externalApiStarted.countDown();
+            assertTrue(processingStarted.await(2, TimeUnit.SECONDS));
+            return 48;
+        });
+
+        // When
+        paymentService.createPayment(createPaymentRequest, "token");
+
+        // Then
+        assertEquals(List.of("PROCESSING", "CANCELED"), orderStatuses);
+        assertEquals(PaymentStatus.SUCCESS, payment.getStatus());
+        assertEquals(Boolean.TRUE, payment.getEventPending());
+    }
+
+    @Test
+    @DisplayName("createPaymentAsync_ShouldPersistPendingAndSubmitProcessing")
+    void createPaymentAsync_ShouldPersistPendingAndSubmitProcessing() {
+        // Given
+        Payment pendingPayment = Payment.builder()
                 .id("payment-id-123")
                 .orderId("1")
                 .userId("2")
                 .paymentAmount(new BigDecimal("100.50"))
-                .status(PaymentStatus.SUCCESS)
+                .status(PaymentStatus.PENDING)
                 .timestamp(Instant.now())
                 .build();
+        PaymentDto pendingDto = PaymentDto.builder()
+                .id("payment-id-123")
+                .status(PaymentStatus.PENDING)
+                .build();
 
-        PaymentDto expectedDto = PaymentDto.builder()
+        when(paymentMapper.toEntity(createPaymentRequest)).thenReturn(payment);
+        when(repository.save(any(Payment.class))).thenReturn(pendingPayment);
+        when(paymentMapper.toDto(pendingPayment)).thenReturn(pendingDto);
+
+        // When
+        PaymentDto result = paymentService.createPaymentAsync(createPaymentRequest, "token");
+
+        // Then - в запросе только запись PENDING, остальное передано в пул
+        assertEquals(PaymentStatus.PENDING, result.getStatus());
+        assertEquals(PaymentStatus.PENDING, payment.getStatus());
+        assertNotNull(payment.getTimestamp());
+        verify(repository).save(payment);
+        verify(paymentRollupService).recordCreated(pendingPayment);
+        verify(paymentTotalCache).invalidate(pendingPayment, PaymentStatus.PENDING);
+        verify(paymentProcessingExecutor).execute(any(Runnable.class));
+        verifyNoInteractions(externalApiClient, orderStatusDispatcher);
+        // Событие ставится в outbox только после обработки
+        assertNull(payment.getEventPending());
+        assertEquals(1.0, meterRegistry.counter("payments.created").count());
+    }
+
+    @Test
+    @DisplayName("processPendingPayment_ShouldResolveStatusUpdateOrderAndSendEvent")
+    void processPendingPayment_ShouldResolveStatusUpdateOrderAndSendEvent() {
+        // Given
+        Payment pendingPayment = Payment.builder()
                 .id("payment-id-123")
                 .orderId("1")
                 .userId("2")
                 .paymentAmount(new BigDecimal("100.50"))
-                .status(PaymentStatus.SUCCESS)
+                .status(PaymentStatus.PENDING)
                 .timestamp(Instant.now())
                 .build();
+        when(externalApiClient.getRandomNumber()).thenReturn(48);
+        when(repository.updateStatus(pendingPayment, PaymentStatus.PENDING)).thenReturn(true);
 
-        when(paymentMapper.toEntity(createPaymentRequest)).thenReturn(payment);
-        when(repository.save(any(Payment.class))).thenReturn(savedPayment);
+        // When
+        paymentService.processPendingPayment(pendingPayment, "token");
+
+        // Then
+        assertEquals(PaymentStatus.SUCCESS, pendingPayment.getStatus());
+        verify(orderStatusDispatcher).dispatch("1", "PROCESSING", "token");
+        verify(repository).updateStatus(pendingPayment, PaymentStatus.PENDING);
+        verify(paymentRollupService).recordStatusChange(pendingPayment, PaymentStatus.PENDING);
+        verify(paymentTotalCache).invalidate(pendingPayment, PaymentStatus.PENDING, PaymentStatus.SUCCESS);
+        verify(orderStatusDispatcher).dispatch("1", "CANCELED", "token");
+        assertEquals(Boolean.TRUE, pendingPayment.getEventPending());
+    }
+
+    @Test
+    @DisplayName("processPendingPayment_PaymentNotFound_ShouldNotSendEvent")
+    void processPendingPayment_PaymentNotFound_ShouldNotSendEvent() {
+        // Given
+        Payment pendingPayment = Payment.builder()
+                .id("payment-id-123")
+                .orderId("1")
+                .status(PaymentStatus.PENDING)
+                .build();
+        when(externalApiClient.getRandomNumber()).thenReturn(47);
+        when(repository.updateStatus(pendingPayment, PaymentStatus.PENDING)).thenReturn(false);
+
+        // When
+        paymentService.processPendingPayment(pendingPayment, null);
+
+        // Then
+        verify(paymentRollupService, never()).recordStatusChange(any(), any());
+        verify(orderStatusDispatcher, never()).dispatch(anyString(), eq("CANCELED"), any());
+    }
+
+    @Test
+    @DisplayName("resolveStalePendingPayment_ShouldDecideAndQueueEventWithoutOrderCalls")
+    void resolveStalePendingPayment_ShouldDecideAndQueueEventWithoutOrderCalls() {
+        // Given
+        Payment stalePayment = Payment.builder()
+                .id("payment-id-123")
+                .orderId("1")
+                .status(PaymentStatus.PENDING)
+                .build();
         when(externalApiClient.getRandomNumber()).thenReturn(48);
-        when(repository.findById("payment-id-123")).thenReturn(Optional.of(updatedPayment));
-        when(paymentMapper.toDto(updatedPayment)).thenReturn(expectedDto);
-        doThrow(new RuntimeException("Kafka error")).when(paymentEventProducer).sendCreatePaymentEvent(any(Payment.class));
-        doNothing().when(orderServiceClient).updateOrderStatus(anyLong(), anyString(), anyString());
+        when(repository.updateStatus(stalePayment, PaymentStatus.PENDING)).thenReturn(true);
 
         // When
-        PaymentDto result = paymentService.createPayment(createPaymentRequest, null);
+        boolean resolved = paymentService.resolveStalePendingPayment(stalePayment);
 
         // Then
-        assertNotNull(result);
-        assertEquals(PaymentStatus.SUCCESS, result.getStatus());
-        verify(paymentEventProducer).sendCreatePaymentEvent(updatedPayment);
+        assertTrue(resolved);
+        assertEquals(PaymentStatus.SUCCESS, stalePayment.getStatus());
+        assertEquals(Boolean.TRUE, stalePayment.getEventPending());
+        verify(paymentRollupService).recordStatusChange(stalePayment, PaymentStatus.PENDING);
+        verify(paymentTotalCache).invalidate(stalePayment, PaymentStatus.PENDING, PaymentStatus.SUCCESS);
+        verifyNoInteractions(orderStatusDispatcher);
+    }
+
+    @Test
+    @DisplayName("resolveStalePendingPayment_DecisionFails_ShouldMarkFailed")
+    void resolveStalePendingPayment_DecisionFails_ShouldMarkFailed() {
+        // Given
+        Payment stalePayment = Payment.builder()
+                .id("payment-id-123")
+                .orderId("1")
+                .status(PaymentStatus.PENDING)
+                .build();
+        when(paymentDecisionEngine.decide(stalePayment)).thenThrow(new IllegalStateException("engine down"));
+        when(repository.updateStatus(stalePayment, PaymentStatus.PENDING)).thenReturn(true);
+
+        // When
+        boolean resolved = paymentService.resolveStalePendingPayment(stalePayment);
+
+        // Then
+        assertTrue(resolved);
+        assertEquals(PaymentStatus.FAILED, stalePayment.getStatus());
+        verify(paymentRollupService).recordStatusChange(stalePayment, PaymentStatus.PENDING);
+    }
+
+    @Test
+    @DisplayName("resolveStalePendingPayment_AlreadyResolved_ShouldNotTouchRollups")
+    void resolveStalePendingPayment_AlreadyResolved_ShouldNotTouchRollups() {
+        // Given - пул успел записать статус раньше
+        Payment stalePayment = Payment.builder()
+                .id("payment-id-123")
+                .orderId("1")
+                .status(PaymentStatus.PENDING)
+                .build();
+        when(externalApiClient.getRandomNumber()).thenReturn(47);
+        when(repository.updateStatus(stalePayment, PaymentStatus.PENDING)).thenReturn(false);
+
+        // When & Then
+        assertFalse(paymentService.resolveStalePendingPayment(stalePayment));
+        verify(paymentRollupService, never()).recordStatusChange(any(), any());
+        verify(paymentTotalCache, never()).invalidate(any(), any(PaymentStatus[].class));
+    }
+
+    @Test
+    @DisplayName("getPaymentById_ShouldMapFoundPayment")
+    void getPaymentById_ShouldMapFoundPayment() {
+        // Given
+        PaymentDto dto = PaymentDto.builder().id("payment-id-123").status(PaymentStatus.PENDING).build();
+        when(repository.findById("payment-id-123")).thenReturn(Optional.of(payment));
+        when(paymentMapper.toDto(payment)).thenReturn(dto);
+        when(repository.findById("missing")).thenReturn(Optional.empty());
+
+        // When / Then
+        assertEquals(Optional.of(dto), paymentService.getPaymentById("payment-id-123"));
+        assertTrue(paymentService.getPaymentById("missing").isEmpty());
     }
 
     @Test
@@ -356,19 +552,21 @@ class PaymentServiceTest {
 
         List<PaymentDto> expectedDtos = Arrays.asList(dto1, dto2, dto3);
 
-        when(repository.findAll()).thenReturn(payments);
+        when(repository.findPage(PaymentFilter.builder().build(), null, PaymentService.DEFAULT_PAGE_SIZE + 1))
+                .thenReturn(payments);
         when(paymentMapper.toDtoList(payments)).thenReturn(expectedDtos);
 
         // When
-        List<PaymentDto> result = paymentService.getAllPayments();
+        PaymentPageResponse result = paymentService.getAllPayments(null, PaymentService.DEFAULT_PAGE_SIZE);
 
         // Then
         assertNotNull(result);
-        assertEquals(3, result.size());
-        assertEquals("payment-1", result.get(0).getId());
-        assertEquals("payment-2", result.get(1).getId());
-        assertEquals("payment-3", result.get(2).getId());
-        verify(repository).findAll();
+        assertEquals(3, result.getItems().size());
+        assertEquals("payment-1", result.getItems().get(0).getId());
+        assertEquals("payment-2", result.getItems().get(1).getId());
+        assertEquals("payment-3", result.getItems().get(2).getId());
+        assertNull(result.getNextCursor());
+        verify(repository, never()).findAll();
         verify(paymentMapper).toDtoList(payments);
     }
 
@@ -376,16 +574,16 @@ class PaymentServiceTest {
     @DisplayName("getAllPayments_NoPayments_ShouldReturnEmptyList")
     void getAllPayments_NoPayments_ShouldReturnEmptyList() {
         // Given
-        when(repository.findAll()).thenReturn(Collections.emptyList());
+        when(repository.findPage(any(PaymentFilter.class), isNull(), anyInt())).thenReturn(Collections.emptyList());
         when(paymentMapper.toDtoList(Collections.emptyList())).thenReturn(Collections.emptyList());
 
         // When
-        List<PaymentDto> result = paymentService.getAllPayments();
+        PaymentPageResponse result = paymentService.getAllPayments(null, PaymentService.DEFAULT_PAGE_SIZE);
 
         // Then
         assertNotNull(result);
-        assertTrue(result.isEmpty());
-        verify(repository).findAll();
+        assertTrue(result.getItems().isEmpty());
+        assertNull(result.getNextCursor());
         verify(paymentMapper).toDtoList(Collections.emptyList());
     }
 
@@ -426,16 +624,17 @@ class PaymentServiceTest {
 
         List<PaymentDto> expectedDtos = Arrays.asList(dto1, dto2);
 
-        when(repository.findByOrderId(orderId)).thenReturn(payments);
+        PaymentFilter filter = PaymentFilter.builder().orderId(orderId).build();
+        when(repository.findPage(filter, null, PaymentService.DEFAULT_PAGE_SIZE + 1)).thenReturn(payments);
         when(paymentMapper.toDtoList(payments)).thenReturn(expectedDtos);
 
         // When
-        List<PaymentDto> result = paymentService.getPaymentsByOrderId(orderId);
+        PaymentPageResponse result = paymentService.getPaymentsByOrderId(orderId, null, PaymentService.DEFAULT_PAGE_SIZE);
 
         // Then
         assertNotNull(result);
-        assertEquals(2, result.size());
-        verify(repository).findByOrderId(orderId);
+        assertEquals(2, result.getItems().size());
+        verify(repository).findPage(filter, null, PaymentService.DEFAULT_PAGE_SIZE + 1);
         verify(paymentMapper).toDtoList(payments);
     }
 
@@ -444,16 +643,17 @@ class PaymentServiceTest {
     void getPaymentsByOrderId_NoPayments_ShouldReturnEmptyList() {
         // Given
         String orderId = "999";
-        when(repository.findByOrderId(orderId)).thenReturn(Collections.emptyList());
+        PaymentFilter filter = PaymentFilter.builder().orderId(orderId).build();
+        when(repository.findPage(eq(filter), isNull(), anyInt())).thenReturn(Collections.emptyList());
         when(paymentMapper.toDtoList(Collections.emptyList())).thenReturn(Collections.emptyList());
 
         // When
-        List<PaymentDto> result = paymentService.getPaymentsByOrderId(orderId);
+        PaymentPageResponse result = paymentService.getPaymentsByOrderId(orderId, null, PaymentService.DEFAULT_PAGE_SIZE);
 
         // Then
         assertNotNull(result);
-        assertTrue(result.isEmpty());
-        verify(repository).findByOrderId(orderId);
+        assertTrue(result.getItems().isEmpty());
+        verify(repository).findPage(eq(filter), isNull(), anyInt());
     }
 
     @Test
@@ -477,17 +677,18 @@ class PaymentServiceTest {
 
         List<PaymentDto> expectedDtos = Collections.singletonList(dto1);
 
-        when(repository.findByUserId(userId)).thenReturn(payments);
+        PaymentFilter filter = PaymentFilter.builder().userId(userId).build();
+        when(repository.findPage(filter, null, PaymentService.DEFAULT_PAGE_SIZE + 1)).thenReturn(payments);
         when(paymentMapper.toDtoList(payments)).thenReturn(expectedDtos);
 
         // When
-        List<PaymentDto> result = paymentService.getPaymentsByUserId(userId);
+        PaymentPageResponse result = paymentService.getPaymentsByUserId(userId, null, PaymentService.DEFAULT_PAGE_SIZE);
 
         // Then
         assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals(userId, result.get(0).getUserId());
-        verify(repository).findByUserId(userId);
+        assertEquals(1, result.getItems().size());
+        assertEquals(userId, result.getItems().get(0).getUserId());
+        verify(repository).findPage(filter, null, PaymentService.DEFAULT_PAGE_SIZE + 1);
     }
 
     @Test
@@ -511,16 +712,98 @@ class PaymentServiceTest {
                 PaymentDto.builder().id("payment-2").status(PaymentStatus.FAILED).build()
         );
 
-        when(repository.findByStatusIn(statuses)).thenReturn(payments);
+        PaymentFilter filter = PaymentFilter.builder().statuses(statuses).build();
+        when(repository.findPage(filter, null, PaymentService.DEFAULT_PAGE_SIZE + 1)).thenReturn(payments);
         when(paymentMapper.toDtoList(payments)).thenReturn(expectedDtos);
 
         // When
-        List<PaymentDto> result = paymentService.getPaymentsByStatuses(statuses);
+        PaymentPageResponse result = paymentService.getPaymentsByStatuses(statuses, null, PaymentService.DEFAULT_PAGE_SIZE);
 
         // Then
         assertNotNull(result);
-        assertEquals(2, result.size());
-        verify(repository).findByStatusIn(statuses);
+        assertEquals(2, result.getItems().size());
+        verify(repository).findPage(filter, null, PaymentService.DEFAULT_PAGE_SIZE + 1);
+    }
+
+    @Test
+    @DisplayName("getAllPayments_MorePaymentsThanLimit_ShouldReturnNextCursor")
+    void getAllPayments_MorePaymentsThanLimit_ShouldReturnNextCursor() {
+        // Given
+        Instant timestamp = Instant.parse("2025-06-15T10:00:00Z");
+        Payment newest = Payment.builder().id("665f1a2b3c4d5e6f7a8b9c0d").timestamp(timestamp.plusSeconds(60)).build();
+        Payment older = Payment.builder().id("665f1a2b3c4d5e6f7a8b9c0c").timestamp(timestamp).build();
+        Payment extra = Payment.builder().id("665f1a2b3c4d5e6f7a8b9c0b").timestamp(timestamp).build();
+
+        when(repository.findPage(PaymentFilter.builder().build(), null, 3)).thenReturn(Arrays.asList(newest, older, extra));
+        when(paymentMapper.toDtoList(Arrays.asList(newest, older))).thenReturn(Arrays.asList(
+                PaymentDto.builder().id(newest.getId()).build(),
+                PaymentDto.builder().id(older.getId()).build()));
+
+        // When
+        PaymentPageResponse result = paymentService.getAllPayments(null, 2);
+
+        // Then
+        assertEquals(2, result.getItems().size());
+        assertEquals(2, result.getLimit());
+        assertNotNull(result.getNextCursor());
+        PageCursor cursor = PageCursor.decode(result.getNextCursor());
+        assertEquals(timestamp, cursor.getTimestamp());
+        assertEquals(older.getId(), cursor.getId());
+
+        // When - следующая страница продолжается строго после курсора
+        when(repository.findPage(PaymentFilter.builder().build(), cursor, 3)).thenReturn(Collections.singletonList(extra));
+        when(paymentMapper.toDtoList(Collections.singletonList(extra)))
+                .thenReturn(Collections.singletonList(PaymentDto.builder().id(extra.getId()).build()));
+        PaymentPageResponse next = paymentService.getAllPayments(result.getNextCursor(), 2);
+
+        // Then
+        assertEquals(1, next.getItems().size());
+        assertNull(next.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("getPaymentsByStatuses_EmptyStatuses_ShouldMatchNothing")
+    void getPaymentsByStatuses_EmptyStatuses_ShouldMatchNothing() {
+        // Given - как у прежнего findByStatusIn, пустой список статусов не совпадает ни с одним платежом
+        when(paymentMapper.toDtoList(Collections.emptyList())).thenReturn(Collections.emptyList());
+
+        // When
+        PaymentPageResponse result = paymentService.getPaymentsByStatuses(Collections.emptyList(), null, 10);
+
+        // Then
+        assertTrue(result.getItems().isEmpty());
+        assertNull(result.getNextCursor());
+        verify(repository, never()).findPage(any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("getAllPayments_LastOnPageWithoutTimestamp_ShouldReturnCursorWithoutTimestamp")
+    void getAllPayments_LastOnPageWithoutTimestamp_ShouldReturnCursorWithoutTimestamp() {
+        // Given - старые платежи без timestamp сортируются последними
+        Payment withTimestamp = Payment.builder().id("665f1a2b3c4d5e6f7a8b9c0d")
+                .timestamp(Instant.parse("2025-06-15T10:00:00Z")).build();
+        Payment legacy = Payment.builder().id("665f1a2b3c4d5e6f7a8b9c0c").build();
+        Payment extra = Payment.builder().id("665f1a2b3c4d5e6f7a8b9c0b").build();
+        when(repository.findPage(PaymentFilter.builder().build(), null, 3))
+                .thenReturn(Arrays.asList(withTimestamp, legacy, extra));
+        when(paymentMapper.toDtoList(Arrays.asList(withTimestamp, legacy))).thenReturn(Arrays.asList(
+                PaymentDto.builder().id(withTimestamp.getId()).build(),
+                PaymentDto.builder().id(legacy.getId()).build()));
+
+        // When
+        PaymentPageResponse result = paymentService.getAllPayments(null, 2);
+
+        // Then
+        PageCursor cursor = PageCursor.decode(result.getNextCursor());
+        assertNull(cursor.getTimestamp());
+        assertEquals(legacy.getId(), cursor.getId());
+    }
+
+    @Test
+    @DisplayName("getAllPayments_InvalidCursor_ShouldThrowIllegalArgument")
+    void getAllPayments_InvalidCursor_ShouldThrowIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> paymentService.getAllPayments("not-a-cursor", 10));
+        verify(repository, never()).findPage(any(), any(), anyInt());
     }
 
     @Test
@@ -529,28 +812,12 @@ class PaymentServiceTest {
         // Given
         Instant startDate = Instant.parse("2025-01-01T00:00:00Z");
         Instant endDate = Instant.parse("2025-12-31T23:59:59Z");
-
-        Payment payment1 = Payment.builder()
-                .id("payment-1")
-                .paymentAmount(new BigDecimal("100.50"))
-                .timestamp(Instant.parse("2025-06-15T10:00:00Z"))
-                .build();
-
-        Payment payment2 = Payment.builder()
-                .id("payment-2")
-                .paymentAmount(new BigDecimal("200.75"))
-                .timestamp(Instant.parse("2025-07-20T14:30:00Z"))
-                .build();
-
-        Payment payment3 = Payment.builder()
-                .id("payment-3")
-                .paymentAmount(null) // Should be filtered out
-                .timestamp(Instant.parse("2025-08-10T09:00:00Z"))
+        PaymentFilter query = PaymentFilter.builder()
+                .startDate(startDate)
+                .endDate(endDate)
                 .build();
 
-        List<Payment> payments = Arrays.asList(payment1, payment2, payment3);
-
-        when(repository.findByTimestampBetween(startDate, endDate)).thenReturn(payments);
+        when(repository.aggregateTotal(query)).thenReturn(new PaymentTotal(new BigDecimal("301.25"), 3L));
 
         // When
         TotalSumResponse result = paymentService.getTotalSumByDatePeriod(startDate, endDate);
@@ -561,7 +828,46 @@ class PaymentServiceTest {
         assertEquals(startDate, result.getStartDate());
         assertEquals(endDate, result.getEndDate());
         assertEquals(3L, result.getPaymentCount());
-        verify(repository).findByTimestampBetween(startDate, endDate);
+        verify(repository).aggregateTotal(query);
+        verify(repository, never()).findByTimestampBetween(any(), any());
+    }
+
+    @Test
+    @DisplayName("getTotalSum_RollupsReadEnabled_ShouldReadFromRollups")
+    void getTotalSum_RollupsReadEnabled_ShouldReadFromRollups() {
+        // Given
+        when(paymentRollupService.isReadEnabled()).thenReturn(true);
+        when(paymentRollupService.getTotal(any(PaymentFilter.class)))
+                .thenReturn(new PaymentTotal(new BigDecimal("10.00"), 1L));
+
+        // When
+        TotalSumResponse result = paymentService.getTotalSum();
+
+        // Then
+        assertEquals(new BigDecimal("10.00"), result.getTotalSum());
+        assertEquals(1L, result.getPaymentCount());
+        verify(repository, never()).aggregateTotal(any());
+    }
+
+    @Test
+    @DisplayName("getTotalSumByDatePeriod_ClosedPeriod_ShouldReadFromClosedPeriodCache")
+    void getTotalSumByDatePeriod_ClosedPeriod_ShouldReadFromClosedPeriodCache() {
+        // Given
+        Instant startDate = Instant.parse("2024-01-01T00:00:00Z");
+        Instant endDate = Instant.parse("2024-02-01T00:00:00Z");
+        PaymentFilter query = PaymentFilter.builder().startDate(startDate).endDate(endDate).build();
+
+        when(closedPeriodTotalService.isSettled(startDate, endDate)).thenReturn(true);
+        when(closedPeriodTotalService.getTotal(eq(query), any()))
+                .thenReturn(new PaymentTotal(new BigDecimal("42.00"), 2L));
+
+        // When
+        TotalSumResponse result = paymentService.getTotalSumByDatePeriod(startDate, endDate);
+
+        // Then
+        assertEquals(new BigDecimal("42.00"), result.getTotalSum());
+        assertEquals(2L, result.getPaymentCount());
+        verify(repository, never()).aggregateTotal(any());
     }
 
     @Test
@@ -571,7 +877,7 @@ class PaymentServiceTest {
         Instant startDate = Instant.parse("2025-01-01T00:00:00Z");
         Instant endDate = Instant.parse("2025-12-31T23:59:59Z");
 
-        when(repository.findByTimestampBetween(startDate, endDate)).thenReturn(Collections.emptyList());
+        when(repository.aggregateTotal(any(PaymentFilter.class))).thenReturn(PaymentTotal.empty());
 
         // When
         TotalSumResponse result = paymentService.getTotalSumByDatePeriod(startDate, endDate);
@@ -589,24 +895,13 @@ class PaymentServiceTest {
         Instant startDate = Instant.parse("2025-01-01T00:00:00Z");
         Instant endDate = Instant.parse("2025-12-31T23:59:59Z");
         List<PaymentStatus> statuses = Collections.singletonList(PaymentStatus.SUCCESS);
-
-        Payment payment1 = Payment.builder()
-                .id("payment-1")
-                .status(PaymentStatus.SUCCESS)
-                .paymentAmount(new BigDecimal("150.00"))
-                .timestamp(Instant.parse("2025-06-15T10:00:00Z"))
-                .build();
-
-        Payment payment2 = Payment.builder()
-                .id("payment-2")
-                .status(PaymentStatus.SUCCESS)
-                .paymentAmount(new BigDecimal("250.50"))
-                .timestamp(Instant.parse("2025-07-20T14:30:00Z"))
+        PaymentFilter query = PaymentFilter.builder()
+                .statuses(statuses)
+                .startDate(startDate)
+                .endDate(endDate)
                 .build();
 
-        List<Payment> payments = Arrays.asList(payment1, payment2);
-
-        when(repository.findByStatusInAndTimestampBetween(statuses, startDate, endDate)).thenReturn(payments);
+        when(repository.aggregateTotal(query)).thenReturn(new PaymentTotal(new BigDecimal("400.50"), 2L));
 
         // When
         TotalSumResponse result = paymentService.getTotalSumByDatePeriodAndStatuses(startDate, endDate, statuses);
@@ -617,7 +912,7 @@ class PaymentServiceTest {
         assertEquals(startDate, result.getStartDate());
         assertEquals(endDate, result.getEndDate());
         assertEquals(2L, result.getPaymentCount());
-        verify(repository).findByStatusInAndTimestampBetween(statuses, startDate, endDate);
+        verify(repository).aggregateTotal(query);
     }
 
     @Test
@@ -628,8 +923,7 @@ class PaymentServiceTest {
         Instant endDate = Instant.parse("2025-12-31T23:59:59Z");
         List<PaymentStatus> statuses = Collections.singletonList(PaymentStatus.SUCCESS);
 
-        when(repository.findByStatusInAndTimestampBetween(statuses, startDate, endDate))
-                .thenReturn(Collections.emptyList());
+        when(repository.aggregateTotal(any(PaymentFilter.class))).thenReturn(PaymentTotal.empty());
 
         // When
         TotalSumResponse result = paymentService.getTotalSumByDatePeriodAndStatuses(startDate, endDate, statuses);
@@ -641,22 +935,39 @@ class PaymentServiceTest {
     }
 
     @Test
-    @DisplayName("createPayment_PaymentNotFoundAfterUpdate_ShouldThrowException")
-    void createPayment_PaymentNotFoundAfterUpdate_ShouldThrowException() {
+    @DisplayName("getTotalSumByUserId_OnlyOneDate_ShouldThrowException")
+    void getTotalSumByUserId_OnlyOneDate_ShouldThrowException() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () ->
+                paymentService.getTotalSumByUserId("2", Instant.parse("2025-01-01T00:00:00Z"), null, null));
+
+        verify(repository, never()).aggregateTotal(any());
+    }
+
+    @Test
+    @DisplayName("createPayment_ShouldWriteOnceWithoutReload")
+    void createPayment_ShouldWriteOnceWithoutReload() {
         // Given
         when(paymentMapper.toEntity(createPaymentRequest)).thenReturn(payment);
-        when(repository.save(any(Payment.class))).thenReturn(savedPayment);
-        when(externalApiClient.getRandomNumber()).thenReturn(48);
-        when(repository.findById("payment-id-123")).thenReturn(Optional.empty());
-        doNothing().when(orderServiceClient).updateOrderStatus(anyLong(), anyString(), anyString());
-
-        // When & Then
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
-            paymentService.createPayment(createPaymentRequest, null);
+        when(repository.save(any(Payment.class))).thenAnswer(invocation -> {
+            Payment toSave = invocation.getArgument(0);
+            toSave.setId("payment-id-123");
+            return toSave;
         });
+        when(externalApiClient.getRandomNumber()).thenReturn(47);
 
-        assertEquals("Payment not found after update: payment-id-123", exception.getMessage());
-        verify(repository).findById("payment-id-123");
+        // When
+        paymentService.createPayment(createPaymentRequest, null);
+
+        // Then
+        ArgumentCaptor<Payment> saved = ArgumentCaptor.forClass(Payment.class);
+        verify(repository, times(1)).save(saved.capture());
+        assertEquals(PaymentStatus.FAILED, saved.getValue().getStatus());
+        assertNotNull(saved.getValue().getTimestamp());
+        verify(repository, never()).findById(any());
+        verify(repository, never()).updateStatus(any(), any());
+        assertEquals(Boolean.TRUE, saved.getValue().getEventPending());
+        verify(paymentMapper).toDto(saved.getValue());
     }
 }
 
@@ -0,0 +1,156 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.model.PaymentTotal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PaymentTotalCache Unit Tests")
+class PaymentTotalCacheTest {
+
+    private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+    private static final Instant END = Instant.parse("2025-02-01T00:00:00Z");
+
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentTotalCache cache;
+    private AtomicInteger loads;
+    private Function<PaymentFilter, PaymentTotal> loader;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new PaymentTotalCache(true, 100, Duration.ofMinutes(1), meterRegistry);
+        loads = new AtomicInteger();
+        loader = filter -> {
+            loads.incrementAndGet();
+            return new PaymentTotal(new BigDecimal("10.00"), 1);
+        };
+    }
+
+    @Test
+    @DisplayName("Should reuse the entry for filters that differ only in status order and duplicates")
+    void get_NormalizesStatuses() {
+        cache.get(filter(List.of(PaymentStatus.FAILED, PaymentStatus.SUCCESS)), loader);
+        cache.get(filter(List.of(PaymentStatus.SUCCESS, PaymentStatus.FAILED, PaymentStatus.SUCCESS)), loader);
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Should drop only entries whose range and statuses contain the written payment")
+    void invalidate_MatchingEntriesOnly() {
+        PaymentFilter january = filter(List.of(PaymentStatus.SUCCESS));
+        PaymentFilter february = PaymentFilter.builder()
+                .statuses(List.of(PaymentStatus.SUCCESS)).startDate(END).endDate(END.plusSeconds(86_400)).build();
+        PaymentFilter failedOnly = filter(List.of(PaymentStatus.FAILED));
+        cache.get(january, loader);
+        cache.get(february, loader);
+        cache.get(failedOnly, loader);
+
+        cache.invalidate(payment(Instant.parse("2025-01-10T12:00:00Z")), PaymentStatus.SUCCESS);
+
+        cache.get(january, loader);
+        cache.get(february, loader);
+        cache.get(failedOnly, loader);
+        assertEquals(4, loads.get());
+        assertEquals(1.0, meterRegistry.get("payment.totals.cache.invalidations").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should drop entries of both the previous and the new status on status change")
+    void invalidate_StatusChange() {
+        PaymentFilter created = filter(List.of(PaymentStatus.CREATED));
+        PaymentFilter success = filter(List.of(PaymentStatus.SUCCESS));
+        cache.get(created, loader);
+        cache.get(success, loader);
+
+        cache.invalidate(payment(Instant.parse("2025-01-10T12:00:00Z")), PaymentStatus.CREATED, PaymentStatus.SUCCESS);
+
+        cache.get(created, loader);
+        cache.get(success, loader);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should not keep a total that was being loaded when a matching payment was written")
+    void invalidate_DuringLoad() throws Exception {
+        PaymentFilter january = filter(List.of(PaymentStatus.SUCCESS));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        Function<PaymentFilter, PaymentTotal> slowLoader = filter -> {
+            loading.countDown();
+            try {
+                invalidated.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader.apply(filter);
+        };
+
+        CompletableFuture<PaymentTotal> load = CompletableFuture.supplyAsync(() -> cache.get(january, slowLoader));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        cache.invalidate(payment(Instant.parse("2025-01-10T12:00:00Z")), PaymentStatus.SUCCESS);
+        invalidated.countDown();
+        load.get(5, TimeUnit.SECONDS);
+
+        cache.get(january, loader);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should not cache a failed load")
+    void get_LoaderFails() {
+        PaymentFilter january = filter(List.of(PaymentStatus.SUCCESS));
+
+        assertThrows(IllegalStateException.class, () -> cache.get(january, filter -> {
+            throw new IllegalStateException("mongo down");
+        }));
+
+        cache.get(january, loader);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should always call the loader when disabled")
+    void get_Disabled() {
+        PaymentTotalCache disabled = new PaymentTotalCache(false, 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+        disabled.get(filter(null), loader);
+        disabled.get(filter(null), loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    private PaymentFilter filter(List<PaymentStatus> statuses) {
+        return PaymentFilter.builder().statuses(statuses).startDate(START).endDate(END).build();
+    }
+
+    private Payment payment(Instant timestamp) {
+        return Payment.builder()
+                .id("payment-1")
+                .orderId("1")
+                .userId("2")
+                .status(PaymentStatus.SUCCESS)
+                .timestamp(timestamp)
+                .paymentAmount(new BigDecimal("5.00"))
+                .build();
+    }
+}
@@ -0,0 +1,121 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.repository.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PendingPaymentSweeper Unit Tests")
+class PendingPaymentSweeperTest {
+
+    private static final Duration OLDER_THAN = Duration.ofMinutes(5);
+
+    @Mock
+    private PaymentRepository repository;
+
+    @Mock
+    private PaymentService paymentService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PendingPaymentSweeper sweeper;
+
+    private final Payment first = Payment.builder().id("p1").status(PaymentStatus.PENDING).build();
+    private final Payment second = Payment.builder().id("p2").status(PaymentStatus.PENDING).build();
+    private final Payment third = Payment.builder().id("p3").status(PaymentStatus.PENDING).build();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        sweeper = new PendingPaymentSweeper(repository, paymentService, meterRegistry, OLDER_THAN, 2);
+    }
+
+    @Test
+    @DisplayName("sweep_FullBatch_ShouldResolvePaymentsOlderThanThresholdAndReadNextBatch")
+    void sweep_FullBatch_ShouldResolvePaymentsOlderThanThresholdAndReadNextBatch() {
+        // Given
+        when(repository.findByStatusAndTimestampBeforeOrderByTimestampAsc(eq(PaymentStatus.PENDING), any(), eq(Limit.of(2))))
+                .thenReturn(List.of(first, second), List.of(third));
+        when(paymentService.resolveStalePendingPayment(any())).thenReturn(true);
+
+        // When
+        Instant before = Instant.now();
+        sweeper.sweep();
+
+        // Then
+        ArgumentCaptor<Instant> cutoff = ArgumentCaptor.forClass(Instant.class);
+        verify(repository, times(2)).findByStatusAndTimestampBeforeOrderByTimestampAsc(
+                eq(PaymentStatus.PENDING), cutoff.capture(), eq(Limit.of(2)));
+        assertFalse(cutoff.getValue().isAfter(Instant.now().minus(OLDER_THAN)));
+        assertFalse(cutoff.getValue().isBefore(before.minus(OLDER_THAN)));
+        verify(paymentService).resolveStalePendingPayment(first);
+        verify(paymentService).resolveStalePendingPayment(second);
+        verify(paymentService).resolveStalePendingPayment(third);
+        assertEquals(3.0, meterRegistry.counter("payment.pending.swept", "result", "resolved").count());
+    }
+
+    @Test
+    @DisplayName("sweep_NothingResolvedInFullBatch_ShouldStopUntilNextRun")
+    void sweep_NothingResolvedInFullBatch_ShouldStopUntilNextRun() {
+        // Given - оба платежа уже завершены другим обработчиком
+        when(repository.findByStatusAndTimestampBeforeOrderByTimestampAsc(eq(PaymentStatus.PENDING), any(), any()))
+                .thenReturn(List.of(first, second));
+        when(paymentService.resolveStalePendingPayment(any())).thenReturn(false);
+
+        // When
+        sweeper.sweep();
+
+        // Then
+        verify(repository, times(1)).findByStatusAndTimestampBeforeOrderByTimestampAsc(any(), any(), any());
+        assertEquals(2.0, meterRegistry.counter("payment.pending.swept", "result", "skipped").count());
+    }
+
+    @Test
+    @DisplayName("sweep_RepositoryFails_ShouldNotThrow")
+    void sweep_RepositoryFails_ShouldNotThrow() {
+        // Given
+        when(repository.findByStatusAndTimestampBeforeOrderByTimestampAsc(any(), any(), any()))
+                .thenThrow(new IllegalStateException("mongo down"));
+
+        // When & Then
+        assertDoesNotThrow(sweeper::sweep);
+        verifyNoInteractions(paymentService);
+    }
+
+    @Test
+    @DisplayName("context_ShouldCreateSweeperOnlyInAsyncMode")
+    void context_ShouldCreateSweeperOnlyInAsyncMode() {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withInitializer(context -> context.getBeanFactory()
+                        .setConversionService(ApplicationConversionService.getSharedInstance()))
+                .withBean(PaymentRepository.class, () -> repository)
+                .withBean(PaymentService.class, () -> paymentService)
+                .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+                .withUserConfiguration(PendingPaymentSweeper.class);
+
+        runner.run(context -> assertTrue(context.getBeansOfType(PendingPaymentSweeper.class).isEmpty()));
+        runner.withPropertyValues("payment.processing.async=true")
+                .run(context -> assertNotNull(context.getBean(PendingPaymentSweeper.class)));
+        runner.withPropertyValues("payment.processing.async=true", "payment.processing.pending-sweep.enabled=false")
+                .run(context -> assertTrue(context.getBeansOfType(PendingPaymentSweeper.class).isEmpty()));
+    }
+}
@@ -0,0 +1,187 @@
+package com.innowise.paymentservice.service;
+
+import com.innowise.paymentservice.client.ExternalApiClient;
+import com.innowise.paymentservice.client.OrderServiceClient;
+import com.innowise.paymentservice.dto.CreatePaymentRequest;
+import com.innowise.paymentservice.dto.PaymentDto;
+import com.innowise.paymentservice.dto.PaymentPageResponse;
+import com.innowise.paymentservice.dto.TotalSumResponse;
+import com.innowise.paymentservice.mapper.PaymentMapper;
+import com.innowise.paymentservice.model.Payment;
+import com.innowise.paymentservice.model.PaymentFilter;
+import com.innowise.paymentservice.model.PaymentStatus;
+import com.innowise.paymentservice.model.PaymentTotal;
+import com.innowise.paymentservice.repository.ReactivePaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ReactivePaymentService Unit Tests")
+class ReactivePaymentServiceTest {
+
+    @Mock
+    private ReactivePaymentRepository repository;
+
+    @Mock
+    private PaymentMapper paymentMapper;
+
+    @Mock
+    private ExternalApiClient externalApiClient;
+
+    @Mock
+    private PaymentDecisionEngine paymentDecisionEngine;
+
+    @Mock
+    private OrderServiceClient orderServiceClient;
+
+    @Mock
+    private PaymentRollupService paymentRollupService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private ReactivePaymentService paymentService;
+
+    private final CreatePaymentRequest request = CreatePaymentRequest.builder()
+            .orderId("1")
+            .userId("2")
+            .paymentAmount(new BigDecimal("100.50"))
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        // Решение принимает реальный remote-движок поверх замоканного внешнего API
+        RemoteApiDecisionEngine remoteEngine = new RemoteApiDecisionEngine(externalApiClient);
+        lenient().when(paymentDecisionEngine.decideAsync(any(Payment.class)))
+                .thenAnswer(invocation -> remoteEngine.decideAsync(invocation.getArgument(0)));
+    }
+
+    @Test
+    @DisplayName("createPayment_EvenNumber_ShouldSaveWithOutboxEventAndNotifyInOrder")
+    void createPayment_EvenNumber_ShouldSaveWithOutboxEventAndNotifyInOrder() {
+        // Given
+        Payment payment = Payment.builder().orderId("1").userId("2").paymentAmount(new BigDecimal("100.50")).build();
+        PaymentDto dto = PaymentDto.builder().id("payment-1").status(PaymentStatus.SUCCESS).build();
+        when(paymentMapper.toEntity(request)).thenReturn(payment);
+        when(orderServiceClient.updateOrderStatusAsync(anyLong(), anyString(), anyString())).thenReturn(Mono.empty());
+        when(externalApiClient.getRandomNumberAsync()).thenReturn(Mono.just(48));
+        when(repository.save(payment)).thenAnswer(invocation -> {
+            payment.setId("payment-1");
+            return Mono.just(payment);
+        });
+        when(paymentMapper.toDto(payment)).thenReturn(dto);
+
+        // When
+        PaymentDto result = paymentService.createPayment(request, "token").block();
+
+        // Then
+        assertSame(dto, result);
+        assertEquals(PaymentStatus.SUCCESS, payment.getStatus());
+        assertNotNull(payment.getTimestamp());
+        assertEquals(Boolean.TRUE, payment.getEventPending());
+        InOrder inOrder = inOrder(orderServiceClient, repository, paymentRollupService);
+        inOrder.verify(orderServiceClient).updateOrderStatusAsync(1L, "PROCESSING", "token");
+        inOrder.verify(repository).save(payment);
+        inOrder.verify(paymentRollupService).recordCreated(payment);
+        inOrder.verify(orderServiceClient).updateOrderStatusAsync(1L, "CANCELED", "token");
+        assertEquals(1.0, meterRegistry.counter("payments.created").count());
+    }
+
+    @Test
+    @DisplayName("createPayment_DownstreamFailures_ShouldStillSaveFailedPayment")
+    void createPayment_DownstreamFailures_ShouldStillSaveFailedPayment() {
+        // Given
+        Payment payment = Payment.builder().orderId("1").userId("2").paymentAmount(new BigDecimal("100.50")).build();
+        when(paymentMapper.toEntity(request)).thenReturn(payment);
+        when(orderServiceClient.updateOrderStatusAsync(anyLong(), anyString(), anyString()))
+                .thenReturn(Mono.error(new OrderServiceClient.OrderServiceException("order-service down")));
+        when(externalApiClient.getRandomNumberAsync()).thenReturn(Mono.empty());
+        when(repository.save(payment)).thenReturn(Mono.just(payment));
+        when(paymentMapper.toDto(payment)).thenReturn(PaymentDto.builder().status(PaymentStatus.FAILED).build());
+
+        // When
+        PaymentDto result = paymentService.createPayment(request, "").block();
+
+        // Then
+        assertEquals(PaymentStatus.FAILED, result.getStatus());
+        assertEquals(PaymentStatus.FAILED, payment.getStatus());
+        verify(orderServiceClient, times(2)).updateOrderStatusAsync(eq(1L), anyString(), eq(""));
+        assertEquals(Boolean.TRUE, payment.getEventPending());
+    }
+
+    @Test
+    @DisplayName("getPayments_MoreThanLimit_ShouldReturnNextCursor")
+    void getPayments_MoreThanLimit_ShouldReturnNextCursor() {
+        // Given
+        Payment newest = Payment.builder().id("b").timestamp(Instant.parse("2025-01-02T00:00:00Z")).build();
+        Payment extra = Payment.builder().id("a").timestamp(Instant.parse("2025-01-01T00:00:00Z")).build();
+        PaymentFilter filter = PaymentFilter.builder().userId("2").build();
+        when(repository.findPage(filter, null, 2)).thenReturn(Flux.just(newest, extra));
+        when(paymentMapper.toDtoList(List.of(newest))).thenReturn(List.of(PaymentDto.builder().id("b").build()));
+
+        // When
+        PaymentPageResponse page = paymentService.getPayments(filter, null, 1).block();
+
+        // Then
+        assertEquals(1, page.getItems().size());
+        assertEquals(1, page.getLimit());
+        assertNotNull(page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("getPayments_EmptyStatuses_ShouldMatchNothing")
+    void getPayments_EmptyStatuses_ShouldMatchNothing() {
+        // Given
+        PaymentFilter filter = PaymentFilter.builder().statuses(List.of()).build();
+        when(paymentMapper.toDtoList(List.of())).thenReturn(List.of());
+
+        // When
+        PaymentPageResponse page = paymentService.getPayments(filter, null, 10).block();
+
+        // Then
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+        verify(repository, never()).findPage(any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("getTotalSum_ShouldAggregateAndRejectHalfOpenPeriod")
+    void getTotalSum_ShouldAggregateAndRejectHalfOpenPeriod() {
+        // Given
+        Instant start = Instant.parse("2025-01-01T00:00:00Z");
+        Instant end = Instant.parse("2025-02-01T00:00:00Z");
+        PaymentFilter filter = PaymentFilter.builder().startDate(start).endDate(end).build();
+        when(repository.aggregateTotal(filter)).thenReturn(Mono.just(new PaymentTotal(new BigDecimal("10.00"), 2L)));
+
+        // When
+        TotalSumResponse response = paymentService.getTotalSum(filter).block();
+
+        // Then
+        assertEquals(new BigDecimal("10.00"), response.getTotalSum());
+        assertEquals(2L, response.getPaymentCount());
+        assertEquals(start, response.getStartDate());
+        PaymentFilter halfOpen = PaymentFilter.builder().startDate(start).build();
+        assertThrows(IllegalArgumentException.class, () -> paymentService.getTotalSum(halfOpen).block());
+        verify(repository, never()).aggregateTotal(halfOpen);
+    }
+}